@@ -22,13 +22,23 @@ import java.util.Arrays;
 
 import de.jstacs.algorithms.alignment.cost.AffineCosts;
 import de.jstacs.algorithms.alignment.cost.Costs;
+import de.jstacs.algorithms.alignment.cost.MatrixCosts;
+import de.jstacs.algorithms.alignment.cost.SimpleCosts;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.sequences.Sequence;
 
 /**
  * Class for computing optimal alignments using Needleman-Wunsch algorithm of for affine gap costs Gotohs algorithm.
- * The class also provides the possibility of specifying the number of off-diagonals. In this case, the current
- * implementation helps to reduce the runtime but not the memory consumption.
+ * The class also provides the possibility of specifying the number of off-diagonals. In this case, only the band
+ * around the diagonal is computed and stored, which reduces the runtime and the memory consumption.
+ * 
+ * <br><br>
+ * 
+ * If only the costs of an alignment are needed, {@link #getCost(AlignmentType, Sequence, int, int, Sequence, int, int)} 
+ * computes them using only two rows of the matrices. If the matrices of an alignment requested by
+ * {@link #getAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)} would be large, only some rows are stored during the computation
+ * and the remaining rows are recomputed block-wise during the backtracking. Hence, the memory is reduced from
+ * <code>l1*l2</code> to roughly <code>sqrt(l1)*l2</code> at the expense of computing the matrices twice.
  * 
  * @author Jan Grau, Jens Keilwagen
  * 
@@ -100,10 +110,37 @@ public class Alignment {
 	private AlignmentAlgorithm algorithm;
 
 	/**
-	 * The matrices holding the edit distances
+	 * The matrices holding the edit distances. If the number of secondary diagonals is smaller than the length of the second sequence,
+	 * the rows only contain the band around the diagonal.
 	 */
 	protected double[][][] d;
 	
+	/**
+	 * The rows of the matrices used in the computation, which are either the rows of {@link #d} or a subset of rows.
+	 */
+	private double[][][] m;
+	
+	/**
+	 * Whether the rows only contain the band around the diagonal.
+	 */
+	private boolean banded;
+	
+	/**
+	 * Whether {@link #d} contains the matrices of the last alignment.
+	 */
+	private boolean complete;
+	
+	/**
+	 * The discrete values of the aligned sequences and the costs for pairs of discrete values, if the costs are {@link SimpleCosts} or {@link MatrixCosts}.
+	 */
+	private int[] x1, x2;
+	private double[][] table;
+	
+	/**
+	 * The maximal number of matrix entries for which {@link #getAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)} stores the complete matrices.
+	 */
+	private static final long MAX_ENTRIES = 1L << 24;
+	
 	/**
 	 * The number of secondary diagonals at both sides of the main diagonal.
 	 * If the alignment is performed for {@link Sequence}s of different length, 
@@ -170,6 +207,8 @@ public class Alignment {
 	/**
 	 * Computes and returns the alignment of <code>s1</code> and <code>s2</code>
 	 * ({@link #Alignment(Costs)}).
+	 * If the matrices of a banded instance would have more than <code>2^24</code> entries, only some rows are stored and the remaining rows are recomputed during the backtracking.
+	 * In this case, {@link #getCost(int, int)} can not be used until the next call of {@link #computeAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)}.
 	 * 
 	 * @param type the type of the alignment
 	 * @param s1 the first sequence 
@@ -182,11 +221,231 @@ public class Alignment {
 	 * @return the alignment
 	 */
 	public PairwiseStringAlignment getAlignment( AlignmentType type, Sequence s1, int startS1, int endS1, Sequence s2, int startS2, int endS2 ) {
-		computeAlignment(type, s1, startS1, endS1, s2, startS2, endS2);
+		prepare( type, s1, startS1, endS1, s2, startS2, endS2 );
+		if( offDiagonal == 0 || (long) (l1+1) * getWidth() * (aCosts == null ? 1 : 3) <= MAX_ENTRIES ) {
+			computeAlignment(type, s1, startS1, endS1, s2, startS2, endS2);
+			
+			//printMatrix(s1,s2);		
+			int[] index = getIndex( endS1, endS2 );
+			return getAlignment(index);
+		} else {
+			return getCheckpointedAlignment();
+		}
+	}
+	
+	/**
+	 * Computes the costs of the alignment of <code>s1</code> and <code>s2</code> starting from <code>startS1</code> and <code>startS2</code> until <code>endS1</code> and <code>endS2</code>, respectively.
+	 * The result is identical to {@link #computeAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)} followed by {@link #getCost(int, int)} for <code>endS1</code> and <code>endS2</code>,
+	 * but only two rows of the matrices are stored. Afterwards, {@link #getCost(int, int)} can not be used until the next call of {@link #computeAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)}.
+	 * 
+	 * @param type the type of the alignment
+	 * @param s1 the first sequence
+	 * @param startS1 the start position in the first sequence
+	 * @param endS1 the end position (exclusive) in the first sequence
+	 * @param s2 the second sequence
+	 * @param startS2 the start position in the second sequence
+	 * @param endS2 the end position (exclusive) in the second sequence
+	 * 
+	 * @return the costs of the alignment
+	 */
+	public double getCost( AlignmentType type, Sequence s1, int startS1, int endS1, Sequence s2, int startS2, int endS2 ) {
+		prepare( type, s1, startS1, endS1, s2, startS2, endS2 );
+		double[] cost = new double[1];
+		computeRows( null, cost );
+		return cost[0];
+	}
+	
+	/**
+	 * Computes the costs of the alignment of <code>s1</code> and <code>s2</code> using only two rows of the matrices.
+	 * 
+	 * @param type the type of the alignment
+	 * @param s1 the first sequence
+	 * @param s2 the second sequence
+	 * 
+	 * @return the costs of the alignment
+	 * 
+	 * @see #getCost(AlignmentType, Sequence, int, int, Sequence, int, int)
+	 */
+	public double getCost( AlignmentType type, Sequence s1, Sequence s2 ) {
+		return getCost( type, s1, 0, s1.getLength(), s2, 0, s2.getLength() );
+	}
+	
+	/**
+	 * Sets the sequences and the type of the alignment, checks the number of secondary diagonals, and prepares the costs.
+	 */
+	private void prepare( AlignmentType type, Sequence s1, int startS1, int endS1, Sequence s2, int startS2, int endS2 ) {
+		this.s1 = s1; this.startS1 = startS1;
+		this.s2 = s2; this.startS2 = startS2;
+		this.type = type;
+		
+		l1 = endS1-startS1;
+		l2 = endS2-startS2;
+		
+		if( Math.abs(l1-l2) > offDiagonal ) throw new IllegalArgumentException("The number of secondary diagonals must be at least as large as the difference of the lengths, but is "+offDiagonal+" < "+Math.abs(l1-l2)+".");
 		
-		//printMatrix(s1,s2);		
-		int[] index = getIndex( endS1, endS2 );
-		return getAlignment(index);
+		banded = offDiagonal > 0 && 2L*offDiagonal+3 < l2+1;
+		complete = false;
+		
+		//specialization for the common costs
+		table = null;
+		Costs c = aCosts == null ? costs : aCosts.getInternalCosts();
+		if( c != null && (c.getClass() == SimpleCosts.class || c.getClass() == MatrixCosts.class) ) {
+			x1 = getDiscreteValues( x1, s1, startS1, l1 );
+			x2 = getDiscreteValues( x2, s2, startS2, l2 );
+			int max1 = -1, max2 = -1;
+			for( int i = 1; i <= l1; i++ ) {
+				max1 = Math.max( max1, x1[i] );
+			}
+			for( int j = 1; j <= l2; j++ ) {
+				max2 = Math.max( max2, x2[j] );
+			}
+			if( max1 < 256 && max2 < 256 ) {
+				table = new double[max1+1][max2+1];
+				try {
+					for( int a = 0; a <= max1; a++ ) {
+						for( int b = 0; b <= max2; b++ ) {
+							table[a][b] = c instanceof SimpleCosts ? ((SimpleCosts) c).getCostFor( a, b ) : ((MatrixCosts) c).getCostFor( a, b );
+						}
+					}
+				} catch( ArrayIndexOutOfBoundsException e ) {
+					//not all discrete values are covered by the matrix
+					table = null;
+				}
+			}
+		}
+	}
+	
+	private static int[] getDiscreteValues( int[] x, Sequence s, int start, int l ) {
+		if( x == null || x.length < l+1 ) {
+			x = new int[l+1];
+		}
+		for( int i = 1; i <= l; i++ ) {
+			x[i] = s.discreteVal( start+i-1 );
+		}
+		return x;
+	}
+	
+	/**
+	 * Returns the number of entries per row of the matrices.
+	 */
+	private int getWidth() {
+		return banded ? 2*offDiagonal+3 : l2+1;
+	}
+	
+	/**
+	 * Returns the index of the entry for column <code>j</code> in row <code>i</code> of the matrices.
+	 */
+	private int col( int i, int j ) {
+		return banded ? j - i + offDiagonal + 1 : j;
+	}
+	
+	/**
+	 * Returns the costs for aligning position <code>i</code> of the first sequence and position <code>j</code> of the second sequence.
+	 */
+	private double getCostFor( int i, int j ) {
+		return table != null ? table[x1[i]][x2[j]] : costs.getCostFor( s1, s2, startS1+i, startS2+j );
+	}
+	
+	/**
+	 * Computes all rows of the matrices but stores only two rows and the rows in <code>checkpoints</code>, i.e., every <code>checkpoints[0][0].length</code>-th row.
+	 * 
+	 * @param checkpoints the array for the checkpoint rows, or <code>null</code> if no rows should be stored
+	 * @param cost an array for returning the optimal cost
+	 * 
+	 * @return the index in the matrices where to get the optimal cost and start the backtracking
+	 */
+	private int[] computeRows( double[][][] checkpoints, double[] cost ) {
+		int k = aCosts == null ? 1 : 3, w = getWidth();
+		m = new double[k][l1+1][];
+		double[][][] rows = new double[k][2][w];
+		int[] index = {-1,-1,-1};
+		int step = checkpoints == null ? 0 : (l1+1 + checkpoints[0].length-1) / checkpoints[0].length;
+		for( int i = 0; i <= l1; i++ ) {
+			for( int a = 0; a < k; a++ ) {
+				m[a][i] = rows[a][i&1];
+				if( i > 1 ) {
+					m[a][i-2] = null;
+				}
+			}
+			computeRow( i );
+			if( type == AlignmentType.LOCAL ) {
+				cost[0] = updateLocalIndex( index, cost[0], i, l2 );
+			}
+			if( checkpoints != null && i % step == step-1 ) {
+				for( int a = 0; a < k; a++ ) {
+					System.arraycopy( m[a][i], 0, checkpoints[a][i/step], 0, w );
+				}
+			}
+		}
+		if( type != AlignmentType.LOCAL ) {
+			getGlobalIndex( index, l1, l2 );
+			cost[0] = m[index[0]][l1][col( l1, l2 )];
+		}
+		return index;
+	}
+	
+	/**
+	 * Computes the alignment with rows of the matrices that are stored only at checkpoints. The remaining rows are recomputed block-wise during the backtracking.
+	 * 
+	 * @return the alignment
+	 */
+	private PairwiseStringAlignment getCheckpointedAlignment() {
+		int k = aCosts == null ? 1 : 3, w = getWidth();
+		int step = (int) Math.ceil( Math.sqrt( l1+1 ) );
+		double[][][] checkpoints = new double[k][(l1+1+step-1)/step][w];
+		int[] index = computeRows( checkpoints, new double[1] );
+		for( int a = 0; a < k; a++ ) {
+			Arrays.fill( m[a], null );
+		}
+		checkpoint = new Checkpoints( checkpoints, new double[k][step][w], step );
+		try {
+			return getAlignment( index );
+		} finally {
+			checkpoint = null;
+		}
+	}
+	
+	private Checkpoints checkpoint;
+	
+	/**
+	 * The rows at the checkpoints and the buffer for recomputing the rows of a block.
+	 */
+	private static class Checkpoints {
+		private double[][][] rows, block;
+		private int step, first;
+		
+		private Checkpoints( double[][][] rows, double[][][] block, int step ) {
+			this.rows = rows;
+			this.block = block;
+			this.step = step;
+			this.first = Integer.MAX_VALUE;
+		}
+	}
+	
+	/**
+	 * Ensures that the rows <code>i-1</code> and <code>i</code> of the matrices are available for the backtracking.
+	 * 
+	 * @param i the row
+	 */
+	private void ensureRows( int i ) {
+		if( checkpoint != null && i < checkpoint.first ) {
+			int step = checkpoint.step, b = (i / step) * step, end = Math.min( l1, b+step-1 );
+			for( int a = 0; a < m.length; a++ ) {
+				if( checkpoint.first <= l1 ) {
+					Arrays.fill( m[a], checkpoint.first, Math.min( l1, checkpoint.first+step-1 )+1, null );
+				}
+				if( b > 0 ) {
+					m[a][b-1] = checkpoint.rows[a][b/step-1];
+				}
+				for( int r = b; r <= end; r++ ) {
+					m[a][r] = checkpoint.block[a][r-b];
+				}
+			}
+			for( int r = b; r <= end; r++ ) {
+				computeRow( r );
+			}
+			checkpoint.first = b;
+		}
 	}
 	
 	
@@ -231,41 +490,43 @@ public class Alignment {
 	 */
 	public boolean computeAlignment( AlignmentType type, Sequence s1, int startS1, int endS1, Sequence s2, int startS2, int endS2 ) {
 
-		this.s1 = s1; this.startS1 = startS1;
-		this.s2 = s2; this.startS2 = startS2;
-		this.type = type;
-		
-		l1 = endS1-startS1;
-		l2 = endS2-startS2;
-		
-		if( Math.abs(l1-l2) > offDiagonal ) throw new IllegalArgumentException("The number of secondary diagonals must be at least as large as the difference of the lengths, but is "+offDiagonal+" < "+Math.abs(l1-l2)+".");
-		
-		int start, end, h;
+		prepare( type, s1, startS1, endS1, s2, startS2, endS2 );
 		
 		//initialize
-		if( d == null || d[0].length < l1+1 || d[0][0].length < l2+1 ) {
+		int w = getWidth();
+		if( d == null || d[0].length < l1+1 || d[0][0].length < w ) {
 			d=null;//garbage collector
-			d = new double[aCosts == null ? 1 : 3][l1+1][l2+1];
+			d = new double[aCosts == null ? 1 : 3][l1+1][w];
 		}
+		m = d;
 		
 		//compute
 		for( int i = 0; i <= l1; i++ ) {
-			start = Math.max(0,i-offDiagonal);
-			h = i+offDiagonal;
-			if( h > 0 ) {//due to possible overflow
-				end = Math.min(l2,h);
-			} else {
-				end = l2;
-			}
-			algorithm.reset( i, 0, start );
-			for( int j = start; j <= end; j++ ) {
-				algorithm.compute(i,j);
-			}
-			if( end != l2 ) algorithm.reset( i, end+1, l2 );
+			computeRow( i );
 		}
+		complete = true;
 		return true;
 	}
 	
+	/**
+	 * Computes row <code>i</code> of the matrices within the band.
+	 * 
+	 * @param i the row
+	 */
+	private void computeRow( int i ) {
+		int start = Math.max(0,i-offDiagonal), end, h = i+offDiagonal;
+		if( h > 0 ) {//due to possible overflow
+			end = Math.min(l2,h);
+		} else {
+			end = l2;
+		}
+		algorithm.reset( i, 0, start );
+		for( int j = start; j <= end; j++ ) {
+			algorithm.compute(i,j);
+		}
+		if( end != l2 ) algorithm.reset( i, end+1, l2 );
+	}
+	
 	/**
 	 * Finding the index in the matrices where to get the optimal cost and start the backtracking.
 	 * 
@@ -280,53 +541,80 @@ public class Alignment {
 		int l2 = e2-startS2;
 		
 		int[] index = {-1,-1,-1};
-		int start, end, h;
 		if( type == AlignmentType.LOCAL ) {
-			index[0] = 0;
+			double best = Double.NaN;
 			for( int i = 0; i <= l1; i++ ) {
-				start = Math.max(0,i-offDiagonal);
-				h = i+offDiagonal;
-				if( h > 0 ) {//due to possible overflow
-					end = Math.min(l2,h);
-				} else {
-					end = l2;
-				}
-				for( int j = start; j <= end; j++ ) {
-					if( index[1] < 0 || d[0][i][j] < d[0][index[1]][index[2]] ) {
-						index[1] = i;
-						index[2] = j;
-					}
-				}
+				best = updateLocalIndex( index, best, i, l2 );
 			}
 		} else {
-			index[1] = l1;
-			index[2] = l2;
-			if( aCosts == null ) {
-				index[0] = 0;
-			} else {
-				if( d[1][l1][l2] < d[2][l1][l2] && d[1][l1][l2] < d[0][l1][l2] ) {
-					index[0] = 1;
-				} else if( d[2][l1][l2] < d[0][l1][l2] ) {
-					index[0] = 2;
-				} else {
-					index[0] = 0;
-				}
-			}
+			getGlobalIndex( index, l1, l2 );
 		}
 		
 		return index;
 	}
 	
+	/**
+	 * Updates the index and the value of the minimal cost of a local alignment by the entries of row <code>i</code> until column <code>l2</code>.
+	 * 
+	 * @return the minimal cost
+	 */
+	private double updateLocalIndex( int[] index, double best, int i, int l2 ) {
+		int start = Math.max(0,i-offDiagonal), end, h = i+offDiagonal;
+		if( h > 0 ) {//due to possible overflow
+			end = Math.min(l2,h);
+		} else {
+			end = l2;
+		}
+		index[0] = 0;
+		double[] row = m[0][i];
+		for( int j = start; j <= end; j++ ) {
+			double v = row[col(i,j)];
+			if( index[1] < 0 || v < best ) {
+				index[1] = i;
+				index[2] = j;
+				best = v;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Sets the index of the cost of a non-local alignment until <code>l1</code> and <code>l2</code>.
+	 */
+	private void getGlobalIndex( int[] index, int l1, int l2 ) {
+		index[1] = l1;
+		index[2] = l2;
+		int c = col( l1, l2 );
+		if( aCosts == null ) {
+			index[0] = 0;
+		} else {
+			if( m[1][l1][c] < m[2][l1][c] && m[1][l1][c] < m[0][l1][c] ) {
+				index[0] = 1;
+			} else if( m[2][l1][c] < m[0][l1][c] ) {
+				index[0] = 2;
+			} else {
+				index[0] = 0;
+			}
+		}
+	}
+	
 	/**
 	 * Returns the costs until positions <code>end1</code> and <code>end2</code> of the last alignment computed using
 	 * {@link #computeAlignment(AlignmentType, Sequence, Sequence)}.
+	 * The costs are also available after {@link #getAlignment(AlignmentType, Sequence, int, int, Sequence, int, int)} if that method stored the complete matrices,
+	 * but not after a checkpointed alignment of a banded instance or after {@link #getCost(AlignmentType, Sequence, int, int, Sequence, int, int)},
+	 * since only some rows of the matrices are kept in these cases.
 	 * @param end1 the end position in the first sequence
 	 * @param end2 the end position in the second sequence
 	 * @return the costs
+	 * @throws IllegalStateException if the matrices of the last alignment are not available
 	 */
 	public double getCost( int end1, int end2 ) {
+		if( !complete ) {
+			throw new IllegalStateException( "The matrices of the last alignment are not available." );
+		}
 		int[] index = getIndex( end1, end2 );
-		return d[index[0]][index[1]][index[2]];
+		return d[index[0]][index[1]][col( index[1], index[2] )];
 	}
 	
 	/**
@@ -337,7 +625,8 @@ public class Alignment {
 	 * @return the alignment
 	 */
 	protected PairwiseStringAlignment getAlignment( int[] index ){
-		double cost = d[index[0]][index[1]][index[2]];
+		ensureRows( index[1] );
+		double cost = m[index[0]][index[1]][col( index[1], index[2] )];
 
 		StringBuffer b1 = new StringBuffer();
 		StringBuffer b2 = new StringBuffer();
@@ -352,6 +641,7 @@ public class Alignment {
 		endPos2 = type==AlignmentType.LOCAL ? startS2 + index[2] : index[2];
 		int numMatches = 0;
 		while( true ) {
+			ensureRows( index[1] );
 			algorithm.next(index,next);
 			//System.out.println( Arrays.toString(index) + "\t" + Arrays.toString(next) );
 			if( next[0] < 0 ) {
@@ -399,6 +689,21 @@ public class Alignment {
 		return new PairwiseStringAlignment( b1.toString(), b2.toString(), cost, startPos, endPos, startPos2, endPos2, numMatches );
 	}
 	
+	/**
+	 * Sets the entries of the columns <code>startJ</code> and <code>endJ-1</code> in row <code>i</code> of matrix <code>k</code> to infinity, if these entries are stored.
+	 */
+	private void setInfinity( int k, int i, int startJ, int endJ ) {
+		double[] row = m[k][i];
+		int c;
+		if( startJ >= 0 && (c = col( i, startJ )) >= 0 && c < row.length ) {
+			row[c] = Double.POSITIVE_INFINITY;
+		}
+		if( endJ > 0 && (c = col( i, endJ-1 )) >= 0 && c < row.length ) {
+			row[c] = Double.POSITIVE_INFINITY;
+		}
+		//Arrays.fill( row, startJ, endJ, Double.POSITIVE_INFINITY );
+	}
+	
 	private static interface AlignmentAlgorithm {
 		public void compute( int i, int j );
 		public void reset( int i, int startJ, int endJ );
@@ -413,21 +718,21 @@ public class Alignment {
 		public byte computeDirection( int i, int j ) {
 			byte direction = -1;
 			if( i == 0 && j == 0 ) {
-				d[0][i][j] = 0;
+				m[0][i][col(i,j)] = 0;
 			} else if( i == 0 && j > 0 ) {
 				if( type != AlignmentType.LOCAL ) {
 					direction = 1;
 				}				
-				d[0][i][j] = type != AlignmentType.GLOBAL && type != AlignmentType.SEMI_GLOBAL ? 0 : d[0][i][j-1]+costs.getInsertCosts();
+				m[0][i][col(i,j)] = type != AlignmentType.GLOBAL && type != AlignmentType.SEMI_GLOBAL ? 0 : m[0][i][col(i,j-1)]+costs.getInsertCosts();
 			} else if( i > 0 && j == 0 ) {
 				if( type != AlignmentType.LOCAL ) {
 					direction = 2;
 				}
-				d[0][i][j] = type != AlignmentType.GLOBAL ? 0 :  d[0][i-1][j] + costs.getDeleteCosts();
+				m[0][i][col(i,j)] = type != AlignmentType.GLOBAL ? 0 :  m[0][i-1][col(i-1,j)] + costs.getDeleteCosts();
 			} else {
-				double diag = d[0][i - 1][j - 1] + costs.getCostFor( s1, s2, startS1+i, startS2+j );
-				double left = d[0][i][j - 1];
-				double top = d[0][i-1][j];
+				double diag = m[0][i - 1][col(i-1,j-1)] + getCostFor( i, j );
+				double left = m[0][i][col(i,j-1)];
+				double top = m[0][i-1][col(i-1,j)];
 				
 				if(i < l1 && j < l2){
 					top += costs.getDeleteCosts();
@@ -450,32 +755,26 @@ public class Alignment {
 				}*/
 				
 				if( diag < left && diag < top ) {
-					d[0][i][j] = diag;
+					m[0][i][col(i,j)] = diag;
 					direction = 0;
 				} else if( left < top ) {
-					d[0][i][j] = left;
+					m[0][i][col(i,j)] = left;
 					direction = 1;
 				} else {
-					d[0][i][j] = top;
+					m[0][i][col(i,j)] = top;
 					direction = 2;
 				}
 			}
 			
-			if( type == AlignmentType.LOCAL && 0 < d[0][i][j] ) {
-				d[0][i][j] = 0;
+			if( type == AlignmentType.LOCAL && 0 < m[0][i][col(i,j)] ) {
+				m[0][i][col(i,j)] = 0;
 				direction = -1;
 			}
 			return direction;
 		}
 
 		public void reset(int i, int startJ, int endJ) {
-			if( startJ >= 0 && startJ < d[0][i].length ) {
-				d[0][i][startJ] = Double.POSITIVE_INFINITY;
-			}
-			if( endJ > 0 && endJ <= d[0][i].length ) {
-				d[0][i][endJ-1] = Double.POSITIVE_INFINITY;
-			}
-			//Arrays.fill( d[0][i], startJ, endJ, Double.POSITIVE_INFINITY );
+			setInfinity( 0, i, startJ, endJ );
 		}
 
 		public void next( int[] index, int[] next ) {
@@ -509,31 +808,31 @@ public class Alignment {
 		public byte computeMatchMisMatch( int i, int j ) {
 			byte direction = -99;
 			if( i == 0 && j == 0 ) {
-				d[0][i][j] = 0;
+				m[0][i][col(i,j)] = 0;
 			} else if( i == 0 && j > 0 ) {
-				d[0][i][j] = d[1][i][j];
+				m[0][i][col(i,j)] = m[1][i][col(i,j)];
 				direction = 1;
 			} else if( i > 0 && j == 0 ) {
-				d[0][i][j] = d[2][i][j];
+				m[0][i][col(i,j)] = m[2][i][col(i,j)];
 				direction = 2;
 			} else {
-				double diag = d[0][i - 1][j - 1] + costs.getCostFor( s1, s2, startS1+i, startS2+j );
-				double left = d[1][i][j];
-				double top = d[2][i][j];
+				double diag = m[0][i - 1][col(i-1,j-1)] + getCostFor( i, j );
+				double left = m[1][i][col(i,j)];
+				double top = m[2][i][col(i,j)];
 
 				if( diag < left && diag < top ) {
-					d[0][i][j] = diag;
+					m[0][i][col(i,j)] = diag;
 					direction = 0;
 				} else if( left < top ) {
-					d[0][i][j] = left;
+					m[0][i][col(i,j)] = left;
 					direction = 1;
 				} else {
-					d[0][i][j] = top;
+					m[0][i][col(i,j)] = top;
 					direction = 2;
 				}
 			}
-			if( type == AlignmentType.LOCAL && 0 < d[0][i][j] ) {
-				d[0][i][j] = 0;
+			if( type == AlignmentType.LOCAL && 0 < m[0][i][col(i,j)] ) {
+				m[0][i][col(i,j)] = 0;
 				direction = -1;
 			}
 			return direction;
@@ -542,26 +841,26 @@ public class Alignment {
 		public byte computeGap1( int i, int j ) {
 			byte direction = -100;
 			if( j == 0 ) {
-				d[1][i][j] = Double.POSITIVE_INFINITY;
+				m[1][i][col(i,j)] = Double.POSITIVE_INFINITY;
 			} else if( i == 0 /*&& j > 0*/ ) {
 				if( type==AlignmentType.LOCAL ) {
 					direction = -1;
-					d[1][i][j] = 0;
+					m[1][i][col(i,j)] = 0;
 				} else {
 					direction = 1;
-					d[1][i][j] = type==AlignmentType.FREE_SHIFT ? 0 : aCosts.getInsertCostsFor( j );					
+					m[1][i][col(i,j)] = type==AlignmentType.FREE_SHIFT ? 0 : aCosts.getInsertCostsFor( j );					
 				}
 			} else if ( type==AlignmentType.FREE_SHIFT /*&& j > 0*/ && i == l1 ) {
 				direction = 0;//TODO
-				d[1][i][j] = d[0][i][j-1];
+				m[1][i][col(i,j)] = m[0][i][col(i,j-1)];
 			} else {
-				double elong = d[1][i][j - 1] + aCosts.getElongateInsertCosts();
-				double start = d[0][i][j - 1] + aCosts.getInsertCostsFor( 1 );
+				double elong = m[1][i][col(i,j-1)] + aCosts.getElongateInsertCosts();
+				double start = m[0][i][col(i,j-1)] + aCosts.getInsertCostsFor( 1 );
 				if( elong < start ) {
-					d[1][i][j] = elong;
+					m[1][i][col(i,j)] = elong;
 					direction = 1;
 				} else {
-					d[1][i][j] = start;
+					m[1][i][col(i,j)] = start;
 					direction = 0;
 				}
 			}
@@ -571,21 +870,21 @@ public class Alignment {
 		public byte computeGap2( int i, int j ) {
 			byte direction = -101;
 			if( i == 0 ) {
-				d[2][i][j] = Double.POSITIVE_INFINITY;
+				m[2][i][col(i,j)] = Double.POSITIVE_INFINITY;
 			} else if( /*i > 0 &&*/ j == 0 ) {
 				direction = (byte) (type==AlignmentType.LOCAL ? -1 : 2);
-				d[2][i][j] = type!=AlignmentType.GLOBAL ? 0 : aCosts.getDeleteCostsFor( i );
+				m[2][i][col(i,j)] = type!=AlignmentType.GLOBAL ? 0 : aCosts.getDeleteCostsFor( i );
 			} else if ( (type==AlignmentType.SEMI_GLOBAL || type==AlignmentType.FREE_SHIFT) /*&& i > 0*/ && j == l2 ) {
 				direction = 0;
-				d[2][i][j] = d[0][i - 1][j];
+				m[2][i][col(i,j)] = m[0][i - 1][col(i-1,j)];
 			} else {
-				double elong = d[2][i - 1][j] + aCosts.getElongateDeleteCosts();
-				double start = d[0][i - 1][j] + aCosts.getDeleteCostsFor( 1 );
+				double elong = m[2][i - 1][col(i-1,j)] + aCosts.getElongateDeleteCosts();
+				double start = m[0][i - 1][col(i-1,j)] + aCosts.getDeleteCostsFor( 1 );
 				if( elong < start ) {
-					d[2][i][j] = elong;
+					m[2][i][col(i,j)] = elong;
 					direction = 2;
 				} else {
-					d[2][i][j] = start;
+					m[2][i][col(i,j)] = start;
 					direction = 0;
 				}
 			}
@@ -633,14 +932,8 @@ public class Alignment {
 		}
 
 		public void reset(int i, int startJ, int endJ) {
-			for( int k = 0; k < d.length; k++ ) {
-				if( startJ >= 0 && startJ < d[k][i].length ) {
-					d[k][i][startJ] = Double.POSITIVE_INFINITY;
-				}
-				if( endJ > 0 && endJ <= d[k][i].length ) {
-					d[k][i][endJ-1] = Double.POSITIVE_INFINITY;
-				}
-				//Arrays.fill( d[k][i], startJ, endJ, Double.POSITIVE_INFINITY );
+			for( int k = 0; k < m.length; k++ ) {
+				setInfinity( k, i, startJ, endJ );
 			}
 		}		
 	}
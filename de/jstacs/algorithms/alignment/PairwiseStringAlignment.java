@@ -17,6 +17,10 @@
  */
 package de.jstacs.algorithms.alignment;
 
+import java.io.IOException;
+
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 
@@ -84,6 +88,29 @@ public class PairwiseStringAlignment extends StringAlignment {
 	public PairwiseStringAlignment( StringBuffer xml ) throws NonParsableException {
 		super( xml );
 	}
+	
+	/**
+	 * Creates a new {@link PairwiseStringAlignment} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link PairwiseStringAlignment} could not be reconstructed
+	 *             out of the binary representation
+	 * 
+	 * @see de.jstacs.io.BinaryStorable
+	 */
+	public PairwiseStringAlignment( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		start = in.readInt();
+		end = in.readInt();
+		start2 = in.readInt();
+		end2 = in.readInt();
+		nummatches = in.readInt();
+	}
 
 
 	/**
@@ -136,18 +163,35 @@ public class PairwiseStringAlignment extends StringAlignment {
 		end = (Integer)XMLParser.extractObjectForTags( xml, "end" );
 		nummatches = (Integer)XMLParser.extractObjectForTags( xml, "nummatches" );
 		start = (Integer)XMLParser.extractObjectForTags( xml, "start" );
-		
+		if( XMLParser.hasTag( xml, "start2", null, null ) ) {
+			start2 = (Integer)XMLParser.extractObjectForTags( xml, "start2" );
+			end2 = (Integer)XMLParser.extractObjectForTags( xml, "end2" );
+		} else {
+			start2 = -1;
+			end2 = -1;
+		}
 	}
 	
 	@Override
 	public StringBuffer toXML() {
-		StringBuffer xml = new StringBuffer();
-		super.toXML();
+		StringBuffer xml = super.toXML();
 		XMLParser.appendObjectWithTags( xml, end, "end" );
 		XMLParser.appendObjectWithTags( xml, nummatches, "nummatches" );
 		XMLParser.appendObjectWithTags( xml, start, "start" );
+		XMLParser.appendObjectWithTags( xml, start2, "start2" );
+		XMLParser.appendObjectWithTags( xml, end2, "end2" );
 		XMLParser.addTags( xml, "PairwiseStringAlignment" );
 		return xml;
 	}
 	
+	@Override
+	public void write( BinaryStorableWriter out ) throws IOException {
+		super.write( out );
+		out.writeInt( start );
+		out.writeInt( end );
+		out.writeInt( start2 );
+		out.writeInt( end2 );
+		out.writeInt( nummatches );
+	}
+	
 }
@@ -17,9 +17,13 @@
  */
 package de.jstacs.algorithms.alignment;
 
+import java.io.IOException;
 import java.util.List;
 
 import de.jstacs.Storable;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.Result;
@@ -32,7 +36,7 @@ import de.jstacs.results.Result;
  * 
  * @author Jan Grau, Jens Keilwagen
  */
-public class StringAlignment implements Comparable<StringAlignment>, Storable{
+public class StringAlignment implements Comparable<StringAlignment>, Storable, BinaryStorable{
 	private String[] r;
 	private double cost;
 	private Result res;
@@ -46,6 +50,18 @@ public class StringAlignment implements Comparable<StringAlignment>, Storable{
 		fromXML( xml );
 	}
 	
+	/**
+	 * Restores {@link StringAlignment} object from its binary representation.
+	 * @param in the reader
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException if the binary representation could not be parsed
+	 */
+	public StringAlignment(BinaryStorableReader in) throws IOException, NonParsableException{
+		cost = in.readDouble();
+		r = in.readObject( String[].class );
+		res = in.readObject( Result.class );
+	}
+	
 	/**
 	 * This constructor creates an instance storing the aligned Strings and the costs of the alignment.
 	 * 
@@ -228,4 +244,11 @@ public class StringAlignment implements Comparable<StringAlignment>, Storable{
 		XMLParser.addTags( xml, "StringAlignment" );
 		return xml;
 	}
+
+	@Override
+	public void write(BinaryStorableWriter out) throws IOException {
+		out.writeDouble( cost );
+		out.writeObject( r );
+		out.writeObject( res );
+	}
 }
\ No newline at end of file
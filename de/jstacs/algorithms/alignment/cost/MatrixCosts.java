@@ -97,6 +97,20 @@ public class MatrixCosts implements Costs {
 	public double getCostFor( Sequence s1, Sequence s2, int i, int j ) {
 		return matrix[s1.discreteVal( i - 1 )][s2.discreteVal( j - 1 )];
 	}
+	
+	/**
+	 * Returns the costs for the alignment of the symbols with the discrete values <code>a</code> and <code>b</code>.
+	 * 
+	 * @param a the discrete value of the symbol in the first sequence
+	 * @param b the discrete value of the symbol in the second sequence
+	 * 
+	 * @return the costs
+	 * 
+	 * @see #getCostFor(Sequence, Sequence, int, int)
+	 */
+	public double getCostFor( int a, int b ) {
+		return matrix[a][b];
+	}
 
 	@Override
 	public double getInsertCosts() {
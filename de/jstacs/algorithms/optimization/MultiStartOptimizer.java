@@ -0,0 +1,338 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.algorithms.optimization;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.jstacs.algorithms.optimization.termination.AbstractTerminationCondition;
+import de.jstacs.algorithms.optimization.termination.TerminationCondition;
+import de.jstacs.parameters.InstanceParameterSet;
+import de.jstacs.utils.DoubleList;
+import de.jstacs.utils.Time;
+
+/**
+ * This class runs several starts of an optimization concurrently and optionally abandons starts that are clearly losing.
+ *
+ * <p>
+ * Each thread uses its own {@link Worker}, i.e., its own function, which is reused for all starts handled by this thread.
+ * The starts are taken by the threads in the order of their indexes. For the abandonment, the starts are partitioned into cohorts of
+ * a fixed number of consecutive starts. At the rungs, i.e., after <code>firstRung*eta^j</code> iterations, the value of the function of a start is compared to the values
+ * of the starts of all previous cohorts at the same rung. If the value is not among the best <code>1/eta</code>
+ * of these values, the start is abandoned (successive halving). If necessary, a start waits at a rung until all starts of the previous cohorts
+ * have passed this rung or have been finished. Hence, the decisions depend neither on the number of threads nor on the scheduling of the threads
+ * and the results are reproducible.
+ * </p>
+ *
+ * @author Jens Keilwagen
+ *
+ * @see Optimizer#optimize(byte, DifferentiableFunction, double[], TerminationCondition, double, StartDistanceForecaster, java.io.OutputStream)
+ */
+public class MultiStartOptimizer {
+
+	/**
+	 * The interface for the thread-specific part of the optimization.
+	 *
+	 * @author Jens Keilwagen
+	 */
+	public interface Worker {
+
+		/**
+		 * Prepares the function of this worker for the start with index <code>start</code> and returns the start parameters.
+		 *
+		 * @param start the index of the start
+		 *
+		 * @return the start parameters, which will be modified during the optimization
+		 *
+		 * @throws Exception if the start could not be prepared
+		 */
+		double[] prepare( int start ) throws Exception;
+
+		/**
+		 * Returns the function of this worker that is minimized.
+		 *
+		 * @return the function
+		 */
+		DifferentiableFunction getFunction();
+
+		/**
+		 * Returns the {@link StartDistanceForecaster} of this worker, which is reset before each start.
+		 *
+		 * @return the {@link StartDistanceForecaster}
+		 */
+		StartDistanceForecaster getStartDistance();
+
+		/**
+		 * Handles the result of the start with index <code>start</code>.
+		 *
+		 * @param start the index of the start
+		 * @param params the optimized parameters
+		 * @param abandoned whether the start has been abandoned
+		 *
+		 * @throws Exception if the result could not be handled
+		 */
+		void finish( int start, double[] params, boolean abandoned ) throws Exception;
+
+		/**
+		 * Frees the resources of this worker after all starts have been handled.
+		 */
+		void close();
+	}
+
+	/**
+	 * The factory for the {@link Worker}s.
+	 *
+	 * @author Jens Keilwagen
+	 */
+	public interface WorkerFactory {
+
+		/**
+		 * Creates a new {@link Worker}.
+		 *
+		 * @return the new {@link Worker}
+		 *
+		 * @throws Exception if the {@link Worker} could not be created
+		 */
+		Worker createWorker() throws Exception;
+	}
+
+	private byte algorithm;
+	private AbstractTerminationCondition condition;
+	private double linEps;
+	private int parallel, cohort, firstRung, eta;
+
+	/**
+	 * Creates a new {@link MultiStartOptimizer} that does not abandon any start.
+	 *
+	 * @param algorithm the optimization algorithm, see {@link Optimizer#optimize(byte, DifferentiableFunction, double[], TerminationCondition, double, StartDistanceForecaster, java.io.OutputStream)}
+	 * @param condition the termination condition of each start, which is cloned for each start
+	 * @param linEps the bound for stopping the line search
+	 * @param parallel the number of starts that are optimized concurrently
+	 */
+	public MultiStartOptimizer( byte algorithm, AbstractTerminationCondition condition, double linEps, int parallel ) {
+		this( algorithm, condition, linEps, parallel, 1, 0, 2 );
+	}
+
+	/**
+	 * Creates a new {@link MultiStartOptimizer}.
+	 *
+	 * @param algorithm the optimization algorithm, see {@link Optimizer#optimize(byte, DifferentiableFunction, double[], TerminationCondition, double, StartDistanceForecaster, java.io.OutputStream)}
+	 * @param condition the termination condition of each start, which is cloned for each start
+	 * @param linEps the bound for stopping the line search
+	 * @param parallel the number of starts that are optimized concurrently
+	 * @param cohort the number of consecutive starts in each cohort, which must not depend on <code>parallel</code> to obtain reproducible results
+	 * @param firstRung the number of iterations of the first rung, if non-positive no start is abandoned
+	 * @param eta the factor between the iterations of successive rungs and the inverse of the fraction of starts that are kept at each rung
+	 */
+	public MultiStartOptimizer( byte algorithm, AbstractTerminationCondition condition, double linEps, int parallel, int cohort, int firstRung, int eta ) {
+		if( parallel < 1 ) {
+			throw new IllegalArgumentException( "The number of parallel starts has to be positive." );
+		}
+		if( cohort < 1 ) {
+			throw new IllegalArgumentException( "The size of the cohorts has to be positive." );
+		}
+		if( eta < 2 ) {
+			throw new IllegalArgumentException( "The factor eta has to be at least 2." );
+		}
+		this.algorithm = algorithm;
+		this.condition = condition;
+		this.linEps = linEps;
+		this.parallel = parallel;
+		this.cohort = cohort;
+		this.firstRung = firstRung;
+		this.eta = eta;
+	}
+
+	/**
+	 * Returns the number of starts that are optimized concurrently.
+	 *
+	 * @return the number of starts that are optimized concurrently
+	 */
+	public int getNumberOfParallelStarts() {
+		return parallel;
+	}
+
+	/**
+	 * Optimizes all starts.
+	 *
+	 * @param starts the number of starts
+	 * @param factory the factory for the thread-specific {@link Worker}s
+	 *
+	 * @return an array indicating for each start whether it has been abandoned
+	 *
+	 * @throws Exception if a start could not be optimized
+	 */
+	public boolean[] optimize( final int starts, WorkerFactory factory ) throws Exception {
+		final boolean[] abandoned = new boolean[starts];
+		final RungCondition[] rung = new RungCondition[starts];
+		for( int s = 0; s < starts; s++ ) {
+			rung[s] = new RungCondition( condition.clone(), rung, s - s % cohort );
+		}
+		final Worker[] worker = new Worker[Math.min( parallel, starts )];
+		final AtomicInteger next = new AtomicInteger( 0 );
+		ExecutorService pool = worker.length > 1 ? Executors.newFixedThreadPool( worker.length ) : null;
+		try {
+			for( int w = 0; w < worker.length; w++ ) {
+				worker[w] = factory.createWorker();
+			}
+			Future<?>[] futures = new Future<?>[worker.length];
+			for( int w = 0; w < worker.length; w++ ) {
+				final Worker current = worker[w];
+				Runnable r = new Runnable() {
+					public void run() {
+						int s;
+						//the starts are taken in the order of their indexes, hence all starts a start may wait for are already running
+						while( (s = next.getAndIncrement()) < starts ) {
+							try {
+								double[] p = current.prepare( s );
+								current.getStartDistance().reset();
+								Optimizer.optimize( algorithm, current.getFunction(), p, rung[s], linEps, current.getStartDistance(), null );
+								abandoned[s] = rung[s].abandoned;
+								current.finish( s, p, abandoned[s] );
+							} catch( RuntimeException e ) {
+								throw e;
+							} catch( Exception e ) {
+								throw new RuntimeException( e );
+							} finally {
+								rung[s].setFinished();
+							}
+						}
+					}
+				};
+				if( pool == null ) {
+					r.run();
+				} else {
+					futures[w] = pool.submit( r );
+				}
+			}
+			if( pool != null ) {
+				for( int w = 0; w < worker.length; w++ ) {
+					try {
+						futures[w].get();
+					} catch( ExecutionException e ) {
+						throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				}
+			}
+		} finally {
+			if( pool != null ) {
+				pool.shutdownNow();
+			}
+			for( int w = 0; w < worker.length; w++ ) {
+				if( worker[w] != null ) {
+					worker[w].close();
+				}
+			}
+		}
+		return abandoned;
+	}
+
+	/**
+	 * This class records the values of the function at the rungs and abandons a start if it is clearly losing.
+	 * All starts of one call of {@link MultiStartOptimizer#optimize(int, WorkerFactory)} are synchronized on their common array.
+	 */
+	private class RungCondition implements TerminationCondition {
+
+		private AbstractTerminationCondition condition;
+		private RungCondition[] all;
+		private int previous;
+		private DoubleList values;
+		private double finalValue;
+		private long nextRung;
+		private boolean abandoned, finished;
+
+		private RungCondition( AbstractTerminationCondition condition, RungCondition[] all, int previous ) {
+			this.condition = condition;
+			this.all = all;
+			this.previous = previous;
+			values = new DoubleList();
+			nextRung = firstRung > 0 ? firstRung : Long.MAX_VALUE;
+		}
+
+		public boolean doNextIteration( int iteration, double f_last, double f_current, double[] gradient, double[] direction, double alpha, Time t ) {
+			finalValue = f_current;
+			if( iteration == nextRung ) {
+				nextRung *= eta;
+				synchronized( all ) {
+					int j = values.length();
+					values.add( f_current );
+					all.notifyAll();
+					if( f_current > getLimit( j ) ) {
+						abandoned = true;
+						return false;
+					}
+				}
+			}
+			return condition.doNextIteration( iteration, f_last, f_current, gradient, direction, alpha, t );
+		}
+
+		private void setFinished() {
+			synchronized( all ) {
+				finished = true;
+				all.notifyAll();
+			}
+		}
+
+		/**
+		 * Returns the value that has to be reached at rung <code>j</code> to be among the best <code>1/eta</code> of the starts of the previous cohorts.
+		 * Waits until all these starts have passed rung <code>j</code> or have been finished. Must be called while holding the lock on {@link #all}.
+		 */
+		private double getLimit( int j ) {
+			DoubleList v = new DoubleList();
+			for( int s = 0; s < previous; s++ ) {
+				RungCondition r = all[s];
+				while( !r.finished && r.values.length() <= j ) {
+					try {
+						all.wait();
+					} catch( InterruptedException e ) {
+						throw new RuntimeException( e );
+					}
+				}
+				if( j < r.values.length() ) {
+					v.add( r.values.get( j ) );
+				} else if( !r.abandoned ) {
+					//a converged start keeps its final value for all further rungs
+					v.add( r.finalValue );
+				}
+			}
+			//undefined for few values
+			if( v.length() >= eta ) {
+				v.sort();
+				return v.get( (v.length()+eta-1)/eta - 1 );
+			} else {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+
+		public boolean isSimple() {
+			return condition.isSimple();
+		}
+
+		public StringBuffer toXML() {
+			return condition.toXML();
+		}
+
+		public InstanceParameterSet<? extends TerminationCondition> getCurrentParameterSet() throws Exception {
+			return condition.getCurrentParameterSet();
+		}
+	}
+}
@@ -18,6 +18,7 @@
 
 package de.jstacs.classifiers;
 
+import java.io.IOException;
 import java.util.LinkedList;
 
 import de.jstacs.Storable;
@@ -28,6 +29,8 @@ import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.DataSet.ElementEnumerator;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.CategoricalResult;
@@ -126,6 +129,32 @@ public abstract class AbstractClassifier implements Storable, Cloneable {
 		}
 	}
 
+	/**
+	 * Creates a new {@link AbstractClassifier} out of its binary representation
+	 * as written by {@link #writeClassifier(BinaryStorableWriter)}. This
+	 * constructor is intended for subclasses implementing
+	 * {@link de.jstacs.io.BinaryStorable}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link AbstractClassifier} could not be reconstructed
+	 *             out of the binary representation
+	 * 
+	 * @see de.jstacs.io.BinaryStorable
+	 */
+	protected AbstractClassifier( BinaryStorableReader in ) throws IOException, NonParsableException {
+		alphabets = in.readObject( AlphabetContainer.class );
+		length = in.readInt();
+		readFurtherClassifierInfos( in );
+		if( length < 0 || alphabets == null ) {
+			throw new NonParsableException( "The alphabets or the length were not set." );
+		}
+	}
+
 	/**
 	 * This method classifies a sequence and returns the index <code>i</code> of
 	 * the class to which the sequence is assigned with
@@ -551,4 +580,61 @@ public abstract class AbstractClassifier implements Storable, Cloneable {
 	 * @see AbstractClassifier#toXML()
 	 */
 	protected abstract StringBuffer getFurtherClassifierInfos();
+
+	/**
+	 * Writes the binary representation of the classifier. Subclasses
+	 * implementing {@link de.jstacs.io.BinaryStorable} can use this method in
+	 * {@link de.jstacs.io.BinaryStorable#write(BinaryStorableWriter)}.
+	 * 
+	 * @param out
+	 *            the writer
+	 * 
+	 * @throws IOException
+	 *             if the classifier could not be written
+	 * 
+	 * @see AbstractClassifier#AbstractClassifier(BinaryStorableReader)
+	 */
+	protected final void writeClassifier( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( alphabets );
+		out.writeInt( length );
+		writeFurtherClassifierInfos( out );
+	}
+
+	/**
+	 * Writes further information of a classifier to its binary representation.
+	 * This method is the binary counter part of
+	 * {@link #getFurtherClassifierInfos()}. The default implementation throws
+	 * an {@link IOException}.
+	 * 
+	 * @param out
+	 *            the writer
+	 * 
+	 * @throws IOException
+	 *             if the information could not be written
+	 * 
+	 * @see AbstractClassifier#writeClassifier(BinaryStorableWriter)
+	 */
+	protected void writeFurtherClassifierInfos( BinaryStorableWriter out ) throws IOException {
+		throw new IOException( getClass().getName() + " has no binary representation." );
+	}
+
+	/**
+	 * Reads further information of a classifier from its binary representation.
+	 * This method is the binary counter part of
+	 * {@link #extractFurtherClassifierInfosFromXML(StringBuffer)}. The default
+	 * implementation throws a {@link NonParsableException}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the information could not be read
+	 * @throws NonParsableException
+	 *             if the information could not be parsed
+	 * 
+	 * @see AbstractClassifier#AbstractClassifier(BinaryStorableReader)
+	 */
+	protected void readFurtherClassifierInfos( BinaryStorableReader in ) throws IOException, NonParsableException {
+		throw new NonParsableException( getClass().getName() + " has no binary representation." );
+	}
 }
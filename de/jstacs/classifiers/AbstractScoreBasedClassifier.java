@@ -18,9 +18,14 @@
 
 package de.jstacs.classifiers;
 
+import java.io.IOException;
 import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.naming.OperationNotSupportedException;
 
@@ -31,11 +36,14 @@ import de.jstacs.classifiers.performanceMeasures.AbstractPerformanceMeasureParam
 import de.jstacs.classifiers.performanceMeasures.PRCurve;
 import de.jstacs.classifiers.performanceMeasures.PerformanceMeasure;
 import de.jstacs.classifiers.performanceMeasures.ROCCurve;
+import de.jstacs.classifiers.utils.NullDistribution;
 import de.jstacs.classifiers.utils.PValueComputation;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.DataSet.ElementEnumerator;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.ImageResult;
@@ -60,6 +68,22 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 	 */
 	private double[] classWeights;
 
+	/**
+	 * The version of the parameters of this classifier, which is increased whenever the scores may change.
+	 * 
+	 * @see #notifyModification()
+	 */
+	private volatile long version;
+
+	/**
+	 * The cached background distribution, the background data set it has been computed from, the version of the parameters
+	 * at that time, and the relative error of its compression. These are not stored in the XML representation.
+	 */
+	private NullDistribution nullDistribution;
+	private DataSet nullBackground;
+	private long nullVersion;
+	private double nullRelativeError;
+
 	/**
 	 * The constructor for a homogeneous classifier. Such a classifier can
 	 * handle sequences of arbitrary length. The class weights are set initially
@@ -165,6 +189,25 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link AbstractScoreBasedClassifier} out of its binary
+	 * representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link AbstractScoreBasedClassifier} could not be
+	 *             reconstructed out of the binary representation
+	 * 
+	 * @see AbstractClassifier#AbstractClassifier(BinaryStorableReader)
+	 */
+	protected AbstractScoreBasedClassifier( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/* (non-Javadoc)
 	 * @see de.jstacs.classifiers.AbstractClassifier#clone()
 	 */
@@ -172,6 +215,8 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 	public AbstractScoreBasedClassifier clone() throws CloneNotSupportedException {
 		AbstractScoreBasedClassifier erg = (AbstractScoreBasedClassifier)super.clone();
 		erg.classWeights = classWeights.clone();
+		erg.nullDistribution = null;
+		erg.nullBackground = null;
 		return erg;
 	}
 
@@ -344,6 +389,7 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 				classWeights[i] = weights[start+i];
 			}
 		}
+		notifyModification();
 	}
 
 	/**
@@ -388,6 +434,7 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 			classWeights[0] = logP;
 			classWeights[1] = t + logP;
 		}
+		notifyModification();
 	}
 
 	/* (non-Javadoc)
@@ -513,6 +560,22 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 		classWeights = XMLParser.extractObjectForTags( xml, "classWeights", double[].class );
 	}
 
+	/* (non-Javadoc)
+	 * @see de.jstacs.classifiers.AbstractClassifier#writeFurtherClassifierInfos(de.jstacs.io.BinaryStorableWriter)
+	 */
+	@Override
+	protected void writeFurtherClassifierInfos( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( classWeights );
+	}
+
+	/* (non-Javadoc)
+	 * @see de.jstacs.classifiers.AbstractClassifier#readFurtherClassifierInfos(de.jstacs.io.BinaryStorableReader)
+	 */
+	@Override
+	protected void readFurtherClassifierInfos( BinaryStorableReader in ) throws IOException, NonParsableException {
+		classWeights = in.readObject( double[].class );
+	}
+
 	/**
 	 * Returns the class weight for the class with a given <code>index</code>.
 	 * 
@@ -599,6 +662,130 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 		return score;
 	}
 
+	/**
+	 * This method returns the scores of the classifier for any {@link Sequence}
+	 * in the {@link DataSet} like {@link #getScores(DataSet)}, but uses
+	 * <code>threads</code> clones of this classifier that score consecutive
+	 * parts of the {@link DataSet} concurrently using {@link #getScores(DataSet)}.
+	 * The scores do not depend on the number of threads.
+	 * 
+	 * <br>
+	 * <br>
+	 * 
+	 * <b>Only for 2-class-classifiers.</b>
+	 * 
+	 * @param s
+	 *            the {@link DataSet}
+	 * @param threads
+	 *            the number of threads
+	 * 
+	 * @return the array of scores
+	 * 
+	 * @throws Exception
+	 *             if something went wrong
+	 * 
+	 * @see #getScores(DataSet)
+	 */
+	public double[] getScores( DataSet s, int threads ) throws Exception {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		if( threads == 1 || s == null || s.getNumberOfElements() < 2 * threads ) {
+			return getScores( s );
+		}
+		if( classWeights.length != 2 ) {
+			throw new OperationNotSupportedException( "This method is only for 2-class-classifiers." );
+		}
+		check( s );
+		final double[] score = new double[s.getNumberOfElements()];
+		final Sequence[] seqs = s.getAllElements();
+		ExecutorService pool = Executors.newFixedThreadPool( threads );
+		try {
+			Future<?>[] futures = new Future<?>[threads];
+			for( int t = 0; t < threads; t++ ) {
+				final AbstractScoreBasedClassifier current = clone();
+				final int start = (int)( (long)score.length * t / threads ), end = (int)( (long)score.length * ( t + 1 ) / threads );
+				futures[t] = pool.submit( new Runnable() {
+					public void run() {
+						try {
+							Sequence[] part = new Sequence[end - start];
+							System.arraycopy( seqs, start, part, 0, part.length );
+							System.arraycopy( current.getScores( new DataSet( "", part ) ), 0, score, start, part.length );
+						} catch( RuntimeException e ) {
+							throw e;
+						} catch( Exception e ) {
+							throw new RuntimeException( e );
+						}
+					}
+				} );
+			}
+			for( int t = 0; t < threads; t++ ) {
+				try {
+					futures[t].get();
+				} catch( ExecutionException e ) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return score;
+	}
+
+	/**
+	 * Returns the distribution of the scores of the background {@link DataSet} <code>bg</code>, which is used for computing p-values.
+	 * 
+	 * <br>
+	 * <br>
+	 * 
+	 * The last distribution is cached and returned again as long as <code>bg</code> is the same object, the relative error is the same,
+	 * and {@link #notifyModification()} has not been called since the distribution has been computed.
+	 * Otherwise, the distribution is recomputed. {@link #notifyModification()} is called by all methods of the classifier that change its scores,
+	 * i.e., by training, by setting the class weights, and by the parameter setters of the subclasses.
+	 * The cache is not invalidated by changes that do not pass through the classifier, e.g., by changes of a model that has been
+	 * handed to the classifier without cloning it. In this case, {@link #notifyModification()} has to be called before the next p-value is computed.
+	 * A clone of the classifier starts with an empty cache.
+	 * 
+	 * @param bg
+	 *            the background {@link DataSet}
+	 * @param threads
+	 *            the number of threads used for scoring the background
+	 * @param relativeError
+	 *            the relative error of the compressed distribution (see {@link NullDistribution#compress(double)}), or a negative value for the uncompressed distribution
+	 * 
+	 * @return the distribution of the background scores
+	 * 
+	 * @throws Exception
+	 *             if something went wrong
+	 * 
+	 * @see #getScores(DataSet, int)
+	 * @see #notifyModification()
+	 */
+	public synchronized NullDistribution getNullDistribution( DataSet bg, int threads, double relativeError ) throws Exception {
+		if( relativeError < 0 ) {
+			relativeError = -1;
+		}
+		long current = version;
+		if( nullDistribution == null || nullBackground != bg || nullVersion != current || Double.compare( nullRelativeError, relativeError ) != 0 ) {
+			NullDistribution dist = new NullDistribution( getScores( bg, threads ) );
+			nullDistribution = relativeError < 0 ? dist : dist.compress( relativeError );
+			nullBackground = bg;
+			nullVersion = current;
+			nullRelativeError = relativeError;
+		}
+		return nullDistribution;
+	}
+
+	/**
+	 * Increases the version of the parameters of this classifier and, hence, invalidates the cached distribution of the background scores
+	 * (see {@link #getNullDistribution(DataSet, int, double)}). This method has to be called whenever the scores of this classifier may change.
+	 * Training by {@link #train(DataSet[], double[][])}, setting the class weights, and the parameter setters of the subclasses call this method automatically,
+	 * whereas changes of contained models from outside of the classifier have to be reported by calling this method.
+	 */
+	public final void notifyModification() {
+		version++;
+	}
+
 	/**
 	 * Returns the p-value for a {@link Sequence} <code>candidate</code> with
 	 * respect to a given background {@link DataSet}.
@@ -613,8 +800,10 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 	 * <br>
 	 * <br>
 	 * 
-	 * It is not recommended to use this method in a <code>for</code>-loop. In
-	 * such cases one should use the method that works on two {@link DataSet}s.
+	 * The uncompressed distribution of the background scores is cached (see
+	 * {@link #getNullDistribution(DataSet, int, double)}), so this method can be
+	 * used in a <code>for</code>-loop with the same background {@link DataSet}.
+	 * The cache is invalidated by {@link #notifyModification()}.
 	 * 
 	 * @param candidate
 	 *            the candidate {@link Sequence}
@@ -630,8 +819,7 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 	 * @see PValueComputation#getPValue(double[], double)
 	 */
 	public double getPValue( Sequence candidate, DataSet bg ) throws Exception {
-		double[] scores = createStatistic( bg );
-		return PValueComputation.getPValue( scores, getScore( candidate, 0 ) - getScore( candidate, 1 ) );
+		return getNullDistribution( bg, 1, -1 ).getPValue( getScore( candidate, 0 ) - getScore( candidate, 1 ) );
 	}
 
 	/**
@@ -657,24 +845,16 @@ public abstract class AbstractScoreBasedClassifier extends AbstractClassifier {
 	 *             if something went wrong
 	 * 
 	 * @see AbstractScoreBasedClassifier#getPValue(Sequence, DataSet)
-	 * @see PValueComputation#getPValue(double[], double)
+	 * @see NullDistribution#getPValues(double...)
 	 */
 	public double[] getPValue( DataSet candidates, DataSet bg ) throws Exception {
-		double[] scores = createStatistic( bg ), pVal = new double[candidates.getNumberOfElements()];
+		double[] scores = new double[candidates.getNumberOfElements()];
 		Sequence candidate;
-		for( int i = 0; i < pVal.length; i++ ) {
+		for( int i = 0; i < scores.length; i++ ) {
 			candidate = candidates.getElementAt( i );
-			pVal[i] = PValueComputation.getPValue( scores, getScore( candidate, 0 ) - getScore( candidate, 1 ) );
+			scores[i] = getScore( candidate, 0 ) - getScore( candidate, 1 );
 		}
-		return pVal;
-	}
-
-	// just put the scores in the array -> sort
-	private double[] createStatistic( DataSet bg ) throws Exception {
-		double[] scores = getScores( bg );
-		Arrays.sort( scores );
-		// System.out.println( scores[0] + " " + scores[scores.length-1] );
-		return scores;
+		return getNullDistribution( bg, 1, -1 ).getPValues( scores );
 	}
 
 	/**
@@ -206,6 +206,7 @@ public class MappingClassifier extends AbstractScoreBasedClassifier {
 	 */
 	@Override
 	public void train( DataSet[] s, double[][] weights ) throws Exception {
+		notifyModification();
 		classifier.train( s, weights );
 	}
 	
@@ -18,7 +18,13 @@
 
 package de.jstacs.classifiers.assessment;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.jstacs.classifiers.AbstractClassifier;
 import de.jstacs.classifiers.ClassDimensionException;
@@ -53,7 +59,10 @@ import de.jstacs.utils.ProgressUpdater;
  * mainly has to execute the construction of test and training subsets of the
  * given data. These test and training subsets may be used by the methods
  * <code>test( ... )</code> and <code>train( ... )</code> which already are
- * implemented in a standard way.
+ * implemented in a standard way.<br>
+ * If the number of threads is set to more than one (cf. {@link #setNumberOfThreads(int)}), the method
+ * <code>trainAndTest( ... )</code> trains and tests cloned classifiers for several splits concurrently. The results are
+ * added to the {@link MeanResultSet}s in the order of the splits, i.e., the results do not depend on the number of threads.
  * 
  * @author Andre Gohr (bioinf (nospam:.) ag (nospam:@) googlemail (nospam:.)
  *         com), Jens Keilwagen
@@ -225,6 +234,12 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 	 * Skip last classifier.
 	 */
 	protected int skipLastClassifiersDuringClassifierTraining;
+	
+	private int threads = 1;
+	private long memoryPerSplit = -1, estimatedMemoryPerSplit;
+	private ExecutorService pool;
+	private ArrayList<Split> splits;
+	private int running, added;
 
 	//*************************
 	//constructors
@@ -722,7 +737,13 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 		annotation.addAll( assessPS.getAnnotation() );
 		annotation.add( new CategoricalResult( "data sets", "annotation of used data sets", DataSet.getAnnotation( s ) ) );
 
-		this.evaluateClassifier( mp, assessPS, s, weights, pU );
+		boolean success = false;
+		try {
+			this.evaluateClassifier( mp, assessPS, s, weights, pU );
+			success = true;
+		} finally {
+			finishSplits( success );
+		}
 
 		return new ListResult( this.getNameOfAssessment(),
 				"the results of a " + this.getNameOfAssessment(),
@@ -836,14 +857,19 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 
 		pU.setMax( s.length );
 
-		for( i = 0; i < s.length; i++ ) {
-			this.train( correctedS[i][0], correctedW[i][0] );
-			this.test( mp, exceptionIfMPNotComputable, correctedS[i][1], correctedW[i][1] );
-
-			pU.setValue( i + 1 );
-			if( pU.isCancelled() ) {
-				break;
+		boolean success = false;
+		try {
+			for( i = 0; i < s.length; i++ ) {
+				trainAndTest( mp, exceptionIfMPNotComputable, correctedS[i][0], correctedW[i][0], correctedS[i][1], correctedW[i][1] );
+	
+				pU.setValue( i + 1 );
+				if( pU.isCancelled() ) {
+					break;
+				}
 			}
+			success = true;
+		} finally {
+			finishSplits( success );
 		}
 
 		return new ListResult( this.getNameOfAssessment(),
@@ -1031,6 +1057,14 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 
 		}
 	}
+	
+	private static NumericalResultSet[][] evaluate( AbstractClassifier[] classifier, NumericalPerformanceMeasureParameterSet mp, boolean exception, DataSet[] testS, double[][] weights ) throws Exception {
+		NumericalResultSet[][] res = new NumericalResultSet[classifier.length][];
+		for( int i = 0; i < classifier.length; i++ ) {
+			res[i] = new NumericalResultSet[]{ (NumericalResultSet) classifier[i].evaluate( mp, exception, testS, weights ), classifier[i].getNumericalCharacteristics() };
+		}
+		return res;
+	}
 
 	/**
 	 * Trains the local classifiers using the given training data sets. <br>
@@ -1063,8 +1097,12 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 			throw new IllegalArgumentException( "Dimension of given trainDataSet-array is not " + "equal to problem-dimension (classifier.getNumberOfClasses)." );
 		}
 
-		for( int i = 0; i < this.myAbstractClassifier.length - this.skipLastClassifiersDuringClassifierTraining; i++ ) {
-			this.myAbstractClassifier[i].train( trainS, weights );
+		train( this.myAbstractClassifier, this.myModel, trainS, weights );
+	}
+	
+	private void train( AbstractClassifier[] classifier, TrainableStatisticalModel[][] model, DataSet[] trainS, double[][] weights ) throws Exception {
+		for( int i = 0; i < classifier.length - this.skipLastClassifiersDuringClassifierTraining; i++ ) {
+			classifier[i].train( trainS, weights );
 		}
 
 		//FIXME 
@@ -1073,8 +1111,237 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 		//gelernt denn dies wuerden diese nur machen, wenn sie direkt gelernt werden
 
 		// train classifier via training of models
-		for( int classes = 0; classes < this.myModel.length; classes++ ) {
-			for( int models = 0; models < this.myModel[classes].length; this.myModel[classes][models++].train( trainS[classes] ) );
+		for( int classes = 0; classes < model.length; classes++ ) {
+			for( int models = 0; models < model[classes].length; model[classes][models++].train( trainS[classes] ) );
+		}
+	}
+	
+	/**
+	 * Sets the number of splits that are trained and tested concurrently by {@link #trainAndTest(NumericalPerformanceMeasureParameterSet, boolean, DataSet[], double[][], DataSet[], double[][])}.
+	 * Each concurrent split uses its own clones of the classifiers and models. The default is one, i.e., all splits are handled sequentially.
+	 * Subclasses that override {@link #train(DataSet[], double[][])} or {@link #test(NumericalPerformanceMeasureParameterSet, boolean, DataSet[], double[][])}
+	 * are always handled sequentially.
+	 * 
+	 * @param threads the number of threads
+	 * 
+	 * @see #setMemoryPerSplit(long)
+	 */
+	public void setNumberOfThreads( int threads ) {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * Sets the memory (in bytes) that is needed for training and testing the classifiers of one split.
+	 * A further split is only started concurrently if at least this amount of memory is available.
+	 * If the value is negative, the memory is estimated by the size of the XML representation of the classifiers.
+	 * 
+	 * @param memoryPerSplit the memory per split in bytes
+	 * 
+	 * @see #setNumberOfThreads(int)
+	 */
+	public void setMemoryPerSplit( long memoryPerSplit ) {
+		this.memoryPerSplit = memoryPerSplit;
+	}
+	
+	/**
+	 * Trains the classifiers on the training data sets and tests them on the test data sets of one split.
+	 * If more than one thread is used, the split is handled concurrently to other splits using clones of the classifiers and models
+	 * and this method only blocks until a thread is available and there is enough memory for the split.
+	 * All data sets and weights must not be modified afterwards. 
+	 * The concurrent splits are trained and tested like in {@link #train(DataSet[], double[][])} and
+	 * {@link #test(NumericalPerformanceMeasureParameterSet, boolean, DataSet[], double[][])}, but on the clones.
+	 * Hence, if a subclass overrides one of these methods, all splits are handled sequentially by calling these methods.
+	 * 
+	 * @param mp
+	 *            determines which performance measures are used to assess the
+	 *            classifiers
+	 * @param exception
+	 *            whether an {@link Exception} should be thrown if some
+	 *            {@link de.jstacs.classifiers.performanceMeasures.AbstractPerformanceMeasure} could not be evaluated
+	 * @param trainS
+	 *            data sets used as training sets (has to contain one
+	 *            {@link DataSet} for each class)
+	 * @param trainWeights
+	 *            the (non-negative) weights for the training data, can be <code>null</code>
+	 * @param testS
+	 *            data sets used as test sets (has to contain one {@link DataSet}
+	 *            for each class)
+	 * @param testWeights
+	 *            the (non-negative) weights for the test data, can be <code>null</code>
+	 *            
+	 * @throws Exception
+	 *             if training or testing of this or a previous split failed
+	 *             
+	 * @see #train(DataSet[], double[][])
+	 * @see #test(NumericalPerformanceMeasureParameterSet, boolean, DataSet[], double[][])
+	 */
+	protected void trainAndTest( NumericalPerformanceMeasureParameterSet mp, boolean exception, DataSet[] trainS, double[][] trainWeights, DataSet[] testS, double[][] testWeights ) throws Exception {
+		if( threads == 1 || overridesTrainOrTest() ) {
+			train( trainS, trainWeights );
+			test( mp, exception, testS, testWeights );
+			return;
+		}
+		if( trainS.length != this.myAbstractClassifier[0].getNumberOfClasses() || testS.length != this.myAbstractClassifier[0].getNumberOfClasses() ) {
+			throw new IllegalArgumentException( "Dimension of given data set arrays is not " + "equal to problem-dimension (classifier.getNumberOfClasses)." );
+		}
+		if( pool == null ) {
+			pool = Executors.newFixedThreadPool( threads );
+			splits = new ArrayList<Split>();
+			running = added = 0;
+			estimatedMemoryPerSplit = memoryPerSplit >= 0 ? memoryPerSplit : estimateMemoryPerSplit();
+		}
+		synchronized( splits ) {
+			while( running > 0 && (running >= threads || getAvailableMemory() < estimatedMemoryPerSplit) ) {
+				splits.wait( running >= threads ? 0 : 100 );
+				throwIfFailed();
+			}
+			throwIfFailed();
+			running++;
+		}
+		Split split = new Split( mp, exception, trainS, trainWeights, testS, testWeights );
+		synchronized( splits ) {
+			splits.add( split );
+		}
+		pool.execute( split );
+	}
+	
+	private boolean overridesTrainOrTest() {
+		for( Class<?> c = getClass(); c != ClassifierAssessment.class; c = c.getSuperclass() ) {
+			for( Method m : c.getDeclaredMethods() ) {
+				if( (m.getName().equals( "train" ) && Arrays.equals( m.getParameterTypes(), new Class<?>[]{ DataSet[].class, double[][].class } ))
+						|| (m.getName().equals( "test" ) && Arrays.equals( m.getParameterTypes(), new Class<?>[]{ NumericalPerformanceMeasureParameterSet.class, boolean.class, DataSet[].class, double[][].class } )) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private long estimateMemoryPerSplit() {
+		long l = 0;
+		for( int i = 0; i < myAbstractClassifier.length; i++ ) {
+			l += myAbstractClassifier[i].toXML().length();
+		}
+		return 2*l;
+	}
+	
+	private static long getAvailableMemory() {
+		Runtime r = Runtime.getRuntime();
+		return r.maxMemory() - (r.totalMemory() - r.freeMemory());
+	}
+	
+	private void throwIfFailed() throws Exception {
+		for( int i = added; i < splits.size(); i++ ) {
+			if( splits.get( i ).error != null ) {
+				throw splits.get( i ).error;
+			}
+		}
+	}
+	
+	/**
+	 * Waits until all splits started by {@link #trainAndTest(NumericalPerformanceMeasureParameterSet, boolean, DataSet[], double[][], DataSet[], double[][])} are finished.
+	 * The classifiers and models of the last split replace the internal ones as in the sequential case.
+	 * 
+	 * @param success whether the splits should be finished regularly, otherwise pending splits are cancelled
+	 * 
+	 * @throws Exception if training or testing of a split failed
+	 */
+	protected void finishSplits( boolean success ) throws Exception {
+		if( pool == null ) {
+			return;
+		}
+		try {
+			if( success ) {
+				synchronized( splits ) {
+					while( running > 0 ) {
+						splits.wait();
+					}
+					throwIfFailed();
+				}
+				if( splits.size() > 0 ) {
+					Split last = splits.get( splits.size()-1 );
+					myAbstractClassifier = last.classifier;
+					myModel = last.model;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+			pool = null;
+			splits = null;
+		}
+	}
+	
+	/**
+	 * The training and test of one split with its own clones of the classifiers and models.
+	 */
+	private class Split implements Runnable {
+		
+		private NumericalPerformanceMeasureParameterSet mp;
+		private boolean exception;
+		private DataSet[] trainS, testS;
+		private double[][] trainWeights, testWeights;
+		private AbstractClassifier[] classifier;
+		private TrainableStatisticalModel[][] model;
+		private NumericalResultSet[][] res;
+		private Exception error;
+		
+		private Split( NumericalPerformanceMeasureParameterSet mp, boolean exception, DataSet[] trainS, double[][] trainWeights, DataSet[] testS, double[][] testWeights ) throws CloneNotSupportedException, IllegalArgumentException, ClassDimensionException {
+			this.mp = mp;
+			this.exception = exception;
+			//the callers may reuse the arrays for the next split
+			this.trainS = trainS.clone();
+			this.trainWeights = ArrayHandler.clone( trainWeights );
+			this.testS = testS.clone();
+			this.testWeights = ArrayHandler.clone( testWeights );
+			
+			IdentityHashMap<TrainableStatisticalModel, TrainableStatisticalModel> map = new IdentityHashMap<TrainableStatisticalModel, TrainableStatisticalModel>();
+			model = new TrainableStatisticalModel[myModel.length][];
+			for( int i = 0; i < model.length; i++ ) {
+				model[i] = ArrayHandler.clone( myModel[i] );
+				for( int j = 0; j < model[i].length; j++ ) {
+					map.put( myModel[i][j], model[i][j] );
+				}
+			}
+			classifier = new AbstractClassifier[myAbstractClassifier.length];
+			int n = classifier.length - skipLastClassifiersDuringClassifierTraining;
+			for( int i = 0; i < classifier.length; i++ ) {
+				classifier[i] = i < n ? myAbstractClassifier[i].clone() : ((ModelBasedAssessmentClassifier) myAbstractClassifier[i]).copy( map );
+			}
+		}
+		
+		public void run() {
+			try {
+				train( classifier, model, trainS, trainWeights );
+				res = evaluate( classifier, mp, exception, testS, testWeights );
+			} catch( Exception e ) {
+				error = e;
+			} catch( Error e ) {
+				error = new RuntimeException( e );
+			}
+			trainS = testS = null;
+			trainWeights = testWeights = null;
+			synchronized( splits ) {
+				//add the results in the order of the splits
+				try {
+					while( added < splits.size() && splits.get( added ).res != null ) {
+						Split s = splits.get( added );
+						for( int i = 0; i < s.res.length; i++ ) {
+							myTempMeanResultSets[i].addResults( s.res[i][0], s.res[i][1] );
+						}
+						s.res = null;
+						added++;
+					}
+				} catch( Exception e ) {
+					if( error == null ) {
+						error = e;
+					}
+				}
+				running--;
+				splits.notifyAll();
+			}
 		}
 	}
 	
@@ -1130,5 +1397,22 @@ public abstract class ClassifierAssessment<T extends ClassifierAssessmentAssessP
 				throw new CloneNotSupportedException( cde.getMessage() );
 			}
 		}
+		
+		/**
+		 * Returns a new instance that uses the models from <code>map</code> instead of the current models.
+		 * 
+		 * @param map the map from the current models to the new models
+		 * 
+		 * @return the new instance
+		 */
+		private ModelBasedAssessmentClassifier copy( IdentityHashMap<TrainableStatisticalModel, TrainableStatisticalModel> map ) throws IllegalArgumentException, CloneNotSupportedException, ClassDimensionException {
+			TrainableStatisticalModel[] m = new TrainableStatisticalModel[models.length];
+			for( int i = 0; i < m.length; i++ ) {
+				m[i] = map.get( models[i] );
+			}
+			ModelBasedAssessmentClassifier mbc = new ModelBasedAssessmentClassifier( m );
+			mbc.setClassWeights( false, this.getClassWeights() );
+			return mbc;
+		}
 	}
 }
\ No newline at end of file
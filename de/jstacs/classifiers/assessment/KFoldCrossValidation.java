@@ -436,9 +436,7 @@ public class KFoldCrossValidation extends ClassifierAssessment<KFoldCrossValidat
 			}
 			tempBool[i] = true;
 
-			train( sTrainTestClassWise[0], weightsTrainTestClassWise[0] );
-
-			test( mp, exceptionIfMPNotComputable, sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
+			trainAndTest( mp, exceptionIfMPNotComputable, sTrainTestClassWise[0], weightsTrainTestClassWise[0], sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
 			pU.setValue( i + 1 );
 		}
 	}
@@ -485,7 +483,13 @@ public class KFoldCrossValidation extends ClassifierAssessment<KFoldCrossValidat
 			myTempMeanResultSets[i] = new MeanResultSet( myAbstractClassifier[i].getClassifierAnnotation() );
 		}
 
-		evaluate( mp, caaps, pU, splitData, splitWeights );
+		boolean success = false;
+		try {
+			evaluate( mp, caaps, pU, splitData, splitWeights );
+			success = true;
+		} finally {
+			finishSplits( success );
+		}
 
 		LinkedList<Result> annotation = new LinkedList<Result>();
 		annotation.add( new CategoricalResult( "kind of assessment", "a description or name of the assessment", getNameOfAssessment() ) );
@@ -380,8 +380,7 @@ public class RepeatedHoldOutExperiment extends ClassifierAssessment<RepeatedHold
 				weightsTrainTestClassWise[1][classes] = temp2.getSecondElement();
 			}
 
-			train( sTrainTestClassWise[0], weightsTrainTestClassWise[0] );
-			test( mp, exceptionIfMPNotComputable, sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
+			trainAndTest( mp, exceptionIfMPNotComputable, sTrainTestClassWise[0], weightsTrainTestClassWise[0], sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
 
 			pU.setValue( iteration + 1 );
 			if( pU.isCancelled() ) {
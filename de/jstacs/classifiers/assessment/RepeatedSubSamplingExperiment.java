@@ -392,8 +392,7 @@ public class RepeatedSubSamplingExperiment extends ClassifierAssessment<Repeated
 				weightsTrainTestClassWise[1][classes] = p.getSecondElement();				
 			}
 
-			train( sTrainTestClassWise[0], weightsTrainTestClassWise[0] );
-			test( mp, exceptionIfMPNotComputable, sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
+			trainAndTest( mp, exceptionIfMPNotComputable, sTrainTestClassWise[0], weightsTrainTestClassWise[0], sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
 
 			pU.setValue( iteration + 1 );
 			if( pU.isCancelled() ) {
@@ -413,8 +413,7 @@ public class Sampled_RepeatedHoldOutExperiment extends ClassifierAssessment<Samp
 			}
 
 			// train and test on the partitions
-			train( sTrainTestClassWise[0], weightsTrainTestClassWise[0] );
-			test( mp, exceptionIfMPNotComputable, sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
+			trainAndTest( mp, exceptionIfMPNotComputable, sTrainTestClassWise[0], weightsTrainTestClassWise[0], sTrainTestClassWise[1], weightsTrainTestClassWise[1] );
 
 			// progress updater
 			pU.setValue( iteration + 1 );
@@ -19,6 +19,9 @@
 package de.jstacs.classifiers.differentiableSequenceScoreBased;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveAction;
 
 import de.jstacs.algorithms.optimization.DimensionException;
 import de.jstacs.algorithms.optimization.EvaluationException;
@@ -41,6 +44,23 @@ import de.jstacs.data.DataSet;
  * 
  * It is very important for this class that the clone() method (of the used items) works correctly, since each thread works on its own clones. 
  * 
+ * <br>
+ * <br>
+ * 
+ * There are two modes of execution. For a positive number of threads, the data is split into one part per thread and each part is
+ * handled by its own {@link Worker}. For a negative number of threads (see {@link #getWorkStealingThreads(int)}), the data is split into
+ * {@link #PARTS_PER_THREAD} times more parts than threads and these parts are scheduled on a work-stealing {@link ForkJoinPool}.
+ * The latter mode is recommended if the costs per part vary strongly, e.g., for sequences of very different length, since a single slow
+ * part does not stall the complete evaluation. However, the parts are still the units for the clones and partial results,
+ * i.e., this mode needs {@link #PARTS_PER_THREAD} times more clones.
+ * 
+ * <br>
+ * <br>
+ * 
+ * For small models, the synchronization of the {@link Worker}s might be more expensive than the evaluation itself.
+ * In this case, the low-latency mode (see {@link #setLowLatency(boolean)}) can be used, which coordinates the {@link Worker}s by a {@link Phaser}
+ * instead of monitors. The time spent for synchronization and computation can be inspected using {@link #getSynchronizationTime()} and {@link #getComputationTime()}.
+ * 
  * @author Jens Keilwagen
  */
 public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractOptimizableFunction implements MultiThreadedFunction
@@ -56,10 +76,61 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	}
 
 	/**
-	 * The worker threads for computing value and gradient of this {@link AbstractMultiThreadedOptimizableFunction}
+	 * The number of parts per thread that is used in the work-stealing mode.
+	 * 
+	 * @see #getWorkStealingThreads(int)
+	 */
+	public static final int PARTS_PER_THREAD = 4;
+	
+	/**
+	 * This method returns the value that has to be used as number of threads in the constructor
+	 * to obtain an instance that uses the work-stealing mode with <code>threads</code> threads.
+	 * 
+	 * @param threads the number of threads
+	 * 
+	 * @return the (negative) value for the constructor
+	 */
+	public static final int getWorkStealingThreads( int threads ) {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		return -threads;
+	}
+
+	/**
+	 * The worker threads for computing value and gradient of this {@link AbstractMultiThreadedOptimizableFunction}.
+	 * In the work-stealing mode, this array is <code>null</code>.
 	 */
 	protected Worker[] worker;
 	
+	/**
+	 * The pool that is used in the work-stealing mode, otherwise <code>null</code>.
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * The indices (startClass, startSeq, endClass, endSeq) of the parts that are used in the work-stealing mode, otherwise <code>null</code>.
+	 */
+	private int[][] parts;
+	
+	/**
+	 * The barrier that is used in the low-latency mode, otherwise <code>null</code>.
+	 */
+	private Phaser phaser;
+	
+	/**
+	 * The time (in nanoseconds) that has been used by each part for its last task.
+	 */
+	private long[] partTime;
+	
+	/**
+	 * The overall time (in nanoseconds) used for computation and synchronization.
+	 * 
+	 * @see #getComputationTime()
+	 * @see #getSynchronizationTime()
+	 */
+	private long computationTime, synchronizationTime;
+	
 	/**
 	 * This is a pointer for the current parameters.
 	 */
@@ -68,7 +139,8 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	/**
 	 * The constructor for an multi-threaded instance.
 	 * 
-	 * @param threads the number of threads used for evaluating the function and determining the gradient of the function
+	 * @param threads the number of threads used for evaluating the function and determining the gradient of the function;
+	 * 			a negative value <code>-t</code> uses <code>t</code> threads in the work-stealing mode
 	 * @param data the array of {@link DataSet}s containing the data that is needed to evaluate the function
 	 * @param weights the weights for each {@link de.jstacs.data.sequences.Sequence} in each {@link DataSet} of  <code>data</code>
 	 * @param norm
@@ -78,16 +150,25 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	 *            the switch for using only the free parameters
 	 * 
 	 * @throws IllegalArgumentException
-	 *             if the number of threads is not positive, the {@link DataSet}s contain too less {@link de.jstacs.data.sequences.Sequence} for the number of threads, the number of classes or the dimension of the weights is not correct
+	 *             if the number of threads is 0, the {@link DataSet}s contain too less {@link de.jstacs.data.sequences.Sequence} for the number of threads, the number of classes or the dimension of the weights is not correct
+	 *             
+	 * @see #getWorkStealingThreads(int)
+	 * @see #getNumberOfParts()
 	 */
 	public AbstractMultiThreadedOptimizableFunction( int threads, DataSet[] data, double[][] weights, boolean norm, boolean freeParams ) throws IllegalArgumentException
 	{
 		super( data, weights, norm, freeParams );
-		if( threads < 1 )
+		if( threads == 0 )
 		{
-			throw new IllegalArgumentException( "The number of threads has to be positive." );
+			throw new IllegalArgumentException( "The number of threads has to be non-zero." );
+		}
+		if( threads > 0 ) {
+			worker = new Worker[threads];
+		} else {
+			pool = new ForkJoinPool( -threads );
+			parts = new int[-threads*PARTS_PER_THREAD][];
 		}
-		worker = new Worker[threads];
+		partTime = new long[getNumberOfParts()];
 		prepareThreads();
 	}
 	
@@ -95,15 +176,25 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	
 	public void setDataAndWeights( DataSet[] data, double[][] weights ) throws IllegalArgumentException {
 		super.setDataAndWeights(data, weights);
-		if( worker != null ) {
+		if( hasWorkers() ) {
 			prepareThreads();
 		}
 	}
 	
+	/**
+	 * This method answers the question whether the infrastructure for the parallel computation has already been created.
+	 * 
+	 * @return <code>true</code> if the infrastructure has been created
+	 */
+	protected final boolean hasWorkers() {
+		return worker != null || parts != null;
+	}
+	
 	/**
 	 * Assigns parts of the data to the threads
 	 */
 	protected void prepareThreads() {
+		int numParts = getNumberOfParts();
 		long numBases = 0, numSeqs=0;
 		for( int i = 0; i < data.length; i++ ) {
 			int m = data[i].getNumberOfElements();
@@ -114,17 +205,22 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 				}
 			}
 		}
-		long[] bases = new long[worker.length];
-		long[] seqs = new long[worker.length];
+		long[] bases = new long[numParts];
+		long[] seqs = new long[numParts];
 		long part, remBases = numBases, remSeqs = numSeqs;
 		int startClass, endClass = 0, startSeq, endSeq = 0; 
 		boolean out = false;
-		for( int i = 0; i < worker.length; i++ ) {
-			part = (long) Math.ceil( remBases / (double) (worker.length-i) );
+		for( int i = 0; i < numParts; i++ ) {
+			part = (long) Math.ceil( remBases / (double) (numParts-i) );
+			//if the previous part ends with a class, continue with the next class
+			while( endClass < data.length-1 && endSeq == data[endClass].getNumberOfElements() ) {
+				endSeq = 0;
+				endClass++;
+			}
 			startSeq = endSeq;
 			startClass = endClass;
 			bases[i] = seqs[i] = 0;
-			int remWorker = worker.length-i;
+			int remWorker = numParts-i;
 			while( remSeqs >= remWorker && endClass < data.length && endSeq <data[endClass].getNumberOfElements() ) {
 				do {
 					if( weights[endClass][endSeq]!= 0 ) {
@@ -143,7 +239,9 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 			remBases -= bases[i];
 			remSeqs -= seqs[i];
 			//System.out.println("split " + i + ": " + startClass + " " + startSeq + "\t" + endClass + " " + endSeq + "\t" + bases[i] + "\t" + seqs[i] );
-			if( worker[i] != null ) {
+			if( parts != null ) {
+				parts[i] = new int[]{startClass, startSeq, endClass, endSeq};
+			} else if( worker[i] != null ) {
 				if( worker[i].isWaiting() ) {
 					worker[i].setIndices(startClass, startSeq, endClass, endSeq);
 				} else {
@@ -156,8 +254,8 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 			}
 		}
 		
-		if( out ) {
-			System.out.println( "Warning: Splitting and assigning the data ("+numBases+" characters, "+numSeqs+" sequences) to threads ("+worker.length+"), yields at least one empty thread.\n"
+		if( out && parts == null ) {
+			System.out.println( "Warning: Splitting and assigning the data ("+numBases+" characters, "+numSeqs+" sequences) to threads ("+numParts+"), yields at least one empty thread.\n"
 					+ "#characters = " + Arrays.toString(bases) + "\n"
 					+ "#seqs = " + Arrays.toString(seqs) + "\n" );
 			
@@ -166,8 +264,8 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 
 	public double[] evaluateGradientOfFunction( double[] x ) throws DimensionException, EvaluationException
 	{
-		setParams( x );
-		waitUntilWorkersFinished( WorkerTask.EVALUATE_GRADIENT );
+		setThreadIndependentParameters( x );
+		waitUntilWorkersFinished( WorkerTask.SET_PARAMETERS_AND_EVALUATE_GRADIENT );
 		return joinGradients();
 	}
 	
@@ -193,8 +291,8 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	
 	public double evaluateFunction( double[] x ) throws DimensionException, EvaluationException
 	{
-		setParams( x );
-		waitUntilWorkersFinished( WorkerTask.EVALUATE );
+		setThreadIndependentParameters( x );
+		waitUntilWorkersFinished( WorkerTask.SET_PARAMETERS_AND_EVALUATE );
 		return joinFunction();
 	}
 	
@@ -223,13 +321,26 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	
 	public final void setParams( double[] params ) throws DimensionException
 	{
+		setThreadIndependentParameters( params );
+		waitUntilWorkersFinished( WorkerTask.SET_PARAMETERS );
+	}
+	
+	/**
+	 * This method copies the parameters to {@link #params} and sets the thread independent parameters.
+	 * 
+	 * @param params the new parameters
+	 * 
+	 * @throws DimensionException if the dimension of the parameters is wrong
+	 * 
+	 * @see #setThreadIndependentParameters()
+	 */
+	private void setThreadIndependentParameters( double[] params ) throws DimensionException {
 		if( this.params == null || this.params.length != params.length ) {
 			this.params = params.clone();
 		} else {
 			System.arraycopy( params, 0, this.params, 0, params.length );
 		}
 		setThreadIndependentParameters();
-		waitUntilWorkersFinished( WorkerTask.SET_PARAMETERS );
 	}
 	
 	/**
@@ -259,6 +370,45 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	 * @param wt the task
 	 */
 	private synchronized void waitUntilWorkersFinished( WorkerTask wt )
+	{
+		long start = System.nanoTime();
+		if( parts != null ) {
+			PartTask root = new PartTask( wt, 0, parts.length );
+			pool.invoke( root );
+			if( root.exception >= 0 ) {
+				stopThreads();
+				throw new RuntimeException( "Terminate program, since at least part " + root.exception + " throws an exception." );
+			}
+		} else if( phaser != null ) {
+			for( int t = 0; t < worker.length; t++ ) {
+				worker[t].task = wt;
+			}
+			//start all workers and wait until all workers have finished
+			phaser.arriveAndAwaitAdvance();
+			phaser.arriveAndAwaitAdvance();
+			for( int t = 0; t < worker.length; t++ ) {
+				if( worker[t].exception ) {
+					stopThreads();
+					throw new RuntimeException( "Terminate program, since at least thread " + t + " throws an exception." );
+				}
+			}
+		} else {
+			waitUntilMonitoredWorkersFinished( wt );
+		}
+		long max = 0;
+		for( int p = 0; p < partTime.length; p++ ) {
+			computationTime += partTime[p];
+			max = Math.max( max, partTime[p] );
+		}
+		synchronizationTime += Math.max( 0, System.nanoTime() - start - max );
+	}
+	
+	/**
+	 * This method waits until all worker (threads) have done the specified {@link WorkerTask} using monitors.
+	 * 
+	 * @param wt the task
+	 */
+	private void waitUntilMonitoredWorkersFinished( WorkerTask wt )
 	{
 		for( int t = 0; t < worker.length; t++ )
 		{
@@ -302,14 +452,86 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	@Override
 	public final void stopThreads()
 	{
-		if( worker.length > 1 )
+		if( pool != null ) {
+			pool.shutdown();
+		} else if( worker.length > 1 )
 		{
+			stopWorkers();
+			worker = null;
+		}
+	}
+	
+	/**
+	 * This method stops all {@link Worker}s and removes them from {@link #worker}.
+	 */
+	private void stopWorkers() {
+		if( phaser != null ) {
+			for( int i = 0; i < worker.length; i++ ) {
+				worker[i].task = WorkerTask.STOP;
+			}
+			phaser.arriveAndDeregister();
+		} else {
 			for( int i = 0; i < worker.length; i++ )
 			{
 				worker[i].setTask( WorkerTask.STOP );
 			}
-			worker = null;
 		}
+		Arrays.fill( worker, null );
+	}
+	
+	/**
+	 * This method allows to switch between the coordination of the {@link Worker}s using monitors (default) and the low-latency mode.
+	 * In the low-latency mode, the {@link Worker}s are coordinated by a {@link Phaser}, which spins for a short time before parking a thread,
+	 * and the {@link Worker}s wait actively for the next task. This reduces the overhead of the synchronization, which is important for small models,
+	 * but the waiting threads might use a small amount of CPU time.
+	 * 
+	 * <br>
+	 * The work-stealing mode is not influenced by this method.
+	 * 
+	 * @param lowLatency whether the low-latency mode should be used
+	 * 
+	 * @see #getSynchronizationTime()
+	 */
+	public final void setLowLatency( boolean lowLatency ) {
+		if( worker == null || lowLatency == (phaser != null) ) {
+			return;
+		}
+		stopWorkers();
+		phaser = lowLatency ? new Phaser( worker.length+1 ) : null;
+		prepareThreads();
+	}
+	
+	/**
+	 * Returns the overall time in nanoseconds that has been used by all parts for computation, i.e., for setting parameters and evaluating the function or its gradient.
+	 * 
+	 * @return the overall time for computation
+	 * 
+	 * @see #resetTimes()
+	 */
+	public final long getComputationTime() {
+		return computationTime;
+	}
+	
+	/**
+	 * Returns the overall time in nanoseconds that has been used for the synchronization of the threads, i.e., the elapsed time
+	 * of all parallel computations minus the time of the slowest part in each computation.
+	 * 
+	 * @return the overall time for synchronization
+	 * 
+	 * @see #resetTimes()
+	 */
+	public final long getSynchronizationTime() {
+		return synchronizationTime;
+	}
+	
+	/**
+	 * Resets the times for computation and synchronization.
+	 * 
+	 * @see #getComputationTime()
+	 * @see #getSynchronizationTime()
+	 */
+	public final void resetTimes() {
+		computationTime = synchronizationTime = 0;
 	}
 
 	/**
@@ -319,7 +541,57 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 	 */
 	@Override
 	public final int getNumberOfThreads() {
-		return worker.length;
+		return pool != null ? pool.getParallelism() : worker.length;
+	}
+	
+	/**
+	 * Returns the number of parts of the data, i.e., the number of indices that are used in
+	 * {@link #setParams(int)}, {@link #evaluateFunction(int, int, int, int, int)} and {@link #evaluateGradientOfFunction(int, int, int, int, int)}.
+	 * Hence, implementations should use this number to create the part-specific clones and arrays.
+	 * For the mode with static parts this is the number of threads, for the work-stealing mode
+	 * this is {@link #PARTS_PER_THREAD} times the number of threads.
+	 * 
+	 * @return the number of parts of the data
+	 */
+	public final int getNumberOfParts() {
+		return parts != null ? parts.length : worker.length;
+	}
+	
+	/**
+	 * This method performs the given {@link WorkerTask} for one part of the data.
+	 * 
+	 * @param task the task
+	 * @param index the index of the part
+	 * @param startClass the index of the start class
+	 * @param startSeq the index of the start sequence
+	 * @param endClass the index of the end class (inclusive)
+	 * @param endSeq the index of the end sequence (exclusive)
+	 * 
+	 * @throws Exception if the task could not be performed
+	 */
+	private void perform( WorkerTask task, int index, int startClass, int startSeq, int endClass, int endSeq ) throws Exception {
+		long start = System.nanoTime();
+		switch( task )
+		{
+			case SET_PARAMETERS:
+				setParams( index );
+				break;
+			case SET_PARAMETERS_AND_EVALUATE:
+				setParams( index );
+				evaluateFunction( index, startClass, startSeq, endClass, endSeq );
+				break;
+			case EVALUATE:
+				evaluateFunction( index, startClass, startSeq, endClass, endSeq );
+				break;
+			case SET_PARAMETERS_AND_EVALUATE_GRADIENT:
+				setParams( index );
+				evaluateGradientOfFunction( index, startClass, startSeq, endClass, endSeq );
+				break;
+			case EVALUATE_GRADIENT:
+				evaluateGradientOfFunction( index, startClass, startSeq, endClass, endSeq );
+				break;
+		}
+		partTime[index] = System.nanoTime() - start;
 	}
 	
 	/**
@@ -349,7 +621,15 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 		/**
 		 * Indicates that the worker should evaluate the gradient of the function.
 		 */
-		EVALUATE_GRADIENT;
+		EVALUATE_GRADIENT,
+		/**
+		 * Indicates that the worker should set new parameters and evaluate the function.
+		 */
+		SET_PARAMETERS_AND_EVALUATE,
+		/**
+		 * Indicates that the worker should set new parameters and evaluate the gradient of the function.
+		 */
+		SET_PARAMETERS_AND_EVALUATE_GRADIENT;
 	}
 	
 	/**
@@ -362,6 +642,10 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 		private WorkerTask task;
 		private int index, startClass, startSeq, endClass, endSeq;
 		private boolean exception;
+		/**
+		 * The barrier used in the low-latency mode, otherwise <code>null</code>.
+		 */
+		private Phaser barrier;
 		
 		/**
 		 * This constructor creates a {@link Worker} that is used to evaluate the function and its gradient.
@@ -378,6 +662,7 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 			super( "worker thread " + index );
 			setDaemon( true );
 			this.index = index;
+			this.barrier = phaser;
 			setIndices(startClass, startSeq, endClass, endSeq);
 		}
 		
@@ -393,24 +678,48 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 			task = WorkerTask.WAIT;
 		}
 
-		public synchronized void run()
+		public void run()
+		{
+			if( barrier != null ) {
+				runPhased();
+			} else {
+				runMonitored();
+			}
+		}
+		
+		/**
+		 * The main loop of the worker in the low-latency mode.
+		 */
+		private void runPhased()
+		{
+			exception = false;
+			while( true ) {
+				barrier.arriveAndAwaitAdvance();
+				if( task == WorkerTask.STOP ) {
+					barrier.arriveAndDeregister();
+					return;
+				}
+				try{
+					perform( task, index, startClass, startSeq, endClass, endSeq );
+				}catch( Exception e ){
+					exception = true;
+					e.printStackTrace();
+				}
+				task = WorkerTask.WAIT;
+				barrier.arriveAndAwaitAdvance();
+			}
+		}
+		
+		/**
+		 * The main loop of the worker using monitors.
+		 */
+		private synchronized void runMonitored()
 		{
 			exception = false;
 			while( task != WorkerTask.STOP ){
 				if( task != WorkerTask.WAIT ){
 					try{
-						switch( task )
-						{
-							case SET_PARAMETERS:
-								setParams( index );
-								break;
-							case EVALUATE:
-								evaluateFunction( index, startClass, startSeq, endClass, endSeq );
-								break;
-							case EVALUATE_GRADIENT:
-								evaluateGradientOfFunction( index, startClass, startSeq, endClass, endSeq );
-								break;
-						}
+						perform( task, index, startClass, startSeq, endClass, endSeq );
 					}catch( Exception e ){
 						exception = true;
 						e.printStackTrace();
@@ -448,4 +757,54 @@ public abstract class AbstractMultiThreadedOptimizableFunction extends AbstractO
 			return task == WorkerTask.WAIT;
 		}
 	}
+	
+	/**
+	 * This class is used in the work-stealing mode. It recursively splits an interval of parts
+	 * until only one part is left, which is then computed by the current thread of the {@link ForkJoinPool}.
+	 * 
+	 * @author Jens Keilwagen
+	 */
+	private class PartTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private WorkerTask task;
+		private int start, end;
+		/**
+		 * The smallest index of a part that throws an exception, otherwise -1.
+		 */
+		private int exception;
+		
+		/**
+		 * Creates a task for the parts with indices in <code>[start,end)</code>.
+		 * 
+		 * @param task the task
+		 * @param start the index of the first part (inclusive)
+		 * @param end the index of the last part (exclusive)
+		 */
+		private PartTask( WorkerTask task, int start, int end ) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+			exception = -1;
+		}
+		
+		@Override
+		protected void compute() {
+			if( end - start == 1 ) {
+				int[] idx = parts[start];
+				try {
+					perform( task, start, idx[0], idx[1], idx[2], idx[3] );
+				} catch( Exception e ) {
+					exception = start;
+					e.printStackTrace();
+				}
+			} else {
+				int middle = (start+end) / 2;
+				PartTask left = new PartTask( task, start, middle ), right = new PartTask( task, middle, end );
+				invokeAll( left, right );
+				exception = left.exception >= 0 ? left.exception : right.exception;
+			}
+		}
+	}
 }
@@ -45,19 +45,19 @@ public abstract class DiffSSBasedOptimizableFunction extends AbstractMultiThread
 	
 	/**
 	 * These {@link DifferentiableSequenceScore}s are used during the parallel computation.
-	 * <code>score[t]</code> contains all {@link DifferentiableSequenceScore}s that are used by thread <code>t</code>.
+	 * <code>score[t]</code> contains all {@link DifferentiableSequenceScore}s that are used for part <code>t</code>.
 	 */
 	protected DifferentiableSequenceScore[][] score;
 
 	/**
 	 * These {@link DoubleList}s are used during the parallel computation of the gradient.
-	 * <code>dList[t]</code> contains all {@link DoubleList}s that are used by thread <code>t</code>.
+	 * <code>dList[t]</code> contains all {@link DoubleList}s that are used for part <code>t</code>.
 	 */
 	protected DoubleList[][] dList;
 
 	/**
 	 * These {@link IntList}s are used during the parallel computation of the gradient.
-	 * <code>iList[t]</code> contains all {@link IntList}s that are used by thread <code>t</code>.
+	 * <code>iList[t]</code> contains all {@link IntList}s that are used for part <code>t</code>.
 	 */
 	protected IntList[][] iList;
 
@@ -70,7 +70,8 @@ public abstract class DiffSSBasedOptimizableFunction extends AbstractMultiThread
 	 * Creates an instance with the underlying infrastructure.
 	 * Before using this instance, one has to invoke {@link #reset()}.
 	 * 
-	 * @param threads the number of threads used for evaluating the function and determining the gradient of the function
+	 * @param threads the number of threads used for evaluating the function and determining the gradient of the function;
+	 * 			a negative value <code>-t</code> uses <code>t</code> threads in the work-stealing mode (cf. {@link AbstractMultiThreadedOptimizableFunction#getWorkStealingThreads(int)})
 	 * @param score an array containing the {@link DifferentiableSequenceScore}s that are used for determining the sequences scores
 	 * @param data the array of {@link DataSet}s containing the data that is needed to evaluate the function
 	 * @param weights the weights for each {@link de.jstacs.data.sequences.Sequence} in each {@link DataSet} of  <code>data</code> 
@@ -93,14 +94,15 @@ public abstract class DiffSSBasedOptimizableFunction extends AbstractMultiThread
 			shortcut[0] = cl;
 		}
 		this.prior = (prior == null) ? DoesNothingLogPrior.defaultInstance : prior;
-		dList = new DoubleList[threads][cl];
-		iList = new IntList[threads][cl];
-		this.score = new DifferentiableSequenceScore[threads][cl];
+		int parts = getNumberOfParts();
+		dList = new DoubleList[parts][cl];
+		iList = new IntList[parts][cl];
+		this.score = new DifferentiableSequenceScore[parts][cl];
 		int i = 0, j;
 		for( ; i < cl; i++ )
 		{
 			this.score[0][i] = score[i];
-			for( j = 0; j < threads; j++ )
+			for( j = 0; j < parts; j++ )
 			{
 				dList[j][i] = new DoubleList();
 				iList[j][i] = new IntList();
@@ -244,6 +244,7 @@ public abstract class ScoreClassifier extends AbstractScoreBasedClassifier {
 	 */
 	@Override
 	public void train( DataSet[] data, double[][] weights ) throws Exception {
+		notifyModification();
 		hasBeenOptimized = false;
 		// check
 		if( weights == null ) {
@@ -124,7 +124,7 @@ public class LogGenDisMixFunction extends DiffSSBasedOptimizableFunction
 		}
 		this.beta = LearningPrinciple.checkWeights( beta );
 		check();
-		helpArray = new double[threads][Math.max(2,cl)];
+		helpArray = new double[getNumberOfParts()][Math.max(2,cl)];
 	}
 
 	protected double[] joinGradients() throws EvaluationException
@@ -455,7 +455,7 @@ public class LogGenDisMixFunction extends DiffSSBasedOptimizableFunction
 		{
 			prior.set( freeParams, score[0] );
 		}
-		llGrad = new double[getNumberOfThreads()][getDimensionOfScope()];
+		llGrad = new double[getNumberOfParts()][getDimensionOfScope()];
 		cllGrad = new double[llGrad.length][getDimensionOfScope()];
 		prGrad = new double[getDimensionOfScope()];
 	}
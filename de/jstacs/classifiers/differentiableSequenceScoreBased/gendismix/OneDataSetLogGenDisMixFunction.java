@@ -113,7 +113,7 @@ public class OneDataSetLogGenDisMixFunction extends LogGenDisMixFunction
 			}
 			sum[cl] += sum[i];
 		}
-		if( worker != null ) {
+		if( hasWorkers() ) {
 			prepareThreads();
 		}
 	}
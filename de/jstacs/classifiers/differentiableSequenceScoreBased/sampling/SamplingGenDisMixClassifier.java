@@ -18,6 +18,8 @@
 
 package de.jstacs.classifiers.differentiableSequenceScoreBased.sampling;
 
+import java.io.IOException;
+
 import de.jstacs.classifiers.differentiableSequenceScoreBased.DiffSSBasedOptimizableFunction;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.GenDisMixClassifier;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.GenDisMixClassifierParameterSet;
@@ -25,6 +27,8 @@ import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.Learning
 import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.LogGenDisMixFunction;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.logPrior.LogPrior;
 import de.jstacs.data.DataSet;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.sampling.BurnInTest;
@@ -80,7 +84,11 @@ public class SamplingGenDisMixClassifier extends SamplingScoreBasedClassifier {
 	public SamplingGenDisMixClassifier( SamplingGenDisMixClassifierParameterSet params, BurnInTest burnInTest, double[] classVariances, LogPrior prior, double[] beta, SamplingDifferentiableStatisticalModel... scoringFunctions ) throws CloneNotSupportedException {
 		super( params, burnInTest, classVariances, scoringFunctions );
 		this.prior = prior;
-		this.beta = beta.clone();
+		setBeta( beta.clone() );
+	}
+	
+	private void setBeta( double[] beta ) {
+		this.beta = beta;
 		this.factor = 0;
 		for(int i=0;i<beta.length;i++){
 			if(beta[i] > 0 && factor == 0){
@@ -117,6 +125,16 @@ public class SamplingGenDisMixClassifier extends SamplingScoreBasedClassifier {
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link SamplingGenDisMixClassifier} from its binary representation
+	 * @param in the reader
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException if the representation could not be parsed
+	 */
+	public SamplingGenDisMixClassifier( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	@Override
 	protected DiffSSBasedOptimizableFunction getFunction( DataSet[] data, double[][] weights ) throws Exception {
 		
@@ -147,8 +165,23 @@ public class SamplingGenDisMixClassifier extends SamplingScoreBasedClassifier {
 	
 	@Override
 	protected void extractFurtherClassifierInfosFromXML( StringBuffer xml ) throws NonParsableException {
+		super.extractFurtherClassifierInfosFromXML( xml );
 		prior = XMLParser.extractObjectForTags( xml, "prior", LogPrior.class );
-		beta = XMLParser.extractObjectForTags( xml, "beta", double[].class );
+		setBeta( XMLParser.extractObjectForTags( xml, "beta", double[].class ) );
+	}
+	
+	@Override
+	protected void writeFurtherClassifierInfos( BinaryStorableWriter out ) throws IOException {
+		super.writeFurtherClassifierInfos( out );
+		out.writeObject( prior );
+		out.writeObject( beta );
+	}
+	
+	@Override
+	protected void readFurtherClassifierInfos( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super.readFurtherClassifierInfos( in );
+		prior = in.readObject( LogPrior.class );
+		setBeta( in.readObject( double[].class ) );
 	}
 	
 	/**
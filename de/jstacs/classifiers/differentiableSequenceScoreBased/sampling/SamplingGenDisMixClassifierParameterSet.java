@@ -21,6 +21,7 @@ package de.jstacs.classifiers.differentiableSequenceScoreBased.sampling;
 import de.jstacs.DataType;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.sampling.SamplingScoreBasedClassifier.SamplingScheme;
 import de.jstacs.data.AlphabetContainer;
+import de.jstacs.io.NonParsableException;
 import de.jstacs.parameters.SimpleParameter;
 import de.jstacs.parameters.validation.NumberValidator;
 
@@ -31,6 +32,17 @@ import de.jstacs.parameters.validation.NumberValidator;
  */
 public class SamplingGenDisMixClassifierParameterSet extends SamplingScoreBasedClassifierParameterSet {
 
+	/**
+	 * The standard constructor for the interface {@link de.jstacs.Storable}.
+	 * Creates a new {@link SamplingGenDisMixClassifierParameterSet} out of its XML representation.
+	 * @param xml the XML representation as {@link StringBuffer}
+	 * @throws NonParsableException if the {@link StringBuffer} could not be parsed
+	 * @see SamplingScoreBasedClassifierParameterSet#SamplingScoreBasedClassifierParameterSet(StringBuffer)
+	 */
+	public SamplingGenDisMixClassifierParameterSet( StringBuffer xml ) throws NonParsableException {
+		super( xml );
+	}
+
 	/**
 	 * Create a new {@link SamplingGenDisMixClassifierParameterSet}.
 	 * @param alphabet the alphabet of the classifier
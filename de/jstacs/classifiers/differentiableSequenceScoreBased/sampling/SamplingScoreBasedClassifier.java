@@ -43,6 +43,9 @@ import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.FileManager;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.SparseStringExtractor;
@@ -88,7 +91,7 @@ import de.jstacs.utils.Pair;
  * @author Jan Grau
  *
  */
-public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedClassifier {
+public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedClassifier implements BinaryStorable {
 
 	private static Random r = new Random();
 	
@@ -214,6 +217,7 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 	
 	@Override
 	protected void extractFurtherClassifierInfosFromXML( StringBuffer xml ) throws NonParsableException {
+		super.extractFurtherClassifierInfosFromXML( xml );
 		params = XMLParser.extractObjectForTags( xml, "parameters", SamplingScoreBasedClassifierParameterSet.class );
 		scoringFunctions = XMLParser.extractObjectForTags( xml, "scoringFunctions", SamplingDifferentiableStatisticalModel[].class );
 		currentParameters = XMLParser.extractObjectForTags( xml, "currentParameters", double[].class );
@@ -223,7 +227,7 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 		lastParameters = XMLParser.extractObjectForTags( xml, "lastParameters", double[][].class );
 		lastScore = XMLParser.extractObjectForTags( xml, "lastScore", double[].class );
 		groupedParameters = XMLParser.extractObjectForTags( xml, "groupedParameters", int[][].class );
-		parameterOffsets = XMLParser.extractObjectForTags( xml, "parameterOffsets", int[].class );
+		parameterOffsets = XMLParser.extractObjectForTags( xml, "parametersOffsets", int[].class );
 		classVariances = XMLParser.extractObjectForTags( xml, "classVariances", double[].class );
 		samplingSds = XMLParser.extractObjectForTags( xml, "samplingSds", double[].class );
 		isTrained = XMLParser.extractObjectForTags( xml, "isTrained", boolean.class );
@@ -237,8 +241,57 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 		}catch(Exception e){
 			NonParsableException ex = new NonParsableException( e.getMessage() );
 			ex.setStackTrace( e.getStackTrace() );
+			throw ex;
 		}
 	}
+
+	public void write( BinaryStorableWriter out ) throws IOException {
+		writeClassifier( out );
+	}
+
+	@Override
+	protected void writeFurtherClassifierInfos( BinaryStorableWriter out ) throws IOException {
+		super.writeFurtherClassifierInfos( out );
+		out.writeObject( params );
+		out.writeObject( scoringFunctions );
+		out.writeObject( currentParameters );
+		out.writeObject( initParameters );
+		out.writeDouble( currentScore );
+		out.writeObject( previousParameters );
+		out.writeObject( lastParameters );
+		out.writeObject( lastScore );
+		out.writeObject( groupedParameters );
+		out.writeObject( parameterOffsets );
+		out.writeObject( classVariances );
+		out.writeObject( samplingSds );
+		out.writeBoolean( isTrained );
+		out.writeObject( burnInTest );
+		out.writeObject( burnInLength );
+		out.writeObject( getSamplingComponent().getFileContents() );
+	}
+
+	@Override
+	protected void readFurtherClassifierInfos( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super.readFurtherClassifierInfos( in );
+		params = in.readObject( SamplingScoreBasedClassifierParameterSet.class );
+		scoringFunctions = in.readObject( SamplingDifferentiableStatisticalModel[].class );
+		currentParameters = in.readObject( double[].class );
+		initParameters = in.readObject( double[].class );
+		currentScore = in.readDouble();
+		previousParameters = in.readObject( double[].class );
+		lastParameters = in.readObject( double[][].class );
+		lastScore = in.readObject( double[].class );
+		groupedParameters = in.readObject( int[][].class );
+		parameterOffsets = in.readObject( int[].class );
+		classVariances = in.readObject( double[].class );
+		samplingSds = in.readObject( double[].class );
+		isTrained = in.readBoolean();
+		burnInTest = in.readObject( BurnInTest.class );
+		burnInLength = in.readObject( Integer.class );
+		DiffSMSamplingComponent sfsc = getSamplingComponent();
+		sfsc.initForSampling( params.getNumberOfStarts() );
+		sfsc.createFiles( in.readObject( String[].class ) );
+	}
 	
 	/**
 	 * This is the constructor for {@link de.jstacs.Storable}.
@@ -251,6 +304,18 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 		super(xml);
 	}
 	
+	/**
+	 * This is the constructor for {@link BinaryStorable}.
+	 * 
+	 * @param in the reader
+	 * 
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException if the representation could not be parsed.
+	 */
+	protected SamplingScoreBasedClassifier(BinaryStorableReader in) throws IOException, NonParsableException{
+		super(in);
+	}
+	
 	/**
 	 * Creates a new {@link SamplingScoreBasedClassifier} using the parameters in <code>params</code>,
 	 * a specified {@link BurnInTest} (or <code>null</code> for no burn-in test), a set of sampling variances,
@@ -775,6 +840,7 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 		for(int i=0;i<scoringFunctions.length;i++){
 			scoringFunctions[i].setParameters( currentParameters, parameterOffsets[i] );
 		}
+		notifyModification();
 	}
 
 	@Override
@@ -860,6 +926,7 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 	
 	@Override
 	public void train( DataSet[] s, double[][] weights ) throws Exception {
+		notifyModification();
 		Pair<DataSet[], double[][]> pair= check( s, weights );
 		s = pair.getFirstElement();
 		weights = pair.getSecondElement();
@@ -1286,7 +1353,7 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 			StringBuffer sb = new StringBuffer();
 			for(int i=0;i<outfiles.length;i++){
 				StringBuffer temp = FileManager.readFile( outfiles[i] );
-				XMLParser.addTagsAndAttributes( temp,"outfile","pos=\"i\"");
+				XMLParser.addTagsAndAttributes( temp,"outfile","pos=\""+i+"\"");
 				sb.append( temp );
 			}
 			return sb;
@@ -1304,10 +1371,40 @@ public abstract class SamplingScoreBasedClassifier extends AbstractScoreBasedCla
 			for(int i=0;i<outfiles.length;i++){
 				posFilter.put( "pos", i+"" );
 				StringBuffer temp = XMLParser.extractForTag( contents, "outfile", null, posFilter );
+				if( temp.length() > 0 && temp.charAt( 0 ) == '\n' ) {
+					//line break inserted by XMLParser.addTagsAndAttributes
+					temp.deleteCharAt( 0 );
+				}
 				FileManager.writeFile( outfiles[i], temp );
 			}
 		}
 		
+		/**
+		 * Returns the contents of all parameter files.
+		 * @return the contents of the parameter files
+		 * @throws IOException if the files could not be read
+		 * @see SamplingScoreBasedClassifier.DiffSMSamplingComponent#createFiles(String[])
+		 */
+		protected String[] getFileContents() throws IOException{
+			String[] contents = new String[outfiles.length];
+			for(int i=0;i<outfiles.length;i++){
+				contents[i] = FileManager.readFile( outfiles[i] ).toString();
+			}
+			return contents;
+		}
+		
+		/**
+		 * Creates files out of file contents as returned by {@link #getFileContents()}.
+		 * @param contents the parameter values to be stored in the files
+		 * @throws IOException if the files could not be written
+		 * @see SamplingScoreBasedClassifier.DiffSMSamplingComponent#getFileContents()
+		 */
+		protected void createFiles(String[] contents) throws IOException{
+			for(int i=0;i<outfiles.length;i++){
+				FileManager.writeFile( outfiles[i], contents[i] );
+			}
+		}
+		
 	}
 	
 }
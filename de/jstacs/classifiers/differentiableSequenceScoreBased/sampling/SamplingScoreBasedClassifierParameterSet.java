@@ -19,6 +19,7 @@
 package de.jstacs.classifiers.differentiableSequenceScoreBased.sampling;
 
 import de.jstacs.DataType;
+import de.jstacs.io.NonParsableException;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.sampling.SamplingScoreBasedClassifier.SamplingScheme;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.parameters.EnumParameter;
@@ -33,6 +34,17 @@ import de.jstacs.parameters.SimpleParameter.IllegalValueException;
  */
 public abstract class SamplingScoreBasedClassifierParameterSet extends SequenceScoringParameterSet {
 	
+	/**
+	 * The standard constructor for the interface {@link de.jstacs.Storable}.
+	 * Creates a new {@link SamplingScoreBasedClassifierParameterSet} out of its XML representation.
+	 * @param xml the XML representation as {@link StringBuffer}
+	 * @throws NonParsableException if the {@link StringBuffer} could not be parsed
+	 * @see SequenceScoringParameterSet#SequenceScoringParameterSet(StringBuffer)
+	 */
+	protected SamplingScoreBasedClassifierParameterSet( StringBuffer xml ) throws NonParsableException {
+		super( xml );
+	}
+	
 	/**
 	 * Create a new {@link SamplingScoreBasedClassifierParameterSet}.
 	 * @param instanceClass the class, which must be a subclass of {@link SamplingScoreBasedClassifier}
@@ -264,6 +264,7 @@ public class TrainSMBasedClassifier extends AbstractScoreBasedClassifier {
 	 */
 	@Override
 	public void train( DataSet[] s, double[][] weights ) throws Exception {
+		notifyModification();
 		if( weights != null && s.length != weights.length ) {
 			throw new IllegalArgumentException( "data and weights do not match" );
 		}
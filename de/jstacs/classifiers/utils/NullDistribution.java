@@ -0,0 +1,239 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.classifiers.utils;
+
+import java.util.Arrays;
+
+import de.jstacs.Storable;
+import de.jstacs.io.NonParsableException;
+import de.jstacs.io.XMLParser;
+import de.jstacs.utils.ToolBox;
+
+/**
+ * This class represents the distribution of the scores of background sequences that is used to compute p-values.
+ * The p-value of a score is the fraction of background scores that are at least as high as the score.
+ *
+ * <p>
+ * Initially, all (sorted) background scores are kept and the p-values are identical to those of
+ * {@link PValueComputation#getPValue(double[], double)}. For very large backgrounds, the distribution can be compressed
+ * to a quantile sketch (see {@link #compress(double)}) that keeps only the scores needed for a given relative error of the p-values.
+ * </p>
+ *
+ * @author Jens Keilwagen, Jan Grau
+ *
+ * @see de.jstacs.classifiers.AbstractScoreBasedClassifier#getNullDistribution(de.jstacs.data.DataSet, int, double)
+ */
+public class NullDistribution implements Storable {
+
+	private int n;
+	private double[] values;
+	private double[] pValues;
+
+	/**
+	 * Creates a new {@link NullDistribution} from the given background scores.
+	 *
+	 * @param scores the background scores, which are not modified
+	 */
+	public NullDistribution( double[] scores ) {
+		if( scores.length == 0 ) {
+			throw new IllegalArgumentException( "There are no background scores." );
+		}
+		n = scores.length;
+		values = scores.clone();
+		Arrays.sort( values );
+		pValues = null;
+	}
+
+	private NullDistribution( int n, double[] values, double[] pValues ) {
+		this.n = n;
+		this.values = values;
+		this.pValues = pValues;
+	}
+
+	/**
+	 * The constructor for the {@link de.jstacs.Storable} interface.
+	 *
+	 * @param xml the XML representation
+	 *
+	 * @throws NonParsableException if the XML representation could not be parsed
+	 */
+	public NullDistribution( StringBuffer xml ) throws NonParsableException {
+		xml = XMLParser.extractForTag( xml, getClass().getSimpleName() );
+		n = XMLParser.extractObjectForTags( xml, "n", int.class );
+		values = XMLParser.extractObjectForTags( xml, "values", double[].class );
+		if( XMLParser.extractObjectForTags( xml, "compressed", boolean.class ) ) {
+			pValues = XMLParser.extractObjectForTags( xml, "pValues", double[].class );
+		}
+	}
+
+	public StringBuffer toXML() {
+		StringBuffer xml = new StringBuffer();
+		XMLParser.appendObjectWithTags( xml, n, "n" );
+		XMLParser.appendObjectWithTags( xml, values, "values" );
+		XMLParser.appendObjectWithTags( xml, pValues != null, "compressed" );
+		if( pValues != null ) {
+			XMLParser.appendObjectWithTags( xml, pValues, "pValues" );
+		}
+		XMLParser.addTags( xml, getClass().getSimpleName() );
+		return xml;
+	}
+
+	/**
+	 * Returns a compressed {@link NullDistribution}, i.e., a quantile sketch that keeps only as many background scores as needed such that
+	 * each p-value is at most by the factor <code>1+relativeError</code> smaller than the p-value of this {@link NullDistribution}.
+	 * The p-values of the kept scores are exact. For a relative error of 0, all distinct scores are kept and all p-values are exact.
+	 *
+	 * @param relativeError the relative error of the p-values
+	 *
+	 * @return the compressed {@link NullDistribution}
+	 */
+	public NullDistribution compress( double relativeError ) {
+		if( !(relativeError >= 0) ) {
+			throw new IllegalArgumentException( "The relative error has to be non-negative." );
+		}
+		//the distinct scores from the highest to the lowest and their p-values
+		double[] v = new double[values.length], p = new double[values.length];
+		int m = 0;
+		for( int i = values.length - 1; i >= 0; i-- ) {
+			if( m == 0 || values[i] != v[m - 1] ) {
+				v[m++] = values[i];
+			}
+			p[m - 1] = getPValueAt( i );
+		}
+		//keep the highest score and go on with the lowest score such that the p-values of all scores in between are close enough
+		double[] keptValues = new double[m], keptPValues = new double[m];
+		int size = 0, b = 0;
+		while( true ) {
+			keptValues[size] = v[b];
+			keptPValues[size] = p[b];
+			size++;
+			if( b == m - 1 ) {
+				break;
+			}
+			double limit = p[b] * (1 + relativeError);
+			int a = b + 1;
+			while( a + 1 < m && p[a] <= limit ) {
+				a++;
+			}
+			b = a;
+		}
+		double[] newValues = new double[size], newPValues = new double[size];
+		for( int i = 0; i < size; i++ ) {
+			newValues[i] = keptValues[size - 1 - i];
+			newPValues[i] = keptPValues[size - 1 - i];
+		}
+		return new NullDistribution( n, newValues, newPValues );
+	}
+
+	/**
+	 * Returns <code>true</code> if this {@link NullDistribution} has been compressed.
+	 *
+	 * @return <code>true</code> if this {@link NullDistribution} has been compressed
+	 *
+	 * @see #compress(double)
+	 */
+	public boolean isCompressed() {
+		return pValues != null;
+	}
+
+	/**
+	 * Returns the number of background scores this {@link NullDistribution} has been created from.
+	 *
+	 * @return the number of background scores
+	 */
+	public int getNumberOfBackgroundScores() {
+		return n;
+	}
+
+	/**
+	 * Returns the number of scores that are kept in this {@link NullDistribution}.
+	 *
+	 * @return the number of kept scores
+	 */
+	public int getNumberOfKeptScores() {
+		return values.length;
+	}
+
+	private double getPValueAt( int index ) {
+		if( index == values.length ) {
+			return 0;
+		} else if( pValues == null ) {
+			return 1d - index / (double) n;
+		} else {
+			return pValues[index];
+		}
+	}
+
+	/**
+	 * Returns the p-value of <code>score</code>.
+	 *
+	 * @param score the score
+	 *
+	 * @return the p-value
+	 *
+	 * @see PValueComputation#getPValue(double[], double)
+	 */
+	public double getPValue( double score ) {
+		return getPValueAt( PValueComputation.getIndex( values, score ) );
+	}
+
+	/**
+	 * Returns the p-values of all <code>scores</code>. The scores are sorted and the p-values are determined by a single walk
+	 * through the sorted scores and the background scores.
+	 *
+	 * @param scores the scores
+	 *
+	 * @return the p-values in the order of <code>scores</code>
+	 */
+	public double[] getPValues( double... scores ) {
+		int[] order = ToolBox.order( scores, false );
+		double[] res = new double[scores.length];
+		int index = 0;
+		for( int i = 0; i < order.length; i++ ) {
+			double s = scores[order[i]];
+			while( index < values.length && values[index] < s ) {
+				index++;
+			}
+			res[order[i]] = getPValueAt( index );
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the threshold that determines if an observed score is significant for the given p-value, i.e.,
+	 * the smallest kept score whose p-value is at most <code>pValue</code>.
+	 *
+	 * @param pValue the p-value
+	 *
+	 * @return the threshold
+	 *
+	 * @see PValueComputation#getThreshold(double[], int)
+	 */
+	public double getThreshold( double pValue ) {
+		if( pValues == null ) {
+			return PValueComputation.getThreshold( values, PValueComputation.getBorder( values, pValue ) );
+		} else {
+			int i = 0;
+			while( i < values.length && pValues[i] > pValue ) {
+				i++;
+			}
+			return i < values.length ? values[i] : PValueComputation.getThreshold( values, i );
+		}
+	}
+}
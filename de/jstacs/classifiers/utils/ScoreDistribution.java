@@ -0,0 +1,353 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.classifiers.utils;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+import de.jstacs.Storable;
+import de.jstacs.data.AlphabetContainer;
+import de.jstacs.io.NonParsableException;
+import de.jstacs.io.XMLParser;
+import de.jstacs.sequenceScores.QuickScanningSequenceScore;
+
+/**
+ * This class computes the distribution of the scores of a {@link QuickScanningSequenceScore} under an i.i.d. background
+ * by dynamic programming and, hence, without sampling background sequences.
+ *
+ * <p>
+ * The position-wise scores (see {@link QuickScanningSequenceScore#fillInfixScore(int[], int, int, double[])}) are rounded to multiples
+ * of the granularity and the distribution of the sum of these discretized scores is computed over the contexts of the
+ * preceding {@link QuickScanningSequenceScore#getInfixScoreContextLength()} symbols. Hence, this class can be used for position weight matrices
+ * and (inhomogeneous) Markov models or Bayesian networks of low order, and the discretized score of a sequence differs
+ * from its score by at most {@link #getMaximalDiscretizationError()}.
+ * </p>
+ *
+ * <p>
+ * Distributions can be cached per model using {@link #getScoreDistribution(QuickScanningSequenceScore, double[], double)},
+ * which recomputes the distribution only if the position-wise scores of the model have been changed.
+ * </p>
+ *
+ * @author Jan Grau, Jens Keilwagen
+ *
+ * @see PValueComputation
+ */
+public class ScoreDistribution implements Storable {
+
+	/**
+	 * The default granularity of the discretized scores.
+	 */
+	public static final double DEFAULT_GRANULARITY = 1E-3;
+
+	private static final int MAX_CONTEXTS = 1 << 20;
+
+	private static final WeakHashMap<QuickScanningSequenceScore, ScoreDistribution> CACHE = new WeakHashMap<QuickScanningSequenceScore, ScoreDistribution>();
+
+	private double granularity;
+	private double[] background;
+	private double[][] terms;
+	private double maxScore;
+	private int offset;
+	private double[] tail;
+
+	/**
+	 * Returns the distribution of the scores of <code>model</code> from the cache if the position-wise scores of <code>model</code>,
+	 * the background and the granularity did not change since it has been computed, and computes and caches it otherwise.
+	 *
+	 * @param model the model
+	 * @param background the probabilities of the symbols of the i.i.d. background, <code>null</code> for a uniform background
+	 * @param granularity the granularity of the discretized scores
+	 *
+	 * @return the distribution of the scores
+	 *
+	 * @see #ScoreDistribution(QuickScanningSequenceScore, double[], double)
+	 */
+	public static ScoreDistribution getScoreDistribution( QuickScanningSequenceScore model, double[] background, double granularity ) {
+		int k = getContextLength( model );
+		int a = (int) model.getAlphabetContainer().getAlphabetLengthAt( 0 );
+		background = getBackground( background, a );
+		double[][] terms = getTerms( model, k, a );
+		ScoreDistribution dist;
+		synchronized( CACHE ) {
+			dist = CACHE.get( model );
+		}
+		if( dist == null || dist.granularity != granularity || !Arrays.equals( dist.background, background ) || !Arrays.deepEquals( dist.terms, terms ) ) {
+			dist = new ScoreDistribution( terms, k, background, granularity );
+			synchronized( CACHE ) {
+				CACHE.put( model, dist );
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Computes the distribution of the scores of <code>model</code> under an i.i.d. background.
+	 *
+	 * @param model the model
+	 * @param background the probabilities of the symbols of the i.i.d. background, <code>null</code> for a uniform background
+	 * @param granularity the granularity of the discretized scores, e.g. {@link #DEFAULT_GRANULARITY}
+	 *
+	 * @throws IllegalArgumentException if the model is not defined over a simple, discrete alphabet, or if the position-wise scores
+	 *             of the model depend on succeeding or too many preceding positions
+	 */
+	public ScoreDistribution( QuickScanningSequenceScore model, double[] background, double granularity ) throws IllegalArgumentException {
+		this( model, getContextLength( model ), background, granularity );
+	}
+
+	private ScoreDistribution( QuickScanningSequenceScore model, int k, double[] background, double granularity ) {
+		this( getTerms( model, k, (int) model.getAlphabetContainer().getAlphabetLengthAt( 0 ) ), k,
+				getBackground( background, (int) model.getAlphabetContainer().getAlphabetLengthAt( 0 ) ), granularity );
+	}
+
+	private ScoreDistribution( double[][] terms, int k, double[] background, double granularity ) {
+		if( !(granularity > 0) ) {
+			throw new IllegalArgumentException( "The granularity has to be positive." );
+		}
+		this.granularity = granularity;
+		this.background = background;
+		this.terms = terms;
+		int a = background.length;
+
+		//the distribution of the discretized partial scores for each context of the preceding symbols
+		double[][] prob = { { 1 } };
+		int[] lo = { 0 };
+		double[] max = { 0 };
+		int contexts = 1;
+		for( int i = 0; i < terms.length; i++ ) {
+			int next = Math.min( contexts * a, (int) Math.pow( a, k ) );
+			int[] d = new int[terms[i].length];
+			int[] nLo = new int[next], nHi = new int[next];
+			double[] nMax = new double[next];
+			Arrays.fill( nLo, Integer.MAX_VALUE );
+			Arrays.fill( nHi, Integer.MIN_VALUE );
+			Arrays.fill( nMax, Double.NEGATIVE_INFINITY );
+			for( int c = 0; c < terms[i].length; c++ ) {
+				int st = c / a;
+				if( prob[st] != null && terms[i][c] != Double.NEGATIVE_INFINITY && background[c % a] > 0 ) {
+					d[c] = (int) Math.round( terms[i][c] / granularity );
+					int ns = c % next;
+					nLo[ns] = Math.min( nLo[ns], lo[st] + d[c] );
+					nHi[ns] = Math.max( nHi[ns], lo[st] + prob[st].length - 1 + d[c] );
+					nMax[ns] = Math.max( nMax[ns], max[st] + terms[i][c] );
+				}
+			}
+			double[][] nProb = new double[next][];
+			for( int ns = 0; ns < next; ns++ ) {
+				if( nLo[ns] <= nHi[ns] ) {
+					nProb[ns] = new double[nHi[ns] - nLo[ns] + 1];
+				}
+			}
+			for( int c = 0; c < terms[i].length; c++ ) {
+				int st = c / a, ns = c % next;
+				if( prob[st] != null && terms[i][c] != Double.NEGATIVE_INFINITY && background[c % a] > 0 ) {
+					double b = background[c % a];
+					double[] p = prob[st], np = nProb[ns];
+					int shift = lo[st] + d[c] - nLo[ns];
+					for( int j = 0; j < p.length; j++ ) {
+						np[shift + j] += p[j] * b;
+					}
+				}
+			}
+			prob = nProb;
+			lo = nLo;
+			max = nMax;
+			contexts = next;
+		}
+
+		int min = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;
+		maxScore = Double.NEGATIVE_INFINITY;
+		for( int st = 0; st < prob.length; st++ ) {
+			if( prob[st] != null ) {
+				min = Math.min( min, lo[st] );
+				hi = Math.max( hi, lo[st] + prob[st].length - 1 );
+				maxScore = Math.max( maxScore, max[st] );
+			}
+		}
+		if( min > hi ) {
+			throw new IllegalArgumentException( "All sequences have a score of minus infinity." );
+		}
+		offset = min;
+		tail = new double[hi - min + 1];
+		for( int st = 0; st < prob.length; st++ ) {
+			if( prob[st] != null ) {
+				for( int j = 0; j < prob[st].length; j++ ) {
+					tail[lo[st] - min + j] += prob[st][j];
+				}
+			}
+		}
+		//summing from the best scores keeps small p-values accurate
+		for( int j = tail.length - 2; j >= 0; j-- ) {
+			tail[j] += tail[j + 1];
+		}
+	}
+
+	/**
+	 * The constructor for the {@link de.jstacs.Storable} interface.
+	 *
+	 * @param xml the XML representation
+	 *
+	 * @throws NonParsableException if the XML representation could not be parsed
+	 */
+	public ScoreDistribution( StringBuffer xml ) throws NonParsableException {
+		xml = XMLParser.extractForTag( xml, getClass().getSimpleName() );
+		granularity = XMLParser.extractObjectForTags( xml, "granularity", double.class );
+		background = XMLParser.extractObjectForTags( xml, "background", double[].class );
+		terms = XMLParser.extractObjectForTags( xml, "terms", double[][].class );
+		maxScore = XMLParser.extractObjectForTags( xml, "maxScore", double.class );
+		offset = XMLParser.extractObjectForTags( xml, "offset", int.class );
+		tail = XMLParser.extractObjectForTags( xml, "tail", double[].class );
+	}
+
+	public StringBuffer toXML() {
+		StringBuffer xml = new StringBuffer();
+		XMLParser.appendObjectWithTags( xml, granularity, "granularity" );
+		XMLParser.appendObjectWithTags( xml, background, "background" );
+		XMLParser.appendObjectWithTags( xml, terms, "terms" );
+		XMLParser.appendObjectWithTags( xml, maxScore, "maxScore" );
+		XMLParser.appendObjectWithTags( xml, offset, "offset" );
+		XMLParser.appendObjectWithTags( xml, tail, "tail" );
+		XMLParser.addTags( xml, getClass().getSimpleName() );
+		return xml;
+	}
+
+	private static int getContextLength( QuickScanningSequenceScore model ) throws IllegalArgumentException {
+		AlphabetContainer con = model.getAlphabetContainer();
+		if( !con.isSimple() || !con.isDiscrete() ) {
+			throw new IllegalArgumentException( "The model has to be defined over a simple, discrete alphabet." );
+		}
+		int k = model.getInfixScoreContextLength();
+		if( k < 0 ) {
+			throw new IllegalArgumentException( "The position-wise scores of the model may depend on succeeding positions." );
+		}
+		if( Math.pow( con.getAlphabetLengthAt( 0 ), k + 1 ) > MAX_CONTEXTS ) {
+			throw new IllegalArgumentException( "The position-wise scores of the model depend on too many preceding positions." );
+		}
+		return k;
+	}
+
+	private static double[] getBackground( double[] background, int a ) {
+		if( background == null ) {
+			background = new double[a];
+			Arrays.fill( background, 1d / a );
+		} else if( background.length != a ) {
+			throw new IllegalArgumentException( "The background does not match the size of the alphabet." );
+		} else {
+			background = background.clone();
+		}
+		return background;
+	}
+
+	/**
+	 * Returns the position-wise scores for all symbols and contexts, where the symbol at position <code>i</code> is the least significant digit of
+	 * the index and the symbol at position <code>i-j</code> is the <code>j</code>-th digit.
+	 */
+	private static double[][] getTerms( QuickScanningSequenceScore model, int k, int a ) {
+		int l = model.getLength();
+		double[][] terms = new double[l][];
+		int[] window = new int[l];
+		double[] scores = new double[l];
+		for( int i = 0; i < l; i++ ) {
+			int m = Math.min( i, k );
+			terms[i] = new double[(int) Math.pow( a, m + 1 )];
+			for( int c = 0; c < terms[i].length; c++ ) {
+				for( int j = 0, r = c; j <= m; j++, r /= a ) {
+					window[i - j] = r % a;
+				}
+				model.fillInfixScore( window, i, 1, scores );
+				terms[i][c] = scores[i];
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Returns the granularity of the discretized scores.
+	 *
+	 * @return the granularity
+	 */
+	public double getGranularity() {
+		return granularity;
+	}
+
+	/**
+	 * Returns the maximal difference between the score of a sequence and its discretized score, which is half of the granularity
+	 * for each position.
+	 *
+	 * @return the maximal discretization error
+	 */
+	public double getMaximalDiscretizationError() {
+		return terms.length * granularity / 2d;
+	}
+
+	/**
+	 * Returns the maximal score of any sequence.
+	 *
+	 * @return the maximal score
+	 */
+	public double getMaximumScore() {
+		return maxScore;
+	}
+
+	/**
+	 * Returns the p-value of <code>score</code>, i.e., the probability that a background sequence has a discretized score of at least
+	 * <code>score</code>.
+	 *
+	 * @param score the score
+	 *
+	 * @return the p-value
+	 */
+	public double getPValue( double score ) {
+		if( score > maxScore ) {
+			return 0;
+		}
+		long j = Math.round( score / granularity ) - offset;
+		if( j <= 0 ) {
+			return tail[0];
+		} else {
+			//the maximal score may be rounded beyond the maximal discretized score
+			return tail[(int) Math.min( j, tail.length - 1 )];
+		}
+	}
+
+	/**
+	 * Returns the smallest score whose p-value (see {@link #getPValue(double)}) is at most <code>pValue</code>, i.e., an observed
+	 * score is significant if it is at least the returned threshold.
+	 *
+	 * @param pValue the p-value
+	 *
+	 * @return the threshold
+	 */
+	public double getThreshold( double pValue ) {
+		//tail is decreasing
+		int start = 0, end = tail.length;
+		while( start < end ) {
+			int m = (start + end) >>> 1;
+			if( tail[m] <= pValue ) {
+				end = m;
+			} else {
+				start = m + 1;
+			}
+		}
+		if( start == tail.length ) {
+			return Math.nextUp( maxScore );
+		} else {
+			return (offset + start) * granularity;
+		}
+	}
+}
@@ -18,6 +18,21 @@
 
 package de.jstacs.clustering.distances;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * This abstract class defined a DistanceMetric (which may be used for clustering) on a generic type <code>T</code>.
  * @author Jan Grau
@@ -44,8 +59,14 @@ public abstract class DistanceMetric<T> {
 	 * @return the pairwise distances
 	 * @throws Exception if the distance could not be computed for one pair of objects
 	 */
+	@SafeVarargs
 	public static <T> double[][] getPairwiseDistanceMatrix(DistanceMetric<T> metric, T... objects) throws Exception {
-		return getPairwiseDistanceMatrix(metric, objects, objects.length);
+		//the elements are copied one by one, since passing the varargs parameter itself on to another method may cause heap pollution
+		ArrayList<T> list = new ArrayList<T>(objects.length);
+		for(T o : objects){
+			list.add( o );
+		}
+		return getPairwiseDistanceMatrix(metric, 1, list, list.size());
 	}
 
 	/**
@@ -61,13 +82,201 @@ public abstract class DistanceMetric<T> {
 	 * @throws Exception if the distance could not be computed for one pair of objects
 	 */
 	public static <T> double[][] getPairwiseDistanceMatrix(DistanceMetric<T> metric, T[] objects, int end) throws Exception {
-		double[][] matrix = new double[end][];
+		return getPairwiseDistanceMatrix(metric, 1, objects, end);
+	}
+	
+	/**
+	 * Returns the matrix of all pairwise distance of the supplied objects using <code>threads</code> threads, 
+	 * where rows and columns are indexed in the order of the supplied objects.
+	 * 
+	 * @param metric the metric
+	 * @param threads the number of threads
+	 * @param objects the objects
+	 * @param <T> the generic type on which the metric is defined
+	 * 
+	 * @return the pairwise distances
+	 * @throws Exception if the distance could not be computed for one pair of objects
+	 * 
+	 * @see #getPairwiseDistanceMatrix(DistanceMetric, int, Object[], int)
+	 */
+	@SafeVarargs
+	public static <T> double[][] getPairwiseDistanceMatrix(DistanceMetric<T> metric, int threads, T... objects) throws Exception {
+		//the elements are copied one by one, since passing the varargs parameter itself on to another method may cause heap pollution
+		ArrayList<T> list = new ArrayList<T>(objects.length);
+		for(T o : objects){
+			list.add( o );
+		}
+		return getPairwiseDistanceMatrix(metric, threads, list, list.size());
+	}
+	
+	/**
+	 * Returns the matrix of pairwise distance of the supplied objects until the given end position using <code>threads</code> threads, 
+	 * where rows and columns are indexed in the order of the supplied objects.
+	 * Only the lower triangle is computed, i.e., row <code>i</code> of the matrix has length <code>i</code>.
+	 * 
+	 * The representation of each object (cf. {@link #getRepresentation(Object)}) is computed only once. 
+	 * Afterwards, the matrix is split into tiles that are filled in parallel.
+	 * Hence, {@link #getDistance(Object, Object, Object, Object)} must be thread-safe if more than one thread is used.
+	 * 
+	 * @param metric the metric
+	 * @param threads the number of threads
+	 * @param objects the objects
+	 * @param end the end index (exclusive)
+	 * @param <T> the generic type on which the metric is defined
+	 * 
+	 * @return the pairwise distances
+	 * @throws Exception if the distance could not be computed for one pair of objects
+	 */
+	public static <T> double[][] getPairwiseDistanceMatrix(DistanceMetric<T> metric, int threads, T[] objects, int end) throws Exception {
+		return getPairwiseDistanceMatrix(metric, threads, Arrays.asList(objects), end);
+	}
+	
+	private static <T> double[][] getPairwiseDistanceMatrix(final DistanceMetric<T> metric, int threads, final List<T> objects, int end) throws Exception {
+		final double[][] matrix = new double[end][];
+		final Object[] rep = new Object[end];
 		for(int i=0;i<end;i++){
 			matrix[i] = new double[i];
-			for(int j=0;j<i;j++){
-				matrix[i][j] = metric.getDistance( objects[i], objects[j] );
+		}
+		if(threads <= 1){
+			for(int i=0;i<end;i++){
+				rep[i] = metric.getRepresentation( objects.get(i) );
+			}
+			for(int i=0;i<end;i++){
+				for(int j=0;j<i;j++){
+					matrix[i][j] = metric.getDistance( objects.get(i), rep[i], objects.get(j), rep[j] );
+				}
+			}
+		}else{
+			ExecutorService pool = Executors.newFixedThreadPool( threads );
+			try{
+				ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+				for(int i=0;i<end;i++){
+					final int k = i;
+					futures.add( pool.submit( () -> { rep[k] = metric.getRepresentation( objects.get(k) ); return null; } ) );
+				}
+				waitFor( futures );
+				
+				for(int i=0;i<end;i+=TILE){
+					for(int j=0;j<=i;j+=TILE){
+						final int rowStart = i, rowEnd = Math.min( end, i+TILE ), colStart = j;
+						futures.add( pool.submit( () -> {
+							for(int r=rowStart;r<rowEnd;r++){
+								int colEnd = Math.min( r, colStart+TILE );
+								for(int c=colStart;c<colEnd;c++){
+									matrix[r][c] = metric.getDistance( objects.get(r), rep[r], objects.get(c), rep[c] );
+								}
+							}
+							return null;
+						} ) );
+					}
+				}
+				waitFor( futures );
+			}finally{
+				pool.shutdownNow();
 			}
 		}
 		return matrix;
 	}
+	
+	private static final int TILE = 64;
+	
+	private static void waitFor(ArrayList<Future<?>> futures) throws Exception {
+		try{
+			for(Future<?> f : futures){
+				f.get();
+			}
+		}catch(ExecutionException e){
+			Throwable t = e.getCause();
+			throw t instanceof Exception ? (Exception) t : e;
+		}
+		futures.clear();
+	}
+	
+	/**
+	 * Returns a representation of the object that is computed once for each object in
+	 * {@link #getPairwiseDistanceMatrix(DistanceMetric, int, Object[], int)} and re-used for all distances of this object,
+	 * e.g., the score profiles of a motif model.
+	 * The default implementation returns <code>null</code>.
+	 * 
+	 * @param o the object
+	 * @return the representation of the object
+	 * @throws Exception if the representation could not be computed
+	 * 
+	 * @see #getDistance(Object, Object, Object, Object)
+	 */
+	protected Object getRepresentation(T o) throws Exception {
+		return null;
+	}
+	
+	/**
+	 * Returns the distance according to the metric of the two supplied objects using their representations.
+	 * The default implementation returns {@link #getDistance(Object, Object)}.
+	 * 
+	 * @param o1 the first object
+	 * @param rep1 the representation of the first object
+	 * @param o2 the second object
+	 * @param rep2 the representation of the second object
+	 * @return the distance
+	 * @throws Exception if the distance could not be computed
+	 * 
+	 * @see #getRepresentation(Object)
+	 */
+	protected double getDistance(T o1, Object rep1, T o2, Object rep2) throws Exception {
+		return getDistance( o1, o2 );
+	}
+	
+	/**
+	 * Writes a distance matrix, e.g., obtained from {@link #getPairwiseDistanceMatrix(DistanceMetric, int, Object...)}, to a binary file.
+	 * This allows to cluster the same objects with different linkage methods or cut distances without re-computing the distances.
+	 * Only the lower triangle of the matrix is stored.
+	 * 
+	 * @param matrix the distance matrix
+	 * @param fileName the name of the file
+	 * @throws IOException if the file could not be written
+	 * 
+	 * @see #readDistanceMatrix(String)
+	 */
+	public static void writeDistanceMatrix(double[][] matrix, String fileName) throws IOException {
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( fileName ) ) );
+		try{
+			out.writeUTF( MAGIC );
+			out.writeInt( matrix.length );
+			for(int i=0;i<matrix.length;i++){
+				for(int j=0;j<i;j++){
+					out.writeDouble( matrix[i][j] );
+				}
+			}
+		}finally{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Reads a distance matrix written by {@link #writeDistanceMatrix(double[][], String)}.
+	 * Row <code>i</code> of the returned matrix has length <code>i</code>.
+	 * 
+	 * @param fileName the name of the file
+	 * @return the distance matrix
+	 * @throws IOException if the file could not be read or does not contain a distance matrix
+	 */
+	public static double[][] readDistanceMatrix(String fileName) throws IOException {
+		DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( fileName ) ) );
+		try{
+			if( !MAGIC.equals( in.readUTF() ) ) {
+				throw new IOException( "The file does not contain a distance matrix: " + fileName );
+			}
+			double[][] matrix = new double[in.readInt()][];
+			for(int i=0;i<matrix.length;i++){
+				matrix[i] = new double[i];
+				for(int j=0;j<i;j++){
+					matrix[i][j] = in.readDouble();
+				}
+			}
+			return matrix;
+		}finally{
+			in.close();
+		}
+	}
+	
+	private static final String MAGIC = "Jstacs distance matrix";
 }
@@ -18,8 +18,6 @@
 
 package de.jstacs.clustering.distances;
 
-import java.util.LinkedList;
-
 import javax.naming.OperationNotSupportedException;
 
 import de.jstacs.data.DeBruijnGraphSequenceGenerator;
@@ -29,7 +27,6 @@ import de.jstacs.data.sequences.CyclicSequenceAdaptor;
 import de.jstacs.data.sequences.WrongSequenceTypeException;
 import de.jstacs.sequenceScores.statisticalModels.StatisticalModel;
 import de.jstacs.utils.Pair;
-import de.jstacs.utils.RealTime;
 
 /**
  * Class for a distance metric between {@link StatisticalModel}s based on the correlation of score
@@ -151,181 +148,32 @@ public class SequenceScoreDistance extends DistanceMetric<StatisticalModel> {
 	
 	/**
 	 * Multi-threaded computation of the pairwise distance matrix.
+	 * The score profiles of each model are computed only once.
 	 * @param numThreads the number of threads
 	 * @param objects the models
 	 * @return the distance matrix
 	 * @throws Exception if the distance could not be computed
+	 * @see DistanceMetric#getPairwiseDistanceMatrix(DistanceMetric, int, Object[], int)
 	 */
 	public double[][] getPairwiseDistanceMatrix(int numThreads, StatisticalModel... objects) throws Exception {
-		if(numThreads == 1){
-			double[][] matrix = new double[objects.length][];
-			for(int i=0;i<matrix.length;i++){
-				matrix[i] = new double[i];
-				double[][] prof1 = this.getProfile( objects[i], false );
-				double[][] prof1Rc = this.getProfile( objects[i], true );
-				fillDistanceRow( i, matrix[i], prof1, prof1Rc, this, objects );
-			}
-			return matrix;
-		}else{
-			LinkedList<Worker> available = new LinkedList<Worker>();
-			Worker[] workers = new Worker[numThreads-1];
-			for(int i=0;i<workers.length;i++){
-				workers[i] = new Worker( objects, available, i );
-				available.add( workers[i] );
-				(new Thread(workers[i])).start();
-			}
-			RealTime rt = new RealTime();
-			double[][] matrix = new double[objects.length][];
-			for(int i=0;i<matrix.length;i++){
-				System.out.println("main in row "+i+" "+rt.getElapsedTime());
-				matrix[i] = new double[i];
-				double[][] prof1 = null;
-				double[][] prof1Rc = null;
-				int length = 0;
-				synchronized(objects[i]){
-					prof1 = this.getProfile( objects[i], false );
-					length = objects[i].getLength();
-					prof1Rc = this.getProfile( objects[i], true );
-				}
-				int a = 0;
-				while(a == 0){
-					synchronized( available ) {
-						a = available.size();
-					}
-					if(a == 0){
-						synchronized(this){
-					//		System.out.println("main waits");
-							wait(1000);
-						}
-					}
-				}
-				Worker curr = null;
-				synchronized( available ) {
-					curr = available.pop();
-				}
-			//	System.out.println("main found worker "+curr.index);
-				curr.setRow( matrix[i], prof1, prof1Rc, length );
-			//	System.out.println("main set row in worker "+curr.index);
-			}
-			int a = 0;
-			while(a < workers.length){
-				synchronized( available ) {
-					a = available.size();
-				}
-				if(a == workers.length){
-					synchronized(this){
-		//				System.out.println("main waits");
-						wait(100);
-					}
-				}
-			}
-			
-			for(int i=0;i<workers.length;i++){
-				workers[i].stop();
-			}
-			return matrix;
-		}
+		return getPairwiseDistanceMatrix( this, numThreads, objects, objects.length );
 	}
 	
-	private static void fillDistanceRow(int i, double[] row, double[][] prof1, double[][] prof1Rc, SequenceScoreDistance metric, StatisticalModel... objects) throws Exception{
-		for(int j=0;j<i;j++){
-			row[j] = metric.getDistance( prof1, prof1Rc, objects[j], objects[i].getLength() );
-		}
+	/**
+	 * Returns the score profiles of the model for both strands.
+	 */
+	@Override
+	protected Object getRepresentation( StatisticalModel o ) throws Exception {
+		return new double[][][]{ getProfile( o, false ), getProfile( o, true ) };
 	}
-
 	
-	private class Worker implements Runnable{
-
-		private int index;
-		private boolean stop;
-		private double[] row;
-		private double[][] prof1;
-		private double[][] prof1Rc;
-		private SequenceScoreDistance metric;
-		private StatisticalModel[] objects;
-		private LinkedList<Worker> available;
-		private int length;
-		
-		private Worker(StatisticalModel[] objects, LinkedList<Worker> available, int index){
-			this.objects = objects;
-			this.metric = SequenceScoreDistance.this;
-			this.available = available;
-			this.index = index;
-		}
-		
-		private void setRow(double[] row, double[][] prof1, double[][] prof1Rc, int length){
-			//System.out.println("set row");
-			synchronized( this ) {
-				this.row = row;
-				this.prof1 = prof1;
-				this.prof1Rc = prof1Rc;
-				this.length = length;
-				
-				//System.out.println("notified this in set");
-				notify();
-			}
-		}
-		
-		private void stop(){
-			this.stop = true;
-			synchronized(this){
-				//System.out.println("notified this in stop");
-				this.notify();
-			}
-		}
-		
-		@Override
-		public void run() {
-			synchronized(this){
-				try {
-					//System.out.println("worker waits");
-					this.wait();
-				} catch ( InterruptedException e ) {
-					e.printStackTrace();
-				}
-			}
-			while(!stop){
-				
-				if(row != null){
-					//System.out.println("worker "+index+" works");
-					try {
-						fillDistanceRow( );
-						synchronized(this){
-							this.row = null;
-							synchronized( available ) {
-					//			System.out.println("worker "+index+" available");
-								available.add( this );
-							}
-							synchronized( metric ) {
-					//			System.out.println("worker "+index+" notified metric");
-								metric.notify();
-							}
-							if(stop){
-								return;
-							}
-							try {
-					//			System.out.println("worker "+index+" waits");
-								wait();
-							} catch ( InterruptedException e ) {
-								e.printStackTrace();
-							}
-						}
-					} catch ( Exception e ) {
-						e.printStackTrace();
-						this.stop = true;
-						throw new RuntimeException();
-					}
-				}
-			}
-		}
-		
-		private void fillDistanceRow() throws Exception{
-			for(int j=0;j<row.length;j++){
-				synchronized(objects[j]){
-					row[j] = metric.getDistance( prof1, prof1Rc, objects[j], length );
-				}
-			}
-		}
+	@Override
+	protected double getDistance( StatisticalModel o1, Object rep1, StatisticalModel o2, Object rep2 ) throws Exception {
+		double[][][] p1 = (double[][][]) rep1, p2 = (double[][][]) rep2;
+		int maxShift = Math.max( o1.getLength(), o2.getLength() );
+		double d1 = getDistance( p1[0], p1[1], p2[0], maxShift );
+		double d2 = getDistance( p1[0], p1[1], p2[1], maxShift );
 		
+		return Math.min(d1, d2);
 	}
 }
@@ -18,7 +18,10 @@
 
 package de.jstacs.clustering.hierachical;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 
 import de.jstacs.clustering.distances.DistanceMetric;
@@ -80,46 +83,215 @@ public class Hclust<T> {
 	
 	/**
 	 * Further clusters the supplied cluster trees using the given distance matrix
-	 * and creating original indexes for the inner node starting at -indexOff-1 in descending order
+	 * and creating original indexes for the inner node starting at -indexOff-1 in descending order.
+	 * 
+	 * The trees are merged using nearest-neighbor chains, where the distances between clusters are updated using the Lance-Williams formula
+	 * on a condensed distance matrix (for {@link Linkage#AVERAGE}, the sums of distances are stored and divided by the numbers of pairs).
+	 * Since all linkage methods are reducible, this takes time in the order of <code>n<sup>2</sup></code> for <code>n</code> trees
+	 * (instead of <code>n<sup>3</sup></code>) and memory for <code>n(n-1)/2</code> distances.
+	 * The resulting tree is identical to the tree obtained by repeatedly merging the first closest pair of trees in <code>list</code>
+	 * (cf. {@link #getDistance(Linkage, double[][], ClusterTree, ClusterTree)}) and appending the merged tree to <code>list</code>,
+	 * including ties, except that average distances are summed in a different order and may differ by rounding in the last digits.
+	 * 
 	 * @param distMat the distance matrix
-	 * @param list the list of previous trees
+	 * @param list the list of previous trees, which finally contains only the joint cluster tree
 	 * @param indexOff the offset on the original indexes
 	 * @return the joint cluster tree
+	 * @throws IllegalArgumentException if there are too many trees or no finite distance between some of the trees
 	 */
 	public ClusterTree<Integer> cluster(double[][] distMat, LinkedList<ClusterTree<Integer>> list, int indexOff){
-				
-		int oi = -indexOff-1;
-		while(list.size() > 1){
-			Iterator<ClusterTree<Integer>> it = list.iterator();
-			int mini = -1, minj = -2; //mini>minj
-			double min = Double.POSITIVE_INFINITY;
-			int i=0;
-			while(it.hasNext()){
-				ClusterTree<Integer> tree = it.next();
-				Iterator<ClusterTree<Integer>> it2 = list.iterator();
-				for(int j=0;j<i;j++){
-					ClusterTree<Integer> tree2 = it2.next();
-					double dist = getDistance(linkage, distMat, tree,tree2);
-					if(dist < min){
-						min = dist;
-						mini = i;
-						minj = j;
-						//still mini>minj, since i>j
+		int n = list.size();
+		if(n < 2){
+			return list.get( 0 );
+		}
+		long length = (long)n*(n-1)/2;
+		if( length > Integer.MAX_VALUE-8 ) {
+			throw new IllegalArgumentException( "Too many trees for clustering: " + n );
+		}
+		ArrayList<ClusterTree<Integer>> trees = new ArrayList<ClusterTree<Integer>>( list );
+		
+		//id: the trees are 0,...,n-1 and the merged trees are n,...,2n-2, slots of merged trees are set to -1
+		int[] id = new int[n], size = new int[n];
+		double[] dist = new double[(int)length];
+		for(int i=0;i<n;i++){
+			id[i] = i;
+			size[i] = trees.get(i).getNumberOfElements();
+			for(int j=0;j<i;j++){
+				if( linkage == Linkage.AVERAGE ) {
+					//sum of distances
+					dist[index(i,j)] = getDistance(linkage, distMat, trees.get(i), trees.get(j), false);
+				} else {
+					dist[index(i,j)] = getDistance(linkage, distMat, trees.get(i), trees.get(j));
+				}
+			}
+		}
+		
+		//the merges in the order they are found: children with the later and earlier position in the list, distance, and key for the position
+		MergeOrder merges = new MergeOrder( n );
+		int[] chain = new int[n];
+		int chainLength = 0, first = 0;
+		for(int m=0;m<n-1;m++){
+			int a, b;
+			while(true){
+				if(chainLength == 0){
+					while(id[first] < 0){
+						first++;
 					}
+					chain[chainLength++] = first;
 				}
-				i++;
+				a = chain[chainLength-1];
+				b = nearestNeighbor( a, id, size, dist, merges );
+				if(chainLength > 1 && chain[chainLength-2] == b){
+					chainLength -= 2;
+					break;
+				}
+				chain[chainLength++] = b;
 			}
 			
-			ClusterTree<Integer> nt = new ClusterTree<Integer>( min, oi, list.get( mini ), list.get( minj ) );
+			double d = getDistance( a, b, size, dist );
+			int x = Math.min( a, b ), y = Math.max( a, b );
+			for(int k=0;k<n;k++){
+				if(id[k] >= 0 && k != a && k != b){
+					dist[index(x,k)] = update( dist[index(a,k)], dist[index(b,k)] );
+				}
+			}
+			id[x] = merges.add( id[a], id[b], d );
+			id[y] = -1;
+			size[x] += size[y];
+		}
+		
+		//merged trees are created in the order in which they would be appended to the list
+		Integer[] order = new Integer[n-1];
+		for(int m=0;m<n-1;m++){
+			order[m] = n+m;
+		}
+		Arrays.sort( order, merges );
+		trees.addAll( Collections.<ClusterTree<Integer>>nCopies( n-1, null ) );
+		int oi = -indexOff-1;
+		for(int m=0;m<n-1;m++){
+			int k = order[m]-n;
+			//the varargs array of the two merged trees is created by the compiler and does not escape the constructor
+			@SuppressWarnings( "unchecked" )
+			ClusterTree<Integer> nt = new ClusterTree<Integer>( merges.dist[k], oi, trees.get( merges.later[k] ), trees.get( merges.earlier[k] ) );
+			trees.set( n+k, nt );
 			oi--;
-			list.remove( mini );
-			list.remove( minj );
-			list.add( nt );
 		}
 		
+		list.clear();
+		list.add( trees.get( order[n-2] ) );
 		return list.get( 0 );
 	}
 	
+	private static int index(int i, int j){
+		return (int)( i > j ? (long)i*(i-1)/2+j : (long)j*(j-1)/2+i );
+	}
+	
+	private double getDistance(int i, int j, int[] size, double[] dist){
+		double d = dist[index(i,j)];
+		if( linkage == Linkage.AVERAGE ) {
+			d /= ((double)size[i]*size[j]);
+		}
+		return d;
+	}
+	
+	/**
+	 * Determines the closest tree to the tree in slot <code>i</code>, where ties are broken by the position in the list.
+	 */
+	private int nearestNeighbor(int i, int[] id, int[] size, double[] dist, MergeOrder merges){
+		int best = -1;
+		double min = Double.POSITIVE_INFINITY;
+		for(int j=0;j<id.length;j++){
+			if(id[j] >= 0 && j != i){
+				double d = getDistance( i, j, size, dist );
+				if(d < min || (d == min && best >= 0 && merges.compare( id[j], id[best] ) < 0)){
+					min = d;
+					best = j;
+				}
+			}
+		}
+		if(best < 0){
+			throw new IllegalArgumentException( "No finite distance between the remaining trees" );
+		}
+		return best;
+	}
+	
+	/**
+	 * The merges of trees ordered by the position at which the merged trees would be appended to the list of trees.
+	 * This position only depends on the distance of the merge and the position of the later child in the list,
+	 * which allows for merging in the order of the nearest-neighbor chains.
+	 */
+	private static class MergeOrder implements Comparator<Integer> {
+		
+		private int n, m;
+		private int[] later, earlier;
+		private double[] dist, key;
+		
+		private MergeOrder(int n){
+			this.n = n;
+			later = new int[n-1];
+			earlier = new int[n-1];
+			dist = new double[n-1];
+			key = new double[n-1];
+		}
+		
+		/**
+		 * Adds the merge of the trees <code>a</code> and <code>b</code> at distance <code>d</code> and returns the id of the merged tree.
+		 */
+		private int add(int a, int b, double d){
+			boolean aLater = compare( a, b ) > 0;
+			later[m] = aLater ? a : b;
+			earlier[m] = aLater ? b : a;
+			dist[m] = d;
+			//the distances of reducible linkages do not decrease, which might be violated by rounding
+			key[m] = d;
+			if(a >= n){
+				key[m] = Math.max( key[m], key[a-n] );
+			}
+			if(b >= n){
+				key[m] = Math.max( key[m], key[b-n] );
+			}
+			return n + m++;
+		}
+		
+		@Override
+		public int compare( Integer x, Integer y ) {
+			return compare( x.intValue(), y.intValue() );
+		}
+		
+		private int compare( int x, int y ) {
+			//the merged tree is later than its children, so the later children of two different trees are different
+			while(x != y){
+				if(x < n || y < n){
+					return x < n && y < n ? Integer.compare( x, y ) : (x < n ? -1 : 1);
+				}
+				int c = Double.compare( key[x-n], key[y-n] );
+				if(c != 0){
+					return c;
+				}
+				x = later[x-n];
+				y = later[y-n];
+			}
+			return 0;
+		}
+		
+	}
+	
+	/**
+	 * Lance-Williams update of the distance of a tree to the tree merged from trees <code>a</code> and <code>b</code>.
+	 */
+	private double update(double distA, double distB){
+		switch( linkage ) {
+			case SINGLE:
+				return Math.min( distA, distB );
+			case AVERAGE:
+				return distA + distB;
+			case COMPLETE:
+				return Math.max( distA, distB );
+			default:
+				throw new RuntimeException( "Linkage not supported" );
+		}
+	}
+	
 	/**
 	 * Clusters the given leaf trees using the supplied distance matrix
 	 * @param indexOff the offset on the original indexes
@@ -243,6 +415,10 @@ public class Hclust<T> {
 	 * @return the distance between the trees
 	 */
 	public static double getDistance( Linkage linkage, double[][] distMat, ClusterTree<Integer> tree, ClusterTree<Integer> tree2 ) {
+		return getDistance( linkage, distMat, tree, tree2, true );
+	}
+	
+	private static double getDistance( Linkage linkage, double[][] distMat, ClusterTree<Integer> tree, ClusterTree<Integer> tree2, boolean normalize ) {
 		double dist = linkage == Linkage.SINGLE ? Double.POSITIVE_INFINITY : ( linkage == Linkage.AVERAGE ? 0 : Double.NEGATIVE_INFINITY );
 		
 		Integer[] el1 = tree.getClusterElements();
@@ -265,7 +441,7 @@ public class Hclust<T> {
 				}
 			}
 		}
-		if( linkage == Linkage.AVERAGE ) {
+		if( linkage == Linkage.AVERAGE && normalize ) {
 			dist /= (el1.length*el2.length);
 		}
 		return dist;
@@ -0,0 +1,484 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.data.sequences;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.naming.OperationNotSupportedException;
+
+import de.jstacs.data.AlphabetContainer;
+import de.jstacs.data.DataSet;
+import de.jstacs.data.EmptyDataSetException;
+import de.jstacs.data.WrongAlphabetException;
+import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.data.alphabets.DiscreteAlphabet;
+import de.jstacs.data.sequences.annotation.SequenceAnnotation;
+import de.jstacs.utils.IntList;
+import de.jstacs.utils.Pair;
+
+/**
+ * This class implements a memory-mapped genome in which each nucleotide is encoded by 2 bits.
+ * A genome in FastA format can be converted once using {@link #convert(String, String)}. Afterwards,
+ * the packed genome file can be opened using {@link #PackedGenome(String)} instantly, since the
+ * content of the file is not read but only mapped into memory.
+ * Hence, the genome does not need any heap memory and several JVMs working on the same genome share
+ * the page cache of the operating system.
+ *
+ * <br>
+ * <br>
+ *
+ * The file contains an index with the names and lengths of all contigs and the runs of symbols that are not
+ * A, C, G, or T (e.g., N). The content of the contigs can be accessed as {@link Sequence}s that are views on the
+ * mapped file (see {@link #getSequences(int, int, AlphabetContainer)} and {@link #getDataSet(int)}).
+ * Soft-masking is not preserved.
+ *
+ * @author Jan Grau
+ */
+public class PackedGenome implements Closeable {
+
+	/**
+	 * The magic bytes at the beginning of each packed genome file.
+	 */
+	private static final long MAGIC = 0x4A53324249543031L; //JS2BIT01
+
+	private static final int HEADER = 8;
+
+	private static final int SEGMENT_SHIFT = 30;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private static final byte[] CODE = new byte[128];
+
+	static {
+		Arrays.fill( CODE, (byte) -1 );
+		String nuc = "ACGT";
+		for( int i = 0; i < nuc.length(); i++ ) {
+			CODE[nuc.charAt( i )] = (byte) i;
+			CODE[Character.toLowerCase( nuc.charAt( i ) )] = (byte) i;
+		}
+	}
+
+	/**
+	 * This method converts a genome in FastA format to a packed genome file.
+	 * The identifier of each contig is the header up to the first white space.
+	 * Contigs are limited to a length of {@link Integer#MAX_VALUE}.
+	 *
+	 * @param fasta the file name of the genome in FastA format
+	 * @param packed the file name of the packed genome that is created
+	 *
+	 * @throws IOException if the files could not be read or written
+	 */
+	public static void convert( String fasta, String packed ) throws IOException {
+		BufferedReader r = new BufferedReader( new FileReader( fasta ) );
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( packed ), 1 << 20 ) );
+		out.writeLong( MAGIC );
+
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<long[]> offsetAndLength = new ArrayList<long[]>();
+		ArrayList<IntList> nRuns = new ArrayList<IntList>();
+
+		long total = 0, bytes = HEADER, contigStart = 0;
+		int current = 0, len = 0, nStart = -1;
+		IntList runs = null;
+		String line;
+		while( (line = r.readLine()) != null ) {
+			if( line.startsWith( ">" ) ) {
+				if( runs != null ) {
+					if( nStart >= 0 ) {
+						runs.add( nStart );
+						runs.add( len );
+					}
+					offsetAndLength.add( new long[]{ contigStart, len } );
+				}
+				String id = line.substring( 1 ).trim();
+				int idx = id.indexOf( ' ' );
+				if( idx > 0 ) {
+					id = id.substring( 0, idx );
+				}
+				idx = id.indexOf( '\t' );
+				if( idx > 0 ) {
+					id = id.substring( 0, idx );
+				}
+				names.add( id );
+				runs = new IntList();
+				nRuns.add( runs );
+				contigStart = total;
+				len = 0;
+				nStart = -1;
+			} else {
+				if( runs == null ) {
+					r.close();
+					out.close();
+					throw new IOException( "The file " + fasta + " is not in FastA format." );
+				}
+				line = line.trim();
+				for( int i = 0; i < line.length(); i++ ) {
+					char c = line.charAt( i );
+					int code = c < CODE.length ? CODE[c] : -1;
+					if( code < 0 ) {
+						if( nStart < 0 ) {
+							nStart = len;
+						}
+						code = 0;
+					} else if( nStart >= 0 ) {
+						runs.add( nStart );
+						runs.add( len );
+						nStart = -1;
+					}
+					if( len == Integer.MAX_VALUE ) {
+						r.close();
+						out.close();
+						throw new IOException( "The contig " + names.get( names.size()-1 ) + " is too long." );
+					}
+					current |= code << ( (int) ( total & 3 ) << 1 );
+					total++;
+					len++;
+					if( (total & 3) == 0 ) {
+						out.write( current );
+						bytes++;
+						current = 0;
+					}
+				}
+			}
+		}
+		r.close();
+		if( runs != null ) {
+			if( nStart >= 0 ) {
+				runs.add( nStart );
+				runs.add( len );
+			}
+			offsetAndLength.add( new long[]{ contigStart, len } );
+		}
+		if( (total & 3) != 0 ) {
+			out.write( current );
+			bytes++;
+		}
+
+		//index
+		long index = bytes;
+		out.writeLong( total );
+		out.writeInt( names.size() );
+		for( int i = 0; i < names.size(); i++ ) {
+			out.writeUTF( names.get( i ) );
+			out.writeLong( offsetAndLength.get( i )[0] );
+			out.writeInt( (int) offsetAndLength.get( i )[1] );
+			runs = nRuns.get( i );
+			out.writeInt( runs.length() );
+			for( int j = 0; j < runs.length(); j++ ) {
+				out.writeInt( runs.get( j ) );
+			}
+		}
+		out.writeLong( index );
+		out.close();
+	}
+
+	/**
+	 * This method answers the question whether the file with the given name is a packed genome file.
+	 *
+	 * @param fileName the file name
+	 *
+	 * @return <code>true</code> if the file is a packed genome file
+	 *
+	 * @throws IOException if the file could not be read
+	 *
+	 * @see #convert(String, String)
+	 */
+	public static boolean isPackedGenome( String fileName ) throws IOException {
+		DataInputStream in = new DataInputStream( new FileInputStream( fileName ) );
+		try {
+			return in.readLong() == MAGIC;
+		} catch( IOException e ) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+
+	private RandomAccessFile file;
+	private MappedByteBuffer[] segment;
+	private String[] name;
+	private long[] offset;
+	private int[] length;
+	private int[][] nRuns;
+	private HashMap<String, Integer> contigIndex;
+
+	/**
+	 * Opens a packed genome file and maps its content into memory.
+	 *
+	 * @param fileName the name of the packed genome file
+	 *
+	 * @throws IOException if the file could not be read or is no packed genome file
+	 *
+	 * @see #convert(String, String)
+	 */
+	public PackedGenome( String fileName ) throws IOException {
+		file = new RandomAccessFile( fileName, "r" );
+		if( file.readLong() != MAGIC ) {
+			file.close();
+			throw new IOException( "The file " + fileName + " is no packed genome file." );
+		}
+		file.seek( file.length() - 8 );
+		long index = file.readLong();
+		FileChannel channel = file.getChannel();
+		DataInputStream in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( channel.position( index ) ) ) );
+		in.readLong();
+		int n = in.readInt();
+		name = new String[n];
+		offset = new long[n];
+		length = new int[n];
+		nRuns = new int[n][];
+		contigIndex = new HashMap<String, Integer>();
+		for( int i = 0; i < n; i++ ) {
+			name[i] = in.readUTF();
+			offset[i] = in.readLong();
+			length[i] = in.readInt();
+			nRuns[i] = new int[in.readInt()];
+			for( int j = 0; j < nRuns[i].length; j++ ) {
+				nRuns[i][j] = in.readInt();
+			}
+			contigIndex.put( name[i], i );
+		}
+
+		long bytes = index - HEADER;
+		segment = new MappedByteBuffer[(int) ( (bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT )];
+		for( int s = 0; s < segment.length; s++ ) {
+			long start = (long) s << SEGMENT_SHIFT;
+			segment[s] = channel.map( FileChannel.MapMode.READ_ONLY, HEADER + start, Math.min( SEGMENT_MASK + 1, bytes - start ) );
+		}
+	}
+
+	/**
+	 * Closes the underlying file. The mapping remains valid until all {@link Sequence}s of this genome are garbage collected.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Returns the code of the nucleotide at the given global position.
+	 *
+	 * @param pos the global position
+	 *
+	 * @return the code of the nucleotide
+	 */
+	private int code( long pos ) {
+		long b = pos >>> 2;
+		return ( segment[(int) ( b >>> SEGMENT_SHIFT )].get( (int) ( b & SEGMENT_MASK ) ) >>> ( (int) ( pos & 3 ) << 1 ) ) & 3;
+	}
+
+	/**
+	 * Returns the number of contigs of the genome.
+	 *
+	 * @return the number of contigs
+	 */
+	public int getNumberOfContigs() {
+		return name.length;
+	}
+
+	/**
+	 * Returns the name of a contig, i.e., the header up to the first white space.
+	 *
+	 * @param contig the index of the contig
+	 *
+	 * @return the name of the contig
+	 */
+	public String getContigName( int contig ) {
+		return name[contig];
+	}
+
+	/**
+	 * Returns the index of the contig with the given name or -1 if the genome does not contain such a contig.
+	 *
+	 * @param name the name of the contig
+	 *
+	 * @return the index of the contig
+	 */
+	public int getContigIndex( String name ) {
+		Integer i = contigIndex.get( name );
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Returns the length of a contig including all runs of other symbols than A, C, G, and T.
+	 *
+	 * @param contig the index of the contig
+	 *
+	 * @return the length of the contig
+	 */
+	public int getContigLength( int contig ) {
+		return length[contig];
+	}
+
+	/**
+	 * Returns the runs of other symbols than A, C, G, and T of a contig as array
+	 * containing start (inclusive) and end (exclusive) of each run alternately.
+	 *
+	 * @param contig the index of the contig
+	 *
+	 * @return the runs of other symbols
+	 */
+	public int[] getNRuns( int contig ) {
+		return nRuns[contig].clone();
+	}
+
+	/**
+	 * Returns the content of the contig (without runs of other symbols) in the same way as
+	 * {@link de.jstacs.utils.LargeSequenceReader#readNextSequences(BufferedReader, StringBuffer, int, AlphabetContainer)},
+	 * i.e., the contig is split at runs of other symbols than A, C, G, and T and all parts of at least <code>minimumLength</code>
+	 * are returned with their offsets within the contig. Each {@link Sequence} is annotated with the name of the contig as
+	 * identifier of a {@link SequenceAnnotation} of type &quot;id&quot;.
+	 * The returned {@link Sequence}s are views on the mapped file.
+	 *
+	 * @param contig the index of the contig
+	 * @param minimumLength the minimum length of the returned parts
+	 * @param con the {@link AlphabetContainer} of the returned {@link Sequence}s, if <code>null</code>, {@link DNAAlphabetContainer#SINGLETON} is used
+	 *
+	 * @return a {@link Pair} with the offsets and the parts of the contig or <code>null</code> if <code>contig</code> is not smaller than the number of contigs
+	 *
+	 * @throws WrongAlphabetException if the {@link AlphabetContainer} is not simple or does not code A, C, G, and T as 0, 1, 2, and 3, respectively
+	 */
+	public Pair<IntList, ArrayList<Sequence>> getSequences( int contig, int minimumLength, AlphabetContainer con ) throws WrongAlphabetException {
+		if( contig >= name.length ) {
+			return null;
+		}
+		if( con == null ) {
+			con = DNAAlphabetContainer.SINGLETON;
+		}
+		check( con );
+		SequenceAnnotation[] annotation = { new SequenceAnnotation( "id", name[contig] ) };
+		IntList starts = new IntList();
+		ArrayList<Sequence> seqs = new ArrayList<Sequence>();
+		int[] runs = nRuns[contig];
+		int start = 0, end;
+		for( int i = 0; i <= runs.length; i += 2 ) {
+			end = i < runs.length ? runs[i] : length[contig];
+			if( end - start >= minimumLength && end > start ) {
+				seqs.add( new PackedSequence( con, annotation, offset[contig] + start, end - start, false ) );
+				starts.add( start );
+			}
+			if( i < runs.length ) {
+				start = runs[i+1];
+			}
+		}
+		return new Pair<IntList, ArrayList<Sequence>>( starts, seqs );
+	}
+
+	/**
+	 * Returns a {@link DataSet} containing all parts of all contigs as returned by {@link #getSequences(int, int, AlphabetContainer)}
+	 * using {@link DNAAlphabetContainer#SINGLETON}.
+	 *
+	 * @param minimumLength the minimum length of the parts
+	 *
+	 * @return the {@link DataSet} of views on the mapped file
+	 *
+	 * @throws EmptyDataSetException if no part has at least length <code>minimumLength</code>
+	 * @throws WrongAlphabetException if something went wrong
+	 */
+	public DataSet getDataSet( int minimumLength ) throws EmptyDataSetException, WrongAlphabetException {
+		ArrayList<Sequence> all = new ArrayList<Sequence>();
+		for( int i = 0; i < name.length; i++ ) {
+			all.addAll( getSequences( i, minimumLength, null ).getSecondElement() );
+		}
+		return new DataSet( "packed genome", all.toArray( new Sequence[0] ) );
+	}
+
+	private static void check( AlphabetContainer con ) throws WrongAlphabetException {
+		if( !con.isSimple() || !con.isDiscrete() || con.getAlphabetLengthAt( 0 ) != 4 ) {
+			throw new WrongAlphabetException( "The alphabet has to be a simple alphabet of size 4." );
+		}
+		DiscreteAlphabet abc = (DiscreteAlphabet) con.getAlphabetAt( 0 );
+		String nuc = "ACGT";
+		for( int i = 0; i < nuc.length(); i++ ) {
+			if( abc.getCode( nuc.substring( i, i+1 ) ) != i ) {
+				throw new WrongAlphabetException( "The alphabet has to code A, C, G, and T as 0, 1, 2, and 3, respectively." );
+			}
+		}
+	}
+
+	/**
+	 * This class implements a {@link Sequence} that is a view on a part of a {@link PackedGenome}.
+	 * The reverse complement is also a view and does not need additional memory.
+	 *
+	 * @author Jan Grau
+	 */
+	private class PackedSequence extends SimpleDiscreteSequence {
+
+		private long start;
+		private int length;
+		private boolean reverseComplement;
+
+		private PackedSequence( AlphabetContainer con, SequenceAnnotation[] annotation, long start, int length, boolean reverseComplement ) throws WrongAlphabetException {
+			super( con, annotation );
+			this.start = start;
+			this.length = length;
+			this.reverseComplement = reverseComplement;
+		}
+
+		@Override
+		public int discreteVal( int pos ) {
+			if( pos < 0 || pos >= length ) {
+				throw new IndexOutOfBoundsException( "The index " + pos + " is out of bounds [0," + length + "]" );
+			}
+			return reverseComplement ? 3 - code( start + length - 1 - pos ) : code( start + pos );
+		}
+
+		@Override
+		public int getLength() {
+			return length;
+		}
+
+		@Override
+		public Sequence reverseComplement( int start, int end ) throws OperationNotSupportedException {
+			if( start < 0 || end > length || start > end ) {
+				throw new IndexOutOfBoundsException();
+			}
+			try {
+				long s = reverseComplement ? this.start + length - end : this.start + start;
+				return new PackedSequence( alphabetCon, null, s, end - start, !reverseComplement );
+			} catch( WrongAlphabetException doesNotHappen ) {
+				throw new RuntimeException( doesNotHappen );
+			}
+		}
+
+		@Override
+		protected PackedSequence flatCloneWithoutAnnotation() {
+			try {
+				return new PackedSequence( alphabetCon, null, start, length, reverseComplement );
+			} catch( WrongAlphabetException doesNotHappen ) {
+				throw new RuntimeException( doesNotHappen );
+			}
+		}
+	}
+}
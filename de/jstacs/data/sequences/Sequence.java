@@ -101,6 +101,27 @@ public abstract class Sequence<T> implements Comparable<Sequence<T>> {
 	 */
 	public abstract int discreteVal( int pos );
 
+	/**
+	 * Returns the discrete values of the {@link de.jstacs.data.sequences.Sequence} between
+	 * <code>start</code> and <code>end</code>.
+	 * 
+	 * @param start
+	 *            the start index (inclusive)
+	 * @param end
+	 *            the end index (exclusive)
+	 * 
+	 * @return the discrete values between <code>start</code> and <code>end</code>
+	 * 
+	 * @see Sequence#discreteVal(int)
+	 */
+	public int[] getDiscreteValues( int start, int end ) {
+		int[] codes = new int[end - start];
+		for( int i = 0; i < codes.length; i++ ) {
+			codes[i] = discreteVal( start + i );
+		}
+		return codes;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
@@ -0,0 +1,47 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.io;
+
+import java.io.IOException;
+
+import de.jstacs.Storable;
+
+/**
+ * This interface is implemented by {@link Storable}s that can write their fields directly to a {@link BinaryStorableWriter}
+ * instead of using their XML representation. Classes that implement this interface <b>must</b> provide a constructor
+ * with a single parameter of type {@link BinaryStorableReader} that reads the fields in the same order as they have been
+ * written by {@link #write(BinaryStorableWriter)}. Instances of subclasses that do not provide this constructor are written
+ * using their XML representation, so abstract classes can implement this interface for all of their subclasses.
+ *
+ * @author Jan Grau, Jens Keilwagen
+ *
+ * @see BinaryStorableWriter#writeObject(Object)
+ * @see BinaryStorableReader#readObject()
+ */
+public interface BinaryStorable extends Storable {
+
+	/**
+	 * This method writes the fields of this instance to <code>out</code>.
+	 *
+	 * @param out the writer
+	 *
+	 * @throws IOException if the fields could not be written
+	 */
+	public void write( BinaryStorableWriter out ) throws IOException;
+}
@@ -0,0 +1,443 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import de.jstacs.Singleton;
+import de.jstacs.Singleton.SingletonHandler;
+import de.jstacs.Storable;
+
+/**
+ * This class reads the records written by a {@link BinaryStorableWriter} one after another.
+ * The objects are decoded directly from the stream, which is read only as far as necessary for the current record,
+ * i.e., the complete stream is never held in memory.
+ *
+ * @author Jan Grau, Jens Keilwagen
+ *
+ * @see BinaryStorableWriter
+ */
+public class BinaryStorableReader implements Closeable {
+
+	private static final int CHUNK = 1<<16;
+
+	private DataInputStream in;
+	private ArrayList<Class<?>> classes;
+	private byte[] buffer;
+	private int next;
+
+	/**
+	 * Creates a new reader for the file <code>fName</code>.
+	 *
+	 * @param fName the name of the file
+	 *
+	 * @throws IOException if the file could not be opened or is not in the binary format
+	 */
+	public BinaryStorableReader( String fName ) throws IOException {
+		this( new FileInputStream( fName ) );
+	}
+
+	/**
+	 * Creates a new reader for the {@link InputStream} <code>in</code> and checks the header of the binary format.
+	 *
+	 * @param in the {@link InputStream}
+	 *
+	 * @throws IOException if the stream could not be read or is not in the binary format
+	 */
+	public BinaryStorableReader( InputStream in ) throws IOException {
+		this.in = new DataInputStream( new BufferedInputStream( in, 1<<16 ) );
+		classes = new ArrayList<Class<?>>();
+		buffer = new byte[1<<12];
+		String magic;
+		int version;
+		try {
+			magic = this.in.readUTF();
+			version = this.in.readInt();
+		} catch( IOException e ) {
+			magic = null;
+			version = -1;
+		}
+		if( !BinaryStorableWriter.MAGIC.equals( magic ) || version != BinaryStorableWriter.VERSION ) {
+			throw new IOException( "The stream does not contain the binary format of " + BinaryStorableWriter.class.getSimpleName() + "." );
+		}
+		next = -2;
+	}
+
+	/**
+	 * Returns <code>true</code> if the stream contains another record.
+	 *
+	 * @return <code>true</code> if the stream contains another record
+	 *
+	 * @throws IOException if the stream could not be read
+	 */
+	public boolean hasNext() throws IOException {
+		if( next == -2 ) {
+			next = in.read();
+		}
+		return next >= 0;
+	}
+
+	/**
+	 * Returns the object of the next record.
+	 *
+	 * @return the object of the next record, e.g., a {@link Storable}
+	 *
+	 * @throws IOException if the stream could not be read
+	 * @throws NonParsableException if the object could not be created
+	 *
+	 * @see BinaryStorableWriter#write(Object)
+	 */
+	public Object next() throws IOException, NonParsableException {
+		if( !hasNext() ) {
+			throw new IOException( "There is no further record." );
+		}
+		if( next != BinaryStorableWriter.RECORD ) {
+			throw new IOException( "Corrupt stream: unexpected record type " + next + "." );
+		}
+		next = -2;
+		return readObject();
+	}
+
+	/**
+	 * Returns the object of the next record.
+	 *
+	 * @param <T> the type of the object
+	 * @param k the class of the object
+	 *
+	 * @return the object of the next record, e.g., a {@link Storable}
+	 *
+	 * @throws IOException if the stream could not be read
+	 * @throws NonParsableException if the object could not be created or is not of class <code>k</code>
+	 *
+	 * @see BinaryStorableWriter#write(Object)
+	 */
+	public <T> T next( Class<T> k ) throws IOException, NonParsableException {
+		return cast( next(), k );
+	}
+
+	/**
+	 * Reads an object within the current record, e.g., a field of a {@link BinaryStorable}.
+	 *
+	 * @return the object
+	 *
+	 * @throws IOException if the stream could not be read
+	 * @throws NonParsableException if the object could not be created
+	 *
+	 * @see BinaryStorableWriter#writeObject(Object)
+	 */
+	public Object readObject() throws IOException, NonParsableException {
+		byte token = in.readByte();
+		switch( token ) {
+			case BinaryStorableWriter.NULL: return null;
+			case BinaryStorableWriter.BOOLEAN: return in.readBoolean();
+			case BinaryStorableWriter.BYTE: return in.readByte();
+			case BinaryStorableWriter.SHORT: return in.readShort();
+			case BinaryStorableWriter.CHAR: return in.readChar();
+			case BinaryStorableWriter.INT: return in.readInt();
+			case BinaryStorableWriter.LONG: return in.readLong();
+			case BinaryStorableWriter.FLOAT: return in.readFloat();
+			case BinaryStorableWriter.DOUBLE: return in.readDouble();
+			case BinaryStorableWriter.STRING: return readString();
+			case BinaryStorableWriter.CLASS: return readClass();
+			case BinaryStorableWriter.PRIMITIVE_ARRAY: return readPrimitiveArray();
+			case BinaryStorableWriter.ENUM:
+				Class<?> e = readClass();
+				String name = readString();
+				for( Object c : e.getEnumConstants() ) {
+					if( ((Enum<?>) c).name().equals( name ) ) {
+						return c;
+					}
+				}
+				throw new NonParsableException( "Unknown constant " + name + " of " + e.getName() + "." );
+			case BinaryStorableWriter.ARRAY:
+				Class<?> c = readClass();
+				int l = readLength();
+				Object array = Array.newInstance( c, l );
+				for( int i = 0; i < l; i++ ) {
+					Array.set( array, i, readObject() );
+				}
+				return array;
+			case BinaryStorableWriter.SINGLETON:
+				Class<?> t = readClass();
+				try {
+					return SingletonHandler.getSingelton( t.asSubclass( Singleton.class ) );
+				} catch( Exception ex ) {
+					NonParsableException n = new NonParsableException( "Could not get the singleton of " + t.getName() + "." );
+					n.initCause( ex );
+					throw n;
+				}
+			case BinaryStorableWriter.BINARY_STORABLE:
+				return create( readClass(), BinaryStorableReader.class, this );
+			case BinaryStorableWriter.STORABLE:
+				Class<?> s = readClass();
+				return create( s, StringBuffer.class, new StringBuffer( readString() ) );
+			default:
+				throw new IOException( "Corrupt stream: unexpected token " + token + "." );
+		}
+	}
+
+	/**
+	 * Reads an object of class <code>k</code> within the current record, e.g., a field of a {@link BinaryStorable}.
+	 *
+	 * @param <T> the type of the object
+	 * @param k the class of the object
+	 *
+	 * @return the object
+	 *
+	 * @throws IOException if the stream could not be read
+	 * @throws NonParsableException if the object could not be created or is not of class <code>k</code>
+	 *
+	 * @see BinaryStorableWriter#writeObject(Object)
+	 */
+	public <T> T readObject( Class<T> k ) throws IOException, NonParsableException {
+		return cast( readObject(), k );
+	}
+
+	/**
+	 * Reads a <code>boolean</code> within the current record.
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the stream could not be read
+	 *
+	 * @see BinaryStorableWriter#writeBoolean(boolean)
+	 */
+	public boolean readBoolean() throws IOException {
+		return in.readBoolean();
+	}
+
+	/**
+	 * Reads an <code>int</code> within the current record.
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the stream could not be read
+	 *
+	 * @see BinaryStorableWriter#writeInt(int)
+	 */
+	public int readInt() throws IOException {
+		return in.readInt();
+	}
+
+	/**
+	 * Reads a <code>long</code> within the current record.
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the stream could not be read
+	 *
+	 * @see BinaryStorableWriter#writeLong(long)
+	 */
+	public long readLong() throws IOException {
+		return in.readLong();
+	}
+
+	/**
+	 * Reads a <code>double</code> within the current record.
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException if the stream could not be read
+	 *
+	 * @see BinaryStorableWriter#writeDouble(double)
+	 */
+	public double readDouble() throws IOException {
+		return in.readDouble();
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static <T> T cast( Object o, Class<T> k ) throws NonParsableException {
+		if( o != null ) {
+			if( k.isPrimitive() ) {
+				k = (Class<T>) Array.get( Array.newInstance( k, 1 ), 0 ).getClass();
+			}
+			if( !k.isInstance( o ) ) {
+				throw new NonParsableException( "Expected " + k.getName() + ", but found " + o.getClass().getName() + "." );
+			}
+		}
+		return (T) o;
+	}
+
+	private static <P> Object create( Class<?> c, Class<P> parameterClass, P parameter ) throws IOException, NonParsableException {
+		try {
+			return c.getConstructor( parameterClass ).newInstance( parameter );
+		} catch( InvocationTargetException e ) {
+			Throwable t = e.getCause();
+			if( t instanceof IOException ) {
+				throw (IOException) t;
+			} else if( t instanceof NonParsableException ) {
+				throw (NonParsableException) t;
+			}
+			NonParsableException n = new NonParsableException( "Could not create " + c.getName() + "." );
+			n.initCause( t );
+			throw n;
+		} catch( ReflectiveOperationException e ) {
+			NonParsableException n = new NonParsableException( "Could not create " + c.getName() + "." );
+			n.initCause( e );
+			throw n;
+		}
+	}
+
+	private Object readPrimitiveArray() throws IOException {
+		char type = (char) in.readByte();
+		int l = readLength(), size;
+		switch( type ) {
+			case 'D': case 'J': size = 8; break;
+			case 'I': case 'F': size = 4; break;
+			case 'S': case 'C': size = 2; break;
+			case 'Z': case 'B': size = 1; break;
+			default: throw new IOException( "Corrupt stream: unexpected array type " + type + "." );
+		}
+		Object array;
+		switch( type ) {
+			case 'D': array = new double[l]; break;
+			case 'I': array = new int[l]; break;
+			case 'J': array = new long[l]; break;
+			case 'F': array = new float[l]; break;
+			case 'S': array = new short[l]; break;
+			case 'C': array = new char[l]; break;
+			case 'B': array = new byte[l]; break;
+			default: array = new boolean[l]; break;
+		}
+		// read in chunks, so the number of bytes never exceeds the int range
+		int chunk = CHUNK / size;
+		for( int off = 0; off < l; off += chunk ) {
+			int n = Math.min( chunk, l - off );
+			ByteBuffer bb = ByteBuffer.wrap( read( size*n ), 0, size*n );
+			switch( type ) {
+				case 'D': bb.asDoubleBuffer().get( (double[]) array, off, n ); break;
+				case 'I': bb.asIntBuffer().get( (int[]) array, off, n ); break;
+				case 'J': bb.asLongBuffer().get( (long[]) array, off, n ); break;
+				case 'F': bb.asFloatBuffer().get( (float[]) array, off, n ); break;
+				case 'S': bb.asShortBuffer().get( (short[]) array, off, n ); break;
+				case 'C': bb.asCharBuffer().get( (char[]) array, off, n ); break;
+				case 'B': bb.get( (byte[]) array, off, n ); break;
+				default:
+					boolean[] z = (boolean[]) array;
+					for( int k = 0; k < n; k++ ) {
+						z[off+k] = bb.get() != 0;
+					}
+					break;
+			}
+		}
+		return array;
+	}
+
+	private Class<?> readClass() throws IOException, NonParsableException {
+		int id = readVarInt();
+		if( id == 0 ) {
+			String name = readString();
+			Class<?> c;
+			try {
+				c = Class.forName( name );
+			} catch( ClassNotFoundException e ) {
+				NonParsableException n = new NonParsableException( "Unknown class " + name + "." );
+				n.initCause( e );
+				throw n;
+			}
+			classes.add( c );
+			return c;
+		} else if( id > classes.size() ) {
+			throw new IOException( "Corrupt stream: unknown class " + id + "." );
+		} else {
+			return classes.get( id-1 );
+		}
+	}
+
+	private String readString() throws IOException {
+		int l = readLength();
+		return new String( read( l ), 0, l, StandardCharsets.UTF_8 );
+	}
+
+	private byte[] read( int l ) throws IOException {
+		if( buffer.length < l ) {
+			buffer = new byte[Math.max( l, 2*buffer.length )];
+		}
+		in.readFully( buffer, 0, l );
+		return buffer;
+	}
+
+	private int readLength() throws IOException {
+		int l = readVarInt();
+		if( l < 0 ) {
+			throw new IOException( "Corrupt stream: negative length." );
+		}
+		return l;
+	}
+
+	private int readVarInt() throws IOException {
+		int v = 0, b, shift = 0;
+		do {
+			if( shift > 28 ) {
+				throw new IOException( "Corrupt stream: malformed number." );
+			}
+			b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			shift += 7;
+		} while( (b & 0x80) != 0 );
+		return v;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Converts the first record of the binary file <code>binaryFile</code> to an XML file.
+	 * For a {@link Storable}, the XML file contains its XML representation, which can be read by the constructor of its class
+	 * from {@link FileManager#readFile(String)}. Otherwise, the XML file contains the object as written by
+	 * {@link XMLParser#appendObjectWithTags(StringBuffer, Object, String)} with the tag <code>object</code>.
+	 *
+	 * @param binaryFile the name of the binary file
+	 * @param xmlFile the name of the XML file
+	 *
+	 * @throws IOException if one of the files could not be read or written
+	 * @throws NonParsableException if the object could not be created
+	 *
+	 * @see BinaryStorableWriter#convert(String, Class, String)
+	 */
+	public static void convert( String binaryFile, String xmlFile ) throws IOException, NonParsableException {
+		BinaryStorableReader r = new BinaryStorableReader( binaryFile );
+		Object o;
+		try {
+			o = r.next();
+		} finally {
+			r.close();
+		}
+		StringBuffer xml;
+		if( o instanceof Storable ) {
+			xml = ((Storable) o).toXML();
+		} else {
+			xml = new StringBuffer();
+			XMLParser.appendObjectWithTags( xml, o, "object" );
+		}
+		FileManager.writeFile( xmlFile, xml );
+	}
+}
@@ -0,0 +1,384 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import de.jstacs.Singleton;
+import de.jstacs.Storable;
+
+/**
+ * This class writes {@link Storable}s, primitives, {@link String}s, enums and arrays of these types in a compact binary format
+ * that can be read by {@link BinaryStorableReader}.
+ *
+ * <br><br>
+ *
+ * The stream consists of several records, each containing one object. Primitives are written as binary values, arrays of primitives are written in bulk,
+ * and class names are written only once per stream. {@link BinaryStorable}s write their fields directly to the stream,
+ * whereas all other {@link Storable}s, including subclasses of {@link BinaryStorable}s that do not provide the constructor
+ * required by {@link BinaryStorable}, are written using their XML representation. XML files of {@link Storable}s can be converted
+ * to the binary format and vice versa (cf. {@link #convert(String, Class, String)} and {@link BinaryStorableReader#convert(String, String)}).
+ *
+ * @author Jan Grau, Jens Keilwagen
+ *
+ * @see BinaryStorableReader
+ */
+public class BinaryStorableWriter implements Closeable {
+
+	static final String MAGIC = "Jstacs binary";
+	static final int VERSION = 2;
+
+	static final byte RECORD = 1;
+
+	static final byte NULL = 0;
+	static final byte BOOLEAN = 1;
+	static final byte BYTE = 2;
+	static final byte SHORT = 3;
+	static final byte CHAR = 4;
+	static final byte INT = 5;
+	static final byte LONG = 6;
+	static final byte FLOAT = 7;
+	static final byte DOUBLE = 8;
+	static final byte STRING = 9;
+	static final byte ENUM = 10;
+	static final byte CLASS = 11;
+	static final byte PRIMITIVE_ARRAY = 12;
+	static final byte ARRAY = 13;
+	static final byte BINARY_STORABLE = 14;
+	static final byte STORABLE = 15;
+	static final byte SINGLETON = 16;
+
+	private DataOutputStream out;
+	private HashMap<Class<?>, Integer> classes;
+	private HashMap<Class<?>, Boolean> binary;
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a new writer for the file <code>fName</code>.
+	 *
+	 * @param fName the name of the file
+	 *
+	 * @throws IOException if the file could not be opened
+	 */
+	public BinaryStorableWriter( String fName ) throws IOException {
+		this( new FileOutputStream( fName ) );
+	}
+
+	/**
+	 * Creates a new writer for the {@link OutputStream} <code>out</code> and writes the header of the binary format.
+	 *
+	 * @param out the {@link OutputStream}
+	 *
+	 * @throws IOException if the header could not be written
+	 */
+	public BinaryStorableWriter( OutputStream out ) throws IOException {
+		this.out = new DataOutputStream( new BufferedOutputStream( out, 1<<16 ) );
+		classes = new HashMap<Class<?>, Integer>();
+		binary = new HashMap<Class<?>, Boolean>();
+		buffer = ByteBuffer.allocate( 1<<16 );
+		this.out.writeUTF( MAGIC );
+		this.out.writeInt( VERSION );
+	}
+
+	/**
+	 * Writes the object <code>o</code> as a new record.
+	 *
+	 * @param o the object, e.g., a {@link Storable}
+	 *
+	 * @throws IOException if the object could not be written
+	 *
+	 * @see #writeObject(Object)
+	 * @see BinaryStorableReader#next()
+	 */
+	public void write( Object o ) throws IOException {
+		out.writeByte( RECORD );
+		writeObject( o );
+	}
+
+	/**
+	 * Writes the object <code>o</code> within the current record, e.g., a field of a {@link BinaryStorable}.
+	 * The object may be <code>null</code>, a {@link Singleton}, a {@link Storable}, a boxed primitive, a {@link String}, an enum, a {@link Class},
+	 * or an array of these types or of primitives.
+	 *
+	 * @param o the object
+	 *
+	 * @throws IOException if the object could not be written
+	 *
+	 * @see BinaryStorableReader#readObject()
+	 */
+	public void writeObject( Object o ) throws IOException {
+		if( o == null ) {
+			out.writeByte( NULL );
+		} else if( o instanceof Singleton ) {
+			out.writeByte( SINGLETON );
+			writeClass( o.getClass() );
+		} else if( o instanceof BinaryStorable && isReadable( o.getClass() ) ) {
+			out.writeByte( BINARY_STORABLE );
+			writeClass( o.getClass() );
+			((BinaryStorable) o).write( this );
+		} else if( o instanceof Storable ) {
+			out.writeByte( STORABLE );
+			writeClass( o.getClass() );
+			writeString( ((Storable) o).toXML().toString() );
+		} else if( o instanceof Boolean ) {
+			out.writeByte( BOOLEAN );
+			out.writeBoolean( (Boolean) o );
+		} else if( o instanceof Byte ) {
+			out.writeByte( BYTE );
+			out.writeByte( (Byte) o );
+		} else if( o instanceof Short ) {
+			out.writeByte( SHORT );
+			out.writeShort( (Short) o );
+		} else if( o instanceof Character ) {
+			out.writeByte( CHAR );
+			out.writeChar( (Character) o );
+		} else if( o instanceof Integer ) {
+			out.writeByte( INT );
+			out.writeInt( (Integer) o );
+		} else if( o instanceof Long ) {
+			out.writeByte( LONG );
+			out.writeLong( (Long) o );
+		} else if( o instanceof Float ) {
+			out.writeByte( FLOAT );
+			out.writeFloat( (Float) o );
+		} else if( o instanceof Double ) {
+			out.writeByte( DOUBLE );
+			out.writeDouble( (Double) o );
+		} else if( o instanceof String ) {
+			out.writeByte( STRING );
+			writeString( (String) o );
+		} else if( o instanceof Enum ) {
+			out.writeByte( ENUM );
+			writeClass( ((Enum<?>) o).getDeclaringClass() );
+			writeString( ((Enum<?>) o).name() );
+		} else if( o instanceof Class ) {
+			out.writeByte( CLASS );
+			writeClass( (Class<?>) o );
+		} else if( o.getClass().isArray() ) {
+			Class<?> c = o.getClass().getComponentType();
+			if( c.isPrimitive() ) {
+				out.writeByte( PRIMITIVE_ARRAY );
+				writePrimitiveArray( o, c );
+			} else {
+				out.writeByte( ARRAY );
+				writeClass( c );
+				int l = Array.getLength( o );
+				writeVarInt( l );
+				for( int i = 0; i < l; i++ ) {
+					writeObject( Array.get( o, i ) );
+				}
+			}
+		} else {
+			throw new IOException( "Objects of class " + o.getClass().getName() + " can not be written." );
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the class provides the constructor that is used by {@link BinaryStorableReader} for creating instances.
+	 */
+	private boolean isReadable( Class<?> c ) {
+		Boolean b = binary.get( c );
+		if( b == null ) {
+			try {
+				c.getConstructor( BinaryStorableReader.class );
+				b = true;
+			} catch( NoSuchMethodException e ) {
+				b = false;
+			}
+			binary.put( c, b );
+		}
+		return b;
+	}
+
+	private void writePrimitiveArray( Object o, Class<?> c ) throws IOException {
+		int l = Array.getLength( o ), size;
+		char type;
+		if( c == double.class ) {
+			type = 'D'; size = 8;
+		} else if( c == int.class ) {
+			type = 'I'; size = 4;
+		} else if( c == long.class ) {
+			type = 'J'; size = 8;
+		} else if( c == float.class ) {
+			type = 'F'; size = 4;
+		} else if( c == boolean.class ) {
+			type = 'Z'; size = 1;
+		} else if( c == byte.class ) {
+			type = 'B'; size = 1;
+		} else if( c == short.class ) {
+			type = 'S'; size = 2;
+		} else {
+			type = 'C'; size = 2;
+		}
+		out.writeByte( type );
+		writeVarInt( l );
+		// write in chunks that fit into the buffer, so the number of bytes never exceeds the int range
+		int chunk = buffer.capacity() / size;
+		for( int off = 0; off < l; off += chunk ) {
+			int n = Math.min( chunk, l - off );
+			buffer.clear();
+			switch( type ) {
+				case 'D': buffer.asDoubleBuffer().put( (double[]) o, off, n ); break;
+				case 'I': buffer.asIntBuffer().put( (int[]) o, off, n ); break;
+				case 'J': buffer.asLongBuffer().put( (long[]) o, off, n ); break;
+				case 'F': buffer.asFloatBuffer().put( (float[]) o, off, n ); break;
+				case 'S': buffer.asShortBuffer().put( (short[]) o, off, n ); break;
+				case 'C': buffer.asCharBuffer().put( (char[]) o, off, n ); break;
+				case 'B': buffer.put( (byte[]) o, off, n ); break;
+				case 'Z':
+					boolean[] b = (boolean[]) o;
+					for( int i = 0; i < n; i++ ) {
+						buffer.put( (byte) (b[off+i] ? 1 : 0) );
+					}
+					break;
+			}
+			out.write( buffer.array(), 0, size*n );
+		}
+	}
+
+	/**
+	 * Writes a <code>boolean</code> within the current record.
+	 *
+	 * @param v the value
+	 *
+	 * @throws IOException if the value could not be written
+	 *
+	 * @see BinaryStorableReader#readBoolean()
+	 */
+	public void writeBoolean( boolean v ) throws IOException {
+		out.writeBoolean( v );
+	}
+
+	/**
+	 * Writes an <code>int</code> within the current record.
+	 *
+	 * @param v the value
+	 *
+	 * @throws IOException if the value could not be written
+	 *
+	 * @see BinaryStorableReader#readInt()
+	 */
+	public void writeInt( int v ) throws IOException {
+		out.writeInt( v );
+	}
+
+	/**
+	 * Writes a <code>long</code> within the current record.
+	 *
+	 * @param v the value
+	 *
+	 * @throws IOException if the value could not be written
+	 *
+	 * @see BinaryStorableReader#readLong()
+	 */
+	public void writeLong( long v ) throws IOException {
+		out.writeLong( v );
+	}
+
+	/**
+	 * Writes a <code>double</code> within the current record.
+	 *
+	 * @param v the value
+	 *
+	 * @throws IOException if the value could not be written
+	 *
+	 * @see BinaryStorableReader#readDouble()
+	 */
+	public void writeDouble( double v ) throws IOException {
+		out.writeDouble( v );
+	}
+
+	private void writeClass( Class<?> c ) throws IOException {
+		Integer id = classes.get( c );
+		if( id == null ) {
+			writeVarInt( 0 );
+			classes.put( c, classes.size() );
+			writeString( c.getName() );
+		} else {
+			writeVarInt( id+1 );
+		}
+	}
+
+	private void writeString( String s ) throws IOException {
+		byte[] b = s.getBytes( StandardCharsets.UTF_8 );
+		writeVarInt( b.length );
+		out.write( b );
+	}
+
+	private void writeVarInt( int v ) throws IOException {
+		while( (v & ~0x7F) != 0 ) {
+			out.writeByte( (v & 0x7F) | 0x80 );
+			v >>>= 7;
+		}
+		out.writeByte( v );
+	}
+
+	/**
+	 * Flushes the underlying stream.
+	 *
+	 * @throws IOException if the stream could not be flushed
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Converts the XML file <code>xmlFile</code> of a {@link Storable} of class <code>k</code>, e.g., written by {@link FileManager#writeFile(String, CharSequence)},
+	 * to a binary file with a single record.
+	 *
+	 * @param xmlFile the name of the XML file
+	 * @param k the class of the {@link Storable}
+	 * @param binaryFile the name of the binary file
+	 *
+	 * @throws IOException if one of the files could not be read or written
+	 * @throws NonParsableException if the {@link Storable} could not be created from the XML file
+	 *
+	 * @see BinaryStorableReader#convert(String, String)
+	 */
+	public static void convert( String xmlFile, Class<? extends Storable> k, String binaryFile ) throws IOException, NonParsableException {
+		Storable s;
+		try {
+			s = k.getConstructor( StringBuffer.class ).newInstance( FileManager.readFile( xmlFile ) );
+		} catch( ReflectiveOperationException e ) {
+			NonParsableException n = new NonParsableException( "Could not create " + k.getName() + " from " + xmlFile + "." );
+			n.initCause( e.getCause() != null ? e.getCause() : e );
+			throw n;
+		}
+		BinaryStorableWriter w = new BinaryStorableWriter( binaryFile );
+		try {
+			w.write( s );
+		} finally {
+			w.close();
+		}
+	}
+}
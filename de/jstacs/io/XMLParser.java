@@ -23,12 +23,15 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.WeakHashMap;
 
 import de.jstacs.Singleton;
 import de.jstacs.Singleton.SingletonHandler;
@@ -37,6 +40,7 @@ import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
+import de.jstacs.utils.IntList;
 
 /**
  * Class for parsing standard data types and arrays in and out of an XML
@@ -77,6 +81,16 @@ public final class XMLParser {
 	private static final String NULL = "null";
 	private static final String ENUM = "name";
 	
+	/**
+	 * The indexes of the XML-code that is currently parsed, see {@link #getIndex(StringBuffer)}.
+	 */
+	private static final Map<StringBuffer, TagIndex> documents = Collections.synchronizedMap( new WeakHashMap<StringBuffer, TagIndex>() );
+	
+	/**
+	 * The marker for XML-code that can not be indexed and is parsed by searching and deleting the entries.
+	 */
+	private static final TagIndex NOT_INDEXED = new TagIndex( null, -1, 0 );
+	
 	static {
 		simpleParsable = new HashSet<Class<?>>();
 		//primitive types
@@ -244,7 +258,7 @@ public final class XMLParser {
 			if( k.isArray() ){
 				int l = Array.getLength( s );
 				appendObjectWithTagsAndAttributes( xml, l, LENGTH, null, false, nextIndentation );
-				Class c = k.getComponentType();
+				Class<?> c = k.getComponentType();
 				if( simpleParsable.contains( c ) ) {
 					writeClassInfo = false;
 				}
@@ -376,6 +390,7 @@ public final class XMLParser {
 	
 	/**
 	 * Extracts the contents of <code>source</code> between <code>tag</code> start and end tags.
+	 * The extracted entry is not found by subsequent extractions from <code>source</code>.
 	 * @param source the XML-code containing start and end tag
 	 * @param tag the tag (without angle brackets)
 	 * @return the contents of start and end tags, without these tags, as a {@link StringBuffer}
@@ -406,6 +421,17 @@ public final class XMLParser {
 	
 	private static StringBuffer extractForTag( StringBuffer source, String tag, Map<String, String> attributes,
 			Map<String, String> filterAttributes, int[] index ) throws NonParsableException {
+		if( index == null ) {
+			TagIndex document = getIndex( source );
+			if( document != null ) {
+				int j = document.find( tag, attributes, filterAttributes );
+				if( j < 0 ) {
+					return null;
+				}
+				document.extract( j );
+				return document.getContent( j );
+			}
+		}
 
 		//find start tag
 		int start = findOpeningTag( source, tag, attributes, filterAttributes, index==null?0:index[1] );
@@ -429,6 +455,30 @@ public final class XMLParser {
 		return result;
 	}
 	
+	/**
+	 * Returns the index of the entries at the top level of <code>source</code>. The whole XML-code is indexed once and the contents
+	 * extracted via the index share this index. The entries that have been extracted are marked in the index instead of being deleted
+	 * from <code>source</code>. If XML-code has been appended to <code>source</code> since then, the index is extended.
+	 * 
+	 * @param source the XML-code
+	 * 
+	 * @return the index or <code>null</code> if the XML-code can not be indexed and has to be parsed by searching and deleting the entries
+	 */
+	private static TagIndex getIndex( StringBuffer source ) {
+		if( source == null ) {
+			return null;
+		}
+		TagIndex index = documents.get( source );
+		if( index == NOT_INDEXED ) {
+			return null;
+		}
+		if( index == null || index.getLength() != source.length() ) {
+			index = index == null ? TagIndex.create( source ) : index.update( source );
+			documents.put( source, index == null ? NOT_INDEXED : index );
+		}
+		return index;
+	}
+	
 	/**
 	 * This method allows to check whether an XML contains a tagged entry.
 	 * 
@@ -443,6 +493,10 @@ public final class XMLParser {
 	 */
 	public static boolean hasTag( StringBuffer source, String tag, Map<String, String> attributes,
 			Map<String, String> filterAttributes ) throws NonParsableException {
+		TagIndex document = getIndex( source );
+		if( document != null ) {
+			return document.find( tag, attributes, filterAttributes ) >= 0;
+		}
 		
 		int start = findOpeningTag( source, tag, attributes, filterAttributes, 0 );
 		if( start < 0 ) {
@@ -683,14 +737,24 @@ public final class XMLParser {
 		return extractObjectAndAttributesForTags( xml, tag, attributes, filterAttributes, k, outerClass, outerInstance, null );
 	}
 	
-	@SuppressWarnings( "unchecked" )
 	private static<T, S> T extractObjectAndAttributesForTags( StringBuffer xml, String tag, Map<String, String> attributes,
 			Map<String, String> filterAttributes, Class<T> k, Class<S> outerClass, S outerInstance, int[] index ) throws NonParsableException{
-		T erg;
 		StringBuffer ex = extractForTag( xml, tag, attributes, filterAttributes, index );
 		if( ex == null ) {
 			throw new NonParsableException( "Could not find \"" + tag + "\"." );
-		} else if( ex.toString().trim().equals( NULL ) ) {
+		}
+		return parseContent( ex, tag, k, outerClass, outerInstance );
+	}
+	
+	/**
+	 * Parses the content <code>ex</code> of an entry that has been extracted for <code>tag</code>.
+	 * 
+	 * @see #extractObjectAndAttributesForTags(StringBuffer, String, Map, Map, Class, Class, Object)
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static<T, S> T parseContent( StringBuffer ex, String tag, Class<T> k, Class<S> outerClass, S outerInstance ) throws NonParsableException{
+		T erg;
+		if( isNull( ex ) ) {
 			return null;
 		}
 		String className = null;
@@ -711,34 +775,35 @@ public final class XMLParser {
 			}
 		}
 		if( k.isArray() ){
-			index = new int[2];
-			
-			Class c = k.getComponentType();
-			int l = (int) extractObjectAndAttributesForTags( ex, LENGTH, null, null, Integer.TYPE, null, null, index );
-			erg = (T) Array.newInstance( c, l );
-
+			Class<?> c = k.getComponentType();
 			if( !simpleParsable.contains( c ) ) {
 				c = infer?null:c;
 			}
-			
-			Map<String, String> myFilterAttributes = new TreeMap<String, String>();			
-			for( int i = 0; i < l; i++ ) {
-				myFilterAttributes.clear();
-				myFilterAttributes.put( VALUE, ""+i );
-				Object o = extractObjectAndAttributesForTags( ex, ARRAY_TAG, null, myFilterAttributes, c, outerClass, outerInstance, index );
-				Array.set( erg, i, o );
+			TagIndex children = getIndex( ex );
+			if( children != null ) {
+				erg = (T) parseArray( children, k.getComponentType(), c, outerClass, outerInstance );
+			} else {
+				int[] index = new int[2];
+				int l = (int) extractObjectAndAttributesForTags( ex, LENGTH, null, null, Integer.TYPE, null, null, index );
+				erg = (T) Array.newInstance( k.getComponentType(), l );
+				
+				Map<String, String> myFilterAttributes = new TreeMap<String, String>();			
+				for( int i = 0; i < l; i++ ) {
+					myFilterAttributes.clear();
+					myFilterAttributes.put( VALUE, ""+i );
+					Object o = extractObjectAndAttributesForTags( ex, ARRAY_TAG, null, myFilterAttributes, c, outerClass, outerInstance, index );
+					Array.set( erg, i, o );
+				}
 			}
 		} else {		
 			if( k.isEnum() ) {
 				erg = (T) Enum.valueOf( (Class) k, extractObjectAndAttributesForTags( ex, ENUM, null, null, String.class, null, null, null ) );
 			} else if( simpleParsable.contains( k ) ) {
 				int offset=0;
-				if( !infer ) {
-					try {
-						offset=skipTag(ex, CLASS_NAME, null, null);
-					}catch(Exception e){
-					};
-				}
+				try {
+					offset=skipTag(ex, CLASS_NAME, null, null);
+				}catch(Exception e){
+				};
 				erg = (T) cast( k, offset <= 0 ? ex.toString() : ex.substring( offset ) );
 			} else if( Singleton.class.isAssignableFrom(k)) {
 				try {
@@ -776,6 +841,450 @@ public final class XMLParser {
 	}
 	
 	
+	/**
+	 * Parses the array with the entries in <code>children</code>.
+	 * 
+	 * @param children the index of the content of the array
+	 * @param componentType the component type of the array
+	 * @param c the class used to parse the entries, if <code>null</code> the class will be inferred from the XML
+	 * @param outerClass the class of the outer instance of the parsed entries
+	 * @param outerInstance the outer instance of the parsed entries
+	 * 
+	 * @return the array
+	 * 
+	 * @throws NonParsableException if the array could not be parsed
+	 */
+	private static<S> Object parseArray( TagIndex children, Class<?> componentType, Class<?> c, Class<S> outerClass, S outerInstance ) throws NonParsableException {
+		int j = children.find( LENGTH, null, null );
+		if( j < 0 ) {
+			throw new NonParsableException( "Could not find \"" + LENGTH + "\"." );
+		}
+		children.extract( j );
+		int l = (Integer) parseEntry( children, j, Integer.TYPE, null, null );
+		Object erg = Array.newInstance( componentType, l );
+		for( int i = 0; i < l; i++ ) {
+			j = children.findValue( ARRAY_TAG, Integer.toString( i ) );
+			if( j < 0 ) {
+				throw new NonParsableException( "Could not find \"" + ARRAY_TAG + "\"." );
+			}
+			children.extract( j );
+			Array.set( erg, i, parseEntry( children, j, c, outerClass, outerInstance ) );
+		}
+		return erg;
+	}
+	
+	private static<T, S> Object parseEntry( TagIndex children, int j, Class<T> k, Class<S> outerClass, S outerInstance ) throws NonParsableException {
+		if( k != null && simpleParsable.contains( k ) && children.isLeaf( j ) ) {
+			String content = children.getText( j );
+			return isNull( content ) ? null : cast( k, content );
+		} else {
+			return parseContent( children.getContent( j ), children.getTag( j ), k, outerClass, outerInstance );
+		}
+	}
+	
+	private static boolean isNull( CharSequence content ) {
+		int start = 0, end = content.length();
+		while( start < end && content.charAt( start ) <= ' ' ) {
+			start++;
+		}
+		while( end > start && content.charAt( end-1 ) <= ' ' ) {
+			end--;
+		}
+		if( end - start != NULL.length() ) {
+			return false;
+		}
+		for( int i = 0; i < NULL.length(); i++ ) {
+			if( content.charAt( start+i ) != NULL.charAt( i ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * This class contains the offsets of the tags and contents of all entries of some XML-code and the tree of the entries.
+	 * It is built in one pass, while the attributes of the entries are only parsed on demand.
+	 * 
+	 * @author Jan Grau, Jens Keilwagen
+	 */
+	private static final class Document {
+		
+		private String source;
+		private int size, firstRoot;
+		private int[] tagStart, tagEnd, contentStart, contentEnd, firstChild, nextSibling;
+		
+		private Document( String source ) {
+			this.source = source;
+			int n = 16;
+			tagStart = new int[n];
+			tagEnd = new int[n];
+			contentStart = new int[n];
+			contentEnd = new int[n];
+			firstChild = new int[n];
+			nextSibling = new int[n];
+			firstRoot = -1;
+		}
+		
+		/**
+		 * Creates the index for the XML-code <code>s</code>.
+		 * 
+		 * @param s the XML-code
+		 * 
+		 * @return the index or <code>null</code> if the tags of the XML-code are not balanced or the XML-code contains special tags (e.g., comments)
+		 */
+		static Document create( String s ) {
+			Document doc = new Document( s );
+			int[] open = new int[16], last = new int[16];
+			int depth = 0, lastRoot = -1, p = 0;
+			while( (p = s.indexOf( '<', p )) >= 0 ) {
+				int gt = s.indexOf( '>', p );
+				if( gt < 0 ) {
+					return null;
+				}
+				if( s.charAt( p+1 ) == '/' ) {
+					if( depth == 0 ) {
+						return null;
+					}
+					int id = open[--depth], l = doc.tagEnd[id]-doc.tagStart[id];
+					if( gt-p-2 != l || !s.regionMatches( p+2, s, doc.tagStart[id], l ) ) {
+						return null;
+					}
+					doc.contentEnd[id] = p;
+				} else {
+					char c = s.charAt( p+1 );
+					if( c == '?' || c == '!' || s.charAt( gt-1 ) == '/' ) {
+						return null;
+					}
+					int e = p+1;
+					while( e < gt && s.charAt( e ) != ' ' ) {
+						e++;
+					}
+					int id = doc.add( p+1, e, gt+1 );
+					if( depth == 0 ) {
+						if( lastRoot < 0 ) {
+							doc.firstRoot = id;
+						} else {
+							doc.nextSibling[lastRoot] = id;
+						}
+						lastRoot = id;
+					} else {
+						if( last[depth-1] < 0 ) {
+							doc.firstChild[open[depth-1]] = id;
+						} else {
+							doc.nextSibling[last[depth-1]] = id;
+						}
+						last[depth-1] = id;
+					}
+					if( depth == open.length ) {
+						open = Arrays.copyOf( open, 2*depth );
+						last = Arrays.copyOf( last, 2*depth );
+					}
+					open[depth] = id;
+					last[depth] = -1;
+					depth++;
+				}
+				p = gt+1;
+			}
+			return depth == 0 ? doc : null;
+		}
+		
+		private int add( int start, int end, int content ) {
+			if( size == tagStart.length ) {
+				int n = 2*size;
+				tagStart = Arrays.copyOf( tagStart, n );
+				tagEnd = Arrays.copyOf( tagEnd, n );
+				contentStart = Arrays.copyOf( contentStart, n );
+				contentEnd = Arrays.copyOf( contentEnd, n );
+				firstChild = Arrays.copyOf( firstChild, n );
+				nextSibling = Arrays.copyOf( nextSibling, n );
+			}
+			tagStart[size] = start;
+			tagEnd[size] = end;
+			contentStart[size] = content;
+			firstChild[size] = -1;
+			nextSibling[size] = -1;
+			return size++;
+		}
+	}
+	
+	/**
+	 * This class is an index of the entries at the top level of some XML-code, i.e., of a whole {@link Document} or of the content of one of its entries.
+	 * Entries are looked up by their tag and marked as extracted instead of being deleted from the XML-code. Hence, the entries can be accessed without repeatedly
+	 * searching and deleting in the XML-code.
+	 * 
+	 * @author Jan Grau, Jens Keilwagen
+	 */
+	private static final class TagIndex {
+		
+		private Document doc;
+		private int parent, length, size, first;
+		private int[] entries;
+		private boolean[] extracted;
+		private HashMap<String, Entries> tags;
+		
+		/**
+		 * Creates the index for the entries of <code>doc</code> with parent <code>parent</code>.
+		 * 
+		 * @param doc the indexed XML-code
+		 * @param parent the index of the parent entry in <code>doc</code>, or -1 for the entries at the top level of <code>doc</code>
+		 * @param length the length of the XML-code of the entries
+		 */
+		private TagIndex( Document doc, int parent, int length ) {
+			this.doc = doc;
+			this.parent = parent;
+			this.length = length;
+		}
+		
+		/**
+		 * Creates the index for the XML-code <code>xml</code>.
+		 * 
+		 * @param xml the XML-code
+		 * 
+		 * @return the index or <code>null</code> if the XML-code can not be indexed
+		 * 
+		 * @see Document#create(String)
+		 */
+		static TagIndex create( StringBuffer xml ) {
+			Document doc = Document.create( xml.toString() );
+			return doc == null ? null : new TagIndex( doc, -1, xml.length() );
+		}
+		
+		/**
+		 * Returns the index for <code>xml</code> after XML-code has been appended. The extracted entries are kept. If the appended XML-code can not be indexed,
+		 * the extracted entries are deleted from <code>xml</code>, so that it can be parsed by searching and deleting the entries.
+		 * If <code>xml</code> has been changed otherwise, it is indexed anew.
+		 * 
+		 * @param xml the XML-code
+		 * 
+		 * @return the index or <code>null</code> if <code>xml</code> can not be indexed
+		 */
+		TagIndex update( StringBuffer xml ) {
+			int base = getBase();
+			if( xml.length() < length || !xml.substring( 0, length ).equals( doc.source.substring( base, base+length ) ) ) {
+				return create( xml );
+			}
+			init();
+			TagIndex index = create( xml );
+			if( index != null ) {
+				index.init();
+				System.arraycopy( extracted, 0, index.extracted, 0, size );
+			} else {
+				for( int j = size-1; j >= 0; j-- ) {
+					if( extracted[j] ) {
+						int e = entries[j];
+						xml.delete( doc.tagStart[e]-1-base, doc.contentEnd[e] + doc.tagEnd[e]-doc.tagStart[e] + 3 - base );
+					}
+				}
+			}
+			return index;
+		}
+		
+		private int getBase() {
+			return parent < 0 ? 0 : doc.contentStart[parent];
+		}
+		
+		private void init() {
+			if( entries == null ) {
+				int e = parent < 0 ? doc.firstRoot : doc.firstChild[parent];
+				entries = new int[16];
+				while( e >= 0 ) {
+					if( size == entries.length ) {
+						entries = Arrays.copyOf( entries, 2*size );
+					}
+					entries[size++] = e;
+					e = doc.nextSibling[e];
+				}
+				extracted = new boolean[size];
+			}
+		}
+		
+		int getLength() {
+			return length;
+		}
+		
+		/**
+		 * Returns the index of the first entry with tag <code>tag</code> that has not been extracted.
+		 * 
+		 * @param tag the tag
+		 * @param attributes a {@link Map} for the attributes of the entry, or <code>null</code> if no attributes should be parsed
+		 * @param filterAttributes a {@link Map} of attributes and associated values, which must be present in the attributes of the entry, or <code>null</code> for no filtering
+		 * 
+		 * @return the index of the entry or -1 if there is no such entry
+		 * 
+		 * @throws NonParsableException if the attributes of an entry are malformed
+		 */
+		int find( String tag, Map<String, String> attributes, Map<String, String> filterAttributes ) throws NonParsableException {
+			int j;
+			if( filterAttributes != null && filterAttributes.size() == 1 && filterAttributes.get( VALUE ) != null ) {
+				j = findValue( tag, filterAttributes.get( VALUE ).trim() );
+			} else {
+				skipExtracted();
+				if( first < size && isTag( first, tag ) && (filterAttributes == null || testFilter( getAttributes( first ), filterAttributes )) ) {
+					j = first;
+				} else {
+					j = -1;
+					Entries e = getEntries( tag );
+					if( e != null ) {
+						while( e.first < e.list.length() && extracted[e.list.get( e.first )] ) {
+							e.first++;
+						}
+						for( int i = e.first; i < e.list.length(); i++ ) {
+							int k = e.list.get( i );
+							if( !extracted[k] && (filterAttributes == null || testFilter( getAttributes( k ), filterAttributes )) ) {
+								j = k;
+								break;
+							}
+						}
+					}
+				}
+			}
+			if( j >= 0 && attributes != null ) {
+				attributes.putAll( getAttributes( j ) );
+			}
+			return j;
+		}
+		
+		/**
+		 * Returns the index of the first entry with tag <code>tag</code> and value <code>val</code> of the attribute {@link XMLParser#VALUE} that has not been extracted.
+		 * 
+		 * @param tag the tag
+		 * @param val the value of the attribute {@link XMLParser#VALUE}
+		 * 
+		 * @return the index of the entry or -1 if there is no such entry
+		 * 
+		 * @throws NonParsableException if the attributes of an entry are malformed
+		 */
+		int findValue( String tag, String val ) throws NonParsableException {
+			skipExtracted();
+			//fast path for entries that are extracted in their order
+			if( first < size && isTag( first, tag ) && hasValue( first, val ) ) {
+				return first;
+			}
+			Entries e = getEntries( tag );
+			if( e == null ) {
+				return -1;
+			}
+			if( e.values == null ) {
+				e.values = new HashMap<String, IntList>();
+				for( int i = 0; i < e.list.length(); i++ ) {
+					int k = e.list.get( i );
+					String v = getAttributes( k ).get( VALUE );
+					if( v != null ) {
+						IntList list = e.values.get( v = v.trim() );
+						if( list == null ) {
+							list = new IntList();
+							e.values.put( v, list );
+						}
+						list.add( k );
+					}
+				}
+			}
+			IntList list = e.values.get( val );
+			if( list != null ) {
+				for( int i = 0; i < list.length(); i++ ) {
+					if( !extracted[list.get( i )] ) {
+						return list.get( i );
+					}
+				}
+			}
+			return -1;
+		}
+		
+		void extract( int j ) {
+			extracted[j] = true;
+		}
+		
+		private void skipExtracted() {
+			init();
+			while( first < size && extracted[first] ) {
+				first++;
+			}
+		}
+		
+		private Entries getEntries( String tag ) {
+			if( tags == null ) {
+				tags = new HashMap<String, Entries>();
+				for( int j = 0; j < size; j++ ) {
+					String t = getTag( j );
+					Entries e = tags.get( t );
+					if( e == null ) {
+						e = new Entries();
+						tags.put( t, e );
+					}
+					e.list.add( j );
+				}
+			}
+			return tags.get( tag );
+		}
+		
+		private boolean isTag( int j, String tag ) {
+			int e = entries[j], l = doc.tagEnd[e]-doc.tagStart[e];
+			return l == tag.length() && doc.source.regionMatches( doc.tagStart[e], tag, 0, l );
+		}
+		
+		private boolean hasValue( int j, String val ) throws NonParsableException {
+			int e = entries[j], start = doc.tagEnd[e], end = doc.contentStart[e]-1;
+			String source = doc.source;
+			//fast path for attributes written by XMLParser
+			int l = VALUE.length();
+			if( end-start == l+4+val.length() && source.startsWith( VALUE, start+1 ) && source.charAt( start+l+1 ) == '='
+					&& source.charAt( start+l+2 ) == '"' && source.startsWith( val, start+l+3 ) && source.charAt( end-1 ) == '"' ) {
+				return true;
+			}
+			if( start == end ) {
+				return false;
+			}
+			String myVal = getAttributes( j ).get( VALUE );
+			return myVal != null && myVal.trim().equals( val );
+		}
+		
+		private Map<String, String> getAttributes( int j ) throws NonParsableException {
+			int e = entries[j], start = doc.tagEnd[e], end = doc.contentStart[e]-1;
+			return start < end ? parseAttributes( doc.source.substring( start+1, end ) ) : new TreeMap<String, String>();
+		}
+		
+		String getTag( int j ) {
+			int e = entries[j];
+			return doc.source.substring( doc.tagStart[e], doc.tagEnd[e] );
+		}
+		
+		boolean isLeaf( int j ) {
+			return doc.firstChild[entries[j]] < 0;
+		}
+		
+		String getText( int j ) {
+			int e = entries[j];
+			return doc.source.substring( doc.contentStart[e], doc.contentEnd[e] );
+		}
+		
+		/**
+		 * Returns the content of the entry <code>j</code>. If the content contains entries, the index of these entries is registered for the returned {@link StringBuffer}.
+		 * 
+		 * @param j the index of the entry
+		 * 
+		 * @return the content of the entry
+		 */
+		StringBuffer getContent( int j ) {
+			int e = entries[j], l = doc.contentEnd[e]-doc.contentStart[e];
+			StringBuffer content = new StringBuffer( l+16 );
+			content.append( doc.source, doc.contentStart[e], doc.contentEnd[e] );
+			if( doc.firstChild[e] >= 0 ) {
+				documents.put( content, new TagIndex( doc, e, l ) );
+			}
+			return content;
+		}
+		
+		/**
+		 * The entries of a {@link TagIndex} with the same tag.
+		 */
+		private static final class Entries {
+			
+			private IntList list = new IntList();
+			private int first;
+			private HashMap<String, IntList> values;
+		}
+	}
+	
 	/**
 	 * Stores a set of {@link Sequence}s to XML, although {@link Sequence} does not implement {@link Storable}.
 	 * Use for general data storage is discouraged and should be limited to those cases, where a {@link Sequence} needs
@@ -0,0 +1,484 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.motifDiscovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.naming.OperationNotSupportedException;
+
+import de.jstacs.data.AlphabetContainer;
+import de.jstacs.data.DataSet;
+import de.jstacs.data.WrongAlphabetException;
+import de.jstacs.data.alphabets.ComplementableDiscreteAlphabet;
+import de.jstacs.data.sequences.ByteSequence;
+import de.jstacs.data.sequences.IntSequence;
+import de.jstacs.data.sequences.Sequence;
+
+/**
+ * This class counts <code>k</code>-mers of a simple and discrete {@link AlphabetContainer} without creating a {@link Sequence} for each occurrence.
+ * Each <code>k</code>-mer is packed into a <code>long</code> using <code>ceil(log2(|alphabet|))</code> bits per symbol,
+ * where the first symbol is stored in the most significant bits. Hence, comparing two packed <code>k</code>-mers
+ * yields the same result as {@link Sequence#compareTo(Sequence)} for the corresponding {@link Sequence}s.
+ * For DNA, <code>k</code>-mers up to length 31 can be packed.
+ *
+ * <br><br>
+ *
+ * If both strands are considered, each <code>k</code>-mer is represented by the smaller of the packed <code>k</code>-mer and the packed reverse complement,
+ * which are both computed incrementally while sliding along a {@link Sequence}.
+ * The distinct <code>k</code>-mers are numbered by their first insertion and stored in a dense array for small <code>k</code>
+ * and in an open addressing hash table otherwise.
+ *
+ * @author Jens Keilwagen
+ *
+ * @see KMereStatistic
+ */
+public final class KMereCounter {
+
+	private static final int MAX_DENSE_BITS = 20;
+
+	private AlphabetContainer con;
+	private int k, bits, size;
+	private long mask;
+	private int[] complement;
+
+	private int[] dense;
+	private long[] table;
+	private int[] tableIndex;
+
+	private long[] kmeres;
+	private int[] counts;
+
+	/**
+	 * Creates a new, empty counter.
+	 *
+	 * @param con the simple and discrete {@link AlphabetContainer} of the sequences
+	 * @param k the length of the <code>k</code>-mers
+	 * @param bothStrands if <code>true</code> each <code>k</code>-mer and its reverse complement are treated as the same <code>k</code>-mer
+	 *
+	 * @throws WrongAlphabetException if the {@link AlphabetContainer} is not simple and discrete or the <code>k</code>-mers can not be packed into a <code>long</code>
+	 * @throws OperationNotSupportedException if <code>bothStrands==true</code> but the {@link AlphabetContainer} is not reverse complementable
+	 *
+	 * @see #isApplicable(AlphabetContainer, int)
+	 */
+	public KMereCounter( AlphabetContainer con, int k, boolean bothStrands ) throws WrongAlphabetException, OperationNotSupportedException {
+		if( !isApplicable( con, k ) ) {
+			throw new WrongAlphabetException( "The k-mers can not be packed." );
+		}
+		this.con = con;
+		this.k = k;
+		int a = (int) con.getAlphabetLengthAt( 0 );
+		bits = getBits( a );
+		mask = (1L << (k*bits)) - 1;
+		if( bothStrands ) {
+			if( !con.isReverseComplementable() ) {
+				throw new OperationNotSupportedException( "The alphabet is not reverse complementable." );
+			}
+			ComplementableDiscreteAlphabet abc = (ComplementableDiscreteAlphabet) con.getAlphabetAt( 0 );
+			complement = new int[a];
+			for( int i = 0; i < a; i++ ) {
+				complement[i] = abc.getComplementaryCode( i );
+			}
+		}
+		if( k*bits <= MAX_DENSE_BITS ) {
+			dense = new int[1 << (k*bits)];
+		} else {
+			table = new long[1024];
+			tableIndex = new int[table.length];
+		}
+		kmeres = new long[64];
+		counts = new int[kmeres.length];
+	}
+
+	private static int getBits( int alphabetLength ) {
+		return Math.max( 1, 32 - Integer.numberOfLeadingZeros( alphabetLength - 1 ) );
+	}
+
+	/**
+	 * Returns <code>true</code> if the <code>k</code>-mers of the {@link AlphabetContainer} can be counted by a {@link KMereCounter}.
+	 *
+	 * @param con the {@link AlphabetContainer}
+	 * @param k the length of the <code>k</code>-mers
+	 *
+	 * @return <code>true</code> if the {@link AlphabetContainer} is simple and discrete and <code>k</code>-mers fit into 63 bits
+	 */
+	public static boolean isApplicable( AlphabetContainer con, int k ) {
+		return con.isSimple() && con.isDiscrete() && k > 0 && k*getBits( (int) con.getAlphabetLengthAt( 0 ) ) <= 63;
+	}
+
+	/**
+	 * Returns the length of the <code>k</code>-mers.
+	 *
+	 * @return the length of the <code>k</code>-mers
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Returns <code>true</code> if each <code>k</code>-mer and its reverse complement are treated as the same <code>k</code>-mer.
+	 *
+	 * @return <code>true</code> if both strands are considered
+	 */
+	public boolean isBothStrands() {
+		return complement != null;
+	}
+
+	/**
+	 * Returns the number of distinct <code>k</code>-mers.
+	 *
+	 * @return the number of distinct <code>k</code>-mers
+	 */
+	public int getNumberOfKMeres() {
+		return size;
+	}
+
+	/**
+	 * Returns the packed <code>k</code>-mer with index <code>index</code>, where the indexes reflect the order of insertion.
+	 *
+	 * @param index the index
+	 *
+	 * @return the packed <code>k</code>-mer
+	 */
+	public long getKMere( int index ) {
+		return kmeres[index];
+	}
+
+	/**
+	 * Returns the number of occurrences counted for the <code>k</code>-mer with index <code>index</code>.
+	 *
+	 * @param index the index
+	 *
+	 * @return the number of occurrences
+	 *
+	 * @see #count(Sequence, long[])
+	 */
+	public int getCount( int index ) {
+		return counts[index];
+	}
+
+	/**
+	 * Returns the index of the packed <code>k</code>-mer or -1 if it has not been added.
+	 *
+	 * @param kmere the packed <code>k</code>-mer as returned by {@link #fill(Sequence, long[], long[])} or {@link #getCanonical(long)}
+	 *
+	 * @return the index or -1
+	 */
+	public int getIndex( long kmere ) {
+		if( dense != null ) {
+			return dense[(int) kmere] - 1;
+		} else {
+			int m = table.length - 1, h = hash( kmere ) & m;
+			while( tableIndex[h] != 0 ) {
+				if( table[h] == kmere ) {
+					return tableIndex[h] - 1;
+				}
+				h = (h + 1) & m;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Adds the packed <code>k</code>-mer if it has not been added before and returns its index.
+	 *
+	 * @param kmere the packed <code>k</code>-mer as returned by {@link #fill(Sequence, long[], long[])} or {@link #getCanonical(long)}
+	 *
+	 * @return the index of the <code>k</code>-mer
+	 */
+	public int add( long kmere ) {
+		if( dense != null ) {
+			int i = dense[(int) kmere];
+			if( i == 0 ) {
+				i = dense[(int) kmere] = append( kmere );
+			}
+			return i - 1;
+		} else {
+			int m = table.length - 1, h = hash( kmere ) & m;
+			while( tableIndex[h] != 0 ) {
+				if( table[h] == kmere ) {
+					return tableIndex[h] - 1;
+				}
+				h = (h + 1) & m;
+			}
+			table[h] = kmere;
+			tableIndex[h] = append( kmere );
+			if( 2*size > table.length ) {
+				rehash();
+			}
+			return size - 1;
+		}
+	}
+
+	private int append( long kmere ) {
+		if( size == kmeres.length ) {
+			kmeres = Arrays.copyOf( kmeres, 2*size );
+			counts = Arrays.copyOf( counts, 2*size );
+		}
+		kmeres[size] = kmere;
+		return ++size;
+	}
+
+	private void rehash() {
+		long[] oldTable = table;
+		int[] oldIndex = tableIndex;
+		table = new long[2*oldTable.length];
+		tableIndex = new int[table.length];
+		int m = table.length - 1;
+		for( int i = 0; i < oldTable.length; i++ ) {
+			if( oldIndex[i] != 0 ) {
+				int h = hash( oldTable[i] ) & m;
+				while( tableIndex[h] != 0 ) {
+					h = (h + 1) & m;
+				}
+				table[h] = oldTable[i];
+				tableIndex[h] = oldIndex[i];
+			}
+		}
+	}
+
+	private static int hash( long key ) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Fills the packed <code>k</code>-mers of all positions of <code>seq</code> into <code>forward</code> and,
+	 * if both strands are considered and <code>canonical</code> is not <code>null</code>,
+	 * the smaller of each packed <code>k</code>-mer and its reverse complement into <code>canonical</code>.
+	 *
+	 * @param seq the sequence
+	 * @param forward an array for the packed <code>k</code>-mers of length at least <code>seq.getLength()-k+1</code>
+	 * @param canonical an array for the canonical packed <code>k</code>-mers of length at least <code>seq.getLength()-k+1</code>, may be <code>null</code>
+	 *
+	 * @return the number of <code>k</code>-mers, i.e., <code>max(0,seq.getLength()-k+1)</code>
+	 */
+	public int fill( Sequence seq, long[] forward, long[] canonical ) {
+		int l = seq.getLength(), m = l - k + 1, c, shift = (k-1)*bits;
+		long fwd = 0, rc = 0;
+		for( int i = 0; i < l; i++ ) {
+			c = seq.discreteVal( i );
+			fwd = ((fwd << bits) | c) & mask;
+			if( complement != null ) {
+				rc = (rc >>> bits) | ((long) complement[c] << shift);
+			}
+			if( i >= k-1 ) {
+				if( forward != null ) {
+					forward[i-k+1] = fwd;
+				}
+				if( canonical != null ) {
+					canonical[i-k+1] = complement == null || fwd <= rc ? fwd : rc;
+				}
+			}
+		}
+		return Math.max( 0, m );
+	}
+
+	/**
+	 * Returns the packed reverse complement of a packed <code>k</code>-mer.
+	 *
+	 * @param kmere the packed <code>k</code>-mer
+	 *
+	 * @return the packed reverse complement
+	 *
+	 * @throws OperationNotSupportedException if the counter does not consider both strands
+	 */
+	public long getReverseComplement( long kmere ) throws OperationNotSupportedException {
+		if( complement == null ) {
+			throw new OperationNotSupportedException();
+		}
+		long rc = 0, symbol = (1L << bits) - 1;
+		for( int i = 0; i < k; i++ ) {
+			rc = (rc << bits) | complement[(int) (kmere & symbol)];
+			kmere >>>= bits;
+		}
+		return rc;
+	}
+
+	/**
+	 * Returns the packed <code>k</code>-mer that represents <code>kmere</code> in this counter,
+	 * i.e., <code>kmere</code> or its reverse complement if both strands are considered.
+	 *
+	 * @param kmere the packed <code>k</code>-mer
+	 *
+	 * @return the representing packed <code>k</code>-mer
+	 */
+	public long getCanonical( long kmere ) {
+		if( complement == null ) {
+			return kmere;
+		} else {
+			try {
+				return Math.min( kmere, getReverseComplement( kmere ) );
+			} catch( OperationNotSupportedException doesNotHappen ) {
+				throw new RuntimeException( doesNotHappen );
+			}
+		}
+	}
+
+	/**
+	 * Counts all <code>k</code>-mers of <code>seq</code>.
+	 *
+	 * @param seq the sequence
+	 * @param buffer a buffer of length at least <code>seq.getLength()-k+1</code>
+	 */
+	public void count( Sequence seq, long[] buffer ) {
+		int m = fill( seq, null, buffer );
+		for( int idx, i = 0; i < m; i++ ) {
+			//add may enlarge counts
+			idx = add( buffer[i] );
+			counts[idx]++;
+		}
+	}
+
+	/**
+	 * Adds the <code>k</code>-mers and counts of <code>other</code> to this counter.
+	 *
+	 * @param other another counter for the same alphabet, <code>k</code> and strands
+	 */
+	public void addAll( KMereCounter other ) {
+		for( int idx, i = 0; i < other.size; i++ ) {
+			idx = add( other.kmeres[i] );
+			counts[idx] += other.counts[i];
+		}
+	}
+
+	/**
+	 * Returns the symbols of the packed <code>k</code>-mer as {@link String} without delimiter.
+	 *
+	 * @param kmere the packed <code>k</code>-mer
+	 *
+	 * @return the {@link String} of the packed <code>k</code>-mer
+	 */
+	public String toString( long kmere ) {
+		StringBuffer sb = new StringBuffer( k );
+		long symbol = (1L << bits) - 1;
+		for( int i = k-1; i >= 0; i-- ) {
+			sb.append( con.getSymbol( 0, (kmere >>> (i*bits)) & symbol ) );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the packed <code>k</code>-mer as {@link Sequence}.
+	 *
+	 * @param kmere the packed <code>k</code>-mer
+	 *
+	 * @return the {@link Sequence} of the packed <code>k</code>-mer
+	 *
+	 * @throws WrongAlphabetException if the {@link Sequence} could not be created
+	 */
+	public Sequence toSequence( long kmere ) throws WrongAlphabetException {
+		int[] codes = new int[k];
+		long symbol = (1L << bits) - 1;
+		for( int i = k-1; i >= 0; i--, kmere >>>= bits ) {
+			codes[i] = (int) (kmere & symbol);
+		}
+		try {
+			if( con.getAlphabetLengthAt( 0 ) <= Byte.MAX_VALUE ) {
+				byte[] b = new byte[k];
+				for( int i = 0; i < k; i++ ) {
+					b[i] = (byte) codes[i];
+				}
+				return new ByteSequence( con, b );
+			} else {
+				return new IntSequence( con, codes );
+			}
+		} catch( Exception e ) {
+			throw new WrongAlphabetException( e.getMessage() );
+		}
+	}
+
+	/**
+	 * Counts all <code>k</code>-mers in the {@link DataSet}s using <code>threads</code> threads.
+	 * The sequences are split into blocks that are counted independently and merged afterwards.
+	 *
+	 * @param k the length of the <code>k</code>-mers
+	 * @param bothStrands if <code>true</code> each <code>k</code>-mer and its reverse complement are treated as the same <code>k</code>-mer
+	 * @param threads the number of threads
+	 * @param data the {@link DataSet}s with consistent {@link AlphabetContainer}s
+	 *
+	 * @return the counter
+	 *
+	 * @throws WrongAlphabetException if the {@link AlphabetContainer}s do not match or the <code>k</code>-mers can not be packed
+	 * @throws OperationNotSupportedException if <code>bothStrands==true</code> but the {@link AlphabetContainer} is not reverse complementable
+	 */
+	public static KMereCounter count( int k, boolean bothStrands, int threads, DataSet... data ) throws WrongAlphabetException, OperationNotSupportedException {
+		AlphabetContainer con = data[0].getAlphabetContainer();
+		final ArrayList<Sequence> seqs = new ArrayList<Sequence>();
+		int maxLength = 0;
+		for( int d = 0; d < data.length; d++ ) {
+			if( !con.checkConsistency( data[d].getAlphabetContainer() ) ) {
+				throw new WrongAlphabetException();
+			}
+			for( int n = 0; n < data[d].getNumberOfElements(); n++ ) {
+				seqs.add( data[d].getElementAt( n ) );
+			}
+			maxLength = Math.max( maxLength, data[d].getMaximalElementLength() );
+		}
+		int blocks = Math.max( 1, Math.min( threads, seqs.size() / 1000 ) );
+		final KMereCounter[] counter = new KMereCounter[blocks];
+		for( int b = 0; b < blocks; b++ ) {
+			counter[b] = new KMereCounter( con, k, bothStrands );
+		}
+		final int length = maxLength;
+		if( blocks == 1 ) {
+			count( counter[0], seqs, 0, seqs.size(), length );
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool( blocks );
+			try {
+				Future<?>[] futures = new Future<?>[blocks];
+				for( int b = 0; b < blocks; b++ ) {
+					final int idx = b, start = (int) ((long) b * seqs.size() / blocks), end = (int) ((long) (b+1) * seqs.size() / blocks);
+					futures[b] = pool.submit( new Runnable() {
+						@Override
+						public void run() {
+							count( counter[idx], seqs, start, end, length );
+						}
+					} );
+				}
+				for( int b = 0; b < blocks; b++ ) {
+					futures[b].get();
+				}
+			} catch( InterruptedException e ) {
+				throw new RuntimeException( e );
+			} catch( ExecutionException e ) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException( e.getCause() );
+			} finally {
+				pool.shutdownNow();
+			}
+			for( int b = 1; b < blocks; b++ ) {
+				counter[0].addAll( counter[b] );
+			}
+		}
+		return counter[0];
+	}
+
+	private static void count( KMereCounter counter, ArrayList<Sequence> seqs, int start, int end, int maxLength ) {
+		long[] buffer = new long[Math.max( 1, maxLength )];
+		for( int n = start; n < end; n++ ) {
+			counter.count( seqs.get( n ), buffer );
+		}
+	}
+}
@@ -304,6 +304,58 @@ public final class KMereStatistic {
 	 *             if something went wrong
 	 */
 	public static WeightedDataSetFactory getAbsoluteKMereFrequencies( DataSet data, int k, boolean bothStrands, SortOperation sortOp ) throws Exception {
+		return getAbsoluteKMereFrequencies( data, k, bothStrands, sortOp, 1 );
+	}
+	
+	/**
+	 * This method enables the user to get a statistic over all <code>k</code>-mers
+	 * in the <code>data</code>. That is it counts the outcome of each
+	 * <code>k</code>-mere in the complete <code>data</code>.
+	 * If possible, the <code>k</code>-mers are counted by a {@link KMereCounter} using <code>threads</code> threads.
+	 * The resulting <code>k</code>-mers and weights are the same as for counting {@link Sequence}s,
+	 * but without sorting the order of the <code>k</code>-mers may differ.
+	 * 
+	 * @param data
+	 *            the data set of sequences
+	 * @param k
+	 *            the motif length
+	 * @param bothStrands
+	 *            the switch for using both strand <code>true</code> or only
+	 *            forward strand <code>false</code>. If <code>true</code>
+	 *            for each <code>k</code>-mer only this <code>k</code>-mere
+	 *            or its reverse complement is contained in the returned
+	 *            {@link de.jstacs.data.DataSet.WeightedDataSetFactory}.
+	 * @param sortOp
+	 * 			  the way how the result should be sorted
+	 * @param threads
+	 *            the number of threads used for counting
+	 * 
+	 * @return a {@link de.jstacs.data.DataSet.WeightedDataSetFactory} containing all <code>k</code>-mers and
+	 *         their absolute frequencies in <code>data</code> respectively on
+	 *         one strand of the <code>data</code>
+	 * 
+	 * @throws Exception
+	 *             if something went wrong
+	 *             
+	 * @see KMereCounter#count(int, boolean, int, DataSet...)
+	 */
+	public static WeightedDataSetFactory getAbsoluteKMereFrequencies( DataSet data, int k, boolean bothStrands, SortOperation sortOp, int threads ) throws Exception {
+		AlphabetContainer con = data.getAlphabetContainer();
+		if( KMereCounter.isApplicable( con, k ) && (!bothStrands || con.isReverseComplementable()) && data.getMinimalElementLength() >= k ) {
+			KMereCounter counter = KMereCounter.count( k, bothStrands, threads, data );
+			Sequence[] seqs = new Sequence[counter.getNumberOfKMeres()];
+			double[] weights = new double[seqs.length];
+			for( int i = 0; i < seqs.length; i++ ) {
+				seqs[i] = counter.toSequence( counter.getKMere( i ) );
+				weights[i] = counter.getCount( i );
+			}
+			if( bothStrands ) {
+				return new WeightedDataSetFactory( sortOp, new DataSet( null, seqs ), weights );
+			} else {
+				return new WeightedDataSetFactory( sortOp, new DataSet( data.getAnnotation(), seqs ), weights, k );
+			}
+		}
+		
 		DataSet myData = data;
 		if (bothStrands) {
 			Sequence[] seqs = new Sequence[2 * data.getNumberOfElements()];
@@ -367,6 +419,39 @@ public final class KMereStatistic {
 		Sequence seq, current;
 		BitSet[] b;
 		boolean add = false;
+		if( KMereCounter.isApplicable( con, k ) ) {
+			//packed k-mers: one Sequence per distinct k-mer instead of one per occurrence
+			KMereCounter counter = new KMereCounter( con, k, bothStrands );
+			ArrayList<Sequence> keys = new ArrayList<Sequence>();
+			ArrayList<BitSet[]> values = new ArrayList<BitSet[]>();
+			int max = 0;
+			for( int d = 0; d < data.length; d++ ) {
+				max = Math.max( max, data[d].getMaximalElementLength() );
+			}
+			long[] kmeres = new long[Math.max( 1, max )];
+			for( int idx, m, l, n, d = 0; d < data.length; d++ ) {
+				for( n = 0; n < anz[d]; n++ ) {
+					seq = data[d].getElementAt( n );
+					m = counter.fill( seq, null, kmeres );
+					for( l = 0; l < m; l++ ) {
+						idx = counter.getIndex( kmeres[l] );
+						if( idx < 0 && d <= addIndex ) {
+							idx = counter.add( kmeres[l] );
+							keys.add( seq.getSubSequence( con, l, k ) );
+							values.add( createBitSets( anz ) );
+						}
+						if( idx >= 0 ) {
+							values.get( idx )[d].set( n );
+						}
+					}
+				}
+			}
+			//same order of insertion as below
+			for( int i = 0; i < keys.size(); i++ ) {
+				res.put( keys.get( i ), values.get( i ) );
+			}
+			return res;
+		}
 		//run over all sequences
 		for( int h, m, l, n, d = 0; d < data.length; d++ ) {
 			for( n = 0; n < anz[d]; n++ ) {
@@ -396,6 +481,107 @@ public final class KMereStatistic {
 		return res;
 	}
 	
+	/**
+	 * This method computes for each <code>k</code>-mer the sum of the weights of the sequences containing
+	 * the <code>k</code>-mer on either strand and the sum of the complementary weights (<code>1-weight</code>).
+	 * Each <code>k</code>-mer is represented by the lexicographically smaller {@link String} of the <code>k</code>-mer and its reverse complement.
+	 * The statistic can be used to find initial motifs, e.g., in Dimont.
+	 * 
+	 * @param k the length of the <code>k</code>-mers
+	 * @param data the sequences
+	 * @param weights the weights of the first <code>weights.length</code> sequences, which are used
+	 * 
+	 * @return a {@link Hashtable} with <code>k</code>-mers as keys and arrays containing the sum of weights and the sum of complementary weights as values, 
+	 *         where the <code>k</code>-mers are inserted in the order of their first occurrence
+	 * 
+	 * @throws WrongAlphabetException if the {@link AlphabetContainer} is not simple and discrete
+	 * @throws OperationNotSupportedException if the reverse complement could not be computed
+	 */
+	public static Hashtable<String, double[]> getWeightedKmereSequenceStatistic( int k, DataSet data, double[] weights ) throws WrongAlphabetException, OperationNotSupportedException {
+		AlphabetContainer con = data.getAlphabetContainer();
+		if( !con.isSimple() || !con.isDiscrete() ) {
+			throw new WrongAlphabetException();
+		}
+		if( !KMereCounter.isApplicable( con, k ) ) {
+			return getWeightedKmereStringStatistic( k, data, weights );
+		}
+		KMereCounter counter = new KMereCounter( data.getAlphabetContainer(), k, true );
+		long[] kmeres = new long[Math.max( 1, data.getMaximalElementLength() )];
+		int[] last = new int[64];
+		double[][] sum = new double[64][];
+		int size = 0;
+		for( int idx, m, l, n = 0; n < weights.length; n++ ) {
+			m = counter.fill( data.getElementAt( n ), null, kmeres );
+			for( l = 0; l < m; l++ ) {
+				idx = counter.add( kmeres[l] );
+				if( idx == size ) {
+					if( idx == last.length ) {
+						last = Arrays.copyOf( last, 2*idx );
+						sum = Arrays.copyOf( sum, 2*idx );
+					}
+					last[idx] = -1;
+					sum[idx] = new double[2];
+					size++;
+				}
+				//count each k-mer only once per sequence
+				if( last[idx] != n ) {
+					last[idx] = n;
+					sum[idx][0] += weights[n];
+					sum[idx][1] += 1d-weights[n];
+				}
+			}
+		}
+		Hashtable<String, double[]> res = new Hashtable<String, double[]>();
+		for( int i = 0; i < size; i++ ) {
+			long kmere = counter.getKMere( i );
+			String s0 = counter.toString( kmere ), s1 = counter.toString( counter.getReverseComplement( kmere ) );
+			res.put( s0.compareTo( s1 ) < 0 ? s0 : s1, sum[i] );
+		}
+		return res;
+	}
+	
+	/**
+	 * Computes the statistic of {@link #getWeightedKmereSequenceStatistic(int, DataSet, double[])} on {@link String}s,
+	 * which is used if the <code>k</code>-mers can not be packed.
+	 */
+	private static Hashtable<String, double[]> getWeightedKmereStringStatistic( int k, DataSet data, double[] weights ) throws OperationNotSupportedException {
+		Hashtable<String, double[]> res = new Hashtable<String, double[]>();
+		HashSet<String> used = new HashSet<String>();
+		
+		//run over all sequences
+		int m, l, n;
+		Sequence seq;
+		String[] s = new String[2];
+		for( n = 0; n < weights.length; n++ ) {
+			seq = data.getElementAt( n );
+			s[0] = seq.toString();
+			s[1] = seq.reverseComplement().toString();
+			m = seq.getLength()-k+1;
+			
+			//run over all k-mers
+			used.clear();
+			for( l = 0; l < m; l++ ) {
+				String h0 = s[0].substring( l, l+k );
+				String h1 = s[1].substring( s[0].length()-k-l, s[0].length()-l );
+				used.add( h0.compareTo(h1) < 0 ? h0 : h1 );
+			}
+			
+			Iterator<String> it = used.iterator();
+			double[] h;
+			while( it.hasNext() ) {
+				s[0] = it.next();
+				h = res.get( s[0] );
+				if( h != null ) {
+					h[0] += weights[n];
+					h[1] += 1d-weights[n];
+				} else {
+					res.put( s[0], new double[]{weights[n],1d-weights[n]} );
+				}
+			}
+		}
+		return res;
+	}
+	
 	private static BitSet[] createBitSets( int[] anz ) {
 		BitSet[] b = new BitSet[anz.length];
 		for( int h = 0; h < anz.length; h++ ) {
@@ -1,5 +1,11 @@
 package de.jstacs.sequenceScores;
 
+import javax.naming.OperationNotSupportedException;
+
+import de.jstacs.data.alphabets.ComplementableDiscreteAlphabet;
+import de.jstacs.data.alphabets.DiscreteAlphabet;
+import de.jstacs.utils.ToolBox;
+
 /**
  * Interface for {@link SequenceScore} that provide additional methods for computing scores of infix sequences
  * and filtering infix sequences.
@@ -25,7 +31,20 @@ public interface QuickScanningSequenceScore extends SequenceScore {
 	 * @param scores the array of scores to be (partly) filled
 	 */
 	public void fillInfixScore(int[] seq, int start, int length, double[] scores);
-	
+
+	/**
+	 * Returns the number of preceding positions the position-wise scores of {@link #fillInfixScore(int[], int, int, double[])} depend on,
+	 * i.e., the score of position <code>i</code> only depends on the symbols at positions <code>i-k,...,i</code> for the returned value <code>k</code>.
+	 * This allows for computing the distribution of the scores by dynamic programming (see {@link de.jstacs.classifiers.utils.ScoreDistribution}).
+	 *
+	 * The default implementation returns <code>-1</code>, which indicates that the scores may also depend on succeeding positions.
+	 *
+	 * @return the number of preceding positions the position-wise scores depend on, or <code>-1</code> if this is unknown
+	 */
+	public default int getInfixScoreContextLength() {
+		return -1;
+	}
+
 	
 	/**
 	 * Computes arrays that indicate, for a given set of starting positions and a given k-mer length, if a sequence
@@ -48,4 +67,53 @@ public interface QuickScanningSequenceScore extends SequenceScore {
 	 */
 	public boolean[][] getInfixFilter( int kmer, double thresh, int... start );
 	
+	/**
+	 * Computes the scores of all windows of length {@link #getLength()} that start at a position <code>p</code> with 
+	 * <code>start &lt;= p &lt;= end-{@link #getLength()}</code> in the sequence <code>seq</code> (which must be encoded by the
+	 * same alphabet as this {@link QuickScanningSequenceScore}) on both strands.
+	 * The score of the window starting at <code>p</code> is filled into <code>fwd[p-start]</code>, and the score of its reverse complement
+	 * into <code>rc[p-start]</code>, i.e., both arrays are indexed by the position on the forward strand.
+	 * Each score is the same value as {@link de.jstacs.utils.ToolBox#sum(double...)} applied to the scores computed by
+	 * {@link #fillInfixScore(int[], int, int, double[])} for this window.
+	 * 
+	 * The default implementation calls {@link #fillInfixScore(int[], int, int, double[])} for each window. Implementations
+	 * may provide faster methods that score many windows at once.
+	 * 
+	 * @param seq the encoded sequence
+	 * @param start the start position of the region (inclusive)
+	 * @param end the end position of the region (exclusive)
+	 * @param fwd the array for the scores of the forward strand, of length at least <code>end-start-{@link #getLength()}+1</code>
+	 * @param rc the array for the scores of the reverse complementary strand, may be <code>null</code> if these are not required
+	 * 
+	 * @throws OperationNotSupportedException if <code>rc</code> is not <code>null</code> and the alphabet is not complementable
+	 */
+	public default void fillWindowScores(int[] seq, int start, int end, double[] fwd, double[] rc) throws OperationNotSupportedException {
+		int l = getLength();
+		int[] comp = null;
+		if(rc != null){
+			DiscreteAlphabet al = (DiscreteAlphabet) getAlphabetContainer().getAlphabetAt( 0 );
+			if( !(al instanceof ComplementableDiscreteAlphabet) ) {
+				throw new OperationNotSupportedException( "The alphabet is not complementable." );
+			}
+			comp = new int[(int) al.length()];
+			for(int a=0;a<comp.length;a++){
+				comp[a] = ((ComplementableDiscreteAlphabet) al).getComplementaryCode( a );
+			}
+		}
+		int[] window = new int[l];
+		double[] scores = new double[l];
+		for(int p=start;p+l<=end;p++){
+			System.arraycopy( seq, p, window, 0, l );
+			fillInfixScore( window, 0, l, scores );
+			fwd[p-start] = ToolBox.sum( scores );
+			if(rc != null){
+				for(int i=0;i<l;i++){
+					window[i] = comp[seq[p+l-1-i]];
+				}
+				fillInfixScore( window, 0, l, scores );
+				rc[p-start] = ToolBox.sum( scores );
+			}
+		}
+	}
+	
 }
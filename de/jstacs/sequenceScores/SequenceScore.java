@@ -24,6 +24,7 @@ import de.jstacs.Storable;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
 import de.jstacs.results.NumericalResultSet;
 import de.jstacs.results.ResultSet;
 
@@ -208,4 +209,62 @@ public interface SequenceScore extends Cloneable, Storable {
 	 * @return a {@link String} representation of the instance
 	 */
 	public String toString( NumberFormat nf );
+	
+	/**
+	 * This method computes the logarithmic scores of all windows of length {@link #getLength()} in the {@link Sequence} <code>seq</code>
+	 * that start at a position <code>p</code> with <code>start &lt;= p &lt;= end-{@link #getLength()}</code>.
+	 * 
+	 * @param seq the {@link Sequence}
+	 * @param start the start position of the region (inclusive)
+	 * @param end the end position of the region (exclusive)
+	 * @param out the array for the scores, of length at least <code>end-start-{@link #getLength()}+1</code>
+	 * @param strand the strand of the windows
+	 * 
+	 * @throws Exception if the scores could not be computed, e.g., if the instance has no fixed length
+	 * 
+	 * @see #getLogScoreProfile(Sequence, int, int, int, double[], Strand)
+	 */
+	public default void getLogScoreProfile( Sequence seq, int start, int end, double[] out, Strand strand ) throws Exception {
+		getLogScoreProfile( seq, start, end, getLength(), out, strand );
+	}
+	
+	/**
+	 * This method computes the logarithmic scores of all windows of length <code>length</code> in the {@link Sequence} <code>seq</code>
+	 * that start at a position <code>p</code> with <code>start &lt;= p &lt;= end-length</code>.
+	 * The score of the window starting at <code>p</code> is filled into <code>out[p-start]</code>. For {@link Strand#FORWARD},
+	 * this is the same value as {@link #getLogScoreFor(Sequence, int)} (or {@link #getLogScoreFor(Sequence, int, int)} if the instance
+	 * has no fixed length), while for {@link Strand#REVERSE}, this is the score of the reverse complement of the window,
+	 * i.e., the scores of both strands are indexed by the position on the forward strand.
+	 * 
+	 * <br>
+	 * <br>
+	 * 
+	 * The default implementation scores each window independently. Implementations may provide faster methods
+	 * that reuse the computations of overlapping windows.
+	 * 
+	 * @param seq the {@link Sequence}
+	 * @param start the start position of the region (inclusive)
+	 * @param end the end position of the region (exclusive)
+	 * @param length the length of the windows
+	 * @param out the array for the scores, of length at least <code>end-start-length+1</code>
+	 * @param strand the strand of the windows, either {@link Strand#FORWARD} or {@link Strand#REVERSE}
+	 * 
+	 * @throws Exception if the scores could not be computed, e.g., if the window length is not positive or can not be handled by the instance
+	 */
+	public default void getLogScoreProfile( Sequence seq, int start, int end, int length, double[] out, Strand strand ) throws Exception {
+		if( length <= 0 ) {
+			throw new IllegalArgumentException( "The length of the windows has to be positive." );
+		}
+		boolean fixed = length == getLength();
+		Sequence s;
+		switch( strand ) {
+			case FORWARD: s = seq; break;
+			case REVERSE: s = seq.reverseComplement( start, end ); break;
+			default: throw new IllegalArgumentException( "The strand has to be forward or reverse." );
+		}
+		for( int p = start; p+length <= end; p++ ) {
+			int q = strand == Strand.FORWARD ? p : end-p-length;
+			out[p-start] = fixed ? getLogScoreFor( s, q ) : getLogScoreFor( s, q, q+length-1 );
+		}
+	}
 }
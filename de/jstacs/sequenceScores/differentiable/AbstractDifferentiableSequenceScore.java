@@ -19,6 +19,7 @@
 
 package de.jstacs.sequenceScores.differentiable;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Locale;
 import java.util.Random;
@@ -28,6 +29,7 @@ import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.DataSet.ElementEnumerator;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.results.NumericalResult;
 import de.jstacs.results.NumericalResultSet;
@@ -118,6 +120,31 @@ public abstract class AbstractDifferentiableSequenceScore implements Differentia
 		alphabets = null;
 		length = -1;
 		fromXML(xml);
+		checkParsed();
+	}
+
+	/**
+	 * Creates a new {@link AbstractDifferentiableSequenceScore} out of its
+	 * binary representation (cf. {@link de.jstacs.io.BinaryStorable}).
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation could not be parsed
+	 * 
+	 * @see #fromBinary(BinaryStorableReader)
+	 */
+	protected AbstractDifferentiableSequenceScore( BinaryStorableReader in ) throws IOException, NonParsableException {
+		alphabets = null;
+		length = -1;
+		fromBinary(in);
+		checkParsed();
+	}
+
+	private void checkParsed() throws NonParsableException {
 		if (alphabets == null) {
 			throw new NonParsableException( "AlphabetContainer could not be parsed." );
 		}
@@ -150,6 +177,27 @@ public abstract class AbstractDifferentiableSequenceScore implements Differentia
 	 */
 	protected abstract void fromXML(StringBuffer xml) throws NonParsableException;
 
+	/**
+	 * This method is called in the constructor that works on a
+	 * {@link BinaryStorableReader}. It is the counter part of
+	 * {@link de.jstacs.io.BinaryStorable#write(de.jstacs.io.BinaryStorableWriter)}
+	 * for subclasses implementing {@link de.jstacs.io.BinaryStorable}. The
+	 * default implementation throws a {@link NonParsableException}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation could not be parsed
+	 * 
+	 * @see AbstractDifferentiableSequenceScore#AbstractDifferentiableSequenceScore(BinaryStorableReader)
+	 */
+	protected void fromBinary(BinaryStorableReader in) throws IOException, NonParsableException {
+		throw new NonParsableException( getClass().getName() + " has no binary representation." );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -19,11 +19,14 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable;
 
+import java.io.IOException;
+
 import de.jstacs.NotTrainedException;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.DataSet.ElementEnumerator;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.sequenceScores.differentiable.AbstractDifferentiableSequenceScore;
 import de.jstacs.sequenceScores.differentiable.DifferentiableSequenceScore;
@@ -67,6 +70,24 @@ public abstract class AbstractDifferentiableStatisticalModel extends AbstractDif
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link AbstractDifferentiableStatisticalModel} out of its
+	 * binary representation (cf. {@link de.jstacs.io.BinaryStorable}).
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation could not be parsed
+	 * 
+	 * @see #fromBinary(BinaryStorableReader)
+	 */
+	protected AbstractDifferentiableStatisticalModel( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see de.jstacs.sequenceScores.statisticalModels.differentiable.AbstractDifferentiableSequenceScore#clone()
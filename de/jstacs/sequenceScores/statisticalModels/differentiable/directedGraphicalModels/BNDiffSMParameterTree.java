@@ -104,9 +104,23 @@ public class BNDiffSMParameterTree implements Cloneable, Storable {
 	}
 	
 	
-	/*public int[] getContext(){
+	/**
+	 * Returns the position of the random variable of the parameters in this tree.
+	 *
+	 * @return the position
+	 */
+	public int getPosition(){
+		return pos;
+	}
+
+	/**
+	 * Returns the positions of the context, i.e., of the parents of the random variable at {@link #getPosition()}.
+	 *
+	 * @return the positions of the context
+	 */
+	public int[] getContext(){
 		return contextPoss.clone();
-	}*/
+	}
 
 	void setAlphabet(AlphabetContainer alphabet){
 		this.alphabet = alphabet;
@@ -35,6 +35,7 @@ import de.jstacs.data.DataSetKMerEnumerator;
 import de.jstacs.data.DiscreteSequenceEnumerator;
 import de.jstacs.data.sequences.IntSequence;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
 import de.jstacs.io.ArrayHandler;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
@@ -694,6 +695,35 @@ public class BayesianNetworkDiffSM extends
 		return prob;
 	}
 	
+	/**
+	 * Computes the scores of all windows on the discrete values of the region, which are determined only once
+	 * for all windows.
+	 * 
+	 * @see de.jstacs.sequenceScores.SequenceScore#getLogScoreProfile(de.jstacs.data.sequences.Sequence, int, int, int, double[], de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand)
+	 */
+	@Override
+	public void getLogScoreProfile( Sequence seq, int start, int end, int length, double[] out, Strand strand ) throws Exception {
+		if( length != this.length ) {
+			throw new IllegalArgumentException( "The length of the windows has to be " + this.length + "." );
+		}
+		int[] codes;
+		switch( strand ) {
+			case FORWARD: codes = seq.getDiscreteValues( start, end ); break;
+			case REVERSE: codes = seq.reverseComplement( start, end ).getDiscreteValues( 0, end-start ); break;
+			default: throw new IllegalArgumentException( "The strand has to be forward or reverse." );
+		}
+		int n = end-start-length+1;
+		for( int k = 0; k < n; k++ ) {
+			//the reverse complement of the window starting at start+k starts at n-1-k in the reverse complement of the region
+			int q = strand == Strand.FORWARD ? k : n-1-k;
+			double prob = 0;
+			for( int i = 0; i < trees.length; i++ ) {
+				prob += trees[i].getParameterFor( codes, q ).getValue();
+			}
+			out[k] = prob;
+		}
+	}
+	
 	public boolean[][] getInfixFilter( int kmer, double thresh,  int... start ) {
 		double[][] cum = getCum();
 		
@@ -1153,4 +1183,23 @@ public class BayesianNetworkDiffSM extends
 		}
 		
 	}
+	/**
+	 * Returns the maximal distance between a position and the positions of its parents if all parents precede their children,
+	 * and <code>-1</code> otherwise.
+	 */
+	@Override
+	public int getInfixScoreContextLength() {
+		int max = 0;
+		for( int i = 0; i < trees.length; i++ ) {
+			int pos = trees[i].getPosition();
+			int[] context = trees[i].getContext();
+			for( int j = 0; j < context.length; j++ ) {
+				if( context[j] > pos ) {
+					return -1;
+				}
+				max = Math.max( max, pos-context[j] );
+			}
+		}
+		return max;
+	}
 }
@@ -28,10 +28,10 @@ import de.jstacs.algorithms.graphs.MST;
 import de.jstacs.algorithms.graphs.tensor.Tensor;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
-import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.parameters.InstanceParameterSet;
+import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.SymbolCombinationCounts;
 
 /**
  * Class for structure measures that derive an optimal structure with respect to
@@ -45,6 +45,11 @@ public abstract class Measure implements Cloneable, Storable, InstantiableFromPa
 	 */
 	protected MeasureParameterSet parameters;
 	
+	/**
+	 * The maximal number of threads used for counting, not stored in the XML representation
+	 */
+	private int threads = 1;
+	
 	/**
 	 * Creates a new {@link Measure} from its XML-representation.
 	 * @param xml the XML-representation
@@ -147,6 +152,38 @@ public abstract class Measure implements Cloneable, Storable, InstantiableFromPa
 			double[] weightsFg, double[] weightsBg, int length)
 			throws Exception;
 
+	/**
+	 * This method sets the maximal number of threads that are used for counting the
+	 * symbols in the data. The default is 1. More threads may change the counts
+	 * slightly due to a different order of summation.
+	 * 
+	 * @param threads
+	 *            the maximal number of threads
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>threads &lt; 1</code>
+	 * 
+	 * @see SymbolCombinationCounts#count(DataSet, double[], double, int)
+	 */
+	public void setNumberOfThreads( int threads ) throws IllegalArgumentException {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * Returns the maximal number of threads that are used for counting the
+	 * symbols in the data.
+	 * 
+	 * @return the maximal number of threads
+	 * 
+	 * @see #setNumberOfThreads(int)
+	 */
+	public int getNumberOfThreads() {
+		return threads;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -438,6 +475,105 @@ public abstract class Measure implements Cloneable, Storable, InstantiableFromPa
 		return ear;
 	}
 
+	/**
+	 * Computes the mutual information from the counts <code>c</code> of all
+	 * triples of positions counted on sequences with a total weight of
+	 * <code>n</code>. In contrast to
+	 * {@link #getMI(double[][][][][][], double)}, only the entries for three
+	 * distinct positions are computed.
+	 * 
+	 * @param c
+	 *            the counts as returned by
+	 *            {@link #getCounts(DataSet, double[], int, double, int, int)}
+	 * @param n
+	 *            the total weight
+	 * 
+	 * @return the mutual information
+	 */
+	protected static double[][][] getMIOrderTwo(SymbolCombinationCounts c, double n) {
+		int length = c.getLength();
+		double[][][] mi = new double[length][length][length];
+		double t, v;
+		for (int i = 0; i < length; i++) {
+			for (int j = 0; j < length; j++) {
+				if (i != j) {
+					for (int k = j + 1; k < length; k++) {
+						if (i != k) {
+							for (int a = 0; a < c.getAlphabetLength(i); a++) {
+								for (int b = 0; b < c.getAlphabetLength(j); b++) {
+									for (int d = 0; d < c.getAlphabetLength(k); d++) {
+										t = c.getCount(i, a, j, b, k, d);
+										v = (t / n) * Math.log(n * t / (c.getCount(i, a) * c.getCount(j, b, k, d)));
+										mi[i][j][k] += v;
+										mi[i][k][j] += v;
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return mi;
+	}
+
+	/**
+	 * Computes the explaining away residual from the counts <code>fg</code>
+	 * and <code>bg</code> of all triples of positions counted on sequences
+	 * with a total weight of <code>nFg</code> and <code>nBg</code>,
+	 * respectively.
+	 * 
+	 * @param fg
+	 *            the counts in the foreground sequences as returned by
+	 *            {@link #getCounts(DataSet, double[], int, double, int, int)}
+	 * @param bg
+	 *            the counts in the background sequences as returned by
+	 *            {@link #getCounts(DataSet, double[], int, double, int, int)}
+	 * @param nFg
+	 *            the total weight in the foreground
+	 * @param nBg
+	 *            the total weight in the background
+	 * 
+	 * @return the explaining away residual
+	 * 
+	 * @see #getEAR(double[][][][][][], double[][][][][][], double, double)
+	 */
+	public static double[][][] getEAROrderTwo(SymbolCombinationCounts fg,
+			SymbolCombinationCounts bg, double nFg, double nBg) {
+		double pcFg = nFg / (nFg + nBg);
+		double pcBg = nBg / (nFg + nBg);
+		int length = fg.getLength();
+		double[][][] ear = new double[length][length][length];
+		double f, g, fi, gi, fjk, gjk;
+		for (int i = 0; i < length; i++) {
+			for (int j = 0; j < length; j++) {
+				if (i != j) {
+					for (int k = 0; k < length; k++) {
+						if (k != j && k != i) {
+							for (int a = 0; a < fg.getAlphabetLength(i); a++) {
+								fi = fg.getCount(i, a);
+								gi = bg.getCount(i, a);
+								for (int b = 0; b < fg.getAlphabetLength(j); b++) {
+									for (int d = 0; d < fg.getAlphabetLength(k); d++) {
+										f = fg.getCount(i, a, j, b, k, d);
+										g = bg.getCount(i, a, j, b, k, d);
+										fjk = fg.getCount(j, b, k, d);
+										gjk = bg.getCount(j, b, k, d);
+										ear[i][j][k] += pcFg * ((f / nFg) * Math.log(nFg * f / (fi * fjk)));
+										ear[i][j][k] += pcBg * ((g / nBg) * Math.log(nBg * g / (gi * gjk)));
+										ear[i][j][k] -= ((f + g) / (nFg + nBg))
+												* Math.log(((nFg + nBg) * (f + g)) / ((fi + gi) * (fjk + gjk)));
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return ear;
+	}
+
 	/**
 	 * Counts the occurrences of symbols of the {@link AlphabetContainer} of
 	 * {@link DataSet} <code>s</code> using <code>weights</code>. The array
@@ -462,82 +598,91 @@ public abstract class Measure implements Cloneable, Storable, InstantiableFromPa
 	 */
 	protected static double[][][][][][] getStatisticsOrderTwo(DataSet s,
 			double[] weights, int length, double ess) throws Exception {
-		if (s.getElementLength() != length) {
-			throw new Exception("Lengths do not match.");
-		}
-		AlphabetContainer alph = s.getAlphabetContainer();
-		double currEss = 0;
+		return getStatisticsOrderTwo(getCounts(s, weights, length, ess, 3, 1));
+	}
+
+	/**
+	 * Converts the counts of all triples of positions in <code>c</code> to an
+	 * array as returned by
+	 * {@link #getStatisticsOrderTwo(DataSet, double[], int, double)}.
+	 * 
+	 * @param c
+	 *            the counts of all triples of positions
+	 * 
+	 * @return the array with the symbol occurrences
+	 * 
+	 * @see #getCounts(DataSet, double[], int, double, int, int)
+	 */
+	protected static double[][][][][][] getStatisticsOrderTwo(SymbolCombinationCounts c) {
+		int length = c.getLength();
+		double ess = c.getEss();
 		double[][][][][][] counts = new double[length][length][length][][][];
-		for (int i = 0; i < counts.length; i++) {
-			for (int j = 0; j < counts[i].length; j++) {
-				for (int k = 0; k < counts[i][j].length; k++) {
-					counts[i][j][k] = new double[(int) alph
-							.getAlphabetLengthAt(i)][(int) alph
-							.getAlphabetLengthAt(j)][(int) alph
-							.getAlphabetLengthAt(k)];
-					currEss = ess
-							/ (alph.getAlphabetLengthAt(i)
-									* alph.getAlphabetLengthAt(j) * alph
-									.getAlphabetLengthAt(k));
-					if (i == j && i == k) {
-						currEss = ess / alph.getAlphabetLengthAt(i);
-					} else if (i == j) {
-						currEss = ess
-								/ (alph.getAlphabetLengthAt(i) * alph
-										.getAlphabetLengthAt(k));
-					} else if (i == k || j == k) {
-						currEss = ess
-								/ (alph.getAlphabetLengthAt(i) * alph
-										.getAlphabetLengthAt(j));
-					}
-					for (int l = 0; l < counts[i][j][k].length; l++) {
-						for (int m = 0; m < counts[i][j][k][l].length; m++) {
-							java.util.Arrays.fill(counts[i][j][k][l][m],
-									currEss);
+		for (int i = 0; i < length; i++) {
+			int ai = c.getAlphabetLength(i);
+			for (int j = 0; j < length; j++) {
+				int aj = c.getAlphabetLength(j);
+				for (int k = 0; k < length; k++) {
+					int ak = c.getAlphabetLength(k);
+					counts[i][j][k] = new double[ai][aj][ak];
+					for (int a = 0; a < ai; a++) {
+						for (int b = 0; b < aj; b++) {
+							for (int d = 0; d < ak; d++) {
+								double v;
+								if (i == j && i == k) {
+									v = a == b && a == d ? c.getCount(i, a) : ess / ai;
+								} else if (i == j) {
+									v = a == b ? c.getCount(i, a, k, d) : ess / (ai * ak);
+								} else if (i == k) {
+									v = a == d ? c.getCount(i, a, j, b) : ess / (ai * aj);
+								} else if (j == k) {
+									v = b == d ? c.getCount(i, a, j, b) : ess / (ai * aj);
+								} else {
+									v = c.getCount(i, a, j, b, k, d);
+								}
+								counts[i][j][k][a][b][d] = v;
+							}
 						}
 					}
 				}
 			}
 		}
+		return counts;
+	}
 
-		for (int i = 0; i < s.getNumberOfElements(); i++) {
-			Sequence seq = s.getElementAt(i);
-			double w = weights[i];
-			for (int j = 0; j < seq.getLength(); j++) {
-				counts[j][j][j][seq.discreteVal(j)][seq.discreteVal(j)][seq
-						.discreteVal(j)] += w;
-				for (int k = j + 1; k < seq.getLength(); k++) {
-					counts[j][j][k][seq.discreteVal(j)][seq.discreteVal(j)][seq
-							.discreteVal(k)] += w;
-					counts[j][k][j][seq.discreteVal(j)][seq.discreteVal(k)][seq
-							.discreteVal(j)] += w;
-					counts[k][j][j][seq.discreteVal(k)][seq.discreteVal(j)][seq
-							.discreteVal(j)] += w;
-					counts[k][k][j][seq.discreteVal(k)][seq.discreteVal(k)][seq
-							.discreteVal(j)] += w;
-					counts[k][j][k][seq.discreteVal(k)][seq.discreteVal(j)][seq
-							.discreteVal(k)] += w;
-					counts[j][k][k][seq.discreteVal(j)][seq.discreteVal(k)][seq
-							.discreteVal(k)] += w;
-					for (int l = k + 1; l < seq.getLength(); l++) {
-						counts[j][k][l][seq.discreteVal(j)][seq.discreteVal(k)][seq
-								.discreteVal(l)] += w;
-						counts[k][j][l][seq.discreteVal(k)][seq.discreteVal(j)][seq
-								.discreteVal(l)] += w;
-						counts[l][j][k][seq.discreteVal(l)][seq.discreteVal(j)][seq
-								.discreteVal(k)] += w;
-						counts[j][l][k][seq.discreteVal(j)][seq.discreteVal(l)][seq
-								.discreteVal(k)] += w;
-						counts[l][k][j][seq.discreteVal(l)][seq.discreteVal(k)][seq
-								.discreteVal(j)] += w;
-						counts[k][l][j][seq.discreteVal(k)][seq.discreteVal(l)][seq
-								.discreteVal(j)] += w;
-					}
-				}
-			}
+	/**
+	 * Counts the occurrences of symbols of the {@link AlphabetContainer} of
+	 * {@link DataSet} <code>s</code> using <code>weights</code> at all
+	 * combinations of at most <code>maxSize</code> positions in one pass over
+	 * the data using at most <code>threads</code> threads.
+	 * 
+	 * @param s
+	 *            the data
+	 * @param weights
+	 *            the weights
+	 * @param length
+	 *            the length of the sequences
+	 * @param ess
+	 *            the equivalent sample size
+	 * @param maxSize
+	 *            the maximal number of positions of a combination, i.e., 2
+	 *            for pairs and 3 for triples
+	 * @param threads
+	 *            the maximal number of threads
+	 * 
+	 * @return the counts
+	 * 
+	 * @throws Exception
+	 *             if the lengths do not match or other problems concerning the
+	 *             data occur
+	 */
+	protected static SymbolCombinationCounts getCounts(DataSet s,
+			double[] weights, int length, double ess, int maxSize, int threads) throws Exception {
+		if (s.getElementLength() != length) {
+			throw new Exception("Lengths do not match.");
 		}
-
-		return counts;
+		SymbolCombinationCounts c = new SymbolCombinationCounts(s.getAlphabetContainer(), length, maxSize);
+		c.count(s, weights, ess, threads);
+		return c;
 	}
 
 	/**
@@ -564,33 +709,38 @@ public abstract class Measure implements Cloneable, Storable, InstantiableFromPa
 	 */
 	protected static double[][][][] getStatistics(DataSet s, double[] weights,
 			int length, double ess) throws Exception {
-		if (s.getElementLength() != length) {
-			throw new Exception("Lengths do not match.");
-		}
-		AlphabetContainer alph = s.getAlphabetContainer();
-		double currEss = 0;
-		double[][][][] counts = new double[length][length][][];
-		for (int i = 0; i < counts.length; i++) {
-			for (int j = 0; j < counts[i].length; j++) {
-				counts[i][j] = new double[(int) alph.getAlphabetLengthAt(i)][(int) alph
-						.getAlphabetLengthAt(j)];
-				currEss = i == j ? ess / alph.getAlphabetLengthAt(i) : ess
-						/ (alph.getAlphabetLengthAt(i) * alph
-								.getAlphabetLengthAt(j));
-				for (int k = 0; k < counts[i][j].length; k++) {
-					java.util.Arrays.fill(counts[i][j][k], currEss);
-				}
-			}
-		}
+		return getStatistics(getCounts(s, weights, length, ess, 2, 1));
+	}
 
-		for (int i = 0; i < s.getNumberOfElements(); i++) {
-			Sequence seq = s.getElementAt(i);
-			double w = weights[i];
-			for (int j = 0; j < seq.getLength(); j++) {
-				counts[j][j][seq.discreteVal(j)][seq.discreteVal(j)] += w;
-				for (int k = j + 1; k < seq.getLength(); k++) {
-					counts[j][k][seq.discreteVal(j)][seq.discreteVal(k)] += w;
-					counts[k][j][seq.discreteVal(k)][seq.discreteVal(j)] += w;
+	/**
+	 * Converts the counts of all pairs of positions in <code>c</code> to an
+	 * array as returned by
+	 * {@link #getStatistics(DataSet, double[], int, double)}.
+	 * 
+	 * @param c
+	 *            the counts of all pairs of positions
+	 * 
+	 * @return the array with the symbol occurrences
+	 * 
+	 * @see #getCounts(DataSet, double[], int, double, int, int)
+	 */
+	protected static double[][][][] getStatistics(SymbolCombinationCounts c) {
+		int length = c.getLength();
+		double[][][][] counts = new double[length][length][][];
+		for (int i = 0; i < length; i++) {
+			int ai = c.getAlphabetLength(i);
+			for (int j = 0; j < length; j++) {
+				int aj = c.getAlphabetLength(j);
+				counts[i][j] = new double[ai][aj];
+				for (int a = 0; a < ai; a++) {
+					if (i == j) {
+						java.util.Arrays.fill(counts[i][j][a], c.getEss() / ai);
+						counts[i][j][a][a] = c.getCount(i, a);
+					} else {
+						for (int b = 0; b < aj; b++) {
+							counts[i][j][a][b] = c.getCount(i, a, j, b);
+						}
+					}
 				}
 			}
 		}
@@ -29,6 +29,7 @@ import de.jstacs.parameters.SimpleParameter;
 import de.jstacs.parameters.SimpleParameter.DatatypeNotValidException;
 import de.jstacs.parameters.validation.NumberValidator;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.structureLearning.measures.Measure;
+import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.SymbolCombinationCounts;
 
 /**
  * Class for the network structure of a
@@ -115,12 +116,12 @@ public class PMMExplainingAwayResidual extends Measure {
 		double nFg = sum(weightsFg) + ess[0];
 		double nBg = sum(weightsBg) + ess[1];
 
-		fillTensor(t, getEAR(getStatistics(fg, weightsFg, length, ess[0]),
-				getStatistics(bg, weightsBg, length, ess[1]), nFg, nBg));
+		// count pairs and, if necessary, triples in one pass
+		SymbolCombinationCounts countsFg = getCounts(fg, weightsFg, length, ess[0], order == 2 ? 3 : 2, getNumberOfThreads());
+		SymbolCombinationCounts countsBg = getCounts(bg, weightsBg, length, ess[1], order == 2 ? 3 : 2, getNumberOfThreads());
+		fillTensor(t, getEAR(getStatistics(countsFg), getStatistics(countsBg), nFg, nBg));
 		if (order == 2) {
-			fillTensor(t, getEAR(getStatisticsOrderTwo(fg, weightsFg, length,
-					ess[0]), getStatisticsOrderTwo(bg, weightsBg, length,
-					ess[1]), nFg, nBg));
+			fillTensor(t, getEAROrderTwo(countsFg, countsBg, nFg, nBg));
 		}
 		int[] o = DAG.computeMaximalHP(t);
 
@@ -31,6 +31,7 @@ import de.jstacs.parameters.SimpleParameter;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.structureLearning.measures.Measure;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.structureLearning.measures.btMeasures.BTMutualInformation;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.structureLearning.measures.btMeasures.BTMutualInformation.DataSource;
+import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.SymbolCombinationCounts;
 
 /**
  * Class for the network structure of a
@@ -133,11 +134,11 @@ public class PMMMutualInformation extends Measure {
 		}
 
 		Tensor t = new SymmetricTensor(length, order);
-		fillTensor(t, getMI(getStatistics(data, weights, length, ess2),
-				sum(weights) + ess2));
+		// count pairs and, if necessary, triples in one pass
+		SymbolCombinationCounts counts = getCounts(data, weights, length, ess2, order == 2 ? 3 : 2, getNumberOfThreads());
+		fillTensor(t, getMI(getStatistics(counts), sum(weights) + ess2));
 		if (order == 2) {
-			fillTensor(t, getMI(getStatisticsOrderTwo(data, weights, length,
-					ess2), sum(weights) + ess2));
+			fillTensor(t, getMIOrderTwo(counts, sum(weights) + ess2));
 		}
 		int[] o = DAG.computeMaximalHP(t);
 
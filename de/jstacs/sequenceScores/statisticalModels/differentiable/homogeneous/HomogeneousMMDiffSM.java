@@ -28,6 +28,7 @@ import de.jstacs.data.DataSet;
 import de.jstacs.data.alphabets.DiscreteAlphabet;
 import de.jstacs.data.sequences.ByteSequence;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
 import de.jstacs.io.ArrayHandler;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
@@ -320,6 +321,51 @@ public class HomogeneousMMDiffSM extends HomogeneousDiffSM {
 		}
 		return erg;
 	}
+	
+	/**
+	 * Computes the scores of all windows by sliding the context of full order once along the region,
+	 * which yields the terms of all positions with complete context in the window. Only the first positions of each window,
+	 * which use the start probabilities, are computed for each window. The terms are summed in the same order as in
+	 * {@link #getLogScoreFor(Sequence, int, int)}.
+	 * 
+	 * @see de.jstacs.sequenceScores.SequenceScore#getLogScoreProfile(de.jstacs.data.sequences.Sequence, int, int, int, double[], de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand)
+	 */
+	@Override
+	public void getLogScoreProfile( Sequence seq, int start, int end, int length, double[] out, Strand strand ) throws Exception {
+		if( length <= 0 || (this.length != 0 && length != this.length) ) {
+			throw new IllegalArgumentException( "The length of the windows is not possible for this model." );
+		}
+		int[] codes;
+		switch( strand ) {
+			case FORWARD: codes = seq.getDiscreteValues( start, end ); break;
+			case REVERSE: codes = seq.reverseComplement( start, end ).getDiscreteValues( 0, end-start ); break;
+			default: throw new IllegalArgumentException( "The strand has to be forward or reverse." );
+		}
+		int n = codes.length-length+1, o = Math.min( order, length ), indexOld, indexNew = 0, l, q;
+		double[] term = new double[codes.length];
+		for( int i = 0; i < codes.length; i++ ) {
+			indexOld = indexNew % powers[order];
+			indexNew = indexOld * powers[1] + codes[i];
+			if( i >= order ) {
+				term[i] = params[order][indexNew] - logNorm[order][indexOld];
+			}
+		}
+		for( int k = 0; k < n; k++ ) {
+			//the reverse complement of the window starting at start+k starts at n-1-k in the reverse complement of the region
+			q = strand == Strand.FORWARD ? k : n-1-k;
+			double erg = 0;
+			indexNew = 0;
+			for( l = 0; l < o; l++ ) {
+				indexOld = indexNew;
+				indexNew = indexOld * powers[1] + codes[q+l];
+				erg += params[l][indexNew] - logNorm[l][indexOld];
+			}
+			for( ; l < length; l++ ) {
+				erg += term[q+l];
+			}
+			out[k] = erg;
+		}
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -21,8 +21,11 @@ package de.jstacs.sequenceScores.statisticalModels.differentiable.localMixture;
 import java.text.NumberFormat;
 import java.util.Arrays;
 
+import javax.naming.OperationNotSupportedException;
+
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
+import de.jstacs.data.alphabets.ComplementableDiscreteAlphabet;
 import de.jstacs.data.alphabets.DiscreteAlphabet;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
@@ -85,6 +88,10 @@ public class LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder extends Ab
 	
 	private double[][] scoreHash;
 	
+	//the scores of each position for each context, filled on demand by fillWindowScores and reset by precompute
+	private double[][] windowTable;
+	private static final int MAX_WINDOW_TABLE = 1<<20;
+	
 	/**
 	 * The type of the prior used by the Slim model
 	 * @author Jens Keilwagen
@@ -282,6 +289,7 @@ public class LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder extends Ab
 			}
 		}
 		clearHash();
+		windowTable = null;
 	}
 
 	public LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder clone() throws CloneNotSupportedException {
@@ -316,6 +324,7 @@ public class LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder extends Ab
 		}
 		
 		clone.clearHash();
+		clone.windowTable = null;
 		return clone;
 	}
 	
@@ -1314,22 +1323,115 @@ System.out.println("revCum "+ Arrays.toString(revCum) );
 	}
 	
 	public void fillInfixScore(int[] seq, int start, int length, double[] scores) {
-		
 		for( int l = start; l < start+length; l++ ) {
-			int current = seq[l];
-			localMixtureScore[0] = componentMixtureParameters[l][0] - componentMixtureLogNorm[l] + dependencyParameters[l][0][0][current] - dependencyLogNorm[l][0][0];
-			for( int c = 1; c < componentMixtureParameters[l].length; c++ ) {
-				int k=ancestorMixtureParameters[l][c].length;
-				int an=getOffset(seq, l, c, dependencyParameters[0][0][0].length);
-				for( int m = 0; m < k; m++ ) {
-					an = next(an, seq, 0, l, c, m );
-					ancestorScore[c][m] = ancestorMixtureParameters[l][c][m] - ancestorMixtureLogNorm[l][c] + dependencyParameters[l][c][an][current] - dependencyLogNorm[l][c][an]; 
+			scores[l] = getPositionScore( seq, l );
+		}
+	}
+	
+	/**
+	 * Returns the score of position <code>l</code> of the model for the symbol <code>seq[l]</code> given the preceding symbols in <code>seq</code>.
+	 */
+	private double getPositionScore( int[] seq, int l ) {
+		int current = seq[l];
+		localMixtureScore[0] = componentMixtureParameters[l][0] - componentMixtureLogNorm[l] + dependencyParameters[l][0][0][current] - dependencyLogNorm[l][0][0];
+		for( int c = 1; c < componentMixtureParameters[l].length; c++ ) {
+			int k=ancestorMixtureParameters[l][c].length;
+			int an=getOffset(seq, l, c, dependencyParameters[0][0][0].length);
+			for( int m = 0; m < k; m++ ) {
+				an = next(an, seq, 0, l, c, m );
+				ancestorScore[c][m] = ancestorMixtureParameters[l][c][m] - ancestorMixtureLogNorm[l][c] + dependencyParameters[l][c][an][current] - dependencyLogNorm[l][c][an]; 
+			}
+			localMixtureScore[c] = componentMixtureParameters[l][c] - componentMixtureLogNorm[l] + Normalisation.getLogSum(0, k, ancestorScore[c]);
+		}
+		return Normalisation.getLogSum(0, componentMixtureParameters[l].length, localMixtureScore );
+	}
+	
+	/**
+	 * Computes the scores of all windows on both strands. The score of each position depends only on a limited number of preceding positions,
+	 * so the scores of each position are stored for each context when the context occurs for the first time, and each window is
+	 * scored by looking up the scores of its positions. If the table of all contexts would be too large, the default implementation is used.
+	 * 
+	 * @see QuickScanningSequenceScore#fillWindowScores(int[], int, int, double[], double[])
+	 */
+	@Override
+	public void fillWindowScores(int[] seq, int start, int end, double[] fwd, double[] rc) throws OperationNotSupportedException {
+		if( windowTable == null ) {
+			windowTable = createWindowTable();
+		}
+		if( windowTable.length == 0 ) {
+			QuickScanningSequenceScore.super.fillWindowScores( seq, start, end, fwd, rc );
+			return;
+		}
+		DiscreteAlphabet al = (DiscreteAlphabet) alphabets.getAlphabetAt( 0 );
+		int a = (int) al.length();
+		int[] comp = null;
+		if( rc != null ) {
+			if( !(al instanceof ComplementableDiscreteAlphabet) ) {
+				throw new OperationNotSupportedException( "The alphabet is not complementable." );
+			}
+			comp = new int[a];
+			for( int b = 0; b < a; b++ ) {
+				comp[b] = ((ComplementableDiscreteAlphabet) al).getComplementaryCode( b );
+			}
+		}
+		int[] window = new int[length];
+		for( int p = start; p+length <= end; p++ ) {
+			System.arraycopy( seq, p, window, 0, length );
+			fwd[p-start] = getWindowScore( window, a );
+			if( rc != null ) {
+				for( int i = 0; i < length; i++ ) {
+					window[i] = comp[seq[p+length-1-i]];
 				}
-				localMixtureScore[c] = componentMixtureParameters[l][c] - componentMixtureLogNorm[l] + Normalisation.getLogSum(0, k, ancestorScore[c]);
+				rc[p-start] = getWindowScore( window, a );
 			}
-			scores[l] = Normalisation.getLogSum(0, componentMixtureParameters[l].length, localMixtureScore );
 		}
-		
+	}
+	
+	/**
+	 * Creates the table of the scores of each position for each context of preceding positions the model may depend on,
+	 * or an empty array if the table would have more than {@link #MAX_WINDOW_TABLE} entries.
+	 */
+	private double[][] createWindowTable() {
+		int a = (int) alphabets.getAlphabetLengthAt( 0 );
+		int back = 0;
+		for( int l = 0; l < length; l++ ) {
+			for( int c = 1; c < ancestorMixtureParameters[l].length; c++ ) {
+				back = Math.max( back, c + ancestorMixtureParameters[l][c].length - 1 );
+			}
+		}
+		double[][] table = new double[length][];
+		long size = 0;
+		for( int l = 0; l < length; l++ ) {
+			long dim = 1;
+			for( int i = Math.min( l, back ); i >= 0 && dim <= MAX_WINDOW_TABLE; i-- ) {
+				dim *= a;
+			}
+			size += dim;
+			if( size > MAX_WINDOW_TABLE ) {
+				return new double[0][];
+			}
+			table[l] = new double[(int) dim];
+			Arrays.fill( table[l], Double.NaN );
+		}
+		return table;
+	}
+	
+	/**
+	 * Returns the score of <code>window</code>, which is the sum of the scores of its positions in the same order as in {@link de.jstacs.utils.ToolBox#sum(double...)}.
+	 */
+	private double getWindowScore( int[] window, int a ) {
+		double score = 0;
+		int idx = 0;
+		for( int l = 0; l < length; l++ ) {
+			//the context of position l consists of the last log_a(windowTable[l].length) symbols
+			idx = (idx*a + window[l]) % windowTable[l].length;
+			double s = windowTable[l][idx];
+			if( Double.isNaN( s ) ) {
+				s = windowTable[l][idx] = getPositionScore( window, l );
+			}
+			score += s;
+		}
+		return score;
 	}
 	
 }
\ No newline at end of file
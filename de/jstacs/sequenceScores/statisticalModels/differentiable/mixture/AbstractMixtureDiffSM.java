@@ -18,12 +18,16 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable.mixture;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 
 import de.jstacs.data.DataSet;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.AbstractDifferentiableStatisticalModel;
@@ -51,7 +55,7 @@ import de.jtem.numericalMethods.calculus.specialFunctions.Gamma;
  * 
  * @author Jens Keilwagen
  */
-public abstract class AbstractMixtureDiffSM extends AbstractDifferentiableStatisticalModel implements SamplingDifferentiableStatisticalModel {
+public abstract class AbstractMixtureDiffSM extends AbstractDifferentiableStatisticalModel implements SamplingDifferentiableStatisticalModel, BinaryStorable {
 
 	private int starts;
 
@@ -234,6 +238,22 @@ public abstract class AbstractMixtureDiffSM extends AbstractDifferentiableStatis
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link AbstractMixtureDiffSM} out of its binary
+	 * representation as written by {@link #write(BinaryStorableWriter)}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the representation could not be parsed
+	 */
+	protected AbstractMixtureDiffSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -696,11 +716,49 @@ public abstract class AbstractMixtureDiffSM extends AbstractDifferentiableStatis
 		optimizeHidden = XMLParser.extractObjectForTags( xml, "optimizeHidden", boolean.class );
 		plugIn = XMLParser.extractObjectForTags( xml, "plugIn", boolean.class );
 		hiddenParameter = XMLParser.extractObjectForTags( xml, "hiddenParameter", double[].class );
+		createHiddenArrays();
+		extractFurtherInformation( xml );
+		initParsed();
+	}
+
+	public void write( BinaryStorableWriter out ) throws IOException {
+		out.writeInt( length );
+		out.writeInt( starts );
+		out.writeBoolean( freeParams );
+		out.writeObject( function );
+		out.writeBoolean( optimizeHidden );
+		out.writeBoolean( plugIn );
+		out.writeObject( hiddenParameter );
+		writeFurtherInformation( out );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see de.jstacs.sequenceScores.differentiable.AbstractDifferentiableSequenceScore#fromBinary(de.jstacs.io.BinaryStorableReader)
+	 */
+	@Override
+	protected final void fromBinary( BinaryStorableReader in ) throws IOException, NonParsableException {
+		length = in.readInt();
+		starts = in.readInt();
+		freeParams = in.readBoolean();
+		function = in.readObject( DifferentiableStatisticalModel[].class );
+		alphabets = function[0].getAlphabetContainer();
+		optimizeHidden = in.readBoolean();
+		plugIn = in.readBoolean();
+		hiddenParameter = in.readObject( double[].class );
+		createHiddenArrays();
+		readFurtherInformation( in );
+		initParsed();
+	}
+
+	private void createHiddenArrays() {
 		hiddenPotential = new double[hiddenParameter.length];
 		logHiddenPotential = new double[hiddenParameter.length];
 		partNorm = new double[hiddenParameter.length];
 		componentScore = new double[hiddenParameter.length];
-		extractFurtherInformation( xml );
+	}
+
+	private void initParsed() {
 		isNormalized = determineIsNormalized();
 		setHiddenParameters( hiddenParameter, 0 );
 		norm = Double.NaN;
@@ -736,6 +794,42 @@ public abstract class AbstractMixtureDiffSM extends AbstractDifferentiableStatis
 	 */
 	protected void extractFurtherInformation( StringBuffer xml ) throws NonParsableException {}
 
+	/**
+	 * This method is used to write further information of the instance to the
+	 * binary representation. The default implementation writes the XML
+	 * representation returned by {@link #getFurtherInformation()}.
+	 * 
+	 * @param out
+	 *            the writer
+	 * 
+	 * @throws IOException
+	 *             if the information could not be written
+	 * 
+	 * @see AbstractMixtureDiffSM#readFurtherInformation(BinaryStorableReader)
+	 */
+	protected void writeFurtherInformation( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( getFurtherInformation().toString() );
+	}
+
+	/**
+	 * This method is the opposite of
+	 * {@link #writeFurtherInformation(BinaryStorableWriter)}. The default
+	 * implementation uses {@link #extractFurtherInformation(StringBuffer)}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the information could not be read
+	 * @throws NonParsableException
+	 *             if the information could not be parsed
+	 * 
+	 * @see AbstractMixtureDiffSM#writeFurtherInformation(BinaryStorableWriter)
+	 */
+	protected void readFurtherInformation( BinaryStorableReader in ) throws IOException, NonParsableException {
+		extractFurtherInformation( new StringBuffer( in.readObject( String.class ) ) );
+	}
+
 	/**
 	 * This array is used to compute the relative indices of a parameter index.
 	 * 
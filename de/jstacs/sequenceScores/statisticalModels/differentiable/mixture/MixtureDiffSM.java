@@ -18,6 +18,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable.mixture;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 
@@ -27,6 +28,7 @@ import de.jstacs.NotTrainedException;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.motifDiscovery.MotifDiscoverer;
 import de.jstacs.motifDiscovery.MutableMotifDiscoverer;
@@ -105,6 +107,24 @@ public class MixtureDiffSM extends AbstractMixtureDiffSM implements MutableMotif
 		super( xml );
 		init();
 	}
+
+	/**
+	 * Creates a new {@link MixtureDiffSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the representation could not be parsed
+	 * 
+	 * @see AbstractMixtureDiffSM#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public MixtureDiffSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		init();
+	}
 	
 	public MixtureDiffSM clone() throws CloneNotSupportedException {
 		MixtureDiffSM clone = (MixtureDiffSM) super.clone();
@@ -18,6 +18,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable.mixture;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 
@@ -26,6 +27,7 @@ import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.alphabets.ComplementableDiscreteAlphabet;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.motifDiscovery.Mutable;
@@ -171,6 +173,24 @@ public class StrandDiffSM extends AbstractMixtureDiffSM implements Mutable
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link StrandDiffSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the representation could not be parsed
+	 * 
+	 * @see AbstractMixtureDiffSM#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public StrandDiffSM( BinaryStorableReader in ) throws IOException, NonParsableException
+	{
+		super( in );
+	}
+
 	protected double getLogNormalizationConstantForComponent( int i )
 	{
 		return function[0].getLogNormalizationConstant();
@@ -370,6 +390,33 @@ public class StrandDiffSM extends AbstractMixtureDiffSM implements Mutable
 		}
 	}
 
+	/**
+	 * This method computes the component scores of all windows that start at a position <code>p</code> with
+	 * <code>start &lt;= p &lt;= end-{@link #getLength()}</code>, i.e., <code>fwd[p-start]</code> and <code>rc[p-start]</code> contain
+	 * the same values as the entries of {@link #getComponentScores(Sequence, int)} for <code>p</code>.
+	 * 
+	 * @param seq the sequence
+	 * @param start the start position of the region (inclusive)
+	 * @param end the end position of the region (exclusive)
+	 * @param fwd the array for the scores of the forward strand
+	 * @param rc the array for the scores of the reverse complementary strand
+	 * 
+	 * @throws Exception if the scores could not be computed, e.g., if this instance has no fixed length
+	 * 
+	 * @see de.jstacs.sequenceScores.SequenceScore#getLogScoreProfile(Sequence, int, int, double[], Strand)
+	 */
+	public void getComponentScoreProfiles( Sequence seq, int start, int end, double[] fwd, double[] rc ) throws Exception {
+		if( length == 0 ) {
+			throw new Exception( "strand scoring for variable length function" );
+		}
+		function[0].getLogScoreProfile( seq, start, end, length, fwd, Strand.FORWARD );
+		function[0].getLogScoreProfile( seq, start, end, length, rc, Strand.REVERSE );
+		for( int p = 0; p+length <= end-start; p++ ) {
+			fwd[p] = logHiddenPotential[0] + fwd[p];
+			rc[p] = logHiddenPotential[1] + rc[p];
+		}
+	}
+
 	public double getLogScoreAndPartialDerivation( Sequence seq, int start, IntList indices, DoubleList partialDer )
 	{
 		iList[0].clear();
@@ -19,7 +19,10 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable.mixture;
 
+import java.io.IOException;
+
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.sequenceScores.statisticalModels.differentiable.VariableLengthDiffSM;
 import de.jstacs.utils.DoubleList;
@@ -67,6 +70,23 @@ public class VariableLengthMixtureDiffSM extends MixtureDiffSM implements Variab
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link VariableLengthMixtureDiffSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the representation could not be parsed
+	 * 
+	 * @see AbstractMixtureDiffSM#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public VariableLengthMixtureDiffSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see de.jstacs.sequenceScores.statisticalModels.differentiable.AbstractDifferentiableSequenceScore#getLogScoreFor(int, de.jstacs.data.Sequence, int)
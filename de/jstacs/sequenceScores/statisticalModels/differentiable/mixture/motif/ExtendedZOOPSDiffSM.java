@@ -18,6 +18,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.differentiable.mixture.motif;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 
@@ -26,6 +27,7 @@ import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.alphabets.DiscreteAlphabet;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.motifDiscovery.Mutable;
@@ -204,6 +206,25 @@ public class ExtendedZOOPSDiffSM extends AbstractMixtureDiffSM implements Mutabl
 		initObject();
 	}
 
+	/**
+	 * Creates a new {@link ExtendedZOOPSDiffSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the representation could not be parsed
+	 * 
+	 * @see AbstractMixtureDiffSM#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public ExtendedZOOPSDiffSM( BinaryStorableReader in ) throws IOException, NonParsableException
+	{
+		super( in );
+		initObject();
+	}
+
 	private void initObject()
 	{
 		bgIndex = function.length - 1;
@@ -19,6 +19,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Locale;
 
@@ -28,6 +29,7 @@ import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.DataSet.ElementEnumerator;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.results.Result;
 import de.jstacs.results.ResultSet;
@@ -104,6 +106,31 @@ public abstract class AbstractTrainableStatisticalModel implements Cloneable, St
 		alphabets = null;
 		length = -1;
 		fromXML(stringBuff);
+		checkParsed();
+	}
+
+	/**
+	 * Creates a new {@link AbstractTrainableStatisticalModel} out of its binary
+	 * representation (cf. {@link de.jstacs.io.BinaryStorable}).
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation could not be parsed
+	 * 
+	 * @see #fromBinary(BinaryStorableReader)
+	 */
+	protected AbstractTrainableStatisticalModel(BinaryStorableReader in) throws IOException, NonParsableException {
+		alphabets = null;
+		length = -1;
+		fromBinary(in);
+		checkParsed();
+	}
+
+	private void checkParsed() throws NonParsableException {
 		if (alphabets == null) {
 			throw new NonParsableException(
 					"The alphabets were not set correctly.");
@@ -320,6 +347,27 @@ public abstract class AbstractTrainableStatisticalModel implements Cloneable, St
 	 */
 	protected abstract void fromXML(StringBuffer xml) throws NonParsableException;
 
+	/**
+	 * This method should only be used by the constructor that works on a
+	 * {@link BinaryStorableReader}. It is the counter part of
+	 * {@link de.jstacs.io.BinaryStorable#write(de.jstacs.io.BinaryStorableWriter)}
+	 * for subclasses implementing {@link de.jstacs.io.BinaryStorable}. The
+	 * default implementation throws a {@link NonParsableException}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation could not be parsed
+	 * 
+	 * @see AbstractTrainableStatisticalModel#AbstractTrainableStatisticalModel(BinaryStorableReader)
+	 */
+	protected void fromBinary(BinaryStorableReader in) throws IOException, NonParsableException {
+		throw new NonParsableException(getClass().getName() + " has no binary representation.");
+	}
+
 	/**
 	 * Simple method to obtain a String representation with a certain number of maximal fraction digits.
 	 * 
@@ -18,7 +18,9 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable;
 
+import java.io.IOException;
 import java.text.NumberFormat;
+import java.util.Arrays;
 
 import javax.naming.OperationNotSupportedException;
 
@@ -26,8 +28,14 @@ import de.jstacs.clustering.hierachical.PWMSupplier;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.DiscreteSequenceEnumerator;
+import de.jstacs.data.alphabets.ComplementableDiscreteAlphabet;
+import de.jstacs.data.alphabets.DiscreteAlphabet;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.NumericalResultSet;
@@ -42,7 +50,7 @@ import de.jstacs.utils.ToolBox;
  * @author Jan Grau
  *
  */
-public class PFMWrapperTrainSM extends AbstractTrainableStatisticalModel implements PWMSupplier, QuickScanningSequenceScore {
+public class PFMWrapperTrainSM extends AbstractTrainableStatisticalModel implements PWMSupplier, QuickScanningSequenceScore, BinaryStorable {
 
 	private double[][] logPWM;
 	private double[][] pfm;
@@ -97,6 +105,24 @@ public class PFMWrapperTrainSM extends AbstractTrainableStatisticalModel impleme
 	public PFMWrapperTrainSM( StringBuffer stringBuff ) throws NonParsableException {
 		super( stringBuff );
 	}
+	
+	/**
+	 * Creates a wrapper from its binary representation
+	 * @param in the reader
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException if the binary representation could not be parsed
+	 * @see #write(BinaryStorableWriter)
+	 */
+	public PFMWrapperTrainSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		this( in.readObject( AlphabetContainer.class ), in.readObject( double[][].class ), in.readObject( double[][].class ), in.readObject( String.class ) );
+	}
+	
+	private PFMWrapperTrainSM( AlphabetContainer alphabets, double[][] logPWM, double[][] pfm, String name ) {
+		super( alphabets, logPWM.length );
+		this.logPWM = logPWM;
+		this.pfm = pfm;
+		this.name = name;
+	}
 
 	@Override
 	public StringBuffer toXML() {
@@ -109,6 +135,14 @@ public class PFMWrapperTrainSM extends AbstractTrainableStatisticalModel impleme
 		return sb;
 	}
 
+	@Override
+	public void write( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( alphabets );
+		out.writeObject( logPWM );
+		out.writeObject( pfm );
+		out.writeObject( name );
+	}
+
 	@Override
 	public void train( DataSet data, double[] weights ) throws Exception {
 		
@@ -205,6 +239,92 @@ public class PFMWrapperTrainSM extends AbstractTrainableStatisticalModel impleme
 		
 	}
 
+	@Override
+	public int getInfixScoreContextLength() {
+		return 0;
+	}
+
+	/**
+	 * Computes the scores of all windows on the discrete values of the region using a flattened PWM, where the windows are processed in blocks
+	 * and the inner loop runs over consecutive windows for a fixed PWM position. For the reverse strand, the complement is folded into the PWM.
+	 */
+	@Override
+	public void getLogScoreProfile( Sequence seq, int start, int end, int length, double[] out, Strand strand ) throws Exception {
+		if( length != logPWM.length ) {
+			throw new IllegalArgumentException( "The length of the windows has to be " + logPWM.length + "." );
+		}
+		if( strand != Strand.FORWARD && strand != Strand.REVERSE ) {
+			throw new IllegalArgumentException( "The strand has to be forward or reverse." );
+		}
+		int[] codes = seq.getDiscreteValues( start, end );
+		fillProfile( codes, 0, end-start-length+1, out, strand == Strand.REVERSE );
+	}
+	
+	/**
+	 * Computes the scores of all windows of both strands using the same kernel as {@link #getLogScoreProfile(Sequence, int, int, int, double[], Strand)}.
+	 */
+	@Override
+	public void fillWindowScores( int[] seq, int start, int end, double[] fwd, double[] rc ) throws OperationNotSupportedException {
+		int n = end-start-logPWM.length+1;
+		fillProfile( seq, start, n, fwd, false );
+		if( rc != null ) {
+			fillProfile( seq, start, n, rc, true );
+		}
+	}
+	
+	/**
+	 * Fills the scores of the <code>n</code> windows starting at <code>start</code> into <code>out</code>.
+	 */
+	private void fillProfile( int[] seq, int start, int n, double[] out, boolean rc ) throws OperationNotSupportedException {
+		double[] flat = getFlatPWM( rc ? getComplementaryCodes() : null );
+		for(int b=0;b<n;b+=BLOCK){
+			fillBlock( seq, start+b, flat, logPWM[0].length, logPWM.length, out, b, Math.min( n, b+BLOCK ), rc );
+		}
+	}
+	
+	/**
+	 * Returns the position-major PWM, where the symbols are replaced by their complements if <code>comp</code> is not <code>null</code>.
+	 */
+	private double[] getFlatPWM( int[] comp ) {
+		int l = logPWM.length, a = logPWM[0].length;
+		double[] flat = new double[l*a];
+		for(int i=0;i<l;i++){
+			for(int j=0;j<a;j++){
+				flat[i*a+j] = logPWM[i][comp == null ? j : comp[j]];
+			}
+		}
+		return flat;
+	}
+	
+	/**
+	 * Returns the complementary codes of the symbols of the alphabet indexed by the codes of the symbols.
+	 */
+	private int[] getComplementaryCodes() throws OperationNotSupportedException {
+		DiscreteAlphabet al = (DiscreteAlphabet) getAlphabetContainer().getAlphabetAt( 0 );
+		if( !(al instanceof ComplementableDiscreteAlphabet) ) {
+			throw new OperationNotSupportedException( "The alphabet is not complementable." );
+		}
+		int[] comp = new int[(int) al.length()];
+		for(int a=0;a<comp.length;a++){
+			comp[a] = ((ComplementableDiscreteAlphabet) al).getComplementaryCode( a );
+		}
+		return comp;
+	}
+	
+	private static final int BLOCK = 2048;
+	
+	private static void fillBlock(int[] seq, int p, double[] flat, int a, int l, double[] res, int from, int to, boolean rc){
+		Arrays.fill( res, from, to, 0 );
+		for(int i=0;i<l;i++){
+			int base = i*a;
+			//position of the symbol for the window starting at p
+			int s = (rc ? p+l-1-i : p+i) - from;
+			for(int k=from;k<to;k++){
+				res[k] += flat[base+seq[s+k]];
+			}
+		}
+	}
+
 	@Override
 	public boolean[][] getInfixFilter(int kmer, double thresh, int... start) {
 		
@@ -0,0 +1,418 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.sequenceScores.statisticalModels.trainable.discrete;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.jstacs.data.AlphabetContainer;
+import de.jstacs.data.DataSet;
+import de.jstacs.data.WrongAlphabetException;
+import de.jstacs.data.sequences.Sequence;
+
+/**
+ * This class counts the (weighted) occurrences of symbols at single positions, pairs of positions and triples of positions
+ * of a {@link DataSet} with sequences of fixed length in one pass over the data.
+ *
+ * <p>
+ * The counts are stored in one flat array that contains each unordered combination of at most {@link #getMaximalSize()} positions exactly once.
+ * All these combinations are allocated, i.e., for sequences of length <code>L</code> over an alphabet of size <code>A</code>
+ * the array has about <code>(L*A)^3/6</code> entries if triples of positions are counted.
+ * If several threads are used, the sequences are partitioned into contiguous blocks that are counted in thread-specific buffers,
+ * which are added in a fixed order afterwards. Using one thread, the counts are identical to a sequential pass.
+ * </p>
+ *
+ * @author Jens Keilwagen, Jan Grau
+ *
+ * @see ConstraintManager#countInhomogeneous(AlphabetContainer, int, DataSet, double[], boolean, Constraint...)
+ */
+public class SymbolCombinationCounts {
+
+	/**
+	 * The minimal number of sequences that is counted by each thread.
+	 */
+	public static final int MIN_SEQUENCES_PER_THREAD = 500;
+
+	private AlphabetContainer con;
+	private int length, maxSize;
+	private int[] alphabetLength, prefix, pairStart, remaining;
+	private int[][] tripleStart;
+	private double[] counts;
+	private double ess;
+
+	/**
+	 * Creates a new instance for sequences of length <code>length</code> that counts all combinations of
+	 * at most <code>maxSize</code> positions.
+	 *
+	 * @param con the {@link AlphabetContainer} of the sequences, has to be discrete
+	 * @param length the length of the sequences
+	 * @param maxSize the maximal number of positions of a combination (1, 2 or 3)
+	 *
+	 * @throws IllegalArgumentException if the {@link AlphabetContainer} is not discrete, the length does not fit to the {@link AlphabetContainer},
+	 *         <code>maxSize</code> is not supported, or the counts do not fit into one array
+	 */
+	public SymbolCombinationCounts( AlphabetContainer con, int length, int maxSize ) throws IllegalArgumentException {
+		if( !con.isDiscrete() ) {
+			throw new IllegalArgumentException( "The AlphabetContainer has to be discrete." );
+		}
+		if( con.getPossibleLength() != 0 && con.getPossibleLength() != length ) {
+			throw new IllegalArgumentException( "The length and the AlphabetContainer does not match." );
+		}
+		if( maxSize < 1 || maxSize > 3 ) {
+			throw new IllegalArgumentException( "Only combinations of one to three positions are supported." );
+		}
+		this.con = con;
+		this.length = length;
+		this.maxSize = maxSize;
+		alphabetLength = new int[length];
+		prefix = new int[length+1];
+		remaining = new int[length];
+		for( int i = 0; i < length; i++ ) {
+			alphabetLength[i] = (int) con.getAlphabetLengthAt( i );
+			prefix[i+1] = prefix[i] + alphabetLength[i];
+		}
+		for( int i = 0; i < length; i++ ) {
+			//the number of symbols right of position i
+			remaining[i] = prefix[length] - prefix[i+1];
+		}
+		long size = prefix[length];
+		if( maxSize > 1 ) {
+			pairStart = new int[length];
+			for( int i = 0; i < length; i++ ) {
+				pairStart[i] = (int) size;
+				size += (long) alphabetLength[i] * remaining[i];
+				check( size );
+			}
+		}
+		if( maxSize > 2 ) {
+			tripleStart = new int[length][length];
+			for( int i = 0; i < length; i++ ) {
+				for( int j = i+1; j < length; j++ ) {
+					tripleStart[i][j] = (int) size;
+					size += (long) alphabetLength[i] * alphabetLength[j] * remaining[j];
+					check( size );
+				}
+			}
+		}
+		counts = new double[(int) size];
+	}
+
+	private static void check( long size ) {
+		if( size > Integer.MAX_VALUE ) {
+			throw new IllegalArgumentException( "Too many combinations of positions." );
+		}
+	}
+
+	/**
+	 * Returns the number of entries of the internal array, which can be used to estimate the memory of the counts.
+	 *
+	 * @return the number of entries
+	 */
+	public int getNumberOfEntries() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the length of the sequences.
+	 *
+	 * @return the length of the sequences
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the size of the alphabet at position <code>i</code>.
+	 *
+	 * @param i the position
+	 *
+	 * @return the size of the alphabet at position <code>i</code>
+	 */
+	public int getAlphabetLength( int i ) {
+		return alphabetLength[i];
+	}
+
+	/**
+	 * Returns the maximal number of positions of a combination.
+	 *
+	 * @return the maximal number of positions of a combination
+	 */
+	public int getMaximalSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the equivalent sample size used in the last call of {@link #count(DataSet, double[], double, int)}.
+	 *
+	 * @return the equivalent sample size
+	 */
+	public double getEss() {
+		return ess;
+	}
+
+	/**
+	 * Counts the symbols of the data. All previous counts are discarded.
+	 * Each combination of positions <code>p</code> starts with a pseudocount of <code>ess</code> divided by
+	 * the number of possible symbol combinations at <code>p</code>.
+	 *
+	 * @param data the data
+	 * @param weights the (non-negative) weights of the sequences, can be <code>null</code> which is the same as weight 1 for all sequences
+	 * @param ess the equivalent sample size
+	 * @param threads the maximal number of threads
+	 *
+	 * @return the sum of the weights
+	 *
+	 * @throws WrongAlphabetException if the {@link AlphabetContainer} of the data is not suitable
+	 * @throws IllegalArgumentException if the length of the sequences or the weights are not suitable
+	 */
+	public double count( final DataSet data, final double[] weights, double ess, int threads ) throws WrongAlphabetException, IllegalArgumentException {
+		final int d = data.getNumberOfElements();
+		if( weights != null && d != weights.length ) {
+			throw new IllegalArgumentException( "The weights are not suitable for the data (wrong dimension)." );
+		}
+		if( !con.checkConsistency( data.getAlphabetContainer() ) ) {
+			throw new WrongAlphabetException( "The alphabets of the model and the DataSet are not suitable." );
+		}
+		if( data.getElementLength() != length ) {
+			throw new IllegalArgumentException( "The sequence length and the DataSet are not suitable." );
+		}
+		double all = 0;
+		if( weights == null ) {
+			all = d;
+		} else {
+			for( int n = 0; n < d; n++ ) {
+				if( weights[n] < 0 ) {
+					throw new IllegalArgumentException( "All weights have to be non-negative. Violated in position " + n + "." );
+				}
+				all += weights[n];
+			}
+		}
+
+		this.ess = ess;
+		fillPseudoCounts();
+
+		//each thread needs its own buffer
+		long free = Runtime.getRuntime().maxMemory() - (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+		threads = (int) Math.max( 1, Math.min( Math.min( threads, d / MIN_SEQUENCES_PER_THREAD ), 1 + free / 2 / (8L*Math.max( 1, counts.length )) ) );
+		if( threads == 1 ) {
+			count( data, weights, 0, d, counts );
+		} else {
+			final double[][] buffer = new double[threads][];
+			buffer[0] = counts;
+			ExecutorService pool = Executors.newFixedThreadPool( threads );
+			try {
+				Future<?>[] futures = new Future<?>[threads];
+				for( int t = 0; t < threads; t++ ) {
+					final int th = t, start = (int)( (long) d * t / threads ), end = (int)( (long) d * (t+1) / threads );
+					futures[t] = pool.submit( new Runnable() {
+						public void run() {
+							if( buffer[th] == null ) {
+								buffer[th] = new double[counts.length];
+							}
+							count( data, weights, start, end, buffer[th] );
+						}
+					} );
+				}
+				for( int t = 0; t < threads; t++ ) {
+					try {
+						futures[t].get();
+					} catch( ExecutionException e ) {
+						if( e.getCause() instanceof RuntimeException ) {
+							throw (RuntimeException) e.getCause();
+						} else if( e.getCause() instanceof Error ) {
+							throw (Error) e.getCause();
+						}
+						throw new RuntimeException( e.getCause() );
+					} catch( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+						throw new RuntimeException( e );
+					}
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+			//reduce in a fixed order
+			for( int t = 1; t < threads; t++ ) {
+				for( int i = 0; i < counts.length; i++ ) {
+					counts[i] += buffer[t][i];
+				}
+				buffer[t] = null;
+			}
+		}
+		return all;
+	}
+
+	private void fillPseudoCounts() {
+		for( int i = 0; i < length; i++ ) {
+			Arrays.fill( counts, prefix[i], prefix[i+1], ess / alphabetLength[i] );
+			if( maxSize > 1 ) {
+				for( int j = i+1; j < length; j++ ) {
+					double pc = ess / (alphabetLength[i] * alphabetLength[j]);
+					for( int a = 0; a < alphabetLength[i]; a++ ) {
+						int off = pairStart[i] + a*remaining[i] - prefix[i+1] + prefix[j];
+						Arrays.fill( counts, off, off + alphabetLength[j], pc );
+					}
+					if( maxSize > 2 ) {
+						for( int k = j+1; k < length; k++ ) {
+							pc = ess / (alphabetLength[i] * alphabetLength[j] * alphabetLength[k]);
+							for( int ab = 0; ab < alphabetLength[i]*alphabetLength[j]; ab++ ) {
+								int off = tripleStart[i][j] + ab*remaining[j] - prefix[j+1] + prefix[k];
+								Arrays.fill( counts, off, off + alphabetLength[k], pc );
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void count( DataSet data, double[] weights, int start, int end, double[] c ) {
+		//q[i] is the index of the symbol at position i in the single position counts
+		int[] q = new int[length];
+		int i, j, k, base;
+		for( int n = start; n < end; n++ ) {
+			double w = weights == null ? 1 : weights[n];
+			if( w == 0 ) {
+				continue;
+			}
+			Sequence seq = data.getElementAt( n );
+			for( i = 0; i < length; i++ ) {
+				q[i] = prefix[i] + seq.discreteVal( i );
+			}
+			for( i = 0; i < length; i++ ) {
+				c[q[i]] += w;
+				if( maxSize > 1 ) {
+					base = pairStart[i] + (q[i]-prefix[i])*remaining[i] - prefix[i+1];
+					for( j = i+1; j < length; j++ ) {
+						c[base + q[j]] += w;
+					}
+					if( maxSize > 2 ) {
+						for( j = i+1; j < length; j++ ) {
+							base = tripleStart[i][j] + ((q[i]-prefix[i])*alphabetLength[j] + q[j]-prefix[j])*remaining[j] - prefix[j+1];
+							for( k = j+1; k < length; k++ ) {
+								c[base + q[k]] += w;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the count of symbol <code>a</code> at position <code>i</code>.
+	 *
+	 * @param i the position
+	 * @param a the symbol
+	 *
+	 * @return the count
+	 */
+	public double getCount( int i, int a ) {
+		return counts[prefix[i] + a];
+	}
+
+	/**
+	 * Returns the count of symbol <code>a</code> at position <code>i</code> and symbol <code>b</code> at position <code>j</code>.
+	 *
+	 * @param i the first position
+	 * @param a the symbol at the first position
+	 * @param j the second position, different from <code>i</code>
+	 * @param b the symbol at the second position
+	 *
+	 * @return the count
+	 */
+	public double getCount( int i, int a, int j, int b ) {
+		if( i > j ) {
+			return counts[pairStart[j] + a - prefix[j+1] + prefix[i] + b*remaining[j]];
+		} else {
+			return counts[pairStart[i] + a*remaining[i] - prefix[i+1] + prefix[j] + b];
+		}
+	}
+
+	/**
+	 * Returns the count of symbol <code>a</code> at position <code>i</code>, symbol <code>b</code> at position <code>j</code>,
+	 * and symbol <code>c</code> at position <code>k</code>.
+	 *
+	 * @param i the first position
+	 * @param a the symbol at the first position
+	 * @param j the second position
+	 * @param b the symbol at the second position
+	 * @param k the third position
+	 * @param c the symbol at the third position
+	 *
+	 * @return the count
+	 */
+	public double getCount( int i, int a, int j, int b, int k, int c ) {
+		int h;
+		//sort positions
+		if( i > j ) {
+			h = i; i = j; j = h;
+			h = a; a = b; b = h;
+		}
+		if( j > k ) {
+			h = j; j = k; k = h;
+			h = b; b = c; c = h;
+			if( i > j ) {
+				h = i; i = j; j = h;
+				h = a; a = b; b = h;
+			}
+		}
+		return counts[tripleStart[i][j] + (a*alphabetLength[j] + b)*remaining[j] - prefix[j+1] + prefix[k] + c];
+	}
+
+	/**
+	 * Returns the count of the symbols <code>symbol</code> at the distinct positions <code>pos</code>.
+	 *
+	 * @param pos the positions
+	 * @param symbol the symbols at the positions
+	 *
+	 * @return the count
+	 */
+	public double getCount( int[] pos, int[] symbol ) {
+		switch( pos.length ) {
+			case 1: return getCount( pos[0], symbol[0] );
+			case 2: return getCount( pos[0], symbol[0], pos[1], symbol[1] );
+			case 3: return getCount( pos[0], symbol[0], pos[1], symbol[1], pos[2], symbol[2] );
+			default: throw new IllegalArgumentException( "Only combinations of one to three positions are supported." );
+		}
+	}
+
+	/**
+	 * Adds the counts to the {@link Constraint}s that use at most {@link #getMaximalSize()} positions
+	 * and whose specific constraints are indexed as in {@link de.jstacs.sequenceScores.statisticalModels.trainable.discrete.inhomogeneous.InhConstraint}.
+	 *
+	 * @param constr the constraints
+	 */
+	public void addTo( Constraint... constr ) {
+		for( int n = 0; n < constr.length; n++ ) {
+			int[] pos = constr[n].getPositions();
+			int[] symbol = new int[pos.length];
+			for( int index = 0; index < constr[n].getNumberOfSpecificConstraints(); index++ ) {
+				for( int p = pos.length-1, r = index; p >= 0; p-- ) {
+					symbol[p] = r % alphabetLength[pos[p]];
+					r /= alphabetLength[pos[p]];
+				}
+				constr[n].add( index, getCount( pos, symbol ) );
+			}
+		}
+	}
+}
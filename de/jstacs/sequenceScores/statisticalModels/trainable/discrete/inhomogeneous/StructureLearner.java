@@ -29,6 +29,7 @@ import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.ConstraintManager;
+import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.SymbolCombinationCounts;
 import de.jtem.numericalMethods.calculus.specialFunctions.Gamma;
 
 /**
@@ -91,6 +92,8 @@ public class StructureLearner {
 
 	private int[] alphabetLength;
 
+	private int threads;
+
 	/**
 	 * Creates a new {@link StructureLearner} for a given
 	 * {@link AlphabetContainer}, a given length and a given <b>e</b>quivalent
@@ -124,6 +127,7 @@ public class StructureLearner {
 			alphabetLength[i] = (int)con.getAlphabetLengthAt( i );
 		}
 		setESS( ess );
+		threads = 1;
 	}
 
 	/**
@@ -182,6 +186,26 @@ public class StructureLearner {
 		this.ess = ess;
 	}
 
+	/**
+	 * This method sets the maximal number of threads that are used for counting the
+	 * symbols in the data. The default is 1. More threads may change the counts
+	 * slightly due to a different order of summation.
+	 * 
+	 * @param threads
+	 *            the maximal number of threads
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>threads &lt; 1</code>
+	 * 
+	 * @see SymbolCombinationCounts#count(DataSet, double[], double, int)
+	 */
+	public void setNumberOfThreads( int threads ) throws IllegalArgumentException {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		this.threads = threads;
+	}
+
 	/**
 	 * This method finds the optimal structure of a model by using a given
 	 * learning method (in some sense).
@@ -350,7 +374,19 @@ public class StructureLearner {
 			}
 		}
 		// fill constraints
-		double sum = ConstraintManager.countInhomogeneous( con, length, data, weights, true, list.toArray( new InhCondProb[0] ) ), all = sum + ess;
+		double sum;
+		if( order < 3 ) {
+			// one (parallel) pass over the data for all constraints
+			SymbolCombinationCounts counts = new SymbolCombinationCounts( con, length, order + 1 );
+			sum = counts.count( data, weights, 0, threads );
+			for( InhCondProb c : list ) {
+				c.reset();
+			}
+			counts.addTo( list.toArray( new InhCondProb[0] ) );
+		} else {
+			sum = ConstraintManager.countInhomogeneous( con, length, data, weights, true, list.toArray( new InhCondProb[0] ) );
+		}
+		double all = sum + ess;
 
 		// compute summand
 		double[][] h = new double[order + 1][];
@@ -124,6 +124,7 @@ public class SharedStructureClassifier extends TrainSMBasedClassifier {
 	 */
 	@Override
 	public void train( DataSet[] data, double[][] weights ) throws IllegalArgumentException, Exception {
+		notifyModification();
 		int dimension = models.length;
 		SymmetricTensor[] parts = new SymmetricTensor[dimension];
 		double[] w = new double[dimension];
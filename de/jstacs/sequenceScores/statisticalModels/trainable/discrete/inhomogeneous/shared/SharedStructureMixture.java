@@ -18,10 +18,13 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.discrete.inhomogeneous.shared;
 
+import java.io.IOException;
+
 import de.jstacs.NotTrainedException;
 import de.jstacs.algorithms.graphs.tensor.SymmetricTensor;
 import de.jstacs.algorithms.optimization.termination.TerminationCondition;
 import de.jstacs.data.WrongAlphabetException;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.sequenceScores.statisticalModels.trainable.discrete.DiscreteGraphicalTrainSM;
@@ -268,6 +271,23 @@ public class SharedStructureMixture extends MixtureTrainSM {
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link SharedStructureMixture} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation can not be parsed
+	 * 
+	 * @see MixtureTrainSM#MixtureTrainSM(BinaryStorableReader)
+	 */
+	public SharedStructureMixture( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/* (non-Javadoc)
 	 * @see de.jstacs.sequenceScores.statisticalModels.trainable.mixture.AbstractMixtureTrainSM#clone()
 	 */
@@ -19,6 +19,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.hmm;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -36,6 +37,9 @@ import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.sequenceScores.statisticalModels.trainable.AbstractTrainableStatisticalModel;
@@ -67,7 +71,7 @@ import de.jstacs.utils.ToolBox;
  * @see Transition
  * @see HMMFactory
  */
-public abstract class AbstractHMM extends AbstractTrainableStatisticalModel implements Cloneable, Storable {
+public abstract class AbstractHMM extends AbstractTrainableStatisticalModel implements Cloneable, Storable, BinaryStorable {
 
 	/**
 	 * The (hidden) states of the HMM.
@@ -349,6 +353,23 @@ public abstract class AbstractHMM extends AbstractTrainableStatisticalModel impl
 		setOutputStream( SafeOutputStream.DEFAULT_STREAM );
 	}
 	
+	/**
+	 * Constructs a {@link AbstractHMM} out of its binary representation.
+	 * 
+	 * @param in the reader
+	 * 
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link AbstractHMM} could not be reconstructed out of
+	 *             the binary representation
+	 *             
+	 * @see #write(BinaryStorableWriter)
+	 */
+	protected AbstractHMM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		setOutputStream( SafeOutputStream.DEFAULT_STREAM );
+	}
+	
 	/**
 	 * This method creates the internal transition. 
 	 * 
@@ -446,6 +467,13 @@ public abstract class AbstractHMM extends AbstractTrainableStatisticalModel impl
 		
 		extractFurtherInformation( xml );
 		
+		init( XMLParser.extractObjectForTags( xml, "statesGroups",int[][].class ) );
+	}
+	
+	/**
+	 * Creates the states and the contexts after the fields have been parsed.
+	 */
+	private void init( int[][] statesGroups ) throws NonParsableException {
 		try {
 			alphabets = getAlphabetContainer( emission );
 		} catch (WrongAlphabetException e) {
@@ -457,13 +485,86 @@ public abstract class AbstractHMM extends AbstractTrainableStatisticalModel impl
 	
 		fillDefContext();
 		try {
-			fillPreComputedContext( XMLParser.extractObjectForTags( xml, "statesGroups",int[][].class ) );
+			fillPreComputedContext( statesGroups );
 		} catch (CloneNotSupportedException e) {
 			NonParsableException npe = new NonParsableException( e.getMessage() );
 			throw npe;
 		}
 	}
 	
+	public void write( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( trainingParameter );
+		out.writeObject( transition );
+		out.writeObject( name );
+		out.writeObject( filter );
+		out.writeObject( emissionIdx );
+		out.writeObject( forward );
+		out.writeObject( emission );
+		out.writeObject( statesGroups );
+		writeFurtherInformation( out );
+	}
+	
+	/**
+	 * This method is used by the {@link AbstractHMM#AbstractHMM(BinaryStorableReader)} constructor for creating an instance from its binary representation.
+	 * This method should never be made <code>public</code>.
+	 * 
+	 * @param in the reader
+	 * 
+	 * @throws IOException if the binary representation could not be read
+	 * @throws NonParsableException if the binary representation can not be parsed properly
+	 */
+	protected void fromBinary( BinaryStorableReader in ) throws IOException, NonParsableException {
+		length = 0;
+		try {
+			setTrainingParameter( in.readObject( HMMTrainingParameterSet.class ) );
+		} catch( CloneNotSupportedException cnse ) {
+			//should not happen
+			throw new NonParsableException(cnse.getMessage());
+		}
+		setThreads();
+		
+		transition = in.readObject( Transition.class );
+		name = in.readObject( String[].class );
+		filter = in.readObject( Filter[].class );
+		emissionIdx = in.readObject( int[].class );
+		forward = in.readObject( boolean[].class );
+		emission = in.readObject( Emission[].class );
+		int[][] statesGroups = in.readObject( int[][].class );
+		
+		readFurtherInformation( in );
+		
+		init( statesGroups );
+	}
+	
+	/**
+	 * This method writes further information to the binary representation. It allows subclasses to save further parameters that are not defined in the superclass.
+	 * The default implementation writes the XML representation of {@link #appendFurtherInformation(StringBuffer)}.
+	 * 
+	 * @param out the writer
+	 * 
+	 * @throws IOException if the information could not be written
+	 * 
+	 * @see #readFurtherInformation(BinaryStorableReader)
+	 */
+	protected void writeFurtherInformation( BinaryStorableWriter out ) throws IOException {
+		StringBuffer xml = new StringBuffer();
+		appendFurtherInformation( xml );
+		out.writeObject( xml.toString() );
+	}
+	
+	/**
+	 * This method reads further information from the binary representation. It is the counter part of {@link #writeFurtherInformation(BinaryStorableWriter)}.
+	 * The default implementation uses {@link #extractFurtherInformation(StringBuffer)}.
+	 * 
+	 * @param in the reader
+	 * 
+	 * @throws IOException if the information could not be read
+	 * @throws NonParsableException if the information could not be parsed
+	 */
+	protected void readFurtherInformation( BinaryStorableReader in ) throws IOException, NonParsableException {
+		extractFurtherInformation( new StringBuffer( in.readObject( String.class ) ) );
+	}
+	
 	/**
 	 * This method appends further information to the XML representation. It allows subclasses to save further parameters that are not defined in the superclass.
 	 * 
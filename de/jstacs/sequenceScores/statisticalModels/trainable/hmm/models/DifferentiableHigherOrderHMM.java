@@ -19,6 +19,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.hmm.models;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,6 +45,7 @@ import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.StorableResult;
@@ -199,6 +201,29 @@ public class DifferentiableHigherOrderHMM extends HigherOrderHMM implements Samp
 	 */
 	public DifferentiableHigherOrderHMM( StringBuffer xml ) throws NonParsableException {
 		super( xml );
+		initParsed();
+	}
+	
+	/**
+	 * Constructs an {@link DifferentiableHigherOrderHMM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link DifferentiableHigherOrderHMM} could not be reconstructed out of
+	 *             the binary representation
+	 *             
+	 * @see #write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public DifferentiableHigherOrderHMM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		initParsed();
+	}
+	
+	private void initParsed() {
 		getOffsets();
 		
 		childrenBW = new IntList();
@@ -1,5 +1,6 @@
 package de.jstacs.sequenceScores.statisticalModels.trainable.hmm.models;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -7,6 +8,7 @@ import javax.naming.OperationNotSupportedException;
 
 import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.SimpleDifferentiableState;
 import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.emissions.DifferentiableCombinedWrapperEmission;
@@ -44,6 +46,24 @@ public class FastDifferentiableHigherOrderHMM extends DifferentiableHigherOrderH
 		super(xml);
 	}
 
+	/**
+	 * Constructs an {@link FastDifferentiableHigherOrderHMM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link FastDifferentiableHigherOrderHMM} could not be reconstructed out of
+	 *             the binary representation
+	 *             
+	 * @see #write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public FastDifferentiableHigherOrderHMM(BinaryStorableReader in) throws IOException, NonParsableException {
+		super(in);
+	}
+
 	protected void createStates() {
 		this.states = dStates = new RefSimpleDifferentiableState[emissionIdx.length];
 		dEmission = new DifferentiableEmission[emission.length];
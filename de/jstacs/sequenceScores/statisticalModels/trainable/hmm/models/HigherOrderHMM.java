@@ -19,6 +19,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.hmm.models;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 
@@ -31,6 +32,7 @@ import de.jstacs.data.WrongLengthException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.NumericalResultSet;
@@ -134,7 +136,34 @@ public class HigherOrderHMM extends AbstractHMM {
 	 * @see #fillFwdMatrix(int, int, Sequence, int[])
 	 */
 	protected String type;
-	
+
+	/**
+	 * The number of positions above which the state posterior and the viterbi path are computed using checkpoints
+	 *
+	 * @see #setCheckpointThreshold(int)
+	 */
+	private int checkpointThreshold = 1<<16;
+
+	/**
+	 * This interface allows to handle the viterbi path in segments while it is computed.
+	 *
+	 * @author Jens Keilwagen
+	 *
+	 * @see HigherOrderHMM#getViterbiPathFor(int, int, Sequence, int[], ViterbiPathHandler)
+	 */
+	public static interface ViterbiPathHandler {
+
+		/**
+		 * This method is called for consecutive segments of the viterbi path.
+		 * The list is reused by the caller and is cleared after this method returned.
+		 *
+		 * @param segment the next states of the viterbi path
+		 *
+		 * @throws Exception if the segment could not be handled
+		 */
+		public void addSegment( IntList segment ) throws Exception;
+	}
+
 	/**
 	 * This is a convenience constructor. It assumes that state <code>i</code> used emission <code>i</code> on the forward strand.
 	 * 
@@ -219,6 +248,26 @@ public class HigherOrderHMM extends AbstractHMM {
 		filterRes = new boolean[states.length];
 	}
 	
+	/**
+	 * Constructs an {@link HigherOrderHMM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the {@link HigherOrderHMM} could not be reconstructed out of
+	 *             the binary representation
+	 *             
+	 * @see #write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public HigherOrderHMM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		createHelperVariables();
+		filterRes = new boolean[states.length];
+	}
+	
 	private static final String XML_TAG = "HigherOrderHMM";
 
 	protected String getXMLTag() {
@@ -242,7 +291,19 @@ public class HigherOrderHMM extends AbstractHMM {
 		clone.filterRes = filterRes.clone();
 		return clone;
 	}
-	
+
+	/**
+	 * This method sets the number of positions above which the state posterior and the viterbi path are computed using checkpoints.
+	 * In this case, only every \(\sqrt{L}\)-th layer of the backward (or viterbi) matrix is stored and the layers in between
+	 * are recomputed block-wise, which reduces the memory from \(O(L \cdot C)\) to \(O(\sqrt{L} \cdot C)\) for \(C\) contexts
+	 * at the cost of computing the backward matrix twice. The results are identical to those without checkpoints.
+	 *
+	 * @param length the number of positions, sequences with more positions are handled using checkpoints
+	 */
+	public void setCheckpointThreshold( int length ) {
+		checkpointThreshold = length;
+	}
+
 	protected void createStates() {
 		this.states = new SimpleState[emissionIdx.length];
 		for( int i = 0; i < emissionIdx.length; i++ ) {
@@ -306,28 +367,93 @@ public class HigherOrderHMM extends AbstractHMM {
 					statePosterior[s][l+1] -= d;
 				}
 			}
-		} else {
+		} else if( len <= checkpointThreshold ) {
 			fillFwdMatrix( startPos, endPos, seq );
 			fillBwdMatrix( startPos, endPos, seq );
 			double logProb = bwdMatrix[0][0];
 			for( int l = 0; l <= len; l++ ) {
-				for( int s = 0; s < states.length; s++ ) {
-					statePosterior[s][l] = Double.NEGATIVE_INFINITY;
+				fillLogStatePosteriorLayer( statePosterior, l, fwdMatrix[l], bwdMatrix[l], fwdMatrix[l].length, logProb, silentZero );
+			}
+		} else {
+			//checkpoints of the backward matrix, the forward matrix is computed layer by layer
+			createHelperVariables();
+			int maxOrder = transition.getMaximalMarkovOrder(), block = getCheckpointBlockSize( len );
+			double[][] checkpoint = new double[(len+block-1)/block][];
+			double[][] bwd = new double[block+1][forwardIntermediate[0].length];
+			double[] fwd = new double[forwardIntermediate[0].length];
+			fillCheckpoints( Type.LIKELIHOOD, startPos, endPos, seq, null, block, checkpoint, bwd );
+
+			initFwd();
+			double logProb = Double.NaN;
+			for( int b = 0; b < checkpoint.length; b++ ) {
+				int first = b*block, last = Math.min( first+block, len );
+				fillBwdBlock( Type.LIKELIHOOD, b, block, startPos, endPos, seq, null, checkpoint, bwd );
+				if( b == 0 ) {
+					logProb = bwd[0][0];
 				}
-				for( int c = 0; c < fwdMatrix[l].length; c++ ) {
-					int state = transition.getLastContextState( l, c );
-					if( state >= 0 && !(silentZero && states[state].isSilent()) ) {
-						statePosterior[state][l] = Normalisation.getLogSum( statePosterior[state][l], fwdMatrix[l][c] + bwdMatrix[l][c] );
+				for( int l = first; l < last || (l == len && l == last); l++ ) {
+					Arrays.fill( fwd, Double.NEGATIVE_INFINITY );
+					if( l < len ) {
+						fillFwdLayer( l, startPos+l, startPos, seq, null, fwd );
+					} else {
+						fillFwdFinalLayer( l, startPos+l, startPos, seq, null, fwd );
 					}
+					fillLogStatePosteriorLayer( statePosterior, l, fwd, bwd[l-first], transition.getNumberOfIndexes( Math.min( l, maxOrder ) ), logProb, silentZero );
 				}
-				for( int s = 0; s < states.length; s++ ) {
-					statePosterior[s][l] -= logProb;
-				}
-				startPos++;
 			}
 		}
 	}
-	
+
+	private void fillLogStatePosteriorLayer( double[][] statePosterior, int l, double[] fwd, double[] bwd, int numberOfContexts, double logProb, boolean silentZero ) {
+		for( int s = 0; s < states.length; s++ ) {
+			statePosterior[s][l] = Double.NEGATIVE_INFINITY;
+		}
+		for( int c = 0; c < numberOfContexts; c++ ) {
+			int state = transition.getLastContextState( l, c );
+			if( state >= 0 && !(silentZero && states[state].isSilent()) ) {
+				statePosterior[state][l] = Normalisation.getLogSum( statePosterior[state][l], fwd[c] + bwd[c] );
+			}
+		}
+		for( int s = 0; s < states.length; s++ ) {
+			statePosterior[s][l] -= logProb;
+		}
+	}
+
+	/**
+	 * Returns the number of layers between two checkpoints for a sequence with <code>len</code> positions.
+	 */
+	private static int getCheckpointBlockSize( int len ) {
+		return Math.max( 1, (int) Math.ceil( Math.sqrt( len+1 ) ) );
+	}
+
+	/**
+	 * This method fills the checkpoints of the backward or viterbi matrix, i.e., <code>checkpoint[b]</code> contains the layer <code>b*block</code>.
+	 * The first checkpoint is not filled.
+	 */
+	private void fillCheckpoints( Type t, int startPos, int endPos, Sequence seq, int[] allowedStatesGroup, int block, double[][] checkpoint, double[][] buffer ) throws Exception {
+		for( int b = checkpoint.length-1; b > 0; b-- ) {
+			fillBwdBlock( t, b, block, startPos, endPos, seq, allowedStatesGroup, checkpoint, buffer );
+			checkpoint[b] = buffer[0].clone();
+		}
+	}
+
+	/**
+	 * This method recomputes the layers <code>b*block</code> to <code>min((b+1)*block,L)</code> of the backward or viterbi matrix
+	 * from the next checkpoint and stores them in <code>buffer</code>.
+	 */
+	private void fillBwdBlock( Type t, int b, int block, int startPos, int endPos, Sequence seq, int[] allowedStatesGroup, double[][] checkpoint, double[][] buffer ) throws Exception {
+		int len = endPos-startPos+1, first = b*block, last = Math.min( first+block, len );
+		if( last == len ) {
+			fillBwdFinalLayer( t, len, endPos, startPos, seq, allowedStatesGroup, buffer[last-first], null, 0, Double.NaN, false );
+		} else {
+			System.arraycopy( checkpoint[b+1], 0, buffer[last-first], 0, checkpoint[b+1].length );
+		}
+		for( int l = last-1; l >= first; l-- ) {
+			Arrays.fill( buffer[l-first], Double.NEGATIVE_INFINITY );
+			fillBwdLayer( t, l, startPos+l, startPos, seq, allowedStatesGroup, buffer[l-first], buffer[l-first+1], null, 0, Double.NaN, false );
+		}
+	}
+
 	protected int[] getAllowedContext( int pos, int start, int[] allowedStatesGroup, int maxOrder ) {
 		if( allowedStatesGroup==null //no user-specified allowed states (at all)
 				|| pos-start<maxOrder //only for full context
@@ -357,80 +483,100 @@ public class HigherOrderHMM extends AbstractHMM {
 	
 	@Override
 	protected void fillFwdMatrix( int startPos, int endPos, Sequence seq, int[] allowedStatesGroup ) throws OperationNotSupportedException, WrongLengthException {
-		int l = 0, stateID, context, n, h, hh;
+		int l = 0;
 		provideMatrix( 0, endPos-startPos+1 );
-		
+
 		//init
-		Arrays.fill( numberOfSummands[0], 0 );
-		numberOfSummands[0][0] = 1;
-		forwardIntermediate[0][0][0] = 0;
-		
+		initFwd();
+
 		//iterate
-		int s = startPos, maxOrder=transition.getMaximalMarkovOrder();
-		int[] allContext;
+		int s = startPos;
 		while( startPos <= endPos ) {
-			fillLogEmission(startPos, seq); 
-			fillFilter(startPos, seq);
-			
-			h=l%2;
-			Arrays.fill( numberOfSummands[1-h], 0 );
-			
-			allContext=getAllowedContext(startPos, s, allowedStatesGroup, maxOrder);
-			for( int x = 0; x < allContext.length; x++ ) {
-				context=allContext[x];
-				
-				n = transition.getNumberOfChildren(l, context);
-	
-				if( numberOfSummands[h][context] > 0 ) {
-					fwdMatrix[l][context] = Normalisation.getLogSum( 0, numberOfSummands[h][context], forwardIntermediate[h][context] );
-				
-					for( stateID = 0; stateID < n; stateID++ ) {
-						transition.fillTransitionInformation( l, context, stateID, container );
-						if( filterRes[container[0]] ) {
-							hh = (h + container[2]) % 2;						
-							forwardIntermediate[hh][container[1]][numberOfSummands[hh][container[1]]] = fwdMatrix[l][context] //old part
-							       + logEmission[getIndex(container[0])] //emission
-							       + transition.getLogScoreFor( l, context, stateID, seq, startPos ); //transition
-							
-							numberOfSummands[hh][container[1]]++;
-						}
-					}
-				} else {
-					fwdMatrix[l][context] = Double.NEGATIVE_INFINITY;
-				}
-			}
+			fillFwdLayer( l, startPos, s, seq, allowedStatesGroup, fwdMatrix[l] );
 			// System.out.println( (l==0?" ":seq.toString(startPos-1, startPos)) + "\t" + l + "\t" + Arrays.toString( fwdMatrix[l] ) );
 			l++;
 			startPos++;
 		}
-		
+
 		//final summing and silent states
-		fillFilter(startPos, seq);
-		allContext=getAllowedContext(startPos, s, allowedStatesGroup, maxOrder);
+		fillFwdFinalLayer( l, startPos, s, seq, allowedStatesGroup, fwdMatrix[l] );
+		// System.out.println( (l==0?" ":seq.toString(startPos-1, startPos)) + "\t" + l + "\t" + Arrays.toString( fwdMatrix[l] ) );
+	}
+
+	private void initFwd() {
+		Arrays.fill( numberOfSummands[0], 0 );
+		numberOfSummands[0][0] = 1;
+		forwardIntermediate[0][0][0] = 0;
+	}
+
+	/**
+	 * This method computes the layer <code>l</code> of the forward matrix for the emission at position <code>pos</code>
+	 * from the intermediate results of the previous layer.
+	 */
+	private void fillFwdLayer( int l, int pos, int s, Sequence seq, int[] allowedStatesGroup, double[] fwd ) throws OperationNotSupportedException, WrongLengthException {
+		int stateID, context, n, h, hh, maxOrder=transition.getMaximalMarkovOrder();
+		fillLogEmission(pos, seq);
+		fillFilter(pos, seq);
+
+		h=l%2;
+		Arrays.fill( numberOfSummands[1-h], 0 );
+
+		int[] allContext=getAllowedContext(pos, s, allowedStatesGroup, maxOrder);
+		for( int x = 0; x < allContext.length; x++ ) {
+			context=allContext[x];
+
+			n = transition.getNumberOfChildren(l, context);
+
+			if( numberOfSummands[h][context] > 0 ) {
+				fwd[context] = Normalisation.getLogSum( 0, numberOfSummands[h][context], forwardIntermediate[h][context] );
+
+				for( stateID = 0; stateID < n; stateID++ ) {
+					transition.fillTransitionInformation( l, context, stateID, container );
+					if( filterRes[container[0]] ) {
+						hh = (h + container[2]) % 2;
+						forwardIntermediate[hh][container[1]][numberOfSummands[hh][container[1]]] = fwd[context] //old part
+						       + logEmission[getIndex(container[0])] //emission
+						       + transition.getLogScoreFor( l, context, stateID, seq, pos ); //transition
+
+						numberOfSummands[hh][container[1]]++;
+					}
+				}
+			} else {
+				fwd[context] = Double.NEGATIVE_INFINITY;
+			}
+		}
+	}
+
+	/**
+	 * This method computes the last layer <code>l</code> of the forward matrix including the silent states at the end.
+	 */
+	private void fillFwdFinalLayer( int l, int pos, int s, Sequence seq, int[] allowedStatesGroup, double[] fwd ) {
+		int stateID, context, n, h, maxOrder=transition.getMaximalMarkovOrder();
+		fillFilter(pos, seq);
+		int[] allContext=getAllowedContext(pos, s, allowedStatesGroup, maxOrder);
 		h=l%2;
 		for( int x = 0; x<allContext.length; x++ ) {
 			context=allContext[x];
 			n = transition.getNumberOfChildren(l, context);
-			
+
 			if( numberOfSummands[h][context] > 0 ) {
-				fwdMatrix[l][context] = Normalisation.getLogSum( 0, numberOfSummands[h][context], forwardIntermediate[h][context] ); 
-			
+				fwd[context] = Normalisation.getLogSum( 0, numberOfSummands[h][context], forwardIntermediate[h][context] );
+
 				for( stateID = 0; stateID < n; stateID++ ) {
 					transition.fillTransitionInformation( l, context, stateID, container );
 					if( filterRes[container[0]] ) {
 						if( states[container[0]].isSilent() ) {
 							//hh=h
-							forwardIntermediate[h][container[1]][numberOfSummands[h][container[1]]++] = fwdMatrix[l][context] //old part
+							forwardIntermediate[h][container[1]][numberOfSummands[h][container[1]]++] = fwd[context] //old part
 							       // there is no emission (silent state)
-							       + transition.getLogScoreFor( l, context, stateID, seq, startPos ); //transition
+							       + transition.getLogScoreFor( l, context, stateID, seq, pos ); //transition
 						}
 					}
-				} 
+				}
 			} else {
-				fwdMatrix[l][context] = Double.NEGATIVE_INFINITY;
+				fwd[context] = Double.NEGATIVE_INFINITY;
 			}
 		}
-		// System.out.println( (l==0?" ":seq.toString(startPos-1, startPos)) + "\t" + l + "\t" + Arrays.toString( fwdMatrix[l] ) );
 	}
 
 	@Override
@@ -469,10 +615,8 @@ public class HigherOrderHMM extends AbstractHMM {
 	 * @throws Exception forwarded from {@link TrainableState#addToStatistic} and {@link de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.State#getLogScoreFor(int, int, Sequence)}
 	 */
 	protected void fillBwdOrViterbiMatrix( Type t, int startPos, int endPos, double weight, Sequence seq, int[] allowedStatesGroup, boolean add )  throws Exception {
-		int maxOrder=transition.getMaximalMarkovOrder();
-		boolean zero = maxOrder == 0;
-		int l = endPos-startPos+1, stateID, context, n;
-		
+		int l = endPos-startPos+1;
+
 		provideMatrix( 1, endPos-startPos+1 );
 		double res;
 		if( add ) {
@@ -481,92 +625,112 @@ public class HigherOrderHMM extends AbstractHMM {
 		} else {
 			res = Double.NaN;
 		}
-		double val, newWeight;
-		
+
 		//init
+		fillBwdFinalLayer( t, l, endPos, startPos, seq, allowedStatesGroup, bwdMatrix[l], add ? fwdMatrix[l] : null, weight, res, add );
+		//System.out.println( seq.toString(endPos, endPos+1) + "\t" + l + "\t" + Arrays.toString( bwdMatrix[l] ) );
+
+		//compute scores for all positions backward
+		while( --l >= 0 ) {
+			fillBwdLayer( t, l, endPos, startPos, seq, allowedStatesGroup, bwdMatrix[l], bwdMatrix[l+1], add ? fwdMatrix[l] : null, weight, res, add );
+			endPos--;
+
+			if( l-1>=0 ) Arrays.fill( bwdMatrix[l-1], Double.NEGATIVE_INFINITY );
+
+			//System.out.println( (l==0?" ":seq.toString(endPos, endPos+1)) + "\t" + l + "\t" + Arrays.toString( bwdMatrix[l] ) );
+		}
+	}
+
+	/**
+	 * This method computes the last layer <code>l</code> of the backward or viterbi matrix including the silent states at the end,
+	 * where <code>endPos</code> is the last position of the sequence.
+	 */
+	private void fillBwdFinalLayer( Type t, int l, int endPos, int startPos, Sequence seq, int[] allowedStatesGroup, double[] bwd, double[] fwd, double weight, double res, boolean add ) throws Exception {
+		int maxOrder=transition.getMaximalMarkovOrder(), stateID, context, n, m;
+		boolean zero = maxOrder == 0;
+		double val, newWeight;
+
 		fillFilter(endPos, seq);
 		int[] allContext = getAllowedContext(endPos+1, startPos, allowedStatesGroup, maxOrder);
-		Arrays.fill( bwdMatrix[l], zero ? 0 : Double.NEGATIVE_INFINITY );
+		Arrays.fill( bwd, zero ? 0 : Double.NEGATIVE_INFINITY );
 		for( int x = allContext.length-1; x>=0; x-- ) {
 			context = allContext[x];
 			n = transition.getNumberOfChildren( l, context );
-			
-			numberOfSummands[0][0] = 0;
+
+			m = 0;
 			if( zero || finalState[transition.getLastContextState( l, context )] ) {
 				val = 0;
 			} else {
 				val = Double.NEGATIVE_INFINITY;
-			}			
+			}
 			//for all different children states
 			for( stateID = 0; stateID < n; stateID++ ) {
 				transition.fillTransitionInformation( l, context, stateID, container );
 				if( filterRes[container[0]] ) {
 					if( states[container[0]].isSilent() ) {
-						backwardIntermediate[numberOfSummands[0][0]] =
-							bwdMatrix[l][container[1]] //backward score until next position
+						backwardIntermediate[m] =
+							bwd[container[1]] //backward score until next position
 							//there is no emission (silent state)
 						    + transition.getLogScoreFor( l, context, stateID, seq, endPos ); //transition
-						
+
 						if( add ) {
-							newWeight = weight * Math.exp( fwdMatrix[l][context] + backwardIntermediate[numberOfSummands[0][0]] - res );
+							newWeight = weight * Math.exp( fwd[context] + backwardIntermediate[m] - res );
 							((TrainableTransition)transition).addToStatistic( l, context, stateID, newWeight, seq, endPos );
 						}
-						
-						numberOfSummands[0][0]++;
+
+						m++;
 					}
 				}
 			}
-			
-			if( numberOfSummands[0][0] == 0 ) {
-				bwdMatrix[l][context] = val;
+
+			if( m == 0 ) {
+				bwd[context] = val;
 			} else {
-				bwdMatrix[l][context] = t==Type.VITERBI
-						? Math.max( val, ToolBox.max( 0, numberOfSummands[0][0], backwardIntermediate ) )
-						: Normalisation.getLogSum( val, Normalisation.getLogSum( 0, numberOfSummands[0][0], backwardIntermediate ) );
+				bwd[context] = t==Type.VITERBI
+						? Math.max( val, ToolBox.max( 0, m, backwardIntermediate ) )
+						: Normalisation.getLogSum( val, Normalisation.getLogSum( 0, m, backwardIntermediate ) );
 			}
 		}
-		//System.out.println( seq.toString(endPos, endPos+1) + "\t" + l + "\t" + Arrays.toString( bwdMatrix[l] ) );
-		
-		//compute scores for all positions backward
-		while( --l >= 0 ) {
-			fillLogEmission(endPos, seq);
-			fillFilter(endPos, seq);
-			
-			//for all different contexts
-//System.out.println("pos\t" + startPos + "\t" + endPos +"\t" + allowedStatesGroup[endPos]);
-			allContext = getAllowedContext(endPos, startPos, allowedStatesGroup, maxOrder);
-			for( int x = allContext.length-1; x>=0; x-- ) {
-				context = allContext[x];
-				n = transition.getNumberOfChildren( l, context );
-				if( n > 0 ) {
-					//for all different children states
-					for( stateID = 0; stateID < n; stateID++ ) {
-						transition.fillTransitionInformation( l, context, stateID, container );
-						if( filterRes[container[0]] ) {
-							backwardIntermediate[stateID] =
-								bwdMatrix[l+container[2]][container[1]] //backward score until next position
-								+ logEmission[getIndex(container[0])] //emission
-							    + transition.getLogScoreFor( l, context, stateID, seq, endPos ); //transition
-							
-							if( add ) {
-								newWeight = weight * Math.exp( fwdMatrix[l][context] + backwardIntermediate[stateID] - res );
-								((TrainableState)states[getIndex(container[0])]).addToStatistic( endPos, endPos, newWeight, seq );
-								((TrainableTransition)transition).addToStatistic( l, context, stateID, newWeight, seq, endPos );
-							}
-						} else {
-							backwardIntermediate[stateID] = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * This method computes the layer <code>l</code> of the backward or viterbi matrix for the emission at position <code>pos</code>
+	 * from the layer <code>l+1</code> given in <code>next</code>.
+	 */
+	private void fillBwdLayer( Type t, int l, int pos, int startPos, Sequence seq, int[] allowedStatesGroup, double[] bwd, double[] next, double[] fwd, double weight, double res, boolean add ) throws Exception {
+		int maxOrder=transition.getMaximalMarkovOrder(), stateID, context, n;
+		double newWeight;
+		fillLogEmission(pos, seq);
+		fillFilter(pos, seq);
+
+		//for all different contexts
+		int[] allContext = getAllowedContext(pos, startPos, allowedStatesGroup, maxOrder);
+		for( int x = allContext.length-1; x>=0; x-- ) {
+			context = allContext[x];
+			n = transition.getNumberOfChildren( l, context );
+			if( n > 0 ) {
+				//for all different children states
+				for( stateID = 0; stateID < n; stateID++ ) {
+					transition.fillTransitionInformation( l, context, stateID, container );
+					if( filterRes[container[0]] ) {
+						backwardIntermediate[stateID] =
+							(container[2] == 0 ? bwd : next)[container[1]] //backward score until next position
+							+ logEmission[getIndex(container[0])] //emission
+						    + transition.getLogScoreFor( l, context, stateID, seq, pos ); //transition
+
+						if( add ) {
+							newWeight = weight * Math.exp( fwd[context] + backwardIntermediate[stateID] - res );
+							((TrainableState)states[getIndex(container[0])]).addToStatistic( pos, pos, newWeight, seq );
+							((TrainableTransition)transition).addToStatistic( l, context, stateID, newWeight, seq, pos );
 						}
+					} else {
+						backwardIntermediate[stateID] = Double.NEGATIVE_INFINITY;
 					}
-					bwdMatrix[l][context] = t == Type.VITERBI
-						? ToolBox.max( 0, n, backwardIntermediate )
-						: Normalisation.getLogSum( 0, n, backwardIntermediate );
 				}
+				bwd[context] = t == Type.VITERBI
+					? ToolBox.max( 0, n, backwardIntermediate )
+					: Normalisation.getLogSum( 0, n, backwardIntermediate );
 			}
-			endPos--;
-
-			if( l-1>=0 ) Arrays.fill( bwdMatrix[l-1], Double.NEGATIVE_INFINITY );
-
-			//System.out.println( (l==0?" ":seq.toString(endPos, endPos+1)) + "\t" + l + "\t" + Arrays.toString( bwdMatrix[l] ) );
 		}
 	}
 	
@@ -596,7 +760,29 @@ public class HigherOrderHMM extends AbstractHMM {
 		double score = viterbi( path, startPos, endPos, 0, seq, allowedStatesGroup );
 		return new Pair<IntList, Double>( path, score );
 	}
-	
+
+	/**
+	 * This method computes the viterbi path and passes it in consecutive segments to <code>handler</code> while it is traced.
+	 * For sequences longer than the checkpoint threshold, the viterbi matrix is stored only at checkpoints and recomputed block-wise,
+	 * and each block of the path is passed to the handler as soon as it is traced.
+	 * The path and the score are identical to those of {@link #getViterbiPathFor(int, int, Sequence, int[])}.
+	 *
+	 * @param startPos the start position within the sequence
+	 * @param endPos the end position within the sequence
+	 * @param seq the sequence
+	 * @param allowedStatesGroup groups of allowed states per position, may be <code>null</code>
+	 * @param handler the handler for the segments of the viterbi path
+	 *
+	 * @return the viterbi score
+	 *
+	 * @throws Exception if the viterbi path could not be computed or handled
+	 *
+	 * @see #setCheckpointThreshold(int)
+	 */
+	public double getViterbiPathFor(int startPos, int endPos, Sequence seq, int[] allowedStatesGroup, ViterbiPathHandler handler ) throws Exception {
+		return viterbi( new IntList(), handler, startPos, endPos, 0, seq, allowedStatesGroup );
+	}
+
 	/**
 	 * This method computes the viterbi score of a given sequence <code>seq</code>.
 	 * Furthermore, it allows either to modify the sufficient statistics according
@@ -615,30 +801,97 @@ public class HigherOrderHMM extends AbstractHMM {
 	 * @throws Exception an error occurs during the computation
 	 */
 	protected double viterbi( IntList path, int startPos, int endPos, double weight, Sequence seq, int[] allowedStatesGroup ) throws Exception {
-		fillBwdOrViterbiMatrix( Type.VITERBI, startPos, endPos, 0, seq, allowedStatesGroup, false );
-		int l = endPos-startPos+1, n, layer = 0, stateID, context = 0, add, state, newContext, childIdx;
-		double current, dist, bestDist;
+		return viterbi( path, null, startPos, endPos, weight, seq, allowedStatesGroup );
+	}
+
+	/**
+	 * This method computes the viterbi score of a given sequence <code>seq</code> and either modifies the sufficient statistics
+	 * or computes the viterbi path. For sequences longer than the checkpoint threshold, the viterbi matrix is only stored at checkpoints
+	 * and the path is traced block by block.
+	 *
+	 * @param path if <code>null</code> viterbi training, otherwise computation of the viterbi path
+	 * @param handler if not <code>null</code>, the path is passed to the handler after each traced block and cleared afterwards
+	 * @param startPos the start position
+	 * @param endPos the end position
+	 * @param weight the sequence weight, in most cases this is 1
+	 * @param seq the sequence
+	 * @param allowedStatesGroup groups of allowed states per position
+	 *
+	 * @return the viterbi score of the sequence
+	 *
+	 * @throws Exception an error occurs during the computation
+	 *
+	 * @see #setCheckpointThreshold(int)
+	 */
+	protected double viterbi( IntList path, ViterbiPathHandler handler, int startPos, int endPos, double weight, Sequence seq, int[] allowedStatesGroup ) throws Exception {
+		int l = endPos-startPos+1, context = 0;
 
 		if( path != null ) {
 			path.clear();
 		}
 
+		if( l <= checkpointThreshold ) {
+			fillBwdOrViterbiMatrix( Type.VITERBI, startPos, endPos, 0, seq, allowedStatesGroup, false );
+			context = traceViterbi( path, 0, l, context, bwdMatrix, 0, startPos, weight, seq );
+			traceViterbiEnd( path, l, context, bwdMatrix[l], startPos+l, weight, seq );
+			if( handler != null ) {
+				handler.addSegment( path );
+				path.clear();
+			}
+			return bwdMatrix[0][0];
+		} else {
+			createHelperVariables();
+			int block = getCheckpointBlockSize( l );
+			double[][] checkpoint = new double[(l+block-1)/block][];
+			double[][] bwd = new double[block+1][forwardIntermediate[0].length];
+			fillCheckpoints( Type.VITERBI, startPos, endPos, seq, allowedStatesGroup, block, checkpoint, bwd );
+			double score = Double.NaN;
+			for( int b = 0; b < checkpoint.length; b++ ) {
+				int first = b*block, last = Math.min( first+block, l );
+				fillBwdBlock( Type.VITERBI, b, block, startPos, endPos, seq, allowedStatesGroup, checkpoint, bwd );
+				if( b == 0 ) {
+					score = bwd[0][0];
+				}
+				context = traceViterbi( path, first, last, context, bwd, first, startPos, weight, seq );
+				if( last == l ) {
+					traceViterbiEnd( path, l, context, bwd[l-first], startPos+l, weight, seq );
+				}
+				if( handler != null ) {
+					handler.addSegment( path );
+					path.clear();
+				}
+			}
+			return score;
+		}
+	}
+
+	/**
+	 * This method traces the viterbi path from layer <code>layer</code> and context <code>context</code> until layer <code>last</code>
+	 * using the layers of the viterbi matrix starting at <code>offset</code> in <code>bwd</code>.
+	 *
+	 * @return the context of the path at layer <code>last</code>
+	 */
+	private int traceViterbi( IntList path, int layer, int last, int context, double[][] bwd, int offset, int startPos, double weight, Sequence seq ) throws Exception {
+		int n, stateID, add, state, newContext, childIdx;
+		double current, dist, bestDist;
+		startPos += layer;
+
 		//fill
-		while( layer < l ) {
-//System.out.println( layer + "\t" + context + "\t" + Arrays.toString(bwdMatrix[layer]) );
+		while( layer < last ) {
+//System.out.println( layer + "\t" + context + "\t" + Arrays.toString(bwd[layer-offset]) );
 			n = transition.getNumberOfChildren( layer, context );
-			
+
 			bestDist = Double.POSITIVE_INFINITY;
-			childIdx = state = newContext = add = -1000;			
+			childIdx = state = newContext = add = -1000;
 			for( stateID = 0; stateID < n; stateID++ ) {
 				transition.fillTransitionInformation( layer, context, stateID, container );
-				
+
 				current =
-					bwdMatrix[layer+container[2]][container[1]] //score until next position
+					bwd[layer-offset+container[2]][container[1]] //score until next position
 					+ states[container[0]].getLogScoreFor( startPos, startPos, seq ) //emission
 				    + transition.getLogScoreFor( layer, context, stateID, seq, startPos ); //transition
-				dist = current - bwdMatrix[layer][context];
-				
+				dist = current - bwd[layer-offset][context];
+
 				dist*=dist;
 				if( dist < bestDist ) {
 					childIdx = stateID;
@@ -648,9 +901,9 @@ public class HigherOrderHMM extends AbstractHMM {
 					bestDist = dist;
 				}
 			}
-			
-			//System.out.println( layer + "\t" + state + "\t" + bwdMatrix[layer][context] + "\t" + n + "\t" + bestDist );
-			
+
+			//System.out.println( layer + "\t" + state + "\t" + bwd[layer-offset][context] + "\t" + n + "\t" + bestDist );
+
 			if( path == null ) {
 				((TrainableTransition)transition).addToStatistic( layer, context, childIdx, weight, seq, startPos );
 				((TrainableState)states[state]).addToStatistic( startPos, startPos, weight, seq );
@@ -662,25 +915,34 @@ public class HigherOrderHMM extends AbstractHMM {
 			layer += add;
 			context = newContext;
 		}
-		
+		return context;
+	}
+
+	/**
+	 * This method traces the silent states at the end of the viterbi path using the last layer <code>bwd</code> of the viterbi matrix.
+	 */
+	private void traceViterbiEnd( IntList path, int layer, int context, double[] bwd, int startPos, double weight, Sequence seq ) throws Exception {
+		int n, stateID, state, newContext, childIdx;
+		double current, dist, bestDist;
+
 		//add silent states at the end
 		do {
 			n = transition.getNumberOfChildren( layer, context );
-			
-			dist = finalState[transition.getLastContextState(layer, context)] ? 0 - bwdMatrix[layer][context] : Double.NEGATIVE_INFINITY;
+
+			dist = finalState[transition.getLastContextState(layer, context)] ? 0 - bwd[context] : Double.NEGATIVE_INFINITY;
 			bestDist = dist*dist;
-			childIdx = state = newContext = add = -1000;
+			childIdx = state = newContext = -1000;
 			for( stateID = 0; stateID < n; stateID++ ) {
 				transition.fillTransitionInformation( layer, context, stateID, container );
-				
+
 				if( container[2] == 0 ) {
 					current =
-						bwdMatrix[layer][container[1]] //score until next position
+						bwd[container[1]] //score until next position
 						+ states[container[0]].getLogScoreFor( startPos, startPos, seq ) //emission
 					    + transition.getLogScoreFor( layer, context, stateID, seq, startPos ); //transition
-					
-					dist = current - bwdMatrix[layer][context];
-					
+
+					dist = current - bwd[context];
+
 					dist*=dist;
 					if( dist < bestDist ) {
 						childIdx = stateID;
@@ -690,7 +952,7 @@ public class HigherOrderHMM extends AbstractHMM {
 					}
 				}
 			}
-			
+
 			if( state >= 0 ) {
 				if( path == null ) {
 					((TrainableTransition)transition).addToStatistic( layer, context, childIdx, weight, seq, startPos );
@@ -703,8 +965,6 @@ public class HigherOrderHMM extends AbstractHMM {
 				break;
 			}
 		} while ( true );
-		
-		return bwdMatrix[0][0];
 	}
 	
 	/**
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import de.jstacs.NotTrainedException;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.sampling.BurnInTest;
@@ -95,6 +96,24 @@ public class SamplingHigherOrderHMM extends HigherOrderHMM {
     public SamplingHigherOrderHMM( StringBuffer xml ) throws NonParsableException {
             super( xml );
     }
+
+    /**
+     * Constructs an {@link SamplingHigherOrderHMM} out of its binary representation.
+     * 
+     * @param in
+     *            the reader
+     * 
+     * @throws IOException
+     *             if the binary representation could not be read
+     * @throws NonParsableException
+     *             if the {@link SamplingHigherOrderHMM} could not be reconstructed out of
+     *             the binary representation
+     *             
+     * @see #write(de.jstacs.io.BinaryStorableWriter)
+     */
+    public SamplingHigherOrderHMM( BinaryStorableReader in ) throws IOException, NonParsableException {
+            super( in );
+    }
 	
     @Override
     public SamplingHigherOrderHMM clone() throws CloneNotSupportedException {
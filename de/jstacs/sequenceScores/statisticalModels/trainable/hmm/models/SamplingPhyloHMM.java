@@ -17,9 +17,11 @@
  */
 package de.jstacs.sequenceScores.statisticalModels.trainable.hmm.models;
 
+import java.io.IOException;
 import java.util.Random;
 
 import de.jstacs.data.WrongAlphabetException;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.emissions.discrete.PhyloDiscreteEmission;
 import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.training.SamplingHMMTrainingParameterSet;
@@ -72,6 +74,24 @@ public class SamplingPhyloHMM extends SamplingHigherOrderHMM {
             super( xml );
     }
 
+    /**
+     * Constructs an {@link SamplingPhyloHMM} out of its binary representation.
+     * 
+     * @param in
+     *            the reader
+     * 
+     * @throws IOException
+     *             if the binary representation could not be read
+     * @throws NonParsableException
+     *             if the {@link SamplingPhyloHMM} could not be reconstructed out of
+     *             the binary representation
+     *             
+     * @see #write(de.jstacs.io.BinaryStorableWriter)
+     */
+    public SamplingPhyloHMM( BinaryStorableReader in ) throws IOException, NonParsableException {
+            super( in );
+    }
+
     @Override
     public String getInstanceName() {
         return "PhyloHMM(" + transition.getMaximalMarkovOrder() + ")";
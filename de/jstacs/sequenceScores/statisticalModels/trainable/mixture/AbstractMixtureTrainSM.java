@@ -42,6 +42,9 @@ import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.FileManager;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
@@ -114,7 +117,7 @@ import de.jtem.numericalMethods.calculus.specialFunctions.Gamma;
  * @see de.jstacs.sampling.SamplingComponent
  * @see System#gc()
  */
-public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatisticalModel {
+public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatisticalModel implements BinaryStorable {
 
 	//private static final int NO_OF_UNSURE_DECIMAL_PLACES = 3;
 
@@ -442,6 +445,23 @@ public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatistica
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link AbstractMixtureTrainSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation can not be parsed
+	 * 
+	 * @see #write(BinaryStorableWriter)
+	 */
+	protected AbstractMixtureTrainSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/* (non-Javadoc)
 	 * @see de.jstacs.trainableStatisticalModels.AbstractTrainSM#clone()
 	 */
@@ -1673,14 +1693,9 @@ public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatistica
 				if( file != null ) {
 					XMLParser.appendObjectWithTags( xml, counter, "counter" );
 					try {
-						String content;
-						for( int i = 0; i < counter.length; i++ ) {
-							if( file[i] != null ) {
-								content = FileManager.readFile( file[i] ).toString();
-							} else {
-								content = "";
-							}
-							XMLParser.appendObjectWithTagsAndAttributes( xml, content, "fileContent", "pos=\"" + i + "\"" );
+						String[] content = getParameterFileContents();
+						for( int i = 0; i < content.length; i++ ) {
+							XMLParser.appendObjectWithTagsAndAttributes( xml, content[i], "fileContent", "pos=\"" + i + "\"" );
 						}
 					} catch ( IOException e ) {
 						RuntimeException r = new RuntimeException( e.getMessage() );
@@ -1757,19 +1772,15 @@ public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatistica
 							XMLParser.extractObjectForTags( xml, "burnInTest", BurnInTest.class ) );
 					if( XMLParser.extractObjectForTags( xml, "hasParameterFiles", boolean.class ) ) {
 						counter = XMLParser.extractObjectForTags( xml, "counter", int[].class );
-						file = new File[counter.length];
 						try {
-							String content;
+							String[] content = new String[counter.length];
 							Map<String,String> filter = new TreeMap<String, String>();
 							for( int i = 0; i < counter.length; i++ ) {
 								filter.clear();
 								filter.put( "pos", ""+i );
-								content = XMLParser.extractObjectAndAttributesForTags( xml, "fileContent", null, filter, String.class );
-								if( !content.equalsIgnoreCase( "" ) ) {
-									file[i] = File.createTempFile( "pi-", ".dat", null );
-									FileManager.writeFile( file[i], new StringBuffer( content ) );
-								}
+								content[i] = XMLParser.extractObjectAndAttributesForTags( xml, "fileContent", null, filter, String.class );
 							}
+							createParameterFiles( content );
 						} catch ( IOException e ) {
 							NonParsableException r = new NonParsableException( e.getMessage() );
 							r.setStackTrace( e.getStackTrace() );
@@ -1808,6 +1819,153 @@ public abstract class AbstractMixtureTrainSM extends AbstractTrainableStatistica
 	 */
 	protected void extractFurtherInformation( StringBuffer xml ) throws NonParsableException {}
 
+	private String[] getParameterFileContents() throws IOException {
+		String[] content = new String[counter.length];
+		for( int i = 0; i < counter.length; i++ ) {
+			if( file[i] != null ) {
+				content[i] = FileManager.readFile( file[i] ).toString();
+			} else {
+				content[i] = "";
+			}
+		}
+		return content;
+	}
+
+	private void createParameterFiles( String[] content ) throws IOException {
+		file = new File[content.length];
+		for( int i = 0; i < content.length; i++ ) {
+			if( !content[i].equalsIgnoreCase( "" ) ) {
+				file[i] = File.createTempFile( "pi-", ".dat", null );
+				FileManager.writeFile( file[i], new StringBuffer( content[i] ) );
+			}
+		}
+	}
+
+	public void write( BinaryStorableWriter out ) throws IOException {
+		out.writeInt( length );
+		out.writeInt( dimension );
+		out.writeInt( starts );
+		out.writeBoolean( estimateComponentProbs );
+		out.writeObject( componentHyperParams );
+		out.writeObject( model );
+		out.writeObject( optimizeModel );
+		out.writeBoolean( algorithmHasBeenRun );
+		out.writeObject( weights );
+
+		//algorithm specific values
+		out.writeObject( algorithm );
+		switch( algorithm ) {
+			case EM:
+				out.writeDouble( alpha );
+				out.writeObject( tc );
+				out.writeObject( parametrization );
+				break;
+			case GIBBS_SAMPLING:
+				out.writeInt( initialIteration );
+				out.writeInt( stationaryIteration );
+				out.writeObject( burnInTest );
+				out.writeObject( file != null ? counter : null );
+				if( file != null ) {
+					out.writeObject( getParameterFileContents() );
+				}
+				break;
+		}
+
+		out.writeDouble( best );
+		writeFurtherInformation( out );
+	}
+
+	/**
+	 * This method is used by the constructor {@link #AbstractMixtureTrainSM(BinaryStorableReader)}. It is the counter part of {@link #write(BinaryStorableWriter)}.
+	 */
+	@Override
+	protected void fromBinary( BinaryStorableReader in ) throws IOException, NonParsableException {
+		length = in.readInt();
+		dimension = in.readInt();
+		starts = in.readInt();
+		estimateComponentProbs = in.readBoolean();
+		componentHyperParams = in.readObject( double[].class );
+		model = in.readObject( TrainableStatisticalModel[].class );
+		optimizeModel = in.readObject( boolean[].class );
+		algorithmHasBeenRun = in.readBoolean();
+		double[] w = in.readObject( double[].class );
+
+		algorithm = in.readObject( Algorithm.class );
+		try {
+			switch( algorithm ) {
+				case EM:
+					double alpha = in.readDouble();
+					tc = in.readObject( TerminationCondition.class );
+					parametrization = in.readObject( Parameterization.class );
+					set( model, optimizeModel, starts, w, estimateComponentProbs, componentHyperParams, algorithm,
+							alpha, tc, parametrization, 0, 0, null );
+					break;
+				case GIBBS_SAMPLING:
+					int initialIteration = in.readInt(), stationaryIteration = in.readInt();
+					set( model, optimizeModel, starts, w, estimateComponentProbs, componentHyperParams, algorithm,
+							0d, null, Parameterization.LAMBDA, initialIteration, stationaryIteration, in.readObject( BurnInTest.class ) );
+					counter = in.readObject( int[].class );
+					if( counter != null ) {
+						createParameterFiles( in.readObject( String[].class ) );
+					} else {
+						file = null;
+					}
+					break;
+				default:
+					throw new IllegalArgumentException( "The type of algorithm is unknown." );
+			}
+		} catch ( IOException e ) {
+			throw e;
+		} catch ( NonParsableException e ) {
+			throw e;
+		} catch ( Exception e ) {
+			NonParsableException n = new NonParsableException( e.getMessage() );
+			n.setStackTrace( e.getStackTrace() );
+			throw n;
+		}
+
+		best = in.readDouble();
+		alphabets = model[0].getAlphabetContainer();
+		setOutputStream( SafeOutputStream.DEFAULT_STREAM );
+		readFurtherInformation( in );
+	}
+
+	/**
+	 * This method is used in the subclasses to write further information to
+	 * the binary representation. The default implementation writes the XML
+	 * representation returned by {@link #getFurtherInformation()}.
+	 * 
+	 * @param out
+	 *            the writer
+	 * 
+	 * @throws IOException
+	 *             if the information could not be written
+	 * 
+	 * @see AbstractMixtureTrainSM#readFurtherInformation(BinaryStorableReader)
+	 */
+	protected void writeFurtherInformation( BinaryStorableWriter out ) throws IOException {
+		out.writeObject( getFurtherInformation().toString() );
+	}
+
+	/**
+	 * This method is used in the subclasses to read further information from
+	 * the binary representation. The default implementation uses
+	 * {@link #extractFurtherInformation(StringBuffer)}.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the information could not be read
+	 * @throws NonParsableException
+	 *             if the information could not be parsed
+	 * 
+	 * @see AbstractMixtureTrainSM#writeFurtherInformation(BinaryStorableWriter)
+	 */
+	protected void readFurtherInformation( BinaryStorableReader in ) throws IOException, NonParsableException {
+		extractFurtherInformation( new StringBuffer( in.readObject( String.class ) ) );
+	}
+
 	/**
 	 * This method is used in the constructor and in the methods
 	 * {@link #clone()} and {@link #fromXML(StringBuffer)} to set all necessary
@@ -18,6 +18,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.mixture.motif;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 
@@ -27,6 +28,7 @@ import de.jstacs.algorithms.optimization.termination.TerminationCondition;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.motifDiscovery.MotifDiscoverer;
@@ -193,6 +195,23 @@ public abstract class HiddenMotifMixture extends AbstractMixtureTrainSM implemen
 		super( xml );
 	}
 
+	/**
+	 * Creates a new {@link HiddenMotifMixture} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation can not be parsed
+	 * 
+	 * @see de.jstacs.io.BinaryStorable#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	protected HiddenMotifMixture( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+	}
+
 	/* (non-Javadoc)
 	 * @see de.jstacs.sequenceScores.statisticalModels.trainable.mixture.AbstractMixtureTrainSM#clone()
 	 */
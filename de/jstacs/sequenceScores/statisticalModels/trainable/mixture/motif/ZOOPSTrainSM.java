@@ -18,6 +18,7 @@
 
 package de.jstacs.sequenceScores.statisticalModels.trainable.mixture.motif;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 
@@ -26,6 +27,7 @@ import de.jstacs.data.DataSet;
 import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.io.ArrayHandler;
+import de.jstacs.io.BinaryStorableReader;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.sampling.BurnInTest;
 import de.jstacs.sequenceScores.statisticalModels.trainable.TrainableStatisticalModel;
@@ -375,6 +377,28 @@ public class ZOOPSTrainSM extends HiddenMotifMixture {
 	 */
 	public ZOOPSTrainSM( StringBuffer xml ) throws NonParsableException {
 		super( xml );
+		initParsed();
+	}
+
+	/**
+	 * Creates a new {@link ZOOPSTrainSM} out of its binary representation.
+	 * 
+	 * @param in
+	 *            the reader
+	 * 
+	 * @throws IOException
+	 *             if the binary representation could not be read
+	 * @throws NonParsableException
+	 *             if the binary representation can not be parsed
+	 * 
+	 * @see de.jstacs.io.BinaryStorable#write(de.jstacs.io.BinaryStorableWriter)
+	 */
+	public ZOOPSTrainSM( BinaryStorableReader in ) throws IOException, NonParsableException {
+		super( in );
+		initParsed();
+	}
+
+	private void initParsed() {
 		bgMaxMarkovOrder = model[1].getMaximalMarkovOrder();
 		int i = 1;
 		while( i < model.length && !optimizeModel[i] ) {
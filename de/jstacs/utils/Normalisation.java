@@ -24,10 +24,101 @@ import java.util.Arrays;
  * This class can be used for normalisation of any <code>double</code> array or
  * a part of a <code>double</code> array.
  * 
+ * <br><br>
+ * 
+ * The log-sum methods can be used with different {@link Accuracy}s, which can be set process-wide using {@link #setAccuracy(Accuracy)}
+ * or the system property <code>de.jstacs.utils.Normalisation.accuracy</code>.
+ * 
  * @author Jens Keilwagen, Jan Grau
  */
 public class Normalisation {
 
+	/**
+	 * The accuracy of the log-sum methods of {@link Normalisation}.
+	 * 
+	 * @author Jens Keilwagen, Jan Grau
+	 * 
+	 * @see Normalisation#setAccuracy(Accuracy)
+	 */
+	public enum Accuracy {
+		/**
+		 * Uses {@link Math#exp(double)} for each summand, the default.
+		 */
+		EXACT,
+		/**
+		 * Uses {@link Normalisation#fastExp(double)} for each summand and sums with several accumulators.
+		 * The relative error of each exponential is at most a few ulps, i.e., about \(10^{-15}\), and hence
+		 * the normalised values and the log-sums differ from {@link #EXACT} only by a relative error in the same order
+		 * (cf. <code>supplementary.codeExamples.NormalisationBenchmark</code>).
+		 */
+		FAST
+	}
+	
+	private static volatile boolean fast = Accuracy.FAST.name().equalsIgnoreCase( System.getProperty( Normalisation.class.getName() + ".accuracy" ) );
+	
+	/**
+	 * Sets the accuracy of the log-sum methods for the whole process.
+	 * This should be done before any computation starts, since otherwise parts of a computation may use different accuracies.
+	 * 
+	 * @param accuracy the accuracy
+	 * 
+	 * @see #getAccuracy()
+	 */
+	public static void setAccuracy( Accuracy accuracy ) {
+		fast = accuracy == Accuracy.FAST;
+	}
+	
+	/**
+	 * Returns the current accuracy of the log-sum methods.
+	 * 
+	 * @return the current accuracy
+	 * 
+	 * @see #setAccuracy(Accuracy)
+	 */
+	public static Accuracy getAccuracy() {
+		return fast ? Accuracy.FAST : Accuracy.EXACT;
+	}
+	
+	private static final int EXP_BITS = 11, EXP_SIZE = 1 << EXP_BITS;
+	private static final double[] EXP_TABLE = new double[EXP_SIZE];
+	static {
+		for( int j = 0; j < EXP_SIZE; j++ ) {
+			EXP_TABLE[j] = Math.pow( 2, j / (double) EXP_SIZE );
+		}
+	}
+	private static final double SHIFTER = 6755399441055744.0, INV_LN2 = EXP_SIZE / Math.log( 2 ),
+			LN2_HI = 6.93147180369123816490e-01 / EXP_SIZE, LN2_LO = 1.90821492927058770002e-10 / EXP_SIZE;
+	
+	/**
+	 * Returns an approximation of \(\exp(x)\) with a relative error of a few ulps.
+	 * The argument is split into \(x = k \log(2)/2048 + r\) with \(|r| \leq \log(2)/4096\),
+	 * and \(\exp(x) = 2^{\lfloor k/2048 \rfloor} 2^{(k \bmod 2048)/2048} \exp(r) \), where the second factor is taken from a table
+	 * and the third is approximated by a polynomial.
+	 * Arguments below \(-746\) yield 0, and other arguments outside of \([-708,709]\) are handled by {@link Math#exp(double)}.
+	 * 
+	 * @param x the argument
+	 * 
+	 * @return an approximation of \(\exp(x)\)
+	 */
+	public static double fastExp( double x ) {
+		if( !(x >= -708) ) {
+			//includes -Infinity and NaN
+			return x < -746 ? 0 : Math.exp( x );
+		} else if( x > 709 ) {
+			return Math.exp( x );
+		}
+		double k = x * INV_LN2 + SHIFTER;
+		int n = (int) Double.doubleToRawLongBits( k );
+		k -= SHIFTER;
+		double r = x - k * LN2_HI - k * LN2_LO;
+		double p = 1 + r * (1 + r * (0.5 + r * (1.0 / 6)));
+		return EXP_TABLE[n & (EXP_SIZE - 1)] * p * Double.longBitsToDouble( ((long) ((n >> EXP_BITS) + 1023)) << 52 );
+	}
+	
+	private static double exp( double x, boolean fast ) {
+		return fast ? fastExp( x ) : Math.exp( x );
+	}
+
 	/**
 	 * Returns the logarithm of the sum of values <code>val[i]</code> given as
 	 * <code>lnVal[i] = Math.log( val[i] )</code>.
@@ -45,6 +136,34 @@ public class Normalisation {
 	public static double getLogSum( double... lnVal ) {
 		return getLogSum( 0, lnVal.length, lnVal );
 	}
+	
+	/**
+	 * Returns the logarithm of the sum of two values given as logarithms, 
+	 * which yields the same result as {@link #getLogSum(double...)} without creating an array.
+	 * 
+	 * @param lnVal1 the log of the first value
+	 * @param lnVal2 the log of the second value
+	 * 
+	 * @return the logarithm of the sum of values
+	 */
+	public static double getLogSum( double lnVal1, double lnVal2 ) {
+		double offset = Double.NEGATIVE_INFINITY;
+		if( lnVal1 > offset ) {
+			offset = lnVal1;
+		}
+		if( lnVal2 > offset ) {
+			offset = lnVal2;
+		}
+		if( Double.isInfinite( offset ) ) {
+			return Double.NEGATIVE_INFINITY;
+		} else {
+			boolean f = fast;
+			double sum = 0;
+			sum += exp( lnVal1 - offset, f );
+			sum += exp( lnVal2 - offset, f );
+			return offset + Math.log( sum );
+		}
+	}
 
 	/**
 	 * Returns the logarithm of the sum of values <code>v[i]</code> given as
@@ -75,6 +194,9 @@ public class Normalisation {
 		}
 		return logSum;
 		*/
+		if( fast ) {
+			return getLogSumFast( start, end, lnVal );
+		}
 		// same proceeding as in normalisation-methods
 		double offset = Double.NEGATIVE_INFINITY, sum = 0;
 		int i;
@@ -97,6 +219,42 @@ public class Normalisation {
 		}
 
 	}
+	
+	/**
+	 * The {@link Accuracy#FAST} variant of {@link #getLogSum(int, int, double...)}, which uses {@link #fastExp(double)}
+	 * and four independent accumulators for the maximum and the sum.
+	 */
+	private static double getLogSumFast( int start, int end, double[] lnVal ) {
+		double o0 = Double.NEGATIVE_INFINITY, o1 = o0, o2 = o0, o3 = o0;
+		int i = start;
+		for( ; i + 3 < end; i += 4 ) {
+			if( lnVal[i] > o0 ) o0 = lnVal[i];
+			if( lnVal[i+1] > o1 ) o1 = lnVal[i+1];
+			if( lnVal[i+2] > o2 ) o2 = lnVal[i+2];
+			if( lnVal[i+3] > o3 ) o3 = lnVal[i+3];
+		}
+		for( ; i < end; i++ ) {
+			if( lnVal[i] > o0 ) o0 = lnVal[i];
+		}
+		double offset = o0;
+		if( o1 > offset ) offset = o1;
+		if( o2 > offset ) offset = o2;
+		if( o3 > offset ) offset = o3;
+		if( Double.isInfinite( offset ) ) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		for( i = start; i + 3 < end; i += 4 ) {
+			s0 += fastExp( lnVal[i] - offset );
+			s1 += fastExp( lnVal[i+1] - offset );
+			s2 += fastExp( lnVal[i+2] - offset );
+			s3 += fastExp( lnVal[i+3] - offset );
+		}
+		for( ; i < end; i++ ) {
+			s0 += fastExp( lnVal[i] - offset );
+		}
+		return offset + Math.log( (s0 + s1) + (s2 + s3) );
+	}
 
 	/**
 	 * The method does a log-sum-normalisation on the array <code>d</code>, where
@@ -380,15 +538,16 @@ public class Normalisation {
 			Arrays.fill( dest, startDest, startDest+l, 0 );
 			return Double.NEGATIVE_INFINITY;
 		}
+		boolean f = fast;
 		for( ; i < l; i++ ) {
-			dest[startDest + i] = Math.exp( d[startD + i] - offset );
+			dest[startDest + i] = exp( d[startD + i] - offset, f );
 
 			sum += dest[startDest + i];
 
 		}
 		if( secondValues != null ) {
 			for( i = 0; i < secondValues.length; i++ ) {
-				secondValues[i] = Math.exp( secondValues[i] - offset );
+				secondValues[i] = exp( secondValues[i] - offset, f );
 				sum += secondValues[i];
 			}
 		}
@@ -438,9 +597,10 @@ public class Normalisation {
 		
 		//shift
 		double sum = 0;
+		boolean f = fast;
 		for( int i = 0; i < indices.length(); i++ ) {
 			int j = indices.get(i);
-			dest[j] = Math.exp( d[j] - offset );
+			dest[j] = exp( d[j] - offset, f );
 			sum += dest[j];
 
 		}
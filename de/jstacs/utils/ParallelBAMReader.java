@@ -0,0 +1,513 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package de.jstacs.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexMetaData;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+/**
+ * Reader for BAM files that decompresses and decodes the records on a pool of worker threads and returns them in {@link RecordBatch}es
+ * in the order of the file.
+ *
+ * <p>
+ * If the file is indexed and more than one thread is used, the records of each reference sequence (according to the index) are read by
+ * a separate query, i.e., the BGZF blocks of different reference sequences are decompressed and decoded concurrently. Otherwise, one worker
+ * reads the file sequentially, which still decouples decompression and decoding from the processing of the records.
+ * </p>
+ *
+ * <p>
+ * Each {@link RecordBatch} contains records of a single reference sequence as compact primitive values, i.e., flags, mapping quality,
+ * start, end and aligned blocks. Optionally, the batches also keep the {@link SAMRecord}s for consumers that need further information.
+ * </p>
+ *
+ * @author Jan Grau, Jens Keilwagen
+ */
+public class ParallelBAMReader implements Closeable {
+
+	/**
+	 * The maximal number of records in a {@link RecordBatch}.
+	 */
+	public static final int BATCH_SIZE = 1 << 12;
+
+	private static final int QUEUE_SIZE = 16;
+
+	private static final RecordBatch END = new RecordBatch( -1, null, false );
+
+	/**
+	 * Workers are daemons, so a reader that is not read to the end does not prevent the JVM from exiting.
+	 */
+	private static final ThreadFactory DAEMON = new ThreadFactory() {
+		public Thread newThread( Runnable r ) {
+			Thread t = Executors.defaultThreadFactory().newThread( r );
+			t.setDaemon( true );
+			return t;
+		}
+	};
+
+	/**
+	 * A batch of records of one reference sequence.
+	 */
+	public static class RecordBatch {
+
+		private int reference;
+		private String referenceName;
+		private int size, blocks;
+		private int[] flags, mappingQuality, start, end, unclippedStart, unclippedEnd, blockIndex;
+		private int[] blockStart, blockLength;
+		private SAMRecord[] records;
+
+		private RecordBatch( int reference, String referenceName, boolean keepRecords ) {
+			this.reference = reference;
+			this.referenceName = referenceName;
+			size = blocks = 0;
+			flags = new int[BATCH_SIZE];
+			mappingQuality = new int[BATCH_SIZE];
+			start = new int[BATCH_SIZE];
+			end = new int[BATCH_SIZE];
+			unclippedStart = new int[BATCH_SIZE];
+			unclippedEnd = new int[BATCH_SIZE];
+			blockIndex = new int[BATCH_SIZE+1];
+			blockStart = new int[2*BATCH_SIZE];
+			blockLength = new int[2*BATCH_SIZE];
+			records = keepRecords ? new SAMRecord[BATCH_SIZE] : null;
+		}
+
+		private void add( SAMRecord rec ) {
+			flags[size] = rec.getFlags();
+			mappingQuality[size] = rec.getMappingQuality();
+			start[size] = rec.getAlignmentStart();
+			end[size] = rec.getAlignmentEnd();
+			unclippedStart[size] = rec.getUnclippedStart();
+			unclippedEnd[size] = rec.getUnclippedEnd();
+			List<AlignmentBlock> list = rec.getAlignmentBlocks();
+			if( blocks + list.size() > blockStart.length ) {
+				int len = Math.max( 2*blockStart.length, blocks + list.size() );
+				int[] help = new int[len];
+				System.arraycopy( blockStart, 0, help, 0, blocks );
+				blockStart = help;
+				help = new int[len];
+				System.arraycopy( blockLength, 0, help, 0, blocks );
+				blockLength = help;
+			}
+			for( AlignmentBlock block : list ) {
+				blockStart[blocks] = block.getReferenceStart();
+				blockLength[blocks] = block.getLength();
+				blocks++;
+			}
+			blockIndex[size+1] = blocks;
+			if( records != null ) {
+				records[size] = rec;
+			}
+			size++;
+		}
+
+		private boolean isFull() {
+			return size == flags.length;
+		}
+
+		/**
+		 * Returns the index of the reference sequence of the records, or -1 for unplaced records.
+		 *
+		 * @return the index of the reference sequence
+		 */
+		public int getReferenceIndex() {
+			return reference;
+		}
+
+		/**
+		 * Returns the name of the reference sequence of the records.
+		 *
+		 * @return the name of the reference sequence
+		 *
+		 * @see SAMRecord#getReferenceName()
+		 */
+		public String getReferenceName() {
+			return referenceName;
+		}
+
+		/**
+		 * Returns the number of records in this batch.
+		 *
+		 * @return the number of records
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @see SAMRecord#getFlags()
+		 */
+		public int getFlags( int i ) {
+			return flags[i];
+		}
+
+		/**
+		 * @see SAMRecord#getReadUnmappedFlag()
+		 */
+		public boolean getReadUnmappedFlag( int i ) {
+			return (flags[i] & 0x4) != 0;
+		}
+
+		/**
+		 * @see SAMRecord#getReadNegativeStrandFlag()
+		 */
+		public boolean getReadNegativeStrandFlag( int i ) {
+			return (flags[i] & 0x10) != 0;
+		}
+
+		/**
+		 * @see SAMRecord#getMappingQuality()
+		 */
+		public int getMappingQuality( int i ) {
+			return mappingQuality[i];
+		}
+
+		/**
+		 * @see SAMRecord#getAlignmentStart()
+		 */
+		public int getAlignmentStart( int i ) {
+			return start[i];
+		}
+
+		/**
+		 * @see SAMRecord#getAlignmentEnd()
+		 */
+		public int getAlignmentEnd( int i ) {
+			return end[i];
+		}
+
+		/**
+		 * @see SAMRecord#getUnclippedStart()
+		 */
+		public int getUnclippedStart( int i ) {
+			return unclippedStart[i];
+		}
+
+		/**
+		 * @see SAMRecord#getUnclippedEnd()
+		 */
+		public int getUnclippedEnd( int i ) {
+			return unclippedEnd[i];
+		}
+
+		/**
+		 * Returns the number of aligned blocks of record <code>i</code>.
+		 *
+		 * @see SAMRecord#getAlignmentBlocks()
+		 */
+		public int getNumberOfBlocks( int i ) {
+			return blockIndex[i+1]-blockIndex[i];
+		}
+
+		/**
+		 * Returns the (1-based) start on the reference sequence of block <code>b</code> of record <code>i</code>.
+		 *
+		 * @see AlignmentBlock#getReferenceStart()
+		 */
+		public int getBlockStart( int i, int b ) {
+			return blockStart[blockIndex[i]+b];
+		}
+
+		/**
+		 * Returns the length of block <code>b</code> of record <code>i</code>.
+		 *
+		 * @see AlignmentBlock#getLength()
+		 */
+		public int getBlockLength( int i, int b ) {
+			return blockLength[blockIndex[i]+b];
+		}
+
+		/**
+		 * Returns record <code>i</code> if the records are kept, otherwise <code>null</code>.
+		 *
+		 * @return the record
+		 */
+		public SAMRecord getRecord( int i ) {
+			return records == null ? null : records[i];
+		}
+	}
+
+	private SAMFileHeader header;
+	private ExecutorService pool;
+	private ArrayList<ArrayBlockingQueue<RecordBatch>> queues;
+	private Exception[] errors;
+	private int current;
+
+	/**
+	 * Creates a new reader and starts reading.
+	 *
+	 * @param bam the BAM file
+	 * @param stringency the validation stringency
+	 * @param threads the number of worker threads, the file is read by reference sequences only if it is indexed and <code>threads</code> is larger than 1
+	 * @param keepRecords if <code>true</code> the batches keep the {@link SAMRecord}s
+	 * @param assertSorted if <code>true</code> it is checked that the file is sorted by coordinate, i.e., that the records of each
+	 * reference sequence are sorted by coordinate if the file is read by reference sequences
+	 *
+	 * @throws IOException if the file could not be opened
+	 */
+	public ParallelBAMReader( String bam, ValidationStringency stringency, int threads, boolean keepRecords, boolean assertSorted ) throws IOException {
+		SamReaderFactory srf = SamReaderFactory.makeDefault();
+		srf.validationStringency( stringency );
+		File file = new File( bam );
+
+		SamReader sr = srf.open( file );
+		header = sr.getFileHeader();
+		ArrayList<String> refs = threads > 1 ? getReferences( sr ) : null;
+		sr.close();
+
+		queues = new ArrayList<ArrayBlockingQueue<RecordBatch>>();
+		if( refs == null ) {
+			errors = new Exception[1];
+			pool = Executors.newFixedThreadPool( 1, DAEMON );
+			submit( srf, file, null, keepRecords, assertSorted );
+		} else {
+			errors = new Exception[refs.size()+1];
+			pool = Executors.newFixedThreadPool( threads, DAEMON );
+			for( String chr : refs ) {
+				submit( srf, file, chr, keepRecords, assertSorted );
+			}
+			//the unplaced records at the end of the file
+			submit( srf, file, "", keepRecords, assertSorted );
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Creates a new reader for the records of the given reference sequences of an indexed file and starts reading.
+	 * The records of each reference sequence are read by a separate query, and the batches are returned in the order of <code>references</code>.
+	 *
+	 * @param bam the BAM file
+	 * @param stringency the validation stringency
+	 * @param threads the number of worker threads
+	 * @param keepRecords if <code>true</code> the batches keep the {@link SAMRecord}s
+	 * @param assertSorted if <code>true</code> it is checked that the records of each reference sequence are sorted by coordinate
+	 * @param references the names of the reference sequences, an empty name denotes the unplaced records at the end of the file
+	 *
+	 * @throws IOException if the file could not be opened
+	 */
+	public ParallelBAMReader( String bam, ValidationStringency stringency, int threads, boolean keepRecords, boolean assertSorted, List<String> references ) throws IOException {
+		SamReaderFactory srf = SamReaderFactory.makeDefault();
+		srf.validationStringency( stringency );
+		File file = new File( bam );
+
+		SamReader sr = srf.open( file );
+		header = sr.getFileHeader();
+		sr.close();
+
+		queues = new ArrayList<ArrayBlockingQueue<RecordBatch>>();
+		errors = new Exception[references.size()];
+		pool = Executors.newFixedThreadPool( Math.max( 1, Math.min( threads, references.size() ) ), DAEMON );
+		for( String chr : references ) {
+			submit( srf, file, chr, keepRecords, assertSorted );
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Returns the names of the reference sequences that have records according to the index, in the order of the file.
+	 *
+	 * @param sr the reader
+	 *
+	 * @return the names of the reference sequences or <code>null</code> if the file is not indexed
+	 */
+	public static ArrayList<String> getReferences( SamReader sr ) {
+		if( !sr.hasIndex() ) {
+			return null;
+		}
+		BAMIndex index = sr.indexing().getIndex();
+		ArrayList<String> refs = new ArrayList<String>();
+		for( SAMSequenceRecord seq : sr.getFileHeader().getSequenceDictionary().getSequences() ) {
+			BAMIndexMetaData meta = index.getMetaData(seq.getSequenceIndex());
+			if( meta != null && meta.getAlignedRecordCount()+meta.getUnalignedRecordCount() > 0 ) {
+				refs.add(seq.getSequenceName());
+			}
+		}
+		return refs;
+	}
+
+	/**
+	 * Submits a task that reads the whole file (<code>chr == null</code>), the records of one reference sequence, or the unplaced records (<code>chr</code> is empty).
+	 */
+	private void submit( final SamReaderFactory srf, final File file, final String chr, final boolean keepRecords, final boolean assertSorted ) {
+		final ArrayBlockingQueue<RecordBatch> queue = new ArrayBlockingQueue<RecordBatch>( QUEUE_SIZE );
+		final int idx = queues.size();
+		queues.add( queue );
+		pool.submit( new Runnable() {
+			public void run() {
+				SamReader sr = null;
+				SAMRecordIterator it = null;
+				try {
+					sr = srf.open( file );
+					if( chr == null ) {
+						it = sr.iterator();
+					} else if( chr.length() == 0 ) {
+						it = sr.queryUnmapped();
+					} else {
+						it = sr.query( chr, 0, 0, false );
+					}
+					if( assertSorted ) {
+						it = it.assertSorted( SortOrder.coordinate );
+					}
+					RecordBatch batch = null;
+					while( it.hasNext() ) {
+						SAMRecord rec = it.next();
+						int ref = rec.getReferenceIndex();
+						if( batch != null && (batch.isFull() || batch.reference != ref) ) {
+							queue.put( batch );
+							batch = null;
+						}
+						if( batch == null ) {
+							batch = new RecordBatch( ref, rec.getReferenceName(), keepRecords );
+						}
+						batch.add( rec );
+					}
+					if( batch != null ) {
+						queue.put( batch );
+					}
+				} catch( InterruptedException e ) {
+					//the reader has been closed
+					return;
+				} catch( Exception e ) {
+					errors[idx] = e;
+				} finally {
+					try {
+						if( it != null ) {
+							it.close();
+						}
+						if( sr != null ) {
+							sr.close();
+						}
+					} catch( Exception e ) {
+						if( errors[idx] == null ) {
+							errors[idx] = e;
+						}
+					}
+				}
+				try {
+					queue.put( END );
+				} catch( InterruptedException e ) {
+					//the reader has been closed
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Returns the header of the file.
+	 *
+	 * @return the header
+	 */
+	public SAMFileHeader getFileHeader() {
+		return header;
+	}
+
+	/**
+	 * Returns the next batch of records.
+	 *
+	 * @return the next batch or <code>null</code> if all records have been read
+	 *
+	 * @throws IOException if the file could not be read
+	 */
+	public RecordBatch next() throws IOException {
+		while( current < queues.size() ) {
+			RecordBatch batch;
+			try {
+				batch = queues.get( current ).take();
+			} catch( InterruptedException e ) {
+				throw new InterruptedIOException( e.getMessage() );
+			}
+			if( batch != END ) {
+				return batch;
+			}
+			Exception e = errors[current];
+			queues.set( current, null );
+			current++;
+			if( e != null ) {
+				close();
+				throw e instanceof IOException ? (IOException) e : new IOException( e );
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the records of this reader, which must keep the records.
+	 * Errors while reading are thrown as {@link RuntimeException}s like in {@link SAMRecordIterator}.
+	 *
+	 * @return the {@link Iterator} over the records
+	 */
+	public Iterator<SAMRecord> recordIterator() {
+		return new Iterator<SAMRecord>() {
+
+			private RecordBatch batch;
+			private int i;
+
+			public boolean hasNext() {
+				while( batch == null || i == batch.size() ) {
+					try {
+						batch = ParallelBAMReader.this.next();
+					} catch( IOException e ) {
+						throw new RuntimeException( e );
+					}
+					i = 0;
+					if( batch == null ) {
+						return false;
+					} else if( batch.records == null ) {
+						throw new IllegalStateException( "The records are not kept." );
+					}
+				}
+				return true;
+			}
+
+			public SAMRecord next() {
+				if( !hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				return batch.records[i++];
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+}
@@ -21,7 +21,6 @@ package projects.dimont;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -32,6 +31,10 @@ import javax.imageio.ImageIO;
 
 import de.jstacs.Storable;
 import de.jstacs.algorithms.optimization.ConstantStartDistance;
+import de.jstacs.algorithms.optimization.DifferentiableFunction;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer.Worker;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer.WorkerFactory;
 import de.jstacs.algorithms.optimization.NegativeDifferentiableFunction;
 import de.jstacs.algorithms.optimization.Optimizer;
 import de.jstacs.algorithms.optimization.StartDistanceForecaster;
@@ -63,8 +66,10 @@ import de.jstacs.data.sequences.annotation.ReferenceSequenceAnnotation;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.data.sequences.annotation.SequenceAnnotationParser;
 import de.jstacs.data.sequences.annotation.SplitSequenceAnnotationParser;
+import de.jstacs.io.ArrayHandler;
 import de.jstacs.io.FileManager;
 import de.jstacs.io.XMLParser;
+import de.jstacs.motifDiscovery.KMereStatistic;
 import de.jstacs.motifDiscovery.MotifDiscoverer.KindOfProfile;
 import de.jstacs.motifDiscovery.MutableMotifDiscoverer;
 import de.jstacs.motifDiscovery.MutableMotifDiscovererToolbox;
@@ -96,6 +101,16 @@ public class Dimont {
 	
 	private static final double ALPHA = 1E-3;
 	
+	/**
+	 * The minimal number of sequences per thread of the objective function used in the pre-optimization.
+	 */
+	private static final int MIN_SEQUENCES_PER_THREAD = 250;
+	
+	/**
+	 * The number of consecutive pre-optimization starts that are compared to decide about the abandonment of later starts.
+	 */
+	private static final int COHORT = 5;
+	
 	/**
 	 * @param args
 	 */
@@ -128,6 +143,7 @@ public class Dimont {
 		String weightingFactor = cParams.getValueFromTag( DimontParameterSet.WEIGHTING_FACTOR, String.class );
 		double ess = cParams.getValueFromTag( DimontParameterSet.ESS, Double.class );
 		boolean delete = cParams.getValueFromTag( DimontParameterSet.DELETE, Boolean.class );
+		boolean abandon = cParams.getValueFromTag( DimontParameterSet.ABANDON, Boolean.class );
 		int threads;
 		if( cParams.isSet(DimontParameterSet.THREADS) ) {
 			threads = cParams.getValueFromTag( DimontParameterSet.THREADS, Integer.class );
@@ -137,7 +153,7 @@ public class Dimont {
 		
 		SequenceAnnotationParser parser = new SplitSequenceAnnotationParser(":", ";");
 		
-		Result[][] res = run( SparseSequence.getDataSet(DNAAlphabetContainer.SINGLETON, fgData, parser),motifLength,restarts,fgOrder,bgOrder,position,value,sd,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( System.out ));
+		Result[][] res = run( SparseSequence.getDataSet(DNAAlphabetContainer.SINGLETON, fgData, parser),motifLength,restarts,fgOrder,bgOrder,position,value,sd,weightingFactor,ess,delete,threads,abandon, SafeOutputStream.getSafeOutputStream( System.out ));
 		
 		for(int i=0;i<res.length;i++){
 			StorableResult sr = (StorableResult) res[i][0];
@@ -164,6 +180,11 @@ public class Dimont {
 	
 	public static Result[][] run(DataSet fgData, int motifLength, int restarts, int fgOrder, int bgOrder, String position,
 			String value, double sd, String weightingFactor, double ess, boolean delete, int threads, SafeOutputStream out) throws Exception {
+		return run( fgData, motifLength, restarts, fgOrder, bgOrder, position, value, sd, weightingFactor, ess, delete, threads, false, out );
+	}
+	
+	public static Result[][] run(DataSet fgData, int motifLength, int restarts, int fgOrder, int bgOrder, String position,
+			String value, double sd, String weightingFactor, double ess, boolean delete, int threads, boolean abandon, SafeOutputStream out) throws Exception {
 	
 		//double sd=75;
 		double filterThreshold = 0.3;
@@ -327,31 +348,20 @@ public class Dimont {
 				new IterationCondition(25) 
 		);
 		ComparableElement<double[], Double>[] preOpt = new ComparableElement[restarts];
+		String[] protocol = new String[restarts];
+		//small data sets do not keep many threads busy, hence several starts are optimized concurrently
+		int innerThreads = Math.max( 1, Math.min( threads, smallData.getNumberOfElements() / MIN_SEQUENCES_PER_THREAD ) );
+		//optionally, starts that are clearly losing are abandoned after 10, 30, 90, ... iterations
+		MultiStartOptimizer multiStart = new MultiStartOptimizer( algo, stop, eps*1E-1, Math.max( 1, threads / innerThreads ), COHORT, abandon ? 10 : 0, 3 );
+		boolean[] abandoned = multiStart.optimize( restarts, new PreOptimizationFactory( innerThreads, score, beta, free, smallData, smallWeight, completeData, completeWeight, sortedPars, preOpt, protocol ) );
 		for( int r = 0; r < restarts; r++ ) {
-			data[0] = smallData;
-			weights = smallWeight;
-			objective.setDataAndWeights( data, weights );
-			objective.resetHeuristics();
-			
-			out.writeln("-----------------------------------------\npre-optimization " + r);
-			
-			start.reset();
-			
-			p = sortedPars[sortedPars.length-1-r].getElement();			
-			objective.setParams(p);
-			Optimizer.optimize( algo, neg, p, stop, eps*1E-1, start, null );
-			
-			data[0] = completeData;
-			weights = completeWeight;
-			objective.setDataAndWeights( data, weights );
-			preOpt[r] = new ComparableElement<double[], Double>( p, objective.evaluateFunction(p) );
-			
-			out.writeln("consensus: "+getConsensus( DNAAlphabetContainer.SINGLETON, (((MarkovModelDiffSM)((AbstractSingleMotifChIPper) score[0]).getFunction( 0 ) ).getPWM())));
-			out.writeln(  "score: "+preOpt[r].getWeight() );
-			//System.out.println(score[0]);
-			((AbstractSingleMotifChIPper)score[0]).resetPositions();
+			out.writeln("-----------------------------------------\npre-optimization " + r + (abandoned[r] ? " (abandoned)" : "") );
+			out.writeln( protocol[r] );
 		}
 		out.writeln("-----------------------------------------");
+		data[0] = completeData;
+		weights = completeWeight;
+		objective.setDataAndWeights( data, weights );
 		
 		//filter out redundant motifs
 		Arrays.sort( preOpt );
@@ -483,6 +493,89 @@ public class Dimont {
 	}
 	
 	
+	/**
+	 * The factory for the {@link PreOptimizationWorker}s.
+	 */
+	private static class PreOptimizationFactory implements WorkerFactory {
+		
+		private int threads;
+		private DifferentiableStatisticalModel[] score;
+		private double[] beta;
+		private boolean free;
+		private DataSet smallData, completeData;
+		private double[][] smallWeight, completeWeight;
+		private ComparableElement<double[], Double>[] sortedPars, preOpt;
+		private String[] protocol;
+		
+		private PreOptimizationFactory( int threads, DifferentiableStatisticalModel[] score, double[] beta, boolean free, DataSet smallData, double[][] smallWeight,
+				DataSet completeData, double[][] completeWeight, ComparableElement<double[], Double>[] sortedPars, ComparableElement<double[], Double>[] preOpt, String[] protocol ) {
+			this.threads = threads;
+			this.score = score;
+			this.beta = beta;
+			this.free = free;
+			this.smallData = smallData;
+			this.smallWeight = smallWeight;
+			this.completeData = completeData;
+			this.completeWeight = completeWeight;
+			this.sortedPars = sortedPars;
+			this.preOpt = preOpt;
+			this.protocol = protocol;
+		}
+		
+		public Worker createWorker() throws Exception {
+			return new PreOptimizationWorker( this );
+		}
+	}
+	
+	/**
+	 * A worker for the pre-optimization that uses its own clones of the models and its own objective function.
+	 */
+	private static class PreOptimizationWorker implements Worker {
+		
+		private PreOptimizationFactory factory;
+		private DifferentiableStatisticalModel[] score;
+		private HeuristicOneDataSetLogGenDisMixFunction objective;
+		private NegativeDifferentiableFunction neg;
+		private StartDistanceForecaster start;
+		
+		private PreOptimizationWorker( PreOptimizationFactory factory ) throws Exception {
+			this.factory = factory;
+			score = ArrayHandler.clone( factory.score );
+			objective = new HeuristicOneDataSetLogGenDisMixFunction( factory.threads, score, factory.smallData, factory.smallWeight, new CompositeLogPrior(), factory.beta, true, factory.free );
+			objective.reset( score );
+			neg = new NegativeDifferentiableFunction( objective );
+			start = new ConstantStartDistance(1);
+		}
+
+		public double[] prepare( int r ) throws Exception {
+			objective.setDataAndWeights( new DataSet[]{factory.smallData}, factory.smallWeight );
+			objective.resetHeuristics();
+			double[] p = factory.sortedPars[factory.sortedPars.length-1-r].getElement();
+			objective.setParams(p);
+			return p;
+		}
+
+		public DifferentiableFunction getFunction() {
+			return neg;
+		}
+
+		public StartDistanceForecaster getStartDistance() {
+			return start;
+		}
+
+		public void finish( int r, double[] p, boolean abandoned ) throws Exception {
+			objective.setDataAndWeights( new DataSet[]{factory.completeData}, factory.completeWeight );
+			factory.preOpt[r] = new ComparableElement<double[], Double>( p, objective.evaluateFunction(p) );
+			factory.protocol[r] = "consensus: "+getConsensus( DNAAlphabetContainer.SINGLETON, (((MarkovModelDiffSM)((AbstractSingleMotifChIPper) score[0]).getFunction( 0 ) ).getPWM()))
+					+ "\nscore: "+factory.preOpt[r].getWeight();
+			((AbstractSingleMotifChIPper)score[0]).resetPositions();
+		}
+
+		public void close() {
+			objective.stopThreads();
+		}
+	}
+	
 	public static ListResult getListResult( DataSet data, double[] weights, Pair<double[][][], int[][]> pair, int motifLength, int motifIndex ) throws Exception {
 		
 		SplitSequenceAnnotationParser pars = new SplitSequenceAnnotationParser( ":", ";" );
@@ -851,45 +944,8 @@ public class Dimont {
 		if( !con.isSimple() || !con.isDiscrete() ) {
 			throw new WrongAlphabetException();
 		}
-		Hashtable<String, double[]> res = new Hashtable<String, double[]>();
-		HashSet<String> used = new HashSet<String>();
-		
-		//run over all sequences
-		int m, l, n;
-		Sequence seq;
-		String[] s = new String[2];
-		for( n = 0; n < weights.length; n++ ) {
-			seq = data.getElementAt( n );
-			s[0] = seq.toString();
-			s[1] = seq.reverseComplement().toString();
-			m = seq.getLength()-k+1;
-			
-			
-			//run over all k-mers
-			used.clear();
-			for( l = 0; l < m; l++ ) {
-				String h0 = s[0].substring( l, l+k );
-				String h1 = s[1].substring( s[0].length()-k-l, s[0].length()-l );
-				h0 = h0.compareTo(h1) < 0 ? h0 : h1;
-				if( !used.contains( h0 ) ) {
-					used.add( h0 );
-				}
-				
-			}
-			
-			Iterator<String> it = used.iterator();
-			double[] h;
-			while( it.hasNext() ) {
-				s[0] = it.next();
-				if( res.containsKey( s[0] ) ) {
-					h = res.get( s[0] );
-					h[0] += weights[n];
-					h[1] += 1d-weights[n];
-				} else {
-					res.put( s[0], new double[]{weights[n],1d-weights[n]} );
-				}
-			}
-		}
+		//count each k-mer once per sequence
+		Hashtable<String, double[]> res = KMereStatistic.getWeightedKmereSequenceStatistic( k, data, weights );
 		
 		
 		double sumFg = ToolBox.sum( weights );
@@ -15,6 +15,7 @@ import de.jstacs.DataType;
 import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.GenDisMixClassifier;
 import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.data.sequences.PackedGenome;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.parameters.FileParameter;
@@ -35,6 +36,7 @@ import de.jstacs.tools.ToolParameterSet;
 import de.jstacs.tools.ToolResult;
 import de.jstacs.tools.ui.cli.CLI;
 import de.jstacs.utils.IntList;
+import de.jstacs.utils.Pair;
 import de.jstacs.utils.SafeOutputStream;
 
 /**
@@ -59,7 +61,7 @@ public class DimontGenomeScan implements JstacsTool {
 		
 		parameters.add(new FileParameter("Dimont classifier", "The classifier from the Dimont output for one motif", "xml", true));
 		
-		parameters.add(new FileParameter("Input file", "The file containing the sequences to be scanned (e.g., a genome)", "fasta,fa,fas", true));
+		parameters.add(new FileParameter("Input file", "The file containing the sequences to be scanned (e.g., a genome) in FastA format or as packed genome (see de.jstacs.data.sequences.PackedGenome)", "fasta,fa,fas,packed", true));
 		
 		try {
 			parameters.add(new SimpleParameter(DataType.DOUBLE, "Threshold", "Threshold on the required per-base probability", true, new NumberValidator<Double>(0d, 1d), 0.25 ));
@@ -86,7 +88,10 @@ public class DimontGenomeScan implements JstacsTool {
 		double threshold = Math.log((Double)parameters.getParameterAt(2).getValue())*model.getLength();
 		
 		StringBuffer lastHeader = new StringBuffer();
-		BufferedReader read = new BufferedReader(new FileReader(((FileParameter)parameters.getParameterAt(1)).getFileContents().getFilename()));
+		String genome = ((FileParameter)parameters.getParameterAt(1)).getFileContents().getFilename();
+		PackedGenome packed = PackedGenome.isPackedGenome(genome) ? new PackedGenome(genome) : null;
+		BufferedReader read = packed == null ? new BufferedReader(new FileReader(genome)) : null;
+		int contig = 0;
 		
 		File out = File.createTempFile("dimontscan", "_dgs.temp");
 		out.deleteOnExit(); 
@@ -94,7 +99,8 @@ public class DimontGenomeScan implements JstacsTool {
 		SafeOutputStream sos = SafeOutputStream.getSafeOutputStream(new FileOutputStream(out));
 
 		boolean best = (Boolean) parameters.getParameterAt(3).getValue();
-		while( readNextSequences(read, lastHeader, model2.getLength()) ){
+		double[][] profile = new double[2][PROFILE_BLOCK];
+		while( packed != null ? nextContig(packed, contig++, model2.getLength()) : readNextSequences(read, lastHeader, model2.getLength()) ){
 			Iterator<Sequence> it = seqs.iterator();
 			int i = 0;
 			while( it.hasNext() ) {
@@ -102,8 +108,17 @@ public class DimontGenomeScan implements JstacsTool {
 				String id = seq.getSequenceAnnotationByType("id", 0).getIdentifier().trim();
 				int off = starts.get(i);
 				
-				for(int j=0;j<seq.getLength()-model2.getLength()+1;j++){
-					double[] compScore = model2.getComponentScores(seq, j);
+				//component scores of the windows of the sequence, computed in blocks
+				int n = seq.getLength()-model2.getLength()+1, b = 0;
+				double[] compScore = new double[2];
+				
+				for(int j=0;j<n;j++){
+					if( j == b ) {
+						b = Math.min( n, j+PROFILE_BLOCK );
+						model2.getComponentScoreProfiles(seq, j, b+model2.getLength()-1, profile[0], profile[1]);
+					}
+					compScore[0] = profile[0][j%PROFILE_BLOCK];
+					compScore[1] = profile[1][j%PROFILE_BLOCK];
 					
 					int idx = compScore[0] >= compScore[1] ? 0 : 1;
 					
@@ -122,6 +137,11 @@ public class DimontGenomeScan implements JstacsTool {
 		}
 		
 		sos.close();
+		if( read != null ) {
+			read.close();
+		} else {
+			packed.close();
+		}
 		
 		return new ToolResult("Dimont predictions", "", null, new ResultSet( new TextResult("Dimont predictions", "Result", new FileParameter.FileRepresentation(out.getAbsolutePath()), "txt", getToolName(), null, true)), parameters, getToolName(), new Date());
 		
@@ -132,6 +152,29 @@ public class DimontGenomeScan implements JstacsTool {
 	static IntList starts = new IntList();
 	static ArrayList<Sequence> seqs = new ArrayList<Sequence>();
 	
+	private static final int PROFILE_BLOCK = 1<<20;
+	
+	/**
+	 * Sets the parts of the contig <code>contig</code> of the packed genome as current sequences.
+	 * 
+	 * @param packed the packed genome
+	 * @param contig the index of the contig
+	 * @param modelLength the minimal length of the parts
+	 * 
+	 * @return <code>true</code> if the genome contains the contig
+	 * 
+	 * @throws Exception if the parts could not be created
+	 */
+	private static boolean nextContig(PackedGenome packed, int contig, int modelLength ) throws Exception {
+		Pair<IntList, ArrayList<Sequence>> pair = packed.getSequences(contig, modelLength, null);
+		if( pair == null ) {
+			return false;
+		}
+		starts = pair.getFirstElement();
+		seqs = pair.getSecondElement();
+		return true;
+	}
+	
 	//TODO large chromosomes
 	public static boolean readNextSequences(BufferedReader read, StringBuffer lastHeader,  int modelLength ) throws Exception {
 		//System.out.println("started reading");
@@ -44,10 +44,11 @@ public class DimontParameterSet extends SimpleParameterSet {
 	public static final String WEIGHTING_FACTOR = "weightingFactor";
 	public static final String ESS = "ess";
 	public static final String DELETE = "delete";
+	public static final String ABANDON = "abandon";
 	public static final String THREADS = "threads";
 
 	public static final String[] PREFIX = {
-        HOME, DATA, INFIX, POSITION_TAG, VALUE_TAG, SD, WEIGHTING_FACTOR, STARTS, LENGTH, MOTIF_ORDER, BG_ORDER, ESS, DELETE, THREADS
+        HOME, DATA, INFIX, POSITION_TAG, VALUE_TAG, SD, WEIGHTING_FACTOR, STARTS, LENGTH, MOTIF_ORDER, BG_ORDER, ESS, DELETE, ABANDON, THREADS
     };
 	
 	public DimontParameterSet() throws Exception {
@@ -77,6 +78,8 @@ public class DimontParameterSet extends SimpleParameterSet {
 		
 		parameters.add( new SimpleParameter( DataType.BOOLEAN, "Delete BSs from profile", "A switch for deleting binding site positions of discovered motifs from the profile before searching for futher motifs.", true, true ) );
 		
+		parameters.add( new SimpleParameter( DataType.BOOLEAN, "Abandon starts", "A switch for abandoning pre-optimization starts that are clearly losing compared to previous starts.", true, false ) );
+		
 		parameters.add( new SimpleParameter( DataType.INT, "Compute threads", "The number of threads that are use to evaluate the objective function and its gradient.", false, new NumberValidator<Integer>(1,128) ) );
 	}
 }
@@ -68,12 +68,13 @@ public class DimontWeb {
 		String weightingFactor = (String)params.getParameterForName( "Weighting factor" ).getValue();
 		double ess = (Double)params.getParameterForName( "Equivalent sample size" ).getValue();
 		boolean delete = (Boolean)params.getParameterForName( "Delete BSs from profile" ).getValue();
+		boolean abandon = (Boolean)params.getParameterForName( "Abandon starts" ).getValue();
 		int threads = ga.getThreads();
 		
 		Protocol prot = ga.getProtocol( false );
 		ByteArrayOutputStream baos = prot.getOutputStream();
 		
-		Result[][] res = Dimont.run( data,motifLength,restarts,fgOrder,bgOrder,position,value,sd,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( baos ));
+		Result[][] res = Dimont.run( data,motifLength,restarts,fgOrder,bgOrder,position,value,sd,weightingFactor,ess,delete,threads,abandon, SafeOutputStream.getSafeOutputStream( baos ));
 		
 		NumberFormat nf = DecimalFormat.getInstance( Locale.ENGLISH );
 		nf.setMaximumFractionDigits( 3 );
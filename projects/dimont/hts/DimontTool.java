@@ -24,7 +24,6 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -65,6 +64,7 @@ import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.data.sequences.annotation.SplitSequenceAnnotationParser;
 import de.jstacs.io.FileManager;
 import de.jstacs.io.SparseStringExtractor;
+import de.jstacs.motifDiscovery.KMereStatistic;
 import de.jstacs.motifDiscovery.MotifDiscoverer.KindOfProfile;
 import de.jstacs.motifDiscovery.MutableMotifDiscoverer;
 import de.jstacs.motifDiscovery.MutableMotifDiscovererToolbox;
@@ -1144,45 +1144,8 @@ public class DimontTool implements JstacsTool {
 		if( !con.isSimple() || !con.isDiscrete() ) {
 			throw new WrongAlphabetException();
 		}
-		Hashtable<String, double[]> res = new Hashtable<String, double[]>();
-		HashSet<String> used = new HashSet<String>();
-		
-		//run over all sequences
-		int m, l, n;
-		Sequence seq;
-		String[] s = new String[2];
-		for( n = 0; n < weights.length; n++ ) {
-			seq = data.getElementAt( n );
-			s[0] = seq.toString();
-			s[1] = seq.reverseComplement().toString();
-			m = seq.getLength()-k+1;
-			
-			
-			//run over all k-mers
-			used.clear();
-			for( l = 0; l < m; l++ ) {
-				String h0 = s[0].substring( l, l+k );
-				String h1 = s[1].substring( s[0].length()-k-l, s[0].length()-l );
-				h0 = h0.compareTo(h1) < 0 ? h0 : h1;
-				if( !used.contains( h0 ) ) {
-					used.add( h0 );
-				}
-				
-			}
-			
-			Iterator<String> it = used.iterator();
-			double[] h;
-			while( it.hasNext() ) {
-				s[0] = it.next();
-				if( res.containsKey( s[0] ) ) {
-					h = res.get( s[0] );
-					h[0] += weights[n];
-					h[1] += 1d-weights[n];
-				} else {
-					res.put( s[0], new double[]{weights[n],1d-weights[n]} );
-				}
-			}
-		}
+		//count each k-mer once per sequence
+		Hashtable<String, double[]> res = KMereStatistic.getWeightedKmereSequenceStatistic( k, data, weights );
 		
 		
 		double sumFg = ToolBox.sum( weights );
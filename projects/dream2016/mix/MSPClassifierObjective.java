@@ -45,15 +45,16 @@ public class MSPClassifierObjective extends AbstractMultiThreadedOptimizableFunc
 	public MSPClassifierObjective( int threads, OptimizableClassifier optCl, DataSet[] data, double[][] weights, boolean norm )
 																										throws IllegalArgumentException {
 		super( threads, data, weights, norm, false );
+		int parts = getNumberOfParts();
 		
-		optClassifiers = new OptimizableClassifier[threads];
+		optClassifiers = new OptimizableClassifier[parts];
 		this.optClassifiers[0] = optCl;
 		
-		value = new double[threads];
-		grad = new double[threads][];
+		value = new double[parts];
+		grad = new double[parts][];
 		
-		indices = new IntList[threads];
-		partDer = new DoubleList[threads];
+		indices = new IntList[parts];
+		partDer = new DoubleList[parts];
 		for( int t = 0; t < indices.length; t++ ) {
 			indices[t] = new IntList();
 			partDer[t] = new DoubleList();
@@ -204,6 +204,7 @@ public class NewMixtureClassifier extends AbstractScoreBasedClassifier implement
 	}
 	
 	public void setVote( Vote v ) {
+		notifyModification();
 		vote = v;
 	}
 	
@@ -350,6 +351,7 @@ System.out.println(model);
 	
 	@Override
 	public void train(DataSet[] s, double[][] weights) throws Exception {
+		notifyModification();
 		if( training == Training.COMBINED ) {
 			if( weights == null ){
 				weights = new double[s.length][];
@@ -605,10 +607,12 @@ System.out.println( i + ")\t" + sp[0].getNumberOfElements() + " vs. " + sp[1].ge
 	}
 
 	public void initialize( DataSet[] s, double[][] weights ) throws Exception {
+		notifyModification();
 		init( s, weights, true );
 	}
 	
 	public void initializeRandomly() throws Exception {
+		notifyModification();
 		model.initializeFunctionRandomly( false );
 		for( int j = 0; j < optComponent.length; j++ ) {
 			optComponent[j].initializeRandomly();
@@ -617,6 +621,7 @@ System.out.println( i + ")\t" + sp[0].getNumberOfElements() + " vs. " + sp[1].ge
 	}
 
 	public void reset() throws Exception {
+		notifyModification();
 		mixPrior.set( true, model );
 		for( int i = 0; i < optComponent.length; i++ ) {
 			optComponent[i].reset();
@@ -654,6 +659,7 @@ System.out.println( i + ")\t" + sp[0].getNumberOfElements() + " vs. " + sp[1].ge
 	}
 
 	public void setParameters( double[] params, int start ) throws Exception {
+		notifyModification();
 		System.arraycopy( params, start, this.mixParams, 0, this.mixParams.length );
 		System.arraycopy( params, start, this.params, 0, this.params.length );
 		model.setParameters( params, start );
@@ -17,6 +17,7 @@ package projects.encodedream;
  * For more information on Jstacs, visit http://www.jstacs.de
  */
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -62,6 +63,10 @@ public class FeatureReader {
 	
 	private AlphabetContainer alphabetContainer = new AlphabetContainer(new ContinuousAlphabet(true));
 	
+	private FeatureStore store;
+	private int lastRow;
+	private LinkedList<Integer> currRows;
+	
 	
 	public static HashMap<String,Integer> getSizes(String faiFile, int bin) throws NumberFormatException, IOException{
 		BufferedReader faidx = new BufferedReader(new InputStreamReader(new FileInputStream(faiFile)));
@@ -90,7 +95,59 @@ public class FeatureReader {
 		this.motifReaders = new BufferedReader[motifFiles.length];
 	}
 	
+	/**
+	 * Reads all features from the binary feature store <code>storeFile</code> instead of the text files.
+	 * If <code>storeFile</code> is <code>null</code> or empty, the text files are read as before.
+	 * If the store does not exist or has been converted from other or modified input files, the text files are converted once.
+	 * The store is kept and can be reused by later runs with the same input files.
+	 * Feature values are stored as floats, i.e., they may differ in the last digits from the values in the text files.
+	 */
+	public void useFeatureStore(String storeFile) throws IOException{
+		if(storeFile == null || storeFile.length() == 0){
+			return;
+		}
+		File f = new File(storeFile);
+		boolean convert = !f.exists() || f.length() == 0;
+		if(!convert){
+			try{
+				FeatureStore old = new FeatureStore(storeFile);
+				convert = !old.isConvertedFrom(labelsFile, dnaseFile, motifFiles);
+				old.close();
+			}catch(Exception e){
+				//not a (complete) feature store
+				convert = true;
+			}
+		}
+		if(convert){
+			FeatureStore.convert(labelsFile, dnaseFile, motifFiles, storeFile);
+		}
+		close();
+		store = new FeatureStore(storeFile);
+		if(labelsFile != null && !store.hasLabels()){
+			throw new IOException("The feature store "+storeFile+" does not contain labels.");
+		}
+		int[] cols = store.getColumns();
+		if(cols.length != 1+motifFiles.length){
+			throw new IOException("The feature store "+storeFile+" does not match the number of motif files.");
+		}
+		int num = 0;
+		for(int i=0;i<cols.length;i++){
+			num += cols[i];
+		}
+		sequenceLength = num*numBins;
+		motifsLength = (num-cols[0])*numBins;
+		dnaseLength = cols[0]*numBins;
+		reset();
+	}
+	
 	public void reset() throws FileNotFoundException, IOException{
+		if(store != null){
+			currLabels = new LinkedList<>();
+			currFeatures = new LinkedList<>();
+			currRows = new LinkedList<>();
+			lastRow = -1;
+			return;
+		}
 		close();
 		if(labelsFile != null){
 			this.labelsReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(labelsFile))));
@@ -225,11 +282,19 @@ public class FeatureReader {
 	public double[][] getPositiveHistogram() throws FileNotFoundException, IOException{
 		reset();
 		DoubleList values = new DoubleList();
-		String[] temp = null;
-		while( (temp = readNextLines())[0] != null ){
-			char lab = getLabel(temp);
-			if(lab == 'S'){
-				values.add(getDNaseMedian(temp));
+		if(store != null){
+			for(int i=0;i<store.getNumberOfRows();i++){
+				if(store.getLabel(i) == 'S'){
+					values.add(store.getValue(i, 0, 1));
+				}
+			}
+		}else{
+			String[] temp = null;
+			while( (temp = readNextLines())[0] != null ){
+				char lab = getLabel(temp);
+				if(lab == 'S'){
+					values.add(getDNaseMedian(temp));
+				}
 			}
 		}
 		
@@ -266,10 +331,11 @@ public class FeatureReader {
 		
 		reset();
 		String[] temp = null;
-		while( (temp = readNextLines())[0] != null ){
-			char lab = getLabel(temp);
+		int row = 0;
+		while( store != null ? row < store.getNumberOfRows() : (temp = readNextLines())[0] != null ){
+			char lab = store != null ? store.getLabel(row) : getLabel(temp);
 			if(lab == 'U'){
-				double curr = getDNaseMedian(temp);
+				double curr = store != null ? store.getValue(row, 0, 1) : getDNaseMedian(temp);
 				int idx = Arrays.binarySearch(breaks, curr);
 				if(idx < 0){
 					idx = -idx-1;
@@ -280,6 +346,7 @@ public class FeatureReader {
 				counts[idx]++;
 				
 			}
+			row++;
 		}
 		
 		return counts;
@@ -345,6 +412,9 @@ public class FeatureReader {
 	
 	
 	public boolean readNextFeatureVector() throws IOException{
+		if(store != null){
+			return moveWindow(lastRow < 0 ? Math.max((numBins-1)/2-1, 0) : lastRow+1);
+		}
 		
 		while(currLabels.size()<(numBins-1)/2-1){
 			String[] temp = readNextLines();
@@ -433,6 +503,36 @@ public class FeatureReader {
 	}
 	
 	
+	/**
+	 * Moves the window of bins such that its last bin is <code>row</code>, which yields the same window as reading the text files.
+	 */
+	private boolean moveWindow(int row) throws IOException{
+		if(row >= store.getNumberOfRows()){
+			return false;
+		}
+		if(currRows.size() == numBins && row == lastRow+1){
+			currLabels.removeFirst();
+			currFeatures.removeFirst();
+			currRows.removeFirst();
+			addRow(row);
+		}else{
+			currLabels.clear();
+			currFeatures.clear();
+			currRows.clear();
+			for(int m=0;m<numBins;m++){
+				addRow(Math.max(0, row-(numBins-1-m)));
+			}
+		}
+		lastRow = row;
+		return true;
+	}
+	
+	private void addRow(int row) throws IOException{
+		currLabels.add(store.getLabel(row));
+		currFeatures.add(store.getFeatures(row));
+		currRows.add(row);
+	}
+	
 	public static DataSet replaceNaN(DataSet data) throws WrongAlphabetException, WrongSequenceTypeException, EmptyDataSetException{
 		double[] means = new double[data.getElementLength()];
 		Arrays.fill(means, Double.MAX_VALUE);
@@ -578,11 +678,27 @@ public class FeatureReader {
 	}
 
 	public String getCurrentChromosome() {
+		if(store != null){
+			return store.getChromosome(currRows.get((numBins+1)/2));
+		}
 		String temp = currLines.get((numBins+1)/2)[1];
 		return temp.substring(0, temp.indexOf("\t"));
 	}
 
 	public boolean findChr(String chr) throws IOException {
+		if(store != null){
+			if(currRows.size()>0 && chr.equals(getCurrentChromosome())){
+				return true;
+			}
+			int first = store.getFirstRow(chr);
+			//the last bin of the window that has the first bin of chr in its center
+			int row = first <= 0 ? Math.max((numBins-1)/2-1, 0) : first+numBins-1-(numBins+1)/2;
+			if(first < 0 || !moveWindow(row)){
+				moveWindow(store.getNumberOfRows()-1);
+				return false;
+			}
+			return chr.equals(getCurrentChromosome());
+		}
 		while(currLines.size()==0||!chr.equals(getCurrentChromosome())){
 			if(!readNextFeatureVector()){
 				break;
@@ -600,7 +716,10 @@ public class FeatureReader {
 	}
 
 
-	public int getCurrentStart() {
+	public int getCurrentStart() throws IOException {
+		if(store != null){
+			return store.getStart(currRows.get((numBins+1)/2));
+		}
 		String temp = currLines.get((numBins+1)/2)[1];
 		temp = temp.substring(temp.indexOf("\t")+1);
 		temp = temp.substring(0, temp.indexOf("\t"));
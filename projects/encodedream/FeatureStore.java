@@ -0,0 +1,385 @@
+package projects.encodedream;
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import de.jstacs.DataType;
+import de.jstacs.parameters.SimpleParameter;
+import de.jstacs.parameters.SimpleParameter.DatatypeNotValidException;
+import de.jstacs.utils.IntList;
+
+/**
+ * Binary, columnar representation of the labels and features of a {@link FeatureReader}.
+ * The bins are stored in chunks of at most {@link #CHUNK_SIZE} bins of one chromosome. Each chunk contains the starts, the labels and
+ * one float column per feature value, and is memory-mapped and decoded as a whole when it is accessed.
+ *
+ * The bins are indexed by their (global) row in the original text files.
+ */
+public class FeatureStore implements Closeable {
+
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	private static final String MAGIC = "CatchittFeatureStore";
+	private static final int VERSION = 2;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+	private String[] sources;
+	private boolean hasLabels;
+	private int[] columns;
+	private int numColumns;
+
+	private String[] chunkChr;
+	private int[] chunkFirstRow;
+	private long[] chunkOffset;
+	private HashMap<String,Integer> firstRow;
+
+	private Chunk[] cache;
+
+	private static class Chunk {
+		private int index;
+		private int[] starts;
+		private byte[] labels;
+		private float[][] values;
+	}
+
+	/**
+	 * Creates the optional tool parameter for the path of a feature store.
+	 * 
+	 * @see FeatureReader#useFeatureStore(String)
+	 */
+	public static SimpleParameter getParameter() throws DatatypeNotValidException {
+		return new SimpleParameter(DataType.STRING, "Feature store", "Path of a binary feature store. If specified, the features are converted once to this file, which speeds up the repeated passes over the genome and is reused by later runs with the same feature files. "
+				+ "Feature values are stored as floats, i.e., results may differ marginally from runs without a feature store.", false);
+	}
+
+	/**
+	 * Converts the gzipped text files of labels (may be <code>null</code>), DNase and motif features to the binary format.
+	 * The file is first written to a temporary file next to <code>storeFile</code>, which is renamed when the conversion is complete.
+	 */
+	public static void convert(String labelsFile, String dnaseFile, String[] motifFiles, String storeFile) throws IOException {
+		FeatureReader reader = new FeatureReader(1, labelsFile, dnaseFile, motifFiles);
+		reader.reset();
+
+		File target = new File(storeFile).getAbsoluteFile();
+		File tmp = new File(target.getParentFile(), target.getName()+".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 20));
+		String[] sources = getSources(labelsFile, dnaseFile, motifFiles);
+		long offset = 0;
+
+		ArrayList<String> chrs = new ArrayList<>();
+		IntList sizes = new IntList();
+		ArrayList<Long> offsets = new ArrayList<>();
+
+		int[] cols = null;
+		int numCols = 0;
+		String currChr = null;
+		int n = 0;
+		int[] starts = new int[CHUNK_SIZE];
+		byte[] labels = new byte[CHUNK_SIZE];
+		float[][] values = null;
+		ByteBuffer buffer = ByteBuffer.allocate(4*CHUNK_SIZE);
+
+		String[] lines;
+		while( (lines = reader.readNextLines())[1] != null && (labelsFile == null || lines[0] != null) ){
+			double[][] feats = reader.getFeatureValues(lines);
+			if(cols == null){
+				cols = new int[feats.length];
+				for(int i=0;i<feats.length;i++){
+					cols[i] = feats[i].length;
+					numCols += cols[i];
+				}
+				values = new float[numCols][CHUNK_SIZE];
+				out.writeUTF(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(sources.length);
+				for(int i=0;i<sources.length;i++){
+					out.writeUTF(sources[i]);
+				}
+				out.writeBoolean(labelsFile != null);
+				out.writeInt(cols.length);
+				for(int i=0;i<cols.length;i++){
+					out.writeInt(cols[i]);
+				}
+				offset = out.size();
+			}
+			int tab = lines[1].indexOf('\t');
+			String chr = lines[1].substring(0, tab);
+			if(n == CHUNK_SIZE || (n > 0 && !chr.equals(currChr))){
+				offset = writeChunk(out, offset, currChr, n, starts, labelsFile != null ? labels : null, values, buffer, chrs, sizes, offsets);
+				n = 0;
+			}
+			currChr = chr;
+			starts[n] = Integer.parseInt(lines[1].substring(tab+1, lines[1].indexOf('\t', tab+1)));
+			Character lab = reader.getLabel(lines);
+			labels[n] = lab == null ? 0 : (byte) lab.charValue();
+			for(int i=0,k=0;i<feats.length;i++){
+				for(int j=0;j<feats[i].length;j++,k++){
+					values[k][n] = (float) feats[i][j];
+				}
+			}
+			n++;
+		}
+		reader.close();
+		if(cols == null){
+			out.close();
+			tmp.delete();
+			throw new IOException("No features found in "+dnaseFile);
+		}
+		if(n > 0){
+			offset = writeChunk(out, offset, currChr, n, starts, labelsFile != null ? labels : null, values, buffer, chrs, sizes, offsets);
+		}
+
+		//index of the chunks at the end of the file
+		out.writeInt(chrs.size());
+		for(int i=0;i<chrs.size();i++){
+			out.writeUTF(chrs.get(i));
+			out.writeInt(sizes.get(i));
+			out.writeLong(offsets.get(i));
+		}
+		out.writeLong(offset);
+		out.close();
+		if( (target.exists() && !target.delete()) || !tmp.renameTo(target) ){
+			throw new IOException("Could not create the feature store "+storeFile);
+		}
+	}
+
+	/**
+	 * Describes the input files by their absolute path, size and time of the last modification.
+	 */
+	private static String[] getSources(String labelsFile, String dnaseFile, String[] motifFiles) {
+		String[] files = new String[2+motifFiles.length];
+		files[0] = labelsFile;
+		files[1] = dnaseFile;
+		System.arraycopy(motifFiles, 0, files, 2, motifFiles.length);
+		String[] sources = new String[files.length];
+		for(int i=0;i<files.length;i++){
+			if(files[i] == null){
+				sources[i] = "";
+			}else{
+				File f = new File(files[i]).getAbsoluteFile();
+				sources[i] = f.getPath()+"\t"+f.length()+"\t"+f.lastModified();
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Checks whether this store has been converted from the given input files in their current state.
+	 */
+	public boolean isConvertedFrom(String labelsFile, String dnaseFile, String[] motifFiles) {
+		return Arrays.equals(sources, getSources(labelsFile, dnaseFile, motifFiles));
+	}
+
+	private static long writeChunk(DataOutputStream out, long offset, String chr, int n, int[] starts, byte[] labels, float[][] values, ByteBuffer buffer,
+			ArrayList<String> chrs, IntList sizes, ArrayList<Long> offsets) throws IOException {
+		chrs.add(chr);
+		sizes.add(n);
+		offsets.add(offset);
+
+		buffer.clear();
+		buffer.asIntBuffer().put(starts, 0, n);
+		out.write(buffer.array(), 0, 4*n);
+		offset += 4*n;
+		if(labels != null){
+			out.write(labels, 0, n);
+			offset += n;
+		}
+		for(int c=0;c<values.length;c++){
+			buffer.clear();
+			buffer.asFloatBuffer().put(values[c], 0, n);
+			out.write(buffer.array(), 0, 4*n);
+			offset += 4*n;
+		}
+		return offset;
+	}
+
+	public FeatureStore(String storeFile) throws IOException {
+		file = new RandomAccessFile(storeFile, "r");
+		channel = file.getChannel();
+		String magic = file.readUTF();
+		if(!MAGIC.equals(magic) || file.readInt() != VERSION){
+			file.close();
+			throw new IOException("The file "+storeFile+" is not a feature store.");
+		}
+		sources = new String[file.readInt()];
+		for(int i=0;i<sources.length;i++){
+			sources[i] = file.readUTF();
+		}
+		hasLabels = file.readBoolean();
+		columns = new int[file.readInt()];
+		for(int i=0;i<columns.length;i++){
+			columns[i] = file.readInt();
+			numColumns += columns[i];
+		}
+
+		file.seek(file.length()-8);
+		channel.position(file.readLong());
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		int num = in.readInt();
+		chunkChr = new String[num];
+		chunkFirstRow = new int[num+1];
+		chunkOffset = new long[num];
+		firstRow = new HashMap<>();
+		for(int i=0;i<num;i++){
+			chunkChr[i] = in.readUTF();
+			long end = (long) chunkFirstRow[i] + in.readInt();
+			if(end > Integer.MAX_VALUE){
+				file.close();
+				throw new IOException("Too many bins.");
+			}
+			chunkFirstRow[i+1] = (int) end;
+			chunkOffset[i] = in.readLong();
+			if(!firstRow.containsKey(chunkChr[i])){
+				firstRow.put(chunkChr[i], chunkFirstRow[i]);
+			}
+		}
+		cache = new Chunk[2];
+	}
+
+	public boolean hasLabels() {
+		return hasLabels;
+	}
+
+	/**
+	 * The number of values per bin of the DNase file (index 0) and the motif files (index 1 and following).
+	 */
+	public int[] getColumns() {
+		return columns.clone();
+	}
+
+	public int getNumberOfRows() {
+		return chunkFirstRow[chunkFirstRow.length-1];
+	}
+
+	/**
+	 * The first row of chromosome <code>chr</code> or -1 if the chromosome is not contained.
+	 */
+	public int getFirstRow(String chr) {
+		Integer row = firstRow.get(chr);
+		return row == null ? -1 : row;
+	}
+
+	private int getChunkIndex(int row) {
+		int idx = Arrays.binarySearch(chunkFirstRow, row);
+		//chunks are never empty
+		return idx < 0 ? -idx-2 : idx;
+	}
+
+	private Chunk getChunk(int idx) throws IOException {
+		if(cache[0] != null && cache[0].index == idx){
+			return cache[0];
+		}
+		if(cache[1] != null && cache[1].index == idx){
+			Chunk c = cache[1];
+			cache[1] = cache[0];
+			cache[0] = c;
+			return c;
+		}
+		int n = chunkFirstRow[idx+1] - chunkFirstRow[idx];
+		long size = 4L*n + (hasLabels ? n : 0) + 4L*numColumns*n;
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, chunkOffset[idx], size);
+		Chunk c = cache[1] == null ? new Chunk() : cache[1];
+		c.index = idx;
+		if(c.starts == null || c.starts.length < n){
+			c.starts = new int[n];
+			c.labels = new byte[n];
+			c.values = new float[numColumns][n];
+		}
+		map.asIntBuffer().get(c.starts, 0, n);
+		map.position(4*n);
+		if(hasLabels){
+			map.get(c.labels, 0, n);
+		}
+		for(int i=0;i<numColumns;i++){
+			map.slice().asFloatBuffer().get(c.values[i], 0, n);
+			map.position(map.position()+4*n);
+		}
+		cache[1] = cache[0];
+		cache[0] = c;
+		return c;
+	}
+
+	public String getChromosome(int row) {
+		return chunkChr[getChunkIndex(row)];
+	}
+
+	public int getStart(int row) throws IOException {
+		int idx = getChunkIndex(row);
+		return getChunk(idx).starts[row-chunkFirstRow[idx]];
+	}
+
+	public Character getLabel(int row) throws IOException {
+		if(!hasLabels){
+			return null;
+		}
+		int idx = getChunkIndex(row);
+		return (char) getChunk(idx).labels[row-chunkFirstRow[idx]];
+	}
+
+	/**
+	 * The <code>index</code>-th value of feature file <code>feature</code> (0 for DNase) in row <code>row</code>.
+	 */
+	public double getValue(int row, int feature, int index) throws IOException {
+		int idx = getChunkIndex(row);
+		int c = index;
+		for(int i=0;i<feature;i++){
+			c += columns[i];
+		}
+		return getChunk(idx).values[c][row-chunkFirstRow[idx]];
+	}
+
+	/**
+	 * The values of all feature files in row <code>row</code> as in {@link FeatureReader#getFeatureValues(String[])}.
+	 */
+	public double[][] getFeatures(int row) throws IOException {
+		int idx = getChunkIndex(row);
+		Chunk c = getChunk(idx);
+		int r = row-chunkFirstRow[idx];
+		double[][] feats = new double[columns.length][];
+		for(int i=0,k=0;i<columns.length;i++){
+			feats[i] = new double[columns[i]];
+			for(int j=0;j<columns[i];j++,k++){
+				feats[i][j] = c.values[k][r];
+			}
+		}
+		return feats;
+	}
+
+	@Override
+	public void close() throws IOException {
+		cache = null;
+		file.close();
+	}
+}
@@ -24,6 +24,8 @@ import java.util.Iterator;
 import java.util.LinkedList;
 
 import de.jstacs.utils.Pair;
+import de.jstacs.utils.ParallelBAMReader;
+import de.jstacs.utils.ParallelBAMReader.RecordBatch;
 import de.jstacs.utils.ToolBox;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
 import htsjdk.samtools.SAMRecord;
@@ -193,6 +195,21 @@ public class Pileup {
 	}
 	
 	public static void pileup(String bam, ObjectStream<? extends CovPile> piles, boolean variants, boolean coverage, boolean useClipping) throws IOException {
+		pileup(bam, piles, variants, coverage, useClipping, 1);
+	}
+	
+	/**
+	 * Computes the pileup of the reads in <code>bam</code>. If only the coverage is computed, the records are decoded by a {@link ParallelBAMReader}
+	 * using <code>threads</code> threads.
+	 * If <code>variants</code> are counted, <code>piles</code> receives {@link Pile}s, otherwise it receives {@link CovPile}s.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void pileup(String bam, ObjectStream<? extends CovPile> piles, boolean variants, boolean coverage, boolean useClipping, int threads) throws IOException {
+		PileupCollector collector = new PileupCollector((ObjectStream<CovPile>)piles, variants, coverage, useClipping);
+		if(!variants && coverage){
+			pileupCoverage(bam, collector, useClipping, threads);
+			return;
+		}
 		
 		SamReaderFactory srf = SamReaderFactory.makeDefault();
 		srf.validationStringency( ValidationStringency.SILENT );
@@ -209,49 +226,16 @@ public class Pileup {
 		map['G'] = 2;
 		map['T'] = 3;
 		
-		int[][] counts = null;
-		HashMap<Integer, LinkedList<String>> insertions = null;
-		if(variants){
-			counts = new int[10000][4+1+1+1];
-			insertions = new HashMap<Integer, LinkedList<String>>();
-		}
-		int[] totalCount = null;
-		if(coverage){
-			totalCount = new int[10000];
-		}
-		int refOff = 0;
-		
-		int maxEnd = 0;
-		
-		String oldChr = null;
-		
-		
 		while(samIt.hasNext()){
 			SAMRecord rec = samIt.next();
 			if(!rec.getReadUnmappedFlag()&&rec.getMappingQuality()>0){
 				int refStart = useClipping ? rec.getStart() : rec.getUnclippedStart();
-				String chr = rec.getReferenceName();
-				if (refStart < refOff && oldChr != null && chr.equals(oldChr)) {
-                    System.err.println("WARNING not sorted according to " + (useClipping ? "clipped" : "unclipped") + " coordinates: " + refStart + " <-> " + refOff);
-                    System.err.println(rec.getReadName());
-                }
-				if( (oldChr != null && !chr.equals(oldChr))){
-					collect((ObjectStream<CovPile>)piles,counts,totalCount,oldChr,refOff,maxEnd,maxEnd,insertions);
-					refOff = 0;
-					maxEnd = 0;
-					if(variants){
-						counts = new int[10000][4+1+1+1];
-						insertions.clear();
-					}
-					if(coverage){
-						totalCount = new int[10000];
-					}
-					
+				if(!collector.next(rec.getReferenceName(), refStart)){
+					System.err.println(rec.getReadName());
 				}
-				oldChr = chr;
-				
-				collect((ObjectStream<CovPile>)piles,counts,totalCount,chr,refOff,refStart,maxEnd,insertions);
-				refOff = refStart;
+				int refOff = collector.refOff;
+				int[][] counts = collector.counts;
+				HashMap<Integer, LinkedList<String>> insertions = collector.insertions;
 				
 				int refEnd = rec.getAlignmentEnd()+1;
 				int len = rec.getReadLength();
@@ -299,25 +283,119 @@ public class Pileup {
 					}
 				}
 				
-				if(coverage && !rec.getReadNegativeStrandFlag()){//count only 5' end
-					int idx = (useClipping ? rec.getStart() : rec.getUnclippedStart()) - refOff;
-					totalCount[idx]++;
-				}else if(coverage && rec.getReadNegativeStrandFlag()){
-					int idx = (useClipping ? rec.getEnd() : rec.getUnclippedEnd()) - refOff;
-					totalCount[idx]++;
-				}
-				
-				
-				if(refEnd > maxEnd){
-					maxEnd = refEnd;
-				}
+				//count only 5' end
+				int fivePrime = rec.getReadNegativeStrandFlag() ? (useClipping ? rec.getEnd() : rec.getUnclippedEnd()) : refStart;
+				collector.end(fivePrime, refEnd);
 			}
 		}
-		collect((ObjectStream<CovPile>)piles,counts,totalCount,oldChr,refOff,maxEnd,maxEnd,insertions);
+		collector.finish();
 		sr.close();
 
 	}
 
+	private static void pileupCoverage(String bam, PileupCollector collector, boolean useClipping, int threads) throws IOException {
+		
+		ParallelBAMReader reader = new ParallelBAMReader(bam, ValidationStringency.SILENT, threads, false, true);
+		
+		try{
+			RecordBatch batch;
+			while((batch = reader.next()) != null){
+				String chr = batch.getReferenceName();
+				for(int r=0;r<batch.size();r++){
+					if(!batch.getReadUnmappedFlag(r)&&batch.getMappingQuality(r)>0){
+						int refStart = useClipping ? batch.getAlignmentStart(r) : batch.getUnclippedStart(r);
+						collector.next(chr, refStart);
+						
+						//count only 5' end
+						int fivePrime = batch.getReadNegativeStrandFlag(r) ? (useClipping ? batch.getAlignmentEnd(r) : batch.getUnclippedEnd(r)) : refStart;
+						collector.end(fivePrime, batch.getAlignmentEnd(r)+1);
+					}
+				}
+			}
+		}finally{
+			reader.close();
+		}
+		collector.finish();
+	}
+	
+	/**
+	 * Holds the counts of the current window of a chromosome and writes the piles of the positions left of the current read to the output
+	 * using {@link Pileup#collect(ObjectStream, int[][], int[], String, int, int, int, HashMap)}.
+	 * The reads must be passed ordered by their start position.
+	 */
+	private static class PileupCollector {
+		
+		private ObjectStream<CovPile> piles;
+		private boolean variants, coverage, useClipping;
+		
+		int[][] counts;
+		HashMap<Integer, LinkedList<String>> insertions;
+		private int[] totalCount;
+		int refOff;
+		private int maxEnd;
+		private String oldChr;
+		
+		private PileupCollector(ObjectStream<CovPile> piles, boolean variants, boolean coverage, boolean useClipping){
+			this.piles = piles;
+			this.variants = variants;
+			this.coverage = coverage;
+			this.useClipping = useClipping;
+			if(variants){
+				counts = new int[10000][4+1+1+1];
+				insertions = new HashMap<Integer, LinkedList<String>>();
+			}
+			if(coverage){
+				totalCount = new int[10000];
+			}
+		}
+		
+		/**
+		 * Collects all positions before the read starting at <code>refStart</code> on <code>chr</code> and moves the window to <code>refStart</code>.
+		 * 
+		 * @return <code>false</code> if the read starts before the previous read on the same chromosome
+		 */
+		private boolean next(String chr, int refStart){
+			boolean sorted = true;
+			if (refStart < refOff && oldChr != null && chr.equals(oldChr)) {
+				System.err.println("WARNING not sorted according to " + (useClipping ? "clipped" : "unclipped") + " coordinates: " + refStart + " <-> " + refOff);
+				sorted = false;
+			}
+			if( (oldChr != null && !chr.equals(oldChr))){
+				collect(piles,counts,totalCount,oldChr,refOff,maxEnd,maxEnd,insertions);
+				refOff = 0;
+				maxEnd = 0;
+				if(variants){
+					counts = new int[10000][4+1+1+1];
+					insertions.clear();
+				}
+				if(coverage){
+					totalCount = new int[10000];
+				}
+			}
+			oldChr = chr;
+			
+			collect(piles,counts,totalCount,chr,refOff,refStart,maxEnd,insertions);
+			refOff = refStart;
+			return sorted;
+		}
+		
+		/**
+		 * Counts the 5' end <code>fivePrime</code> of the current read for the coverage and extends the window to its end <code>refEnd</code>.
+		 */
+		private void end(int fivePrime, int refEnd){
+			if(coverage){
+				totalCount[fivePrime-refOff]++;
+			}
+			if(refEnd > maxEnd){
+				maxEnd = refEnd;
+			}
+		}
+		
+		private void finish(){
+			collect(piles,counts,totalCount,oldChr,refOff,maxEnd,maxEnd,insertions);
+		}
+	}
+
 	private static void collect(ObjectStream<CovPile> out, int[][] counts, int[] totalCounts, String chr, int refOff, int refStart, int maxEnd,HashMap<Integer, LinkedList<String>> inserts) {
 		for(int i=refOff;i<Math.min(refStart, maxEnd);i++){
 			int locIdx = i-refOff;
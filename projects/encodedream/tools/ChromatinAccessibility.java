@@ -90,7 +90,7 @@ public class ChromatinAccessibility implements JstacsTool {
 
 			new Thread( ()->{
 				try {
-					Pileup.pileup(inputBAM, ps2,false,true);
+					Pileup.pileup(inputBAM, ps2,false,true,true,threads);
 					ps2.close();
 				} catch (IOException | ArrayIndexOutOfBoundsException e) {
 					e.printStackTrace();
@@ -104,7 +104,7 @@ public class ChromatinAccessibility implements JstacsTool {
 			ObjectStream<CovPile> ps = new ObjectStream<CovPile>(10000);
 			new Thread( ()->{
 				try {
-					Pileup.pileup(inputBAM, ps, false, true);
+					Pileup.pileup(inputBAM, ps, false, true, true, threads);
 					ps.close();
 				} catch (IOException e) {
 					e.printStackTrace();
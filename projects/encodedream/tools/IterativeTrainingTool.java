@@ -43,6 +43,7 @@ import de.jstacs.tools.ToolParameterSet;
 import de.jstacs.tools.ToolResult;
 import projects.encodedream.ClassifiersWithInfo;
 import projects.encodedream.FeatureReader;
+import projects.encodedream.FeatureStore;
 import projects.encodedream.IterativeTraining;
 
 public class IterativeTrainingTool implements JstacsTool {
@@ -75,6 +76,8 @@ public class IterativeTrainingTool implements JstacsTool {
 			pars.add(new SimpleParameter(DataType.STRING, "Iterative training chromosomes", "Chromosomes with predictions in iterative training, separated by commas", false));
 			
 			pars.add(new SimpleParameter(DataType.DOUBLE, "Percentile", "Percentile of the prediction scores of positives used as threshold in iterative training", true, new NumberValidator<Double>(0.0, 1.0), 0.01));
+			
+			pars.add(FeatureStore.getParameter());
 		} catch (ParameterException e) {
 			e.printStackTrace();
 		}
@@ -125,6 +128,7 @@ public class IterativeTrainingTool implements JstacsTool {
 		
 		
 		FeatureReader reader = new FeatureReader(numBins, labelsFile, dnaseFile, motifFiles);
+		reader.useFeatureStore((String) parameters.getParameterAt(12).getValue());
 		IterativeTraining training = new IterativeTraining(reader, threads, FeatureReader.getSizes(faiFile, bin));
 		
 		GenDisMixClassifier[] cls = training.iterativeTraining(iterations, trainChroms, itChroms, perc, numBefore, numAfter);
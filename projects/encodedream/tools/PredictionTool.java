@@ -42,6 +42,7 @@ import de.jstacs.tools.ToolParameterSet;
 import de.jstacs.tools.ToolResult;
 import projects.encodedream.ClassifiersWithInfo;
 import projects.encodedream.FeatureReader;
+import projects.encodedream.FeatureStore;
 import projects.encodedream.Predictor;
 
 public class PredictionTool implements JstacsTool {
@@ -72,6 +73,8 @@ public class PredictionTool implements JstacsTool {
 			
 			pars.add(new SimpleParameter(DataType.INT,"Number of classifiers","Use only the first k (last k for negative values) classifiers for predictions.",false));
 			
+			pars.add(FeatureStore.getParameter());
+			
 		} catch (ParameterException e) {
 			e.printStackTrace();
 		}
@@ -127,6 +130,7 @@ public class PredictionTool implements JstacsTool {
 		
 		
 		FeatureReader reader = new FeatureReader(cls.getNumBins(), null, dnaseFile, motifFiles);
+		reader.useFeatureStore((String) parameters.getParameterAt(8).getValue());
 		Predictor pred = new Predictor(cls.getClassifiers(),reader,binsBefore,binsAfter);
 		
 		File f = pred.predict(sizes,predChroms);
@@ -44,6 +44,7 @@ import de.jstacs.tools.ToolParameterSet;
 import de.jstacs.tools.ToolResult;
 import projects.encodedream.ClassifiersWithInfo;
 import projects.encodedream.FeatureReader;
+import projects.encodedream.FeatureStore;
 import projects.encodedream.IterativeTraining;
 import projects.encodedream.UnsupervisedTraining;
 import projects.encodedream.UnsupervisedTraining.Init;
@@ -78,6 +79,8 @@ public class UnsupervisedTrainingTool implements JstacsTool {
 			pars.add(new SimpleParameter(DataType.DOUBLE, "Factor", "Weight on previous values when computing weights", true, new NumberValidator<Double>(0.0, 100.0), 1.0));
 			pars.add(new EnumParameter(UnsupervisedTraining.Init.class, "Initialization of weights", true));
 			pars.add(new EnumParameter(UnsupervisedTraining.Select.class, "Selection of next training data set", true));
+			
+			pars.add(FeatureStore.getParameter());
 		} catch (ParameterException e) {
 			e.printStackTrace();
 		}
@@ -119,6 +122,7 @@ public class UnsupervisedTrainingTool implements JstacsTool {
 		
 		
 		FeatureReader reader = new FeatureReader(numBins, null, dnaseFile, motifFiles);
+		reader.useFeatureStore((String) parameters.getParameterAt(11).getValue());
 		
 		
 		UnsupervisedTraining training = new UnsupervisedTraining(reader, threads, FeatureReader.getSizes(faiFile, bin), init, select);
@@ -102,7 +102,7 @@ public class AnnotationEvidence extends GeMoMaModule {
 		StringBuffer old = new StringBuffer();
 		int perfect=0;
 		for( String c: chr ) {
-			String seq = GeMoMa.seqs.get(c);
+			CompactSequence seq = GeMoMa.seqs.get(c);
 			HashMap<String,Gene> current = annotation.get(c);
 			int[][][] sites = introns ? GeMoMa.donorSites.get(c) : null;
 			if( current!= null && current.size() > 0 ) {
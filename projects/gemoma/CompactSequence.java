@@ -0,0 +1,264 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package projects.gemoma;
+
+import java.util.Arrays;
+
+import de.jstacs.utils.IntList;
+
+/**
+ * A compact {@link CharSequence} for (genomic) DNA sequences. The nucleotides <code>A</code>, <code>C</code>, <code>G</code>, and <code>T</code>
+ * are stored with 2 bits per position, while all other symbols (e.g., <code>N</code> or IUPAC codes) are stored as runs of identical symbols.
+ * Hence, a genome needs roughly a quarter of the memory of the corresponding {@link String}s.
+ *
+ * <br><br>
+ *
+ * The sequence is filled by {@link #append(CharSequence)} and finished by {@link #trim()} or {@link #finish()}. Afterwards, it may be used by several threads.
+ * A sequence that is re-used for several contigs should be finished by {@link #finish()} and emptied by {@link #clear()},
+ * which both keep the allocated memory.
+ *
+ * @author Jens Keilwagen
+ *
+ * @see Tools#getGenome(String, int, String)
+ */
+public class CompactSequence implements CharSequence {
+
+	private static final char[] NUC = {'A','C','G','T'};
+	private static final byte[] CODE = new byte[128];
+
+	static {
+		Arrays.fill( CODE, (byte) -1 );
+		for( int i = 0; i < NUC.length; i++ ) {
+			CODE[NUC[i]] = (byte) i;
+		}
+	}
+
+	private byte[] bases;
+	private int length;
+
+	private IntList start, end, symbol;
+	private int[] runStart, runEnd;
+	private char[] runSymbol;
+	//the index of the last run that starts at or before the position of the last call of charAt, or -1
+	private int lastRun;
+
+	/**
+	 * Creates an empty sequence.
+	 *
+	 * @param initialCapacity the initial number of positions
+	 */
+	public CompactSequence( int initialCapacity ) {
+		bases = new byte[Math.max( 16, (initialCapacity+3)/4 )];
+		start = new IntList();
+		end = new IntList();
+		symbol = new IntList();
+		clear();
+	}
+
+	/**
+	 * Creates a new sequence from a given sequence.
+	 *
+	 * @param seq the sequence
+	 */
+	public CompactSequence( CharSequence seq ) {
+		this( seq.length() );
+		append( seq );
+		trim();
+	}
+
+	/**
+	 * Removes all positions without releasing the allocated memory.
+	 */
+	public void clear() {
+		Arrays.fill( bases, 0, (length+3)/4, (byte) 0 );
+		length = 0;
+		start.clear();
+		end.clear();
+		symbol.clear();
+		runStart = runEnd = null;
+		runSymbol = null;
+		lastRun = -1;
+	}
+
+	/**
+	 * Appends the symbols of <code>seq</code> at the end of this sequence.
+	 *
+	 * @param seq the symbols to be appended
+	 */
+	public void append( CharSequence seq ) {
+		int n = seq.length();
+		if( (long) length + n > Integer.MAX_VALUE ) {
+			throw new IllegalArgumentException( "The sequence is too long." );
+		}
+		int needed = (int) (((long) length+n+3)/4);
+		if( needed > bases.length ) {
+			bases = Arrays.copyOf( bases, (int) Math.min( Integer.MAX_VALUE-8, Math.max( needed, bases.length + (long) bases.length/2 ) ) );
+		}
+		int last = start.length()-1;
+		for( int i = 0; i < n; i++, length++ ) {
+			char c = seq.charAt(i);
+			byte b = c < 128 ? CODE[c] : -1;
+			if( b >= 0 ) {
+				bases[length>>2] |= b << ((length&3)<<1);
+			} else if( last >= 0 && end.get(last) == length && symbol.get(last) == c ) {
+				end.pop();
+				end.add( length+1 );
+			} else {
+				start.add( length );
+				end.add( length+1 );
+				symbol.add( c );
+				last++;
+			}
+		}
+		runStart = null;
+	}
+
+	/**
+	 * Finishes the sequence and releases unused memory. This method or {@link #finish()} needs to be called before the sequence is used.
+	 */
+	public void trim() {
+		bases = Arrays.copyOf( bases, (length+3)/4 );
+		finish();
+	}
+
+	/**
+	 * Finishes the sequence without releasing unused memory, so that further positions can be appended after {@link #clear()}
+	 * without growing the sequence again. This method or {@link #trim()} needs to be called before the sequence is used.
+	 */
+	public void finish() {
+		lastRun = -1;
+		runStart = start.toArray();
+		runEnd = end.toArray();
+		runSymbol = new char[runStart.length];
+		for( int i = 0; i < runSymbol.length; i++ ) {
+			runSymbol[i] = (char) symbol.get(i);
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt( int index ) {
+		if( index < 0 || index >= length ) {
+			throw new StringIndexOutOfBoundsException( index );
+		}
+		int[] rs = runStart;
+		if( rs.length > 0 ) {
+			//consecutive calls mostly hit the same gap between two runs
+			int r = lastRun;
+			if( r >= rs.length || (r >= 0 && rs[r] > index) || (r+1 < rs.length && rs[r+1] <= index) ) {
+				r = Arrays.binarySearch( rs, index );
+				if( r < 0 ) {
+					r = -r-2;
+				}
+				lastRun = r;
+			}
+			if( r >= 0 && index < runEnd[r] ) {
+				return runSymbol[r];
+			}
+		}
+		return NUC[(bases[index>>2] >> ((index&3)<<1)) & 3];
+	}
+
+	/**
+	 * Returns the symbols from <code>begin</code> (inclusive) to <code>end</code> (exclusive) in the same way as {@link String#substring(int, int)}.
+	 *
+	 * @param begin the start position
+	 * @param end the end position
+	 *
+	 * @return the symbols as {@link String}
+	 */
+	public String substring( int begin, int end ) {
+		if( begin < 0 || end > length || begin > end ) {
+			throw new StringIndexOutOfBoundsException( "begin " + begin + ", end " + end + ", length " + length );
+		}
+		char[] res = new char[end-begin];
+		getChars( begin, end, res, 0 );
+		return new String( res );
+	}
+
+	/**
+	 * Copies the symbols from <code>begin</code> (inclusive) to <code>end</code> (exclusive) into <code>dest</code> in the same way as {@link String#getChars(int, int, char[], int)}.
+	 *
+	 * @param begin the start position
+	 * @param end the end position
+	 * @param dest the destination array
+	 * @param destBegin the start offset in the destination array
+	 */
+	public void getChars( int begin, int end, char[] dest, int destBegin ) {
+		if( begin < 0 || end > length || begin > end ) {
+			throw new StringIndexOutOfBoundsException( "begin " + begin + ", end " + end + ", length " + length );
+		}
+		int off = destBegin - begin;
+		for( int i = begin; i < end; i++ ) {
+			dest[i+off] = NUC[(bases[i>>2] >> ((i&3)<<1)) & 3];
+		}
+		if( runStart.length > 0 ) {
+			int r = Arrays.binarySearch( runStart, begin );
+			if( r < 0 ) {
+				r = Math.max( 0, -r-2 );
+			}
+			for( ; r < runStart.length && runStart[r] < end; r++ ) {
+				for( int i = Math.max( begin, runStart[r] ); i < Math.min( end, runEnd[r] ); i++ ) {
+					dest[i+off] = runSymbol[r];
+				}
+			}
+		}
+	}
+
+	@Override
+	public CharSequence subSequence( int begin, int end ) {
+		return substring( begin, end );
+	}
+
+	@Override
+	public String toString() {
+		return substring( 0, length );
+	}
+
+	@Override
+	public boolean equals( Object o ) {
+		if( !(o instanceof CompactSequence) ) {
+			return false;
+		}
+		CompactSequence s = (CompactSequence) o;
+		if( length != s.length || !Arrays.equals( runStart, s.runStart ) || !Arrays.equals( runEnd, s.runEnd ) || !Arrays.equals( runSymbol, s.runSymbol ) ) {
+			return false;
+		}
+		//only the used part of bases, which might be larger after finish()
+		for( int i = (length+3)/4-1; i >= 0; i-- ) {
+			if( bases[i] != s.bases[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for( int i = 0; i < (length+3)/4; i++ ) {
+			h = 31*h + bases[i];
+		}
+		return 31*h + Arrays.hashCode( runStart );
+	}
+}
@@ -0,0 +1,639 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package projects.gemoma;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+import javax.script.ScriptException;
+
+import org.graalvm.polyglot.Context;
+
+/**
+ * This class allows to evaluate user-specified filter and sorting expressions on the attributes of a prediction
+ * without calling the JavaScript engine for each prediction.
+ * The expression is parsed once into an expression tree that implements the JavaScript semantics of
+ * literals, variables, the operators <code>! + - * / % &lt; &lt;= &gt; &gt;= == != === !== &amp;&amp; || ?:</code>,
+ * <code>isNaN</code>, and some functions and constants of <code>Math</code>.
+ * As in {@link Tools#eval(Context, String, HashMap)}, variables are the attributes of the prediction given as Strings and <code>NA</code> is replaced by <code>NaN</code>.
+ *
+ * <br><br>
+ *
+ * If the expression uses any other syntax, or a variable is not contained in the attributes of a prediction,
+ * or a String would be concatenated with a non-String, the expression is evaluated by {@link Tools#eval(Context, String, HashMap)}.
+ *
+ * @author Jens Keilwagen
+ *
+ * @see Tools#prepareFilter(String)
+ */
+public class CompiledExpression {
+
+	/**
+	 * Signals that an expression or a specific evaluation is not supported by the expression tree.
+	 */
+	private static class Unsupported extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		static final Unsupported INSTANCE = new Unsupported();
+
+		private Unsupported() {
+			super( null, null, false, false );
+		}
+	}
+
+	private static final HashSet<String> RESERVED = new HashSet<String>( Arrays.asList(
+			"break", "case", "catch", "class", "const", "continue", "debugger", "default", "delete", "do", "else", "export", "extends",
+			"finally", "for", "function", "if", "import", "in", "instanceof", "new", "return", "super", "switch", "this", "throw", "try",
+			"typeof", "var", "void", "while", "with", "yield", "let", "static", "enum", "await", "implements", "package", "protected",
+			"interface", "private", "public", "null", "undefined", "Math", "isNaN"
+	) );
+
+	private static final Pattern NUMBER = Pattern.compile( "[+-]?(Infinity|(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?)" );
+	private static final Pattern RADIX = Pattern.compile( "0([xX][0-9a-fA-F]+|[oO][0-7]+|[bB][01]+)" );
+
+	private String expression;
+	private Node root;
+
+	/**
+	 * Creates a new instance for a given expression.
+	 *
+	 * @param expression the expression, e.g., the result of {@link Tools#prepareFilter(String)}
+	 */
+	public CompiledExpression( String expression ) {
+		this.expression = expression;
+		if( expression.length() > 0 ) {
+			try {
+				Parser p = new Parser( expression );
+				root = p.parseTernary();
+				if( !p.finished() ) {
+					root = null;
+				}
+			} catch( Unsupported u ) {
+				root = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the expression could be parsed into an expression tree, otherwise each evaluation calls the JavaScript engine.
+	 *
+	 * @return <code>true</code> if the expression could be parsed into an expression tree
+	 */
+	public boolean isCompiled() {
+		return root != null;
+	}
+
+	/**
+	 * Returns the expression.
+	 *
+	 * @return the expression
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	/**
+	 * This method evaluates the expression.
+	 * The returned String represents the same value as the String returned by {@link Tools#eval(Context, String, HashMap)},
+	 * although numbers might be formatted differently.
+	 *
+	 * @param context the {@link Context} to be used if the expression tree can not be used
+	 * @param hash the hash containing the attributes in key-value-pairs
+	 *
+	 * @return the evaluated expression as String
+	 *
+	 * @throws ScriptException if the expression could not be evaluated properly
+	 *
+	 * @see Tools#eval(Context, String, HashMap)
+	 */
+	public String eval( Context context, HashMap<String,String> hash ) throws ScriptException {
+		if( root != null ) {
+			try {
+				return toJSString( root.eval( hash ) );
+			} catch( Unsupported u ) {}
+		}
+		return Tools.eval( context, expression, hash );
+	}
+
+	/**
+	 * This method evaluates the expression as filter.
+	 *
+	 * @param context the {@link Context} to be used if the expression tree can not be used
+	 * @param hash the hash containing the attributes in key-value-pairs
+	 *
+	 * @return the result of the evaluated filter
+	 *
+	 * @throws ScriptException if the filter could not be evaluated properly
+	 *
+	 * @see Tools#filter(Context, String, HashMap)
+	 */
+	public boolean filter( Context context, HashMap<String,String> hash ) throws ScriptException {
+		if( hash != null && root != null ) {
+			try {
+				Object o = root.eval( hash );
+				if( o instanceof Boolean ) {
+					return (Boolean) o;
+				} else {
+					return o instanceof String && Boolean.parseBoolean( (String) o );
+				}
+			} catch( Unsupported u ) {}
+		}
+		return Tools.filter( context, expression, hash );
+	}
+
+	/* JavaScript semantics */
+
+	static double toNumber( Object o ) {
+		if( o instanceof Double ) {
+			return (Double) o;
+		} else if( o instanceof Boolean ) {
+			return ((Boolean) o) ? 1 : 0;
+		} else {
+			String s = ((String) o).trim();
+			if( s.length() == 0 ) {
+				return 0;
+			} else if( NUMBER.matcher( s ).matches() ) {
+				return Double.parseDouble( s );
+			} else if( RADIX.matcher( s ).matches() ) {
+				char c = Character.toLowerCase( s.charAt( 1 ) );
+				return new BigInteger( s.substring( 2 ), c == 'x' ? 16 : (c == 'o' ? 8 : 2) ).doubleValue();
+			} else {
+				return Double.NaN;
+			}
+		}
+	}
+
+	static boolean toBoolean( Object o ) {
+		if( o instanceof Boolean ) {
+			return (Boolean) o;
+		} else if( o instanceof Double ) {
+			double d = (Double) o;
+			return d != 0 && !Double.isNaN( d );
+		} else {
+			return ((String) o).length() > 0;
+		}
+	}
+
+	static String toJSString( Object o ) {
+		if( o instanceof Double ) {
+			double d = (Double) o;
+			if( Double.isNaN( d ) ) {
+				return "NaN";
+			} else if( Double.isInfinite( d ) ) {
+				return d > 0 ? "Infinity" : "-Infinity";
+			} else if( d == Math.rint( d ) && Math.abs( d ) < 1E21 ) {
+				return d == 0 ? "0" : new BigDecimal( d ).toPlainString();
+			} else {
+				return Double.toString( d );
+			}
+		} else {
+			return o.toString();
+		}
+	}
+
+	static boolean strictEquals( Object a, Object b ) {
+		if( a instanceof Double && b instanceof Double ) {
+			return ((Double) a).doubleValue() == ((Double) b).doubleValue();
+		} else {
+			return a.getClass() == b.getClass() && a.equals( b );
+		}
+	}
+
+	static boolean looseEquals( Object a, Object b ) {
+		if( a.getClass() == b.getClass() ) {
+			return strictEquals( a, b );
+		} else if( a instanceof Boolean ) {
+			return looseEquals( toNumber( a ), b );
+		} else if( b instanceof Boolean ) {
+			return looseEquals( a, toNumber( b ) );
+		} else {
+			return toNumber( a ) == toNumber( b );
+		}
+	}
+
+	/**
+	 * Returns -1, 0, or 1 for less, equal, or greater, and 2 if the operands are not comparable (i.e., NaN).
+	 */
+	static int compare( Object a, Object b ) {
+		if( a instanceof String && b instanceof String ) {
+			return Integer.signum( ((String) a).compareTo( (String) b ) );
+		} else {
+			double x = toNumber( a ), y = toNumber( b );
+			if( Double.isNaN( x ) || Double.isNaN( y ) ) {
+				return 2;
+			} else {
+				return x < y ? -1 : (x == y ? 0 : 1);
+			}
+		}
+	}
+
+	/* expression tree */
+
+	private static abstract class Node {
+		abstract Object eval( HashMap<String,String> hash );
+	}
+
+	private static class Constant extends Node {
+		private Object value;
+
+		Constant( Object value ) {
+			this.value = value;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			return value;
+		}
+	}
+
+	private static class Variable extends Node {
+		private String name;
+
+		Variable( String name ) {
+			this.name = name;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			String v = hash.get( name );
+			if( v == null ) {
+				throw Unsupported.INSTANCE;
+			}
+			return v.equals( "NA" ) ? "NaN" : v;
+		}
+	}
+
+	private static class Unary extends Node {
+		private char op;
+		private Node a;
+
+		Unary( char op, Node a ) {
+			this.op = op;
+			this.a = a;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			Object x = a.eval( hash );
+			switch( op ) {
+				case '!': return !toBoolean( x );
+				case '-': return -toNumber( x );
+				default: return toNumber( x );
+			}
+		}
+	}
+
+	private static class Binary extends Node {
+		private String op;
+		private Node a, b;
+
+		Binary( String op, Node a, Node b ) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			Object x = a.eval( hash );
+			if( op.equals( "&&" ) ) {
+				return toBoolean( x ) ? b.eval( hash ) : x;
+			} else if( op.equals( "||" ) ) {
+				return toBoolean( x ) ? x : b.eval( hash );
+			}
+			Object y = b.eval( hash );
+			int c;
+			switch( op ) {
+				case "+":
+					if( x instanceof String || y instanceof String ) {
+						if( x instanceof Double || y instanceof Double ) {
+							throw Unsupported.INSTANCE;
+						}
+						return x.toString() + y.toString();
+					}
+					return toNumber( x ) + toNumber( y );
+				case "-": return toNumber( x ) - toNumber( y );
+				case "*": return toNumber( x ) * toNumber( y );
+				case "/": return toNumber( x ) / toNumber( y );
+				case "%": return toNumber( x ) % toNumber( y );
+				case "<": c = compare( x, y ); return c == -1;
+				case "<=": c = compare( x, y ); return c == -1 || c == 0;
+				case ">": c = compare( x, y ); return c == 1;
+				case ">=": c = compare( x, y ); return c == 1 || c == 0;
+				case "==": return looseEquals( x, y );
+				case "!=": return !looseEquals( x, y );
+				case "===": return strictEquals( x, y );
+				case "!==": return !strictEquals( x, y );
+				default: throw Unsupported.INSTANCE;
+			}
+		}
+	}
+
+	private static class Conditional extends Node {
+		private Node condition, a, b;
+
+		Conditional( Node condition, Node a, Node b ) {
+			this.condition = condition;
+			this.a = a;
+			this.b = b;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			return toBoolean( condition.eval( hash ) ) ? a.eval( hash ) : b.eval( hash );
+		}
+	}
+
+	private static class Function extends Node {
+		private String name;
+		private Node[] args;
+
+		Function( String name, Node[] args ) {
+			this.name = name;
+			this.args = args;
+		}
+
+		Object eval( HashMap<String,String> hash ) {
+			double[] x = new double[args.length];
+			for( int i = 0; i < x.length; i++ ) {
+				x[i] = toNumber( args[i].eval( hash ) );
+			}
+			double a = x.length > 0 ? x[0] : Double.NaN;
+			switch( name ) {
+				case "isNaN": return Double.isNaN( a );
+				case "abs": return Math.abs( a );
+				case "log": return Math.log( a );
+				case "exp": return Math.exp( a );
+				case "sqrt": return Math.sqrt( a );
+				case "floor": return Math.floor( a );
+				case "ceil": return Math.ceil( a );
+				case "pow": return Math.pow( a, x.length > 1 ? x[1] : Double.NaN );
+				case "min":
+				case "max":
+					boolean max = name.equals( "max" );
+					double r = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+					for( int i = 0; i < x.length; i++ ) {
+						r = max ? Math.max( r, x[i] ) : Math.min( r, x[i] );
+					}
+					return r;
+				default: throw Unsupported.INSTANCE;
+			}
+		}
+	}
+
+	/* parser */
+
+	private static final String[] OPERATORS = {
+			//longest first
+			"===", "!==", "==", "!=", "<=", ">=", "&&", "||", "<", ">", "+", "-", "*", "/", "%", "!", "(", ")", ",", "?", ":", "."
+	};
+	private static final String[] UNSUPPORTED = { ">>>", "**", "++", "--", "<<", ">>", "=", "&", "|", "^", "~", "[", "]", "{", "}", ";", "`", "\\", "#", "@" };
+	private static final String[] MATH_FUNCTIONS = { "abs", "log", "exp", "sqrt", "floor", "ceil", "pow", "min", "max" };
+
+	private static class Parser {
+		private ArrayList<Object> token;
+		private int pos;
+
+		Parser( String s ) {
+			token = tokenize( s );
+			pos = 0;
+		}
+
+		boolean finished() {
+			return pos == token.size();
+		}
+
+		/**
+		 * Splits the expression in numbers ({@link Double}), String literals ({@link Constant}), identifiers ({@link StringBuilder}), and operators ({@link String}).
+		 */
+		private static ArrayList<Object> tokenize( String s ) {
+			ArrayList<Object> token = new ArrayList<Object>();
+			int i = 0;
+			outer: while( i < s.length() ) {
+				char c = s.charAt( i );
+				if( Character.isWhitespace( c ) ) {
+					i++;
+				} else if( isDigit( c ) || (c == '.' && i+1 < s.length() && isDigit( s.charAt( i+1 ) )) ) {
+					int start = i;
+					if( c == '0' && i+1 < s.length() && (isDigit( s.charAt( i+1 ) ) || isIdentifierStart( s.charAt( i+1 ) )) ) {
+						//octal, hexadecimal, ...
+						throw Unsupported.INSTANCE;
+					}
+					while( i < s.length() && isDigit( s.charAt( i ) ) ) i++;
+					if( i < s.length() && s.charAt( i ) == '.' ) {
+						i++;
+						while( i < s.length() && isDigit( s.charAt( i ) ) ) i++;
+					}
+					if( i < s.length() && (s.charAt( i ) == 'e' || s.charAt( i ) == 'E') ) {
+						i++;
+						if( i < s.length() && (s.charAt( i ) == '+' || s.charAt( i ) == '-') ) i++;
+						int e = i;
+						while( i < s.length() && isDigit( s.charAt( i ) ) ) i++;
+						if( e == i ) {
+							throw Unsupported.INSTANCE;
+						}
+					}
+					if( i < s.length() && (isIdentifierPart( s.charAt( i ) ) || s.charAt( i ) == '.') ) {
+						throw Unsupported.INSTANCE;
+					}
+					token.add( Double.parseDouble( s.substring( start, i ) ) );
+				} else if( c == '\'' || c == '"' ) {
+					int end = s.indexOf( c, i+1 );
+					if( end < 0 ) {
+						throw Unsupported.INSTANCE;
+					}
+					String v = s.substring( i+1, end );
+					if( v.indexOf( '\\' ) >= 0 || v.indexOf( '\n' ) >= 0 || v.indexOf( '\r' ) >= 0 ) {
+						throw Unsupported.INSTANCE;
+					}
+					token.add( new Constant( v ) );
+					i = end+1;
+				} else if( isIdentifierStart( c ) ) {
+					int start = i;
+					while( i < s.length() && isIdentifierPart( s.charAt( i ) ) ) i++;
+					token.add( new StringBuilder( s.substring( start, i ) ) );
+				} else {
+					for( String op : UNSUPPORTED ) {
+						if( s.startsWith( op, i ) ) {
+							boolean supported = false;
+							for( String o : OPERATORS ) {
+								supported |= o.length() > op.length() && s.startsWith( o, i );
+							}
+							if( !supported ) {
+								throw Unsupported.INSTANCE;
+							}
+						}
+					}
+					for( String op : OPERATORS ) {
+						if( s.startsWith( op, i ) ) {
+							token.add( op );
+							i += op.length();
+							continue outer;
+						}
+					}
+					throw Unsupported.INSTANCE;
+				}
+			}
+			return token;
+		}
+
+		private static boolean isDigit( char c ) {
+			return c >= '0' && c <= '9';
+		}
+
+		private static boolean isIdentifierStart( char c ) {
+			return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+		}
+
+		private static boolean isIdentifierPart( char c ) {
+			return isIdentifierStart( c ) || isDigit( c );
+		}
+
+		private Object next() {
+			if( pos == token.size() ) {
+				throw Unsupported.INSTANCE;
+			}
+			return token.get( pos++ );
+		}
+
+		private boolean accept( String op ) {
+			if( pos < token.size() && op.equals( token.get( pos ) ) ) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect( String op ) {
+			if( !accept( op ) ) {
+				throw Unsupported.INSTANCE;
+			}
+		}
+
+		Node parseTernary() {
+			Node c = parseBinary( 0 );
+			if( accept( "?" ) ) {
+				Node a = parseTernary();
+				expect( ":" );
+				Node b = parseTernary();
+				return new Conditional( c, a, b );
+			}
+			return c;
+		}
+
+		private static final String[][] LEVELS = {
+				{ "||" }, { "&&" }, { "===", "!==", "==", "!=" }, { "<=", ">=", "<", ">" }, { "+", "-" }, { "*", "/", "%" }
+		};
+
+		private Node parseBinary( int level ) {
+			if( level == LEVELS.length ) {
+				return parseUnary();
+			}
+			Node a = parseBinary( level + 1 );
+			boolean found;
+			do {
+				found = false;
+				for( String op : LEVELS[level] ) {
+					if( accept( op ) ) {
+						a = new Binary( op, a, parseBinary( level + 1 ) );
+						found = true;
+						break;
+					}
+				}
+			} while( found );
+			return a;
+		}
+
+		private Node parseUnary() {
+			if( accept( "!" ) ) {
+				return new Unary( '!', parseUnary() );
+			} else if( accept( "-" ) ) {
+				return new Unary( '-', parseUnary() );
+			} else if( accept( "+" ) ) {
+				return new Unary( '+', parseUnary() );
+			}
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			Object t = next();
+			if( t instanceof Double ) {
+				return new Constant( t );
+			} else if( t instanceof Constant ) {
+				return (Constant) t;
+			} else if( t instanceof String ) {
+				if( t.equals( "(" ) ) {
+					Node n = parseTernary();
+					expect( ")" );
+					return n;
+				}
+				throw Unsupported.INSTANCE;
+			}
+			String id = t.toString();
+			switch( id ) {
+				case "true": return new Constant( Boolean.TRUE );
+				case "false": return new Constant( Boolean.FALSE );
+				case "NaN": return new Constant( Double.NaN );
+				case "Infinity": return new Constant( Double.POSITIVE_INFINITY );
+				case "isNaN":
+					return new Function( "isNaN", parseArguments( 1 ) );
+				case "Math":
+					expect( "." );
+					id = next().toString();
+					if( id.equals( "PI" ) ) {
+						return new Constant( Math.PI );
+					} else if( id.equals( "E" ) ) {
+						return new Constant( Math.E );
+					}
+					for( String f : MATH_FUNCTIONS ) {
+						if( f.equals( id ) ) {
+							return new Function( f, parseArguments( f.equals( "pow" ) ? 2 : (f.equals( "min" ) || f.equals( "max" ) ? -1 : 1) ) );
+						}
+					}
+					throw Unsupported.INSTANCE;
+				default:
+					if( RESERVED.contains( id ) || (pos < token.size() && (token.get( pos ).equals( "(" ) || token.get( pos ).equals( "." ))) ) {
+						throw Unsupported.INSTANCE;
+					}
+					return new Variable( id );
+			}
+		}
+
+		private Node[] parseArguments( int number ) {
+			expect( "(" );
+			ArrayList<Node> args = new ArrayList<Node>();
+			if( !accept( ")" ) ) {
+				do {
+					args.add( parseTernary() );
+				} while( accept( "," ) );
+				expect( ")" );
+			}
+			if( number >= 0 && args.size() != number ) {
+				//missing or additional arguments are possible in JavaScript, but not used in filters
+				throw Unsupported.INSTANCE;
+			}
+			return args.toArray( new Node[0] );
+		}
+	}
+}
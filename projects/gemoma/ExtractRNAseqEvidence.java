@@ -18,11 +18,13 @@
 
 package projects.gemoma;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,6 +33,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,9 +61,10 @@ import de.jstacs.tools.Protocol;
 import de.jstacs.tools.ToolParameterSet;
 import de.jstacs.tools.ToolResult;
 import de.jstacs.utils.IntList;
+import de.jstacs.utils.Pair;
+import de.jstacs.utils.ParallelBAMReader;
 import de.jstacs.utils.SafeOutputStream;
 import htsjdk.samtools.AlignmentBlock;
-import htsjdk.samtools.SAMFileHeader.SortOrder;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMRecordIterator;
 import htsjdk.samtools.SamReader;
@@ -109,9 +116,6 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 	
 	private static class Intron implements Comparable<Intron>{
 		
-		private static IntList startOffs = new IntList();
-		private static IntList lens = new IntList();
-		
 		private int start;
 		private int end;
 		private Strand strand;
@@ -162,8 +166,8 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 			
 			int bitflag = record.getFlags();
 			
-			startOffs.clear();
-			lens.clear();
+			IntList startOffs = new IntList();
+			IntList lens = new IntList();
 			int shortest = getOffset(cigar,startOffs,lens);
 			Strand strand = getStrand(bitflag, stranded);
 //int max=0;			
@@ -343,22 +347,9 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 		SamReaderFactory srf = SamReaderFactory.makeDefault();
 		srf.validationStringency( stringency );//important for unmapped reads
 		
-		SAMRecordIterator[] its = new SAMRecordIterator[eps.getNumberOfParameters()];
-		SAMRecord[] curr = new SAMRecord[eps.getNumberOfParameters()];
 		String[] bams = new String[eps.getNumberOfParameters()];
-		String[] firstChrs = new String[eps.getNumberOfParameters()];
 		for( int k = 0; k < eps.getNumberOfParameters(); k++ ) {
-			String fName = ((ParameterSet)eps.getParameterAt(k).getValue()).getParameterAt(0).getValue().toString();
-			bams[k] = fName;
-			SamReader sr = srf.open(new File(fName));
-			
-			SAMRecordIterator samIt = sr.iterator();
-			samIt = samIt.assertSorted(SortOrder.coordinate);
-			its[k] = samIt;
-			if(its[k].hasNext()){
-				curr[k] = its[k].next();
-				firstChrs[k] = curr[k].getReferenceName();
-			}
+			bams[k] = ((ParameterSet)eps.getParameterAt(k).getValue()).getParameterAt(0).getValue().toString();
 		}
 		
 		ReadStats stats = null;
@@ -371,10 +362,10 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 		File outFwd = null, outRev = null;
 		if( coverage ) {
 			outFwd = Tools.createTempFile("ERE-coveragefwd_bedgraph", tempD);
-			sosFwd = SafeOutputStream.getSafeOutputStream(new FileOutputStream(outFwd));
+			sosFwd = SafeOutputStream.getSafeOutputStream(new BufferedOutputStream(new FileOutputStream(outFwd)));
 			
 			outRev = Tools.createTempFile("ERE-coveragerev_bedgraph", tempD);
-			sosRev = SafeOutputStream.getSafeOutputStream(new FileOutputStream(outRev));
+			sosRev = SafeOutputStream.getSafeOutputStream(new BufferedOutputStream(new FileOutputStream(outRev)));
 		} else {
 			sosFwd = SafeOutputStream.getSafeOutputStream(null);
 			sosRev = SafeOutputStream.getSafeOutputStream(null);
@@ -384,7 +375,7 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 		sosRev.writeln("track type=bedgraph");
 		
 		File outInt = Tools.createTempFile("ERE-intron", tempD);
-		SafeOutputStream sosInt = SafeOutputStream.getSafeOutputStream(new FileOutputStream(outInt));	
+		SafeOutputStream sosInt = SafeOutputStream.getSafeOutputStream(new BufferedOutputStream(new FileOutputStream(outInt)));	
 		sosInt.writeln("##gff-version 3");
 		sosInt.write(INFO + getShortName() + " " + getToolVersion() + "; ");
 		String info = JstacsTool.getSimpleParameterInfo(parameters);
@@ -410,187 +401,122 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 			}
 		};
 		
-		Arrays.sort(firstChrs,scomp);
-		
-		HashMap<Integer, int[]> mapFwd = new HashMap<Integer, int[]>();
-		HashMap<Integer, int[]> mapRev = new HashMap<Integer, int[]>();
-		
-		BedgraphEntry previousFwd = null;
-		BedgraphEntry previousRev = null;
+		Processor total = new Processor(stranded, samFilter, sa, coverage, maxCov, minIntronLength, minQuality, bams.length, sosFwd, sosRev);
+		long i = 0, intronNum = 0;
 		
-		String chr = firstChrs[0];
-		protocol.append(chr+"\n");
-		String chrOut = repos == null ? chr : repos.get(chr)[1];
-		int currPos = 0, offset=repos == null ? 0 : Integer.parseInt(repos.get(chr)[2]);
-		ArrayList<Intron> introns = new ArrayList<Intron>();
-		long splits = 0, intronNum = 0;
-		long[] split = new long[its.length];
-		boolean[] corrupt = new boolean[its.length];
-		Arrays.fill(corrupt, false);
-		long i = 0;
-		long[][] qual = new long[3][260];
-		int questionable=0, tooShort=0;
-		while(true){
-			
-			int wm = whichMin(curr,chr);
+		ArrayList<Pair<String,boolean[]>> visits = threads > 1 ? getVisits(srf, bams) : null;
+		if( visits == null ) {
+			//merge all files record by record
+			ParallelBAMReader[] readers = new ParallelBAMReader[bams.length];
+			ArrayList<Iterator<SAMRecord>> its = new ArrayList<Iterator<SAMRecord>>();
+			SAMRecord[] curr = new SAMRecord[bams.length];
+			String[] firstChrs = new String[bams.length];
+			for( int k = 0; k < bams.length; k++ ) {
+				readers[k] = new ParallelBAMReader(bams[k], stringency, 1, true, true);
+				its.add( readers[k].recordIterator() );
+				if(its.get(k).hasNext()){
+					curr[k] = its.get(k).next();
+					firstChrs[k] = curr[k].getReferenceName();
+				}
+			}
 			
-			if(wm > -1){
+			Arrays.sort(firstChrs,scomp);
 			
-				SAMRecord rec;
-				//the next two line leads to "Ignoring SAM validation error"
-				//rec  = curr[wm].deepCopy();
-				//if( offset!=0 ) rec.setAlignmentStart(rec.getAlignmentStart()+offset);
+			String chr = firstChrs[0];
+			protocol.append(chr+"\n");
+			String chrOut = repos == null ? chr : repos.get(chr)[1];
+			int offset=repos == null ? 0 : Integer.parseInt(repos.get(chr)[2]);
+			while(true){
 				
-				//XXX alternatively: "long recStart" if chromosome will be larger than Integer.MAX_VALUE (but then we have to change much more in GeMoMa)
-				rec = curr[wm];
-				int recStart = rec.getAlignmentStart();
-				if( offset!= 0 ) recStart += offset;
+				int wm = whichMin(curr,chr);
 				
-				int q = rec.getMappingQuality();
-				qual[0][q]++;
-				if( /*q >= minQual*/samFilter.accept(rec) ) {
-					if( sa || !rec.isSecondaryOrSupplementary() ) {
-						qual[1][q]++;
-						int numIntrons = Intron.addIntrons(rec, recStart, stranded, introns);
-						if( numIntrons>=0 ) { //well mapped
-							if( numIntrons>0 ) {//has at least one intron
-								qual[2][q]++;
-								splits++;
-								split[wm]++;
-							}
-							
-							if( coverage ) {
-								boolean isNeg = rec.getReadNegativeStrandFlag();
-								boolean isFirst = !rec.getReadPairedFlag() || rec.getFirstOfPairFlag();
-								boolean countAsFwd = true;
-								if(stranded == Stranded.FR_SECOND_STRAND){
-									countAsFwd = (isFirst && !isNeg)||(!isFirst && isNeg);
-								}else if(stranded == Stranded.FR_FIRST_STRAND){
-									countAsFwd = (isFirst && isNeg)||(!isFirst && !isNeg);
-								}
-								
-								while(currPos < recStart){
-									if(mapFwd.containsKey(currPos)){
-										previousFwd = write(previousFwd,chrOut,mapFwd,currPos,sosFwd);
-										mapFwd.remove(currPos);
-									}
-									if(mapRev.containsKey(currPos)){
-										previousRev = write(previousRev,chrOut,mapRev,currPos,sosRev);
-										mapRev.remove(currPos);
-									}
-									currPos++;
-								}
-								
-								HashMap<Integer, int[]> map = countAsFwd ? mapFwd : mapRev;
-								List<AlignmentBlock> blocks = rec.getAlignmentBlocks();
-								Iterator<AlignmentBlock> blockIt = blocks.iterator();
-								while(blockIt.hasNext()){
-									AlignmentBlock block = blockIt.next();
-									int start = offset+block.getReferenceStart();
-									int len = block.getLength();
-									for(int k=0;k<len;k++){
-										int[] current = map.get(start+k);
-										if( current==null ){
-											current= new int[1];
-											map.put(start+k, current);
-										}
-										if( maxCov < 0 || current[0]<maxCov ) current[0]++;
-									}
-								}
-								int il = introns.size();
-								for(int k=0;k<numIntrons;k++) {
-									Intron intron = introns.get(il-numIntrons+k);
-									int start = intron.getStart();
-									int end = intron.getEnd();
-									int len = end - start;
-									if( len < minIntronLength ) {
-										for(int l=start;l<end;l++) {
-											int[] current = map.get(l);
-											if(current == null) {
-												current = new int[1];
-												map.put(l, current);
-											}
-											if( maxCov < 0 || current[0]<maxCov ) current[0]++;
-										}
-										tooShort++;
-									}
-								}
-							}
-						}
-					}
-				} else {
-					if( q >= minQuality ) questionable++;
-				}
-				if(its[wm].hasNext()){
+				if(wm > -1){
+					//the next two line leads to "Ignoring SAM validation error"
+					//rec  = curr[wm].deepCopy();
+					//if( offset!=0 ) rec.setAlignmentStart(rec.getAlignmentStart()+offset);
+					total.add(curr[wm], wm, offset, chrOut);
+					
 					try {
-						curr[wm] = its[wm].next();
+						curr[wm] = its.get(wm).hasNext() ? its.get(wm).next() : null;
 					} catch( Exception e ) {
 						//even if the file is broken take all information before it breaks and then write a message
 						e.printStackTrace();
-						corrupt[wm]=true;
+						total.corrupt[wm]=true;
 						curr[wm]=null;
-						protocol.append("corrupt file: " + ((ParameterSet)eps.getParameterAt(wm).getValue()).getParameterAt(0).getValue().toString() + "\n" );
+						protocol.append("corrupt file: " + bams[wm] + "\n" );
 					}
+				
 				}else{
-					curr[wm] = null;
-				}
-			
-			}else{
-				if( coverage ) {
-					int temp = currPos;
-					while(mapFwd.size()>0){
-						if(mapFwd.containsKey(temp)){
-							previousFwd = write(previousFwd,chrOut,mapFwd,temp,sosFwd);
-							mapFwd.remove(temp);
+					total.flush(chrOut);
+					for(int k=0;k<curr.length;k++){
+						if(curr[k] != null){
+							firstChrs[k] = curr[k].getReferenceName();
+						}else{
+							firstChrs[k] = null;
 						}
-						temp++;
 					}
-					temp = currPos;
-					while(mapRev.size()>0){
-						if(mapRev.containsKey(temp)){
-							previousRev = write(previousRev,chrOut,mapRev,temp,sosRev);
-							mapRev.remove(temp);
-						}
-						temp++;
+					Arrays.sort(firstChrs,scomp);
+					
+					if( firstChrs[0] == null || !chr.equals(firstChrs[0]) ) {
+						intronNum += print(chrOut,count(total.introns,minIntronLength),stats,sosInt,minContext,intronLength); //XXX if write done in a separate loop at the end intronL could be used for ReadStats
+						total.introns.clear();
 					}
-				}
-				for(int k=0;k<curr.length;k++){
-					if(curr[k] != null){
-						firstChrs[k] = curr[k].getReferenceName();
-					}else{
-						firstChrs[k] = null;
+					
+					if( !chr.equals(firstChrs[0]) ) {
+						chr = firstChrs[0];
+						if( chr!= null ) {
+							protocol.append(chr+"\n");
+							if( repos != null ) {
+								chrOut = repos.get(chr)[1];
+								offset = Integer.parseInt(repos.get(chr)[2]);
+							} else {
+								chrOut = chr;
+							}
+						} else {
+							break; //?
+						}
 					}
 				}
-				Arrays.sort(firstChrs,scomp);
 				
-				if( firstChrs[0] == null || !chr.equals(firstChrs[0]) ) {
-					introns = count(introns,minIntronLength);
-					intronNum += print(chrOut,introns,stats,sosInt,minContext,intronLength); //XXX if write done in a separate loop at the end intronL could be used for ReadStats
-					introns.clear();
+				i++;
+				if(i % 1000000 == 0){
+					protocol.append(i+"\n");
 				}
-				
-				if( !chr.equals(firstChrs[0]) ) {
-					chr = firstChrs[0];
-					if( chr!= null ) {
-						protocol.append(chr+"\n");
-						if( repos != null ) {
-							chrOut = repos.get(chr)[1];
-							offset = Integer.parseInt(repos.get(chr)[2]);
-						} else {
-							chrOut = chr;
+			}
+			for( int k = 0; k < readers.length; k++ ) {
+				readers[k].close();
+			}
+		} else {
+			//all files are indexed: process the reference sequences in parallel and collect the results in the order of the sequential merge
+			ExecutorService exec = Executors.newFixedThreadPool(threads);
+			ArrayList<Future<Processor>> parts = new ArrayList<Future<Processor>>();
+			for( Pair<String,boolean[]> v : visits ) {
+				String chr = v.getFirstElement();
+				String chrOut = repos == null ? chr : repos.get(chr)[1];
+				int offset = repos == null ? 0 : Integer.parseInt(repos.get(chr)[2]);
+				parts.add( exec.submit( new ReferenceTask(stringency, bams, v.getSecondElement(), chr, chrOut, offset, total, tempD) ) );
+			}
+			exec.shutdown();
+			try {
+				for( int v = 0; v < parts.size(); v++ ) {
+					protocol.append(visits.get(v).getFirstElement()+"\n");
+					Processor part = parts.get(v).get();
+					for( int k = 0; k < bams.length; k++ ) {
+						if( part.corrupt[k] ) {
+							protocol.append("corrupt file: " + bams[k] + "\n" );
 						}
-					} else {
-						break; //?
+					}
+					total.append(part);
+					intronNum += print(part.chrOut,count(part.introns,minIntronLength),stats,sosInt,minContext,intronLength);
+					
+					long old = i;
+					i += part.reads + (v==0 ? 0 : 1);
+					if( i / 1000000 > old / 1000000 ) {
+						protocol.append(i+"\n");
 					}
 				}
-				mapFwd.clear();
-				mapRev.clear();
-				currPos = 0;
-			}
-			
-			i++;
-			if(i % 1000000 == 0){
-				protocol.append(i+"\n");
+			} finally {
+				exec.shutdownNow();
 			}
 		}
 		sosInt.close();
@@ -599,18 +525,17 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 		
 		protocol.append("\nfile statistics:\n");
 		int c = 0;
-		for( int k = 0; k < its.length; k++ ) {
-			its[k].close();
-			protocol.append( split[k] + "\t" + corrupt[k] + "\t" + ((ParameterSet)eps.getParameterAt(k).getValue()).getParameterAt(0).getValue().toString() + "\n" );
-			c += (corrupt[k]?1:0);
+		for( int k = 0; k < bams.length; k++ ) {
+			protocol.append( total.split[k] + "\t" + total.corrupt[k] + "\t" + bams[k] + "\n" );
+			c += (total.corrupt[k]?1:0);
 		}
 		protocol.append("\noverall statistics:\n");
-		protocol.append("#files:\t" + its.length + "\n");
+		protocol.append("#files:\t" + bams.length + "\n");
 		protocol.append("#corrupt files:\t" + c + "\n");
 		protocol.append("#reads:\t" + i + "\n");
-		protocol.append("#split reads:\t" + splits + "\n");
-		protocol.append("#questionable split reads:\t" + questionable + "\n");
-		protocol.append("#removed very short intron:\t" + tooShort + "\n");
+		protocol.append("#split reads:\t" + total.splits + "\n");
+		protocol.append("#questionable split reads:\t" + total.questionable + "\n");
+		protocol.append("#removed very short intron:\t" + total.tooShort + "\n");
 		protocol.append("#introns:\t" + intronNum + "\n");
 		protocol.append("#intron length:\t" + intronLength[0] + " .. " + intronLength[1] + "\n");
 		
@@ -625,9 +550,9 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 			protocol.append(il[j] + "\t" + stat[0] + "\t" + (all/anz) + "\n");
 		}
 		protocol.append("\nmapping qualities:\n");
-		for( int j = 0; j < qual[0].length; j++ ) {
-			if( qual[0][j] > 0 ) {
-				protocol.append( j + "\t" + qual[0][j] + " reads\t" + qual[1][j] + " used reads\t" + qual[2][j] + " split reads\n" );
+		for( int j = 0; j < total.qual[0].length; j++ ) {
+			if( total.qual[0][j] > 0 ) {
+				protocol.append( j + "\t" + total.qual[0][j] + " reads\t" + total.qual[1][j] + " used reads\t" + total.qual[2][j] + " split reads\n" );
 			}
 		}
 		
@@ -709,27 +634,456 @@ public class ExtractRNAseqEvidence extends GeMoMaModule {
 	}
 	
 
-	private BedgraphEntry write(BedgraphEntry previous, String chr, HashMap<Integer, int[]> map, int currPos, SafeOutputStream safeOutputStream) throws IOException {
-		int[] temp = map.get(currPos);
+	/**
+	 * Determines the order in which the reference sequences are visited by merging the coordinate-sorted files,
+	 * i.e., the order of the sequential merge in {@link #run(ToolParameterSet, Protocol, ProgressUpdater, int, String)}.
+	 * Each visit is given by the name of the reference sequence and the indicators of the files that contribute records.
+	 * Unmapped reads that are not placed at any reference sequence are visited as {@link SAMRecord#NO_ALIGNMENT_REFERENCE_NAME}
+	 * after the last reference sequence of the file, as they are at the end of the file.
+	 * 
+	 * @param srf the factory for opening the files
+	 * @param bams the file names
+	 * 
+	 * @return the visits or <code>null</code> if at least one of the files is not indexed
+	 * 
+	 * @throws IOException if a file could not be closed
+	 */
+	private static ArrayList<Pair<String,boolean[]>> getVisits( SamReaderFactory srf, String[] bams ) throws IOException {
+		ArrayList<ArrayList<String>> refs = new ArrayList<ArrayList<String>>();
+		for( int k = 0; k < bams.length; k++ ) {
+			SamReader sr = srf.open(new File(bams[k]));
+			ArrayList<String> current = ParallelBAMReader.getReferences(sr);
+			if( current == null ) {
+				sr.close();
+				return null;
+			}
+			SAMRecordIterator it = sr.queryUnmapped();
+			if( it.hasNext() ) {
+				current.add(SAMRecord.NO_ALIGNMENT_REFERENCE_NAME);
+			}
+			it.close();
+			sr.close();
+			refs.add(current);
+		}
+		
+		int[] pointer = new int[bams.length];
+		ArrayList<Pair<String,boolean[]>> visits = new ArrayList<Pair<String,boolean[]>>();
+		while( true ) {
+			String chr = null;
+			for( int k = 0; k < bams.length; k++ ) {
+				if( pointer[k] < refs.get(k).size() ) {
+					String c = refs.get(k).get(pointer[k]);
+					if( chr == null || c.compareTo(chr) < 0 ) {
+						chr = c;
+					}
+				}
+			}
+			if( chr == null ) {
+				return visits;
+			}
+			boolean[] use = new boolean[bams.length];
+			for( int k = 0; k < bams.length; k++ ) {
+				if( pointer[k] < refs.get(k).size() && chr.equals(refs.get(k).get(pointer[k])) ) {
+					use[k] = true;
+					pointer[k]++;
+				}
+			}
+			visits.add( new Pair<String,boolean[]>(chr, use) );
+		}
+	}
+	
+	/**
+	 * Task that extracts the introns and coverage of one reference sequence using indexed queries of {@link ParallelBAMReader}s.
+	 * Coverage is written to temporary files that are appended to the result by {@link Processor#append(Processor)}.
+	 */
+	private static class ReferenceTask implements Callable<Processor> {
+		
+		private ValidationStringency stringency;
+		private String[] bams;
+		private boolean[] use;
+		private String chr, chrOut, tempD;
+		private int offset;
+		private Processor template;
+		
+		private ReferenceTask( ValidationStringency stringency, String[] bams, boolean[] use, String chr, String chrOut, int offset, Processor template, String tempD ) {
+			this.stringency = stringency;
+			this.bams = bams;
+			this.use = use;
+			this.chr = chr;
+			this.chrOut = chrOut;
+			this.offset = offset;
+			this.template = template;
+			this.tempD = tempD;
+		}
+
+		@Override
+		public Processor call() throws Exception {
+			Processor p = new Processor(template, chrOut, tempD);
+			ParallelBAMReader[] readers = new ParallelBAMReader[bams.length];
+			ArrayList<Iterator<SAMRecord>> its = new ArrayList<Iterator<SAMRecord>>();
+			SAMRecord[] curr = new SAMRecord[bams.length];
+			try {
+				for( int k = 0; k < bams.length; k++ ) {
+					its.add( null );
+					if( use[k] ) {
+						readers[k] = new ParallelBAMReader(bams[k], stringency, 1, true, true, Collections.singletonList( SAMRecord.NO_ALIGNMENT_REFERENCE_NAME.equals(chr) ? "" : chr ));
+						its.set( k, readers[k].recordIterator() );
+						curr[k] = next(its, k, p);
+					}
+				}
+				int wm;
+				while( (wm = whichMin(curr,chr)) > -1 ) {
+					p.add(curr[wm], wm, offset, chrOut);
+					p.reads++;
+					curr[wm] = next(its, wm, p);
+				}
+				p.flush(chrOut);
+				Collections.sort(p.introns);
+			} finally {
+				p.close();
+				for( int k = 0; k < bams.length; k++ ) {
+					if( readers[k] != null ) {
+						readers[k].close();
+					}
+				}
+			}
+			return p;
+		}
+		
+		private static SAMRecord next( ArrayList<Iterator<SAMRecord>> its, int k, Processor p ) {
+			try {
+				if( its.get(k).hasNext() ) {
+					return its.get(k).next();
+				}
+			} catch( Exception e ) {
+				//even if the file is broken take all information before it breaks
+				e.printStackTrace();
+				p.corrupt[k] = true;
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Coverage of one strand of a reference sequence. The coverage is stored in a ring buffer of primitive values for a window of positions
+	 * starting at the current position, which avoids creating and hashing objects for each covered position. A value of 0 indicates that
+	 * the position has not been covered, otherwise the value is the coverage plus 1.
+	 */
+	private static class Coverage {
+		
+		private int[] buffer;
+		private int mask, origin, size, maxCov;
+		
+		private Coverage( int maxCov ) {
+			buffer = new int[1<<16];
+			mask = buffer.length-1;
+			this.maxCov = maxCov;
+		}
+		
+		private void add( int pos ) {
+			int d = pos - origin;
+			if( d < 0 ) {
+				return;
+			}
+			if( d >= buffer.length ) {
+				int len = buffer.length;
+				while( len <= d ) {
+					len <<= 1;
+				}
+				int[] b = new int[len];
+				for( int j = 0; j < buffer.length; j++ ) {
+					b[(origin+j) & (len-1)] = buffer[(origin+j) & mask];
+				}
+				buffer = b;
+				mask = len-1;
+			}
+			int idx = pos & mask;
+			if( buffer[idx] == 0 ) {
+				buffer[idx] = 1;
+				size++;
+			}
+			if( maxCov < 0 || buffer[idx]-1 < maxCov ) buffer[idx]++;
+		}
+		
+		/**
+		 * Removes the current position.
+		 * 
+		 * @return the coverage of the current position or -1 if it has not been covered
+		 */
+		private int poll() {
+			int idx = origin & mask;
+			int v = buffer[idx];
+			buffer[idx] = 0;
+			origin++;
+			if( v > 0 ) {
+				size--;
+			}
+			return v-1;
+		}
+		
+		private boolean isEmpty() {
+			return size == 0;
+		}
+		
+		/**
+		 * Sets the current position. Only allowed if the coverage {@link #isEmpty()}.
+		 */
+		private void skipTo( int pos ) {
+			origin = pos;
+		}
+	}
+	
+	/**
+	 * Writes bedgraph entries merging adjacent positions with the same coverage. The last entry is kept until it is finished.
+	 * If the first entry is held back, it can be merged with the last entry of a previous part (see {@link #append(BedgraphWriter, File)}).
+	 */
+	private static class BedgraphWriter {
+		
+		private SafeOutputStream sos;
+		private boolean holdFirst;
+		private BedgraphEntry first, previous;
 		
+		private BedgraphWriter( SafeOutputStream sos, boolean holdFirst ) {
+			this.sos = sos;
+			this.holdFirst = holdFirst;
+		}
 		
-		if(temp != null){
-			if( previous != null && currPos == previous.end && temp[0] == previous.value && chr.equals(previous.chr) ){
+		private void write( String chr, int currPos, int value ) throws IOException {
+			if( previous != null && currPos == previous.end && value == previous.value && chr.equals(previous.chr) ){
 				previous.end = currPos+1;
-				return previous;
 			}else{
 				if(previous != null){
-					safeOutputStream.writeln(previous.chr+"\t"+previous.start+"\t"+previous.end+"\t"+previous.value);
+					if( holdFirst && first == null ) {
+						first = previous;
+					} else {
+						writeln(previous);
+					}
+				}
+				previous = new BedgraphEntry(chr, currPos, currPos+1, value);
+			}
+		}
+		
+		private void writeln( BedgraphEntry e ) throws IOException {
+			sos.writeln(e.chr+"\t"+e.start+"\t"+e.end+"\t"+e.value);
+		}
+		
+		private void merge( BedgraphEntry e ) throws IOException {
+			if( previous != null && e.start == previous.end && e.value == previous.value && e.chr.equals(previous.chr) ) {
+				previous.end = e.end;
+			} else {
+				if( previous != null ) {
+					writeln(previous);
+				}
+				previous = e;
+			}
+		}
+		
+		/**
+		 * Appends the entries of a part as if they have been written by this instance.
+		 * 
+		 * @param part the writer of the part, which must hold back its first entry
+		 * @param content the file containing the entries of the part that have been written, might be <code>null</code> if the part is empty
+		 */
+		private void append( BedgraphWriter part, File content ) throws IOException {
+			if( part.first != null ) {
+				merge(part.first);
+				writeln(previous);
+				sos.flush();
+				Files.copy(content.toPath(), sos.getOutputStream());
+				previous = part.previous;
+			} else if( part.previous != null ) {
+				merge(part.previous);
+			}
+		}
+	}
+	
+	/**
+	 * Processes the records of a reference sequence collecting introns, coverage and statistics.
+	 */
+	private static class Processor {
+		
+		private Stranded stranded;
+		private SAMRecordFilter samFilter;
+		private boolean sa, coverage;
+		private int maxCov, minIntronLength, minQuality;
+		
+		private Coverage covFwd, covRev;
+		private BedgraphWriter fwd, rev;
+		private File outFwd, outRev;
+		private String chrOut;
+		private int currPos;
+		private ArrayList<Intron> introns;
+		
+		private long reads, splits;
+		private long[] split;
+		private boolean[] corrupt;
+		private long[][] qual;
+		private int questionable, tooShort;
+		
+		private Processor( Stranded stranded, SAMRecordFilter samFilter, boolean sa, boolean coverage, int maxCov, int minIntronLength, int minQuality, int files, SafeOutputStream sosFwd, SafeOutputStream sosRev ) {
+			this.stranded = stranded;
+			this.samFilter = samFilter;
+			this.sa = sa;
+			this.coverage = coverage;
+			this.maxCov = maxCov;
+			this.minIntronLength = minIntronLength;
+			this.minQuality = minQuality;
+			
+			covFwd = new Coverage(maxCov);
+			covRev = new Coverage(maxCov);
+			fwd = new BedgraphWriter(sosFwd, false);
+			rev = new BedgraphWriter(sosRev, false);
+			currPos = 0;
+			introns = new ArrayList<Intron>();
+			
+			split = new long[files];
+			corrupt = new boolean[files];
+			qual = new long[3][260];
+		}
+		
+		/**
+		 * Creates a processor for one part with the settings of <code>template</code> that writes the coverage to temporary files.
+		 */
+		private Processor( Processor template, String chrOut, String tempD ) throws IOException {
+			this( template.stranded, template.samFilter, template.sa, template.coverage, template.maxCov, template.minIntronLength, template.minQuality, template.split.length,
+					SafeOutputStream.getSafeOutputStream(null), SafeOutputStream.getSafeOutputStream(null) );
+			this.chrOut = chrOut;
+			if( coverage ) {
+				outFwd = Tools.createTempFile("ERE-coveragefwd_part", tempD);
+				fwd = new BedgraphWriter(SafeOutputStream.getSafeOutputStream(new BufferedOutputStream(new FileOutputStream(outFwd))), true);
+				outRev = Tools.createTempFile("ERE-coveragerev_part", tempD);
+				rev = new BedgraphWriter(SafeOutputStream.getSafeOutputStream(new BufferedOutputStream(new FileOutputStream(outRev))), true);
+			} else {
+				fwd.holdFirst = rev.holdFirst = true;
+			}
+		}
+		
+		private void add( SAMRecord rec, int wm, int offset, String chrOut ) throws IOException {
+			//XXX alternatively: "long recStart" if chromosome will be larger than Integer.MAX_VALUE (but then we have to change much more in GeMoMa)
+			int recStart = rec.getAlignmentStart();
+			if( offset!= 0 ) recStart += offset;
+			
+			int q = rec.getMappingQuality();
+			qual[0][q]++;
+			if( /*q >= minQual*/samFilter.accept(rec) ) {
+				if( sa || !rec.isSecondaryOrSupplementary() ) {
+					qual[1][q]++;
+					int numIntrons = Intron.addIntrons(rec, recStart, stranded, introns);
+					if( numIntrons>=0 ) { //well mapped
+						if( numIntrons>0 ) {//has at least one intron
+							qual[2][q]++;
+							splits++;
+							split[wm]++;
+						}
+						
+						if( coverage ) {
+							boolean isNeg = rec.getReadNegativeStrandFlag();
+							boolean isFirst = !rec.getReadPairedFlag() || rec.getFirstOfPairFlag();
+							boolean countAsFwd = true;
+							if(stranded == Stranded.FR_SECOND_STRAND){
+								countAsFwd = (isFirst && !isNeg)||(!isFirst && isNeg);
+							}else if(stranded == Stranded.FR_FIRST_STRAND){
+								countAsFwd = (isFirst && isNeg)||(!isFirst && !isNeg);
+							}
+							
+							while(currPos < recStart){
+								if( covFwd.isEmpty() && covRev.isEmpty() ) {
+									currPos = recStart;
+									covFwd.skipTo(currPos);
+									covRev.skipTo(currPos);
+								} else {
+									int v = covFwd.poll();
+									if( v >= 0 ) fwd.write(chrOut, currPos, v);
+									v = covRev.poll();
+									if( v >= 0 ) rev.write(chrOut, currPos, v);
+									currPos++;
+								}
+							}
+							
+							Coverage cov = countAsFwd ? covFwd : covRev;
+							List<AlignmentBlock> blocks = rec.getAlignmentBlocks();
+							Iterator<AlignmentBlock> blockIt = blocks.iterator();
+							while(blockIt.hasNext()){
+								AlignmentBlock block = blockIt.next();
+								int start = offset+block.getReferenceStart();
+								int len = block.getLength();
+								for(int k=0;k<len;k++){
+									cov.add(start+k);
+								}
+							}
+							int il = introns.size();
+							for(int k=0;k<numIntrons;k++) {
+								Intron intron = introns.get(il-numIntrons+k);
+								int start = intron.getStart();
+								int end = intron.getEnd();
+								int len = end - start;
+								if( len < minIntronLength ) {
+									for(int l=start;l<end;l++) {
+										cov.add(l);
+									}
+									tooShort++;
+								}
+							}
+						}
+					}
+				}
+			} else {
+				if( q >= minQuality ) questionable++;
+			}
+		}
+		
+		/**
+		 * Writes the remaining coverage of the current reference sequence.
+		 */
+		private void flush( String chrOut ) throws IOException {
+			drain( covFwd, fwd, chrOut );
+			drain( covRev, rev, chrOut );
+			currPos = 0;
+			covFwd.skipTo(currPos);
+			covRev.skipTo(currPos);
+		}
+		
+		private void drain( Coverage cov, BedgraphWriter w, String chrOut ) throws IOException {
+			int pos = currPos;
+			while( !cov.isEmpty() ) {
+				int v = cov.poll();
+				if( v >= 0 ) w.write(chrOut, pos, v);
+				pos++;
+			}
+		}
+		
+		private void close() throws IOException {
+			fwd.sos.close();
+			rev.sos.close();
+		}
+		
+		/**
+		 * Appends the coverage and the statistics of a part processed in parallel.
+		 */
+		private void append( Processor part ) throws IOException {
+			fwd.append(part.fwd, part.outFwd);
+			rev.append(part.rev, part.outRev);
+			if( part.outFwd != null ) {
+				part.outFwd.delete();
+				part.outRev.delete();
+			}
+			
+			splits += part.splits;
+			for( int k = 0; k < split.length; k++ ) {
+				split[k] += part.split[k];
+				corrupt[k] |= part.corrupt[k];
+			}
+			for( int j = 0; j < qual.length; j++ ) {
+				for( int k = 0; k < qual[j].length; k++ ) {
+					qual[j][k] += part.qual[j][k];
 				}
-				return new BedgraphEntry(chr, currPos, currPos+1, temp[0]);
 			}
-		}else if(previous != null){
-			safeOutputStream.writeln(previous.chr+"\t"+previous.start+"\t"+previous.end+"\t"+previous.value);
+			questionable += part.questionable;
+			tooShort += part.tooShort;
 		}
-		return null;
 	}
 
-	private int whichMin(SAMRecord[] curr, String chr) {
+	private static int whichMin(SAMRecord[] curr, String chr) {
 		int res = -1;
 		for(int i=0;i<curr.length;i++){
 			if(curr[i] != null && chr.equals(curr[i].getReferenceName())){
@@ -137,7 +137,7 @@ public class Extractor extends GeMoMaModule {
 		//read genome contig by contig
 		r = Tools.openGzOrPlain( parameters.getParameterForName("genome").getValue().toString() );
 		
-		StringBuffer seq = new StringBuffer();
+		CompactSequence seq = new CompactSequence(1<<20);
 		donor = new HashMap<String, int[]>();
 		acceptor = new HashMap<String, int[]>();
 		count = new HashMap<Integer, int[]>();
@@ -150,18 +150,20 @@ public class Extractor extends GeMoMaModule {
 		while( (line=r.readLine()) != null ) {
 			if( line.startsWith(">") ) {
 				//do
+				seq.finish();
 				extract( stopCodonEx, fullLength, ambi, protocol, verbose, comment, info, seq, annot, code, discardPreMatureStop, longComment, replacement, geneIDs );
 				unUsedChr.remove(comment);
 				//clear
 				comment = line.substring(1).replaceAll("\\s.*", "");
 				ref += (ref.length()>0 ? ", " : "") + comment;
-				seq.delete(0, seq.length());
+				seq.clear();
 			} else {
 				//add
 				seq.append( line.trim().toUpperCase() );
 			}
 		}
 		//do
+		seq.finish();
 		extract( stopCodonEx, fullLength, ambi, protocol, verbose, comment, info, seq, annot, code, discardPreMatureStop, longComment, replacement, geneIDs );
 		unUsedChr.remove(comment);
 		r.close();
@@ -687,7 +689,7 @@ public class Extractor extends GeMoMaModule {
 	}	
 	
 	private void extract( boolean stopCodonEx, boolean fullLength, Ambiguity ambi, Protocol protocol, boolean verbose, String comment, int[] info,
-			StringBuffer seq, HashMap<String, HashMap<String,Gene>> annot, HashMap<String,Character> code, boolean discardPreMatureStop, boolean longComment,
+			CompactSequence seq, HashMap<String, HashMap<String,Gene>> annot, HashMap<String,Character> code, boolean discardPreMatureStop, boolean longComment,
 			String replacement, HashSet<String> geneIDs
 			) throws Exception {
 		if( comment == null ) {
@@ -927,7 +929,7 @@ public class Extractor extends GeMoMaModule {
 	HashMap<Integer,int[]> count;
 	int a=0, d=0;
 	
-	int transcript(StringBuffer seq, boolean stopCodonEx, String chr, Gene gene, String trans, int s, boolean[][] splits, boolean fullLength, int[] info, Ambiguity ambi, HashMap<String,Character> code, Protocol protocol,boolean verbose, boolean[] used, String[] acc, String[] don, boolean discardPreMatureStop, boolean longComment ) throws IOException {
+	int transcript(CompactSequence seq, boolean stopCodonEx, String chr, Gene gene, String trans, int s, boolean[][] splits, boolean fullLength, int[] info, Ambiguity ambi, HashMap<String,Character> code, Protocol protocol,boolean verbose, boolean[] used, String[] acc, String[] don, boolean discardPreMatureStop, boolean longComment ) throws IOException {
 		int j;
 		dnaSeqBuff.delete(0, dnaSeqBuff.length());
 		int currentProb=-1;
@@ -25,6 +25,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.net.URL;
 import java.net.URLConnection;
 import java.text.DecimalFormat;
@@ -43,6 +44,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -112,7 +118,7 @@ public class GeMoMa extends GeMoMaModule {
 
 	//global variables (always same for the same target species)
 	//
-	static HashMap<String, String> seqs;
+	static HashMap<String, CompactSequence> seqs;
 	private static HashMap<String,Character> code;
 	static HashMap<String, String> selected = null; //optional
 	//splicing
@@ -124,7 +130,7 @@ public class GeMoMa extends GeMoMaModule {
 	//fill
 	static synchronized void fill( Protocol protocol, boolean verbose, int maxSize, String targetGenome, String selectedFile, int reads, ExpandableParameterSet introns, ExpandableParameterSet cov ) throws Exception {
 		//read genome
-		seqs = Tools.getFasta(targetGenome,20,".*");
+		seqs = Tools.getGenome(targetGenome,20,".*");
 		String x = Arrays.toString(seqs.keySet().toArray());
 		if( x.length() > 200 ) {
 			x = x.substring(0, 200) + "...";
@@ -367,6 +373,8 @@ public class GeMoMa extends GeMoMaModule {
 		boolean[] configureThreads = new boolean[tools.length];
 		Arrays.fill(configureThreads,false);
 		configureThreads[0]=true;
+		configureThreads[1]=true;//ExtractRNAseqEvidence: reference sequences of indexed BAM files in parallel
+		configureThreads[6]=true;//GeMoMa: genes in parallel
 		
 		//running the program
 		if( args.length == 0 ) {
@@ -659,7 +667,7 @@ public class GeMoMa extends GeMoMaModule {
 	 * 
 	 * @throws IOException if at least one {@link File} cannot be read correctly 
 	 */
-	public static HashMap<String, int[][][]>[] readIntrons( int threshold, Protocol protocol, boolean verbose, HashMap<String, String> seqs, HashMap<String,int[]> diNucl, String... intronGFF ) throws IOException {
+	public static HashMap<String, int[][][]>[] readIntrons( int threshold, Protocol protocol, boolean verbose, HashMap<String, CompactSequence> seqs, HashMap<String,int[]> diNucl, String... intronGFF ) throws IOException {
 		HashMap<String, ArrayList<int[]>[]> spliceHash = new HashMap<String, ArrayList<int[]>[]>();
 		ArrayList<int[]>[] h;
 		
@@ -706,7 +714,7 @@ public class GeMoMa extends GeMoMaModule {
 							donor = new String[]{Tools.rc(DONOR[0]),Tools.rc(DONOR[1])};
 							acceptor = Tools.rc(ACCEPTOR);
 						}
-						String s = seqs.get(split[0]);
+						CompactSequence s = seqs.get(split[0]);
 						if( s == null ) {
 							r.close();
 							throw new IllegalArgumentException("Did not find sequence " + split[0] + ", which should contain an intron");
@@ -997,6 +1005,7 @@ public class GeMoMa extends GeMoMaModule {
 		Exception e = null;
 		
 		TranscriptPredictor tp = new TranscriptPredictor(true, parameters, temp);
+		PredictionQueue queue = threads > 1 ? new PredictionQueue(threads) : null;
 		String problem=null, old=null;
 		try {			
 			//collect blast hits per transcript, split for chromosome, strand and cds part
@@ -1009,12 +1018,17 @@ public class GeMoMa extends GeMoMaModule {
 				if( line.length() > 0 ) {
 					if( old == null || !line.startsWith(old) ) {
 						if( old != null ) {
-							tp.numberOfLines=noL;
-							progress.add( tp.compute(old, hash, staticIntronLength) );
-							protocol.append( tp.protocol.toString() );
+							if( queue == null ) {
+								tp.numberOfLines=noL;
+								progress.add( tp.compute(old, hash, staticIntronLength) );
+								protocol.append( tp.protocol.toString() );
+								//clear
+								hash.clear();
+							} else {
+								queue.submit(old, hash, noL, staticIntronLength, tp, protocol, progress);
+								hash = new HashMap<String, HashMap<Integer,ArrayList<Hit>>[]>();
+							}
 							noL=0;
-							//clear
-							hash.clear();
 						}
 						old = line.substring(0, line.indexOf('\t'));
 						if( transcriptInfo != null ) {
@@ -1034,10 +1048,17 @@ public class GeMoMa extends GeMoMaModule {
 				}
 			}
 			if( old != null ) {
-				tp.numberOfLines=noL;
-				progress.add( tp.compute(old, hash, staticIntronLength) );
-				protocol.append( tp.protocol.toString() );
-			}			
+				if( queue == null ) {
+					tp.numberOfLines=noL;
+					progress.add( tp.compute(old, hash, staticIntronLength) );
+					protocol.append( tp.protocol.toString() );
+				} else {
+					queue.submit(old, hash, noL, staticIntronLength, tp, protocol, progress);
+				}
+			}
+			if( queue != null ) {
+				queue.finish(tp, protocol, progress);
+			}
 		} catch ( Throwable er ) {
 			protocol.appendThrowable(er);
 			if( er instanceof Exception ) {
@@ -1047,8 +1068,11 @@ public class GeMoMa extends GeMoMaModule {
 				e.setStackTrace( er.getStackTrace() );
 			}
 			okay=false;
-			problem=old;
+			problem= queue != null && queue.failed != null ? queue.failed : old;
 		} finally {					
+			if( queue != null ) {
+				queue.close();
+			}
 			//close output;
 			tp.gff.close();
 			
@@ -1073,6 +1097,120 @@ public class GeMoMa extends GeMoMaModule {
 		}
 	}
 
+	/**
+	 * The result of predicting one gene in parallel.
+	 */
+	private static class Prediction {
+		private String gff, protocol, timeOuts;
+		private int transcripts;
+	}
+	
+	/**
+	 * This class predicts genes in parallel using one {@link TranscriptPredictor} per thread.
+	 * The predictions, protocol entries and time-out warnings are written in the order of the genes in the search results,
+	 * which yields the same output as the sequential prediction.
+	 * 
+	 * @author Jens Keilwagen
+	 */
+	private class PredictionQueue {
+		
+		private ExecutorService executor;
+		private ArrayBlockingQueue<TranscriptPredictor> idle;
+		private ArrayList<TranscriptPredictor> all;
+		private LinkedList<Future<Prediction>> pending;
+		private LinkedList<String> names;
+		private int maxPending;
+		private String failed;
+		
+		private PredictionQueue( int threads ) throws InterruptedException {
+			executor = Executors.newFixedThreadPool(threads);
+			idle = new ArrayBlockingQueue<TranscriptPredictor>(threads);
+			all = new ArrayList<TranscriptPredictor>();
+			for( int i = 0; i < threads; i++ ) {
+				TranscriptPredictor tp = new TranscriptPredictor( new StringWriter() );
+				all.add(tp);
+				idle.put(tp);
+			}
+			pending = new LinkedList<Future<Prediction>>();
+			names = new LinkedList<String>();
+			maxPending = 4*threads;
+		}
+		
+		/**
+		 * Submits the prediction of one gene. If too many predictions are pending, the results of the oldest are written first.
+		 */
+		private void submit( final String name, final HashMap<String, HashMap<Integer,ArrayList<Hit>>[]> hash, final int numberOfLines, final boolean staticIntronLength,
+				TranscriptPredictor out, Protocol protocol, ProgressUpdater progress ) throws Exception {
+			if( pending.size() >= maxPending ) {
+				write( out, protocol, progress );
+			}
+			names.add( name );
+			pending.add( executor.submit( new Callable<Prediction>() {
+				@Override
+				public Prediction call() throws Exception {
+					TranscriptPredictor tp = idle.take();
+					try {
+						tp.gffBuffer.getBuffer().setLength(0);
+						tp.timeOuts.delete(0, tp.timeOuts.length());
+						tp.numberOfLines = numberOfLines;
+						
+						Prediction p = new Prediction();
+						p.transcripts = tp.compute(name, hash, staticIntronLength);
+						tp.gff.flush();
+						p.gff = tp.gffBuffer.toString();
+						p.protocol = tp.protocol.toString();
+						p.timeOuts = tp.timeOuts.toString();
+						return p;
+					} finally {
+						idle.put(tp);
+					}
+				}
+			} ) );
+		}
+		
+		/**
+		 * Writes the results of the oldest pending prediction.
+		 */
+		private void write( TranscriptPredictor out, Protocol protocol, ProgressUpdater progress ) throws Exception {
+			Prediction p;
+			String name = names.removeFirst();
+			try {
+				p = pending.removeFirst().get();
+			} catch( ExecutionException ee ) {
+				//the oldest pending gene is the first that failed in the sequential order
+				failed = name;
+				Throwable t = ee.getCause();
+				if( t instanceof Exception ) {
+					throw (Exception) t;
+				} else {
+					throw (Error) t;
+				}
+			}
+			out.gff.append(p.gff);
+			protocol.append(p.protocol);
+			if( p.timeOuts.length() > 0 ) {
+				timeOutWarning.append( (timeOutWarning.length()>0?", ":"") + p.timeOuts );
+			}
+			progress.add(p.transcripts);
+		}
+		
+		/**
+		 * Writes the results of all pending predictions.
+		 */
+		private void finish( TranscriptPredictor out, Protocol protocol, ProgressUpdater progress ) throws Exception {
+			while( pending.size() > 0 ) {
+				write( out, protocol, progress );
+			}
+		}
+		
+		private void close() {
+			executor.shutdownNow();
+			for( TranscriptPredictor tp : all ) {
+				tp.close();
+			}
+		}
+	}
+
 	/**
 	 * Class for sorting (BLAST) {@link Hit}s.
 	 * 
@@ -1522,7 +1660,7 @@ public class GeMoMa extends GeMoMaModule {
 		 * @see Hit#up
 		 * @see Hit#down
 		 */
-		public void prepareSpliceCandidates( String chr, MyAlignment align, int maxAllowedIntron ) throws CloneNotSupportedException, WrongAlphabetException {
+		public void prepareSpliceCandidates( CompactSequence chr, MyAlignment align, int maxAllowedIntron ) throws CloneNotSupportedException, WrongAlphabetException {
 			if( !splice ) {
 				if( accCand == null )  {
 					accCand = ArrayHandler.createArrayOf(new IntList(), 3);
@@ -1976,7 +2114,7 @@ public class GeMoMa extends GeMoMaModule {
 		 * @return the DNA sequence corresponding to this {@link Hit}
 		 */
 		public String getDNA(int off1, int off2) {
-			String chr = seqs.get(targetID);
+			CompactSequence chr = seqs.get(targetID);
 			
 			int offsetUp, offsetDown;
 			if( forward ) {
@@ -2163,11 +2301,17 @@ public class GeMoMa extends GeMoMaModule {
 		
 		private BufferedWriter gff;
 		private File gffFile;
-		private StringBuffer protocol;
+		private StringWriter gffBuffer;
+		private StringBuffer protocol, timeOuts;
 		private MyAlignment align, align1, align2;
+		
+		/**
+		 * Own instance since {@link DecimalFormat} is not thread-safe.
+		 */
+		private DecimalFormat decFormat = (DecimalFormat) GeMoMa.decFormat.clone();
 						
 		public TranscriptPredictor( boolean add, ToolParameterSet parameters, String temp ) throws Exception {
-			protocol = new StringBuffer();
+			this( null );
 			gffFile = Tools.createTempFile("gff", temp);
 			
 			gff = new BufferedWriter( new FileWriter( gffFile ) );
@@ -2181,6 +2325,23 @@ public class GeMoMa extends GeMoMaModule {
 				}
 				gff.newLine();
 			}
+		}
+		
+		/**
+		 * Creates an instance that writes the predictions to <code>gffBuffer</code> and collects the time-outs locally.
+		 * Such instances are used for predicting several genes in parallel (see {@link PredictionQueue}).
+		 * 
+		 * @param gffBuffer the buffer for the predictions, <code>null</code> for the constructor writing to a file
+		 */
+		private TranscriptPredictor( StringWriter gffBuffer ) {
+			protocol = new StringBuffer();
+			if( gffBuffer != null ) {
+				this.gffBuffer = gffBuffer;
+				gff = new BufferedWriter( gffBuffer );
+				timeOuts = new StringBuffer();
+			} else {
+				timeOuts = timeOutWarning;
+			}
 			
 			align = new MyAlignment( cost, this );
 			align1 = new MyAlignment( cost, this );
@@ -2542,7 +2703,7 @@ public class GeMoMa extends GeMoMaModule {
 	        	protocol.append(new Date() + "\t" + System.currentTimeMillis() +"\n");
 	        	out=false;
 
-	        	timeOutWarning.append( (timeOutWarning.length()>0?", ":"") + transcriptName );
+	        	timeOuts.append( (timeOuts.length()>0?", ":"") + transcriptName );
 	        	
 	        	//stop thread
 	        	t.interrupt(); //will probably not help
@@ -2795,7 +2956,7 @@ public class GeMoMa extends GeMoMaModule {
 			Hit o;
 			ArrayList<Hit> l;
 			int b;
-			String chr = null;
+			CompactSequence chr = null;
 			for( int i = currentInfo.exonID.length-1; i >= 0; i-- ) {
 				l = lines.get(currentInfo.exonID[i]);
 				if( l == null || l.size() == 0 ) {
@@ -2890,7 +3051,7 @@ public class GeMoMa extends GeMoMaModule {
 		 * @param chr the chromosome
 		 * @return the best score
 		 */
-		private final int getMax( boolean forward, HashMap<Integer,ArrayList<Hit>> lines, int i, int j, int k, int startIdx, String chr, boolean gap) throws WrongAlphabetException {
+		private final int getMax( boolean forward, HashMap<Integer,ArrayList<Hit>> lines, int i, int j, int k, int startIdx, CompactSequence chr, boolean gap) throws WrongAlphabetException {
 			int max = getCost( lines.get(currentInfo.exonID[i]).get(j), gap, false, i);
 			
 			ArrayList<Hit> ref = lines.get(currentInfo.exonID[k]);
@@ -3414,7 +3575,7 @@ public class GeMoMa extends GeMoMaModule {
 				oldSize[i] = current == null ? 0 : current.size();
 			}
 			
-			String chr = seqs.get(chromosome);
+			CompactSequence chr = seqs.get(chromosome);
 			if( globalStart < 0 ) globalStart=0;
 			if( globalEnd < 0 ) globalEnd=chr.length();
 			if( acceptorSites!= null && donorSites != null ) {
@@ -3646,7 +3807,7 @@ public class GeMoMa extends GeMoMaModule {
 		}
 				
 		private void align( String chromosome, boolean forward, int endLast, int startNext, int startIdx, int endIdx, HashMap<Integer,ArrayList<Hit>> lines, String info, boolean up, boolean down ) throws IllegalArgumentException, WrongAlphabetException {
-			String chr = seqs.get(chromosome);
+			CompactSequence chr = seqs.get(chromosome);
 			String region;
 			if( forward ) {
 				if( endLast < 0 ) {
@@ -3871,7 +4032,7 @@ public class GeMoMa extends GeMoMaModule {
 		 * @param second the second {@link Hit}
 		 * @param res an int array of length 3: score the best splice variant between both {@link Hit}s, intron, exp. verified intron
 		 */
-		private void checkSpliceSites( String chr, Hit first, Hit second, int delta, int[] res )
+		private void checkSpliceSites( CompactSequence chr, Hit first, Hit second, int delta, int[] res )
 				throws WrongAlphabetException {
 			int d = revParts[second.part] - revParts[first.part];
 
@@ -3905,7 +4066,7 @@ public class GeMoMa extends GeMoMaModule {
 		}
 		
 		
-		private void checkSpecificSpliceSiteTypes( String chr, Hit first, Hit second, int delta, int[] res ) throws WrongAlphabetException {	
+		private void checkSpecificSpliceSiteTypes( CompactSequence chr, Hit first, Hit second, int delta, int[] res ) throws WrongAlphabetException {	
 			refined[0] = refined[1]= 0;
 			boolean f = first.forward;
 			int best=NO_SPLICE_VARIANT, intron=0, current;
@@ -4323,7 +4484,7 @@ res.I=I;
 				Hit l = hits.get(0), c;
 				res.hits.add(l.clone());
 				
-				String chr = seqs.get(l.targetID);
+				CompactSequence chr = seqs.get(l.targetID);
 				//splicing
 				int[] help = new int[5];
 				for( int i = 1; i < hits.size(); i++ ) {//iterate over found parts
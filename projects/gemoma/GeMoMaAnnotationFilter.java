@@ -124,14 +124,17 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 		}
 		
 		String[] keys;
+		CompiledExpression[] expressions;
 		HashSet<String> errors;
 		Protocol protocol;
 		Context context;
 		
 		public UserSpecifiedComparator( String specified, Context context, Protocol protocol ) {
 			keys=specified.split(",");
+			expressions = new CompiledExpression[keys.length];
 			for( int i = 0; i < keys.length; i++ ) {
 				keys[i] = keys[i].trim();
+				expressions[i] = new CompiledExpression(keys[i]);
 			}
 			errors = new HashSet<String>();
 			this.context = context;
@@ -153,7 +156,7 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 				boolean asDoubleNow = asDouble.contains(keys[i]);
 				if( v == null ) {
 					try {
-						v=Tools.eval(context, keys[i], p.hash);
+						v=expressions[i].eval(context, p.hash);
 						asDoubleNow=true;
 					} catch( ScriptException se ) {
 						if( !errors.contains(keys[i])) {
@@ -200,7 +203,7 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 		Context context = Context.newBuilder("js").build();
 		
 
-		String filter = Tools.prepareFilter( (String) parameters.getParameterForName("filter").getValue() );
+		CompiledExpression filter = new CompiledExpression( Tools.prepareFilter( (String) parameters.getParameterForName("filter").getValue() ) );
 		UserSpecifiedComparator comp = new UserSpecifiedComparator( (String) parameters.getParameterForName("sorting").getValue(), context, protocol );
 		Double d = null;
 		Parameter pa = parameters.getParameterForName("length difference");
@@ -209,13 +212,13 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 		}
 		double lenPerc = d==null ? Double.POSITIVE_INFINITY : d;
 
-		String altFilter = Tools.prepareFilter( (String) parameters.getParameterForName("alternative transcript filter").getValue() );
+		CompiledExpression altFilter = new CompiledExpression( Tools.prepareFilter( (String) parameters.getParameterForName("alternative transcript filter").getValue() ) );
 		boolean addAltTransIDs = (Boolean) getParameter( parameters, "add alternative transcripts" ).getValue();
 		boolean addAdd = (Boolean) getParameter( parameters, "transfer features" ).getValue();
 		
 		pa = getParameter( parameters, "kmeans" );
 		int minNum=0, cluster=0, good = 0;
-		String[] ex = null;
+		CompiledExpression[] ex = null;
 		int margin=-1;
 		double quantile=-1;
 		
@@ -241,10 +244,10 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 				ex[j] = ((SimpleParameterSet) att.getParameterAt(j).getValue()).getParameterAt(0).getValue().toString();
 			}
 			*/
-			ex = new String[]{
+			ex = new CompiledExpression[]{
 					//"Math.abs(maxScore-Math.max(0,score))/maxScore"
 					//to be tested: 
-					"Math.max(0,1 - Math.max(0,score)/maxScore)"
+					new CompiledExpression("Math.max(0,1 - Math.max(0,score)/maxScore)")
 			};
 			
 			ps = (ParameterSet) ps.getParameterForName("trend").getValue();
@@ -396,7 +399,7 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 				for( int i = 0; i < list.size(); i++ ) {
 					Prediction cur = list.get(i);
 					for( int j = 0; j< ex.length; j++ ) {
-						matrix[i][j] = Double.parseDouble(Tools.eval(context, ex[j], cur.hash));
+						matrix[i][j] = Double.parseDouble(ex[j].eval(context, cur.hash));
 						anyNAN |= Double.isNaN( matrix[i][j] ) ;
 					}
 				}
@@ -550,7 +553,7 @@ public class GeMoMaAnnotationFilter extends GeMoMaModule {
 				for( int i = pred.size()-1; i >= 0; i-- ){
 					Prediction p = pred.get(i);
 					p.setEvidenceAndWeight( weight );
-					if( !Tools.filter(context, filter, p.hash) ) {
+					if( !filter.filter(context, p.hash) ) {
 						//System.out.println(p.hash.toString());
 						pred.remove(i);
 					} else {
@@ -643,7 +646,7 @@ System.out.println();
 	static int[][] stats;
 	int gene;
 	
-	void split( boolean addAdd, int[] clustered, ArrayList<Prediction> pred, UserSpecifiedComparator comp, Context context, double lenPerc, String altFilter, boolean rnaSeq, int maxTranscripts, BufferedWriter w, double cbTh, Protocol protocol ) throws Exception {
+	void split( boolean addAdd, int[] clustered, ArrayList<Prediction> pred, UserSpecifiedComparator comp, Context context, double lenPerc, CompiledExpression altFilter, boolean rnaSeq, int maxTranscripts, BufferedWriter w, double cbTh, Protocol protocol ) throws Exception {
 		int i = 0;
 		Prediction next = pred.get(i), current;
 		ArrayList<Prediction> currentCluster = new ArrayList<Prediction>();
@@ -664,7 +667,7 @@ System.out.println();
 			//sort and alternative filter
 			for( Prediction p: currentCluster ) {
 				comp.prepare(p);
-				p.altCand = Tools.filter(context, altFilter, p.hash);
+				p.altCand = altFilter.filter(context, p.hash);
 			}
 			Collections.sort( currentCluster, comp );
 			for( Prediction p: currentCluster ) {
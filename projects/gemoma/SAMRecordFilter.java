@@ -13,7 +13,7 @@ public class SAMRecordFilter {
 	private int positionsAroundSpliceSite;
 	private int maxMismatches;
 	
-	private HashMap<String,String> genome;
+	private HashMap<String,CompactSequence> genome;
 
 	
 	public SAMRecordFilter(int minQuality, int positionsAroundSpliceSite, int maxMismatches, String targetGenome) throws Exception {
@@ -21,7 +21,7 @@ public class SAMRecordFilter {
 		this.positionsAroundSpliceSite = positionsAroundSpliceSite;
 		this.maxMismatches = maxMismatches;
 		if(targetGenome != null) {
-			genome = Tools.getFasta(targetGenome,20,".*");
+			genome = Tools.getGenome(targetGenome,20,".*");
 		}
 
 	}
@@ -40,7 +40,7 @@ public class SAMRecordFilter {
 
 		if(genome != null && blockLi.size()>1) {
 
-			String chr = genome.get( read.getReferenceName() );
+			CompactSequence chr = genome.get( read.getReferenceName() );
 
 			String rs = read.getReadString();
 
@@ -502,8 +502,6 @@ public class Tools {
 		c.put( "V", new String[]{"A","C","G"} );
 	}
 	
-	private static HashMap<Character, int[]> help = new HashMap<Character, int[]>();
-	
 	/**
 	 * Enum 
 	 * 
@@ -530,7 +528,7 @@ public class Tools {
 			if( anz == 1 ) {
 				as = code.get(current[0][0]+current[1][0]+current[2][0]);
 			} else {
-				help.clear();
+				HashMap<Character, int[]> help = new HashMap<Character, int[]>();
 				anz = 0;
 				for( int i = 0; i < current[0].length; i++ ) {
 					for( int j = 0; j < current[1].length; j++ ) {
@@ -659,7 +657,7 @@ public class Tools {
 			while( (line=r.readLine()) != null ) {
 				if( line.startsWith(">") ) {
 					if( comment != null ) {
-						add( seqs, comment, seq );
+						add( seqs, comment, seq.toString() );
 					}
 					//clear
 					seq.delete(0, seq.length());
@@ -676,14 +674,57 @@ public class Tools {
 					seq.append(line.trim().toUpperCase() );
 				}
 			}
-			add( seqs, comment, seq );
+			add( seqs, comment, seq.toString() );
+			r.close();
+		}
+		return seqs;
+	}
+	
+	/**
+	 * Reads a genome from a FASTA file. In contrast to {@link #getFasta(String, int, String)}, the sequences are stored as {@link CompactSequence}s
+	 * requiring roughly a quarter of the memory, which allows to handle large genomes with a moderate heap size.
+	 * 
+	 * @param fName the file name of the genome, might be gzipped
+	 * @param initSize the initial size of the {@link HashMap}
+	 * @param seqIDRegex the regular expression for the sequence IDs
+	 * 
+	 * @return a {@link HashMap} containing the sequence IDs and the sequences
+	 * 
+	 * @throws Exception if the file could not be read or the sequence IDs do not match the regular expression
+	 */
+	public static HashMap<String,CompactSequence> getGenome( String fName, int initSize, String seqIDRegex ) throws Exception {
+		HashMap<String,CompactSequence> seqs = new HashMap<String, CompactSequence>(initSize);
+		if( fName!=null ) {
+			BufferedReader r = Tools.openGzOrPlain( fName );
+			CompactSequence seq = null;
+			String comment=null, line;
+			while( (line=r.readLine()) != null ) {
+				if( line.startsWith(">") ) {
+					if( comment != null ) {
+						seq.trim();
+						add( seqs, comment, seq );
+					}
+					seq = new CompactSequence(1<<20);
+					
+					comment = line.substring(1).replaceAll("\\s.*", "");
+					if( !comment.matches(seqIDRegex) ) {
+						throw new IllegalArgumentException("Sequence ID ("+comment+") in fasta comment line (" + line +") does not match the regular expression for sequence IDs (" + seqIDRegex +")" );
+					}
+				} else if( seq != null ) {
+					seq.append(line.trim().toUpperCase() );
+				}
+			}
+			if( comment != null ) {
+				seq.trim();
+				add( seqs, comment, seq );
+			}
 			r.close();
 		}
 		return seqs;
 	}
 	
-	private static void add( HashMap<String, String> seqs, String comment, StringBuffer seq ) {
-		String old = seqs.get(comment), newSeq = seq.toString();
+	private static <T> void add( HashMap<String, T> seqs, String comment, T newSeq ) {
+		T old = seqs.get(comment);
 		if( old==null ) {
 			seqs.put( comment, newSeq );
 		} else {
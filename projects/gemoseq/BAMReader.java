@@ -1,16 +1,15 @@
 package projects.gemoseq;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+import de.jstacs.utils.ParallelBAMReader;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
-import htsjdk.samtools.SamReader;
-import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.ValidationStringency;
 import projects.gemoma.ExtractRNAseqEvidence.Stranded;
 
@@ -18,7 +17,7 @@ public class BAMReader implements Iterator<Region>{
 	
 	
 	private Iterator<SAMRecord> recIt;
-	private SamReader reader;
+	private ParallelBAMReader reader;
 	private SAMRecord curr;
 	private int maxIntronLength;
 	private double maxcov;
@@ -35,12 +34,14 @@ public class BAMReader implements Iterator<Region>{
 	
 	private boolean longReads;
 	
-	public BAMReader(int maxIntronLength, String bam, double maxcov, double sample, Stranded stranded, int minQuality, int maxRegionLength, int maxGapFilled, boolean longReads) {
+	public BAMReader(int maxIntronLength, String bam, double maxcov, double sample, Stranded stranded, int minQuality, int maxRegionLength, int maxGapFilled, boolean longReads) throws IOException {
+		this(maxIntronLength, bam, maxcov, sample, stranded, minQuality, maxRegionLength, maxGapFilled, longReads, 1);
+	}
+	
+	public BAMReader(int maxIntronLength, String bam, double maxcov, double sample, Stranded stranded, int minQuality, int maxRegionLength, int maxGapFilled, boolean longReads, int threads) throws IOException {
 		
-		SamReaderFactory srf = SamReaderFactory.makeDefault();
-		srf.validationStringency( ValidationStringency.SILENT );
-		this.reader = srf.open(new File(bam));
-		this.recIt = reader.iterator();
+		this.reader = new ParallelBAMReader(bam, ValidationStringency.SILENT, threads, true, false);
+		this.recIt = reader.recordIterator();
 		
 		this.maxIntronLength = maxIntronLength;
 		
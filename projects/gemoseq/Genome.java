@@ -2,6 +2,7 @@ package projects.gemoseq;
 
 import java.util.HashMap;
 
+import projects.gemoma.CompactSequence;
 import projects.gemoma.Tools;
 
 public class Genome {
@@ -11,7 +12,7 @@ public class Genome {
 	public static boolean[][][] isStart;
 	public static boolean[][][] isStop;
 	
-	private HashMap<String,char[]> chromosomes;
+	private HashMap<String,CompactSequence> chromosomes;
 	
 	public static void init(String path) throws Exception {
 		genome = new Genome(path);
@@ -46,15 +47,11 @@ public class Genome {
 	}
 	
 	private Genome(String path) throws Exception {
-		HashMap<String,String> temp = Tools.getFasta(path, 5, ".*");
-		this.chromosomes = new HashMap<String,char[]>();
-		for(String key : temp.keySet()) {
-			this.chromosomes.put(key, temp.get(key).toCharArray());
-		}
+		this.chromosomes = Tools.getGenome(path, 5, ".*");
 	}
 	
 	
-	public char[] getChromosome(String id) {
+	public CompactSequence getChromosome(String id) {
 		return chromosomes.get(id);
 	}
 	
@@ -16,6 +16,7 @@ import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMRecord;
+import projects.gemoma.CompactSequence;
 import projects.gemoma.ReadStats;
 
 public class ReadGraph {
@@ -111,7 +112,7 @@ public class ReadGraph {
 		
 		if(blockLi.size()>1) {
 			
-			char[] chr = Genome.genome.getChromosome(chrom);
+			CompactSequence chr = Genome.genome.getChromosome(chrom);
 			byte[] rs = read.getReadBases();
 			
 			int nmm = 0;
@@ -124,13 +125,13 @@ public class ReadGraph {
 				int r = block.getReadStart()-1;
 				
 				for(int i=0;i<l/2&&i<10;i++) {
-					if(chr[c+i] != (char)rs[r+i]) {
+					if(chr.charAt(c+i) != (char)rs[r+i]) {
 						nmm++;
 					}
 				}
 								
 				for(int i=l-1;i>=l/2 && i>l-11;i--) {
-					if(chr[c+i] != (char)rs[r+i]) {
+					if(chr.charAt(c+i) != (char)rs[r+i]) {
 						nmm++;
 					}
 				}
@@ -32,6 +32,7 @@ import htsjdk.samtools.AlignmentBlock;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMRecord;
+import projects.gemoma.CompactSequence;
 import projects.gemoma.ExtractRNAseqEvidence.Stranded;
 import projects.gemoma.Tools;
 import projects.gemoseq.ReadGraph.Edge;
@@ -2438,7 +2439,7 @@ public class SplicingGraph {
 		
 		
 		private String getCodon(int codonStart) {
-			char[] chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
+			CompactSequence chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
 			
 			char[] codon = new char[3];
 			int ci = 0;
@@ -2459,14 +2460,14 @@ public class SplicingGraph {
 				if(start<0) {
 					start=0;
 				}
-				if(end>chromosome.length) {
-					end = chromosome.length;
+				if(end>chromosome.length()) {
+					end = chromosome.length();
 				}
 				if(end>start) {
 					
 					if(off <= codonStart+ci && off+(end-start)>codonStart+ci) {
 						for(int k=ci,l=0;k<3 && start+codonStart-off+k<end;k++,l++) {
-							codon[k] = chromosome[start+codonStart-off+k];
+							codon[k] = chromosome.charAt(start+codonStart-off+k);
 							ci++;
 						}
 					}
@@ -2484,7 +2485,7 @@ public class SplicingGraph {
 		
 		private char[] getSequence(int extraLeft, int extraRight) {
 			
-			char[] chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
+			CompactSequence chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
 			
 			int l = this.getLength(extraLeft, extraRight);
 			char[] res = new char[l];
@@ -2506,11 +2507,11 @@ public class SplicingGraph {
 				if(start<0) {
 					start=0;
 				}
-				if(end>chromosome.length) {
-					end = chromosome.length;
+				if(end>chromosome.length()) {
+					end = chromosome.length();
 				}
 				if(end>start) {
-					System.arraycopy(chromosome, start, res, off, end-start);
+					chromosome.getChars(start, end, res, off);
 					
 					off += end-start;
 				}
@@ -2587,13 +2588,13 @@ public class SplicingGraph {
 			
 			int maxLonger = Math.min(50, seqOrig.length/3);
 			
-			char[] chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
+			CompactSequence chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
 
 			int tempLeft = -this.extraLeft;
 			int tempRight = this.extraRight;
 			if(fix) {
 				tempLeft = Math.min((regionStart + contRegs[exons.getFirst()].regionStart - 1)/3, maxLonger)*3;
-				tempRight = Math.min( (  chromosome.length - ( regionStart + contRegs[exons.getLast()].regionEnd) )/3, maxLonger)*3;
+				tempRight = Math.min( (  chromosome.length() - ( regionStart + contRegs[exons.getLast()].regionEnd) )/3, maxLonger)*3;
 				longSeqOrig = this.getSequence(-tempLeft,tempRight);
 			}
 			
@@ -2969,7 +2970,7 @@ public class SplicingGraph {
 		
 		
 		private double[][] getIntronVotes() {
-			char[] chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
+			CompactSequence chromosome = Genome.genome.getChromosome(SplicingGraph.this.chromosome);
 			
 			
 			double[][] intronVotes = new double[2][exons.size()];
@@ -2988,11 +2989,11 @@ public class SplicingGraph {
 				if(lastEnd+1<start) {
 
 					//String left = chromosome.substring(regionStart + lastEnd, regionStart + lastEnd+2);
-					char left1 = chromosome[regionStart+lastEnd];
-					char left2 = chromosome[regionStart+lastEnd+1];
+					char left1 = chromosome.charAt(regionStart+lastEnd);
+					char left2 = chromosome.charAt(regionStart+lastEnd+1);
 					//String right = chromosome.substring(regionStart + start - 3, regionStart + start-1);
-					char right1 = chromosome[regionStart + start - 3];
-					char right2 = chromosome[regionStart + start - 2];
+					char right1 = chromosome.charAt(regionStart + start - 3);
+					char right2 = chromosome.charAt(regionStart + start - 2);
 					
 					if(/*"GT".equals(left)*/
 							'G' == left1 && 'T' == left2) {
@@ -3695,17 +3696,17 @@ public class SplicingGraph {
 			if(edge.getRelEnd()-edge.getRelStart()+1<shortestIntronLength) {
 				return false;
 			}else {
-				char[] chr = Genome.genome.getChromosome(chromosome);
+				CompactSequence chr = Genome.genome.getChromosome(chromosome);
 				int lastEnd = left.regionEnd;
 				int start = right.regionStart;
 				
 				
 				//String left = chr.substring(regionStart + lastEnd, regionStart + lastEnd+2);
-				char left1 = chr[regionStart+lastEnd];
-				char left2 = chr[regionStart+lastEnd+1];
+				char left1 = chr.charAt(regionStart+lastEnd);
+				char left2 = chr.charAt(regionStart+lastEnd+1);
 				//String right = chr.substring(regionStart + start - 3, regionStart + start-1);
-				char right1 = chr[regionStart+start-3];
-				char right2 = chr[regionStart+start-2];
+				char right1 = chr.charAt(regionStart+start-3);
+				char right2 = chr.charAt(regionStart+start-2);
 				
 				boolean res = true;
 				
@@ -3739,16 +3740,16 @@ public class SplicingGraph {
 			if(edge.getRelEnd()-edge.getRelStart()+1<shortestIntronLength) {
 				return '.';
 			}else {
-				char[] chr = Genome.genome.getChromosome(chromosome);
+				CompactSequence chr = Genome.genome.getChromosome(chromosome);
 				int lastEnd = left.regionEnd;
 				int start = right.regionStart;
 				
 				//String left = chr.substring(regionStart + lastEnd, regionStart + lastEnd+2);
-				char left1 = chr[regionStart+lastEnd];
-				char left2 = chr[regionStart+lastEnd+1];
+				char left1 = chr.charAt(regionStart+lastEnd);
+				char left2 = chr.charAt(regionStart+lastEnd+1);
 				//String right = chr.substring(regionStart + start - 3, regionStart + start-1);
-				char right1 = chr[regionStart+start-3];
-				char right2 = chr[regionStart+start-2];
+				char right1 = chr.charAt(regionStart+start-3);
+				char right2 = chr.charAt(regionStart+start-2);
 
 				if(/*"GT".equals(left) && "AG".equals(right)*/
 						'G' == left1 && 'T' == left2 && 'A' == right1 && 'G' == right2) {
@@ -705,7 +705,7 @@ public class TranscriptPrediction implements JstacsTool {
 					delta, nIterations,stats,minProteinLength,maxGap,longReads,geneBase, useChrPrefix);
 
 
-			BAMReader reader = new BAMReader(maxIntronLength, bamFile, maxCov, sample, stranded,minQuality,maxLen, maxGap, longReads);
+			BAMReader reader = new BAMReader(maxIntronLength, bamFile, maxCov, sample, stranded,minQuality,maxLen, maxGap, longReads, threads);
 
 
 
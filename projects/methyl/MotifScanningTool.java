@@ -11,6 +11,7 @@ import de.jstacs.data.AlphabetContainer;
 import de.jstacs.data.DataSet;
 import de.jstacs.data.sequences.Sequence;
 import de.jstacs.data.sequences.annotation.SimpleSequenceAnnotationParser;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
 import de.jstacs.io.SparseStringExtractor;
 import de.jstacs.parameters.FileParameter;
 import de.jstacs.parameters.FileParameter.FileRepresentation;
@@ -93,8 +94,14 @@ public class MotifScanningTool implements JstacsTool {
 			int maxStart = 0;
 			String strand = "+";
 			
-			for(int j=0;j<seq.getLength()-motif.getLength()+1;j++){
-				double score = motif.getLogScoreFor(seq, j);
+			//scores of all windows on both strands, indexed by the position on the forward strand
+			int n = Math.max( 0, seq.getLength()-motif.getLength()+1 );
+			double[] fwdScores = new double[n], rcScores = new double[n];
+			motif.getLogScoreProfile(seq, 0, seq.getLength(), fwdScores, Strand.FORWARD);
+			motif.getLogScoreProfile(seq, 0, seq.getLength(), rcScores, Strand.REVERSE);
+			
+			for(int j=0;j<n;j++){
+				double score = fwdScores[j];
 				temp.add(score);
 				if(score > max){
 					max = score;
@@ -103,8 +110,8 @@ public class MotifScanningTool implements JstacsTool {
 			}
 			
 			Sequence rc = seq.reverseComplement();
-			for(int j=0;j<rc.getLength()-motif.getLength()+1;j++){
-				double score = motif.getLogScoreFor(rc, j);
+			for(int j=0;j<n;j++){
+				double score = rcScores[n-1-j];
 				temp.add(score);
 				if(score > max){
 					max = score;
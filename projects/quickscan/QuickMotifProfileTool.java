@@ -6,24 +6,19 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Random;
 
 import javax.naming.OperationNotSupportedException;
 
 import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.GenDisMixClassifier;
-import de.jstacs.data.WrongAlphabetException;
-import de.jstacs.data.alphabets.DiscreteAlphabet;
+import de.jstacs.data.sequences.PackedGenome;
 import de.jstacs.data.sequences.Sequence;
-import de.jstacs.data.sequences.WrongSequenceTypeException;
 import de.jstacs.io.FileManager;
 import de.jstacs.sequenceScores.QuickScanningSequenceScore;
 import de.jstacs.utils.IntList;
 import de.jstacs.utils.LargeSequenceReader;
 import de.jstacs.utils.Pair;
-import de.jstacs.utils.ToolBox;
 import projects.dimont.ThresholdedStrandChIPper;
 
 @Deprecated
@@ -99,10 +94,6 @@ public class QuickMotifProfileTool {
 	
 	
 	
-	private int[] pow1;
-	private int[] pow2;
-	
-	
 	public static void main(String[] args) throws Exception{
 		new QuickMotifProfileTool().run(args[0], args[1], Integer.parseInt(args[2]));
 	}
@@ -113,198 +104,19 @@ public class QuickMotifProfileTool {
 		ThresholdedStrandChIPper fg =(ThresholdedStrandChIPper) cl.getDifferentiableSequenceScore(0);
 		QuickScanningSequenceScore lslim = (QuickScanningSequenceScore) fg.getFunction(0);
 		
-		BufferedReader read = new BufferedReader(new FileReader(genome));
-		StringBuffer lastHeader = new StringBuffer();
-		
-
-		int a = (int)lslim.getAlphabetContainer().getAlphabetLengthAt(0);
-		int prefK = 8;
-		int restK = lslim.getLength()-prefK;
-		int idxK = 4;
-		
-		pow1 = new int[prefK];
-		pow1[pow1.length-1]=1;
-		for( int i = pow1.length-2; i >= 0; i-- ) {
-			pow1[i] = pow1[i+1]*a;
-		}
-		
-		pow2 = new int[restK];
-		pow2[pow2.length-1]=1;
-		for( int i = pow2.length-2; i >= 0; i-- ) {
-			pow2[i] = pow2[i+1]*a;
-		}
-		int maxValue = pow2[0]*a;
-		
-		long time = System.currentTimeMillis();
-		
-		IntList[] lists = new IntList[(int) Math.pow(a, prefK)];
-		for(int i=0;i<lists.length;i++){
-			lists[i] = new IntList(256);
-		}
-		
-		Pair<IntList,ArrayList<Sequence>> pair = null;
-
-		while( (pair = LargeSequenceReader.readNextSequences(read, lastHeader, lslim.getLength(), lslim.getAlphabetContainer())) != null ){
-			ArrayList<Sequence> seqs = pair.getSecondElement();
-			Iterator<Sequence> it = seqs.iterator();
-			int itIdx = 0;
-			
-			
-			while( it.hasNext() ) {
-				Sequence seq = it.next();
-				
-				String id = seq.getSequenceAnnotationByType("id", 0).getIdentifier().trim();
-				System.err.println(id);
-				
-				itIdx++;
-				//System.out.println(id);
-				for(int d=0;d<2;d++){
-					
-					int idx1 = 0;
-					for(int i=0;i<pow1.length-1;i++){
-						idx1 += pow1[i+1]*seq.discreteVal(i);
-					}
-					int idx2 = 0;
-					for(int i=0;i<pow2.length-1;i++){
-						idx2 += pow2[i+1]*seq.discreteVal(i+prefK);
-					}
-					
-					for(int j=0;j<seq.getLength()-lslim.getLength()+1;j++){
-						idx1 = (idx1%pow1[0])*4 + seq.discreteVal(j+prefK-1);
-						idx2 = (idx2%pow2[0])*4 + seq.discreteVal(j+prefK+restK-1);
-						
-						lists[idx1].add(idx2);
-					}
-					seq = seq.reverseComplement();
-				}
-				
-			}
-		}
-		
-		read.close();
-		
-		
-		Random r = new Random();
-		IntList[] assign = new IntList[numThreads];
-		for(int i=0;i<assign.length;i++){
-			assign[i] = new IntList();
-		}
-		for(int i=0;i<lists.length;i++){
-			assign[r.nextInt(numThreads)].add(i);
-		}
-		
-		
-		
-		
-		int[][] acgt = new int[lists.length][(int) Math.pow(a, idxK)];
-		
-		int numPer2 = lists.length/numThreads;
-		Lock lock3 = new Lock(numThreads);
+		PackedGenome packed = PackedGenome.isPackedGenome(genome) ? new PackedGenome(genome) : null;
 		
-		for(int i=0;i<numThreads;i++){
-			final int l = i;
-			new Thread(() -> {
-				
-				System.err.println("thread: "+l);
-				for(int m=0;m<assign[l].length();m++){
-					int k = assign[l].get(m);
-					lists[k].sort();
-					lists[k] = condense(lists[k]);
-					
-					for(int j=0;j<lists[k].length();j++){
-						acgt[k][ lists[k].get(j)/pow2[idxK-1] ]++;
-					}
-					int[] temp = new int[acgt[k].length+1];
-					for(int j=1;j<temp.length;j++){
-						temp[j] = temp[j-1]+acgt[k][j-1];
-					}
-					acgt[k] = temp;
-				}
-				synchronized(lock3){
-					lock3.decrement();
-					lock3.notify();
-				}
-			}).start();
-		}
-		
-		while(!lock3.finished()){
-			System.err.println("waiting");
-			synchronized(lock3){
-				lock3.wait();
-			}
-		}
-		
-		
-		System.err.println("prepare index: "+(System.currentTimeMillis()-time)/1000);
-		
-		
-		time = System.currentTimeMillis();
-		
-		float[][] scores = new float[lists.length][];
-		int numPer = scores.length/numThreads;
-
-		Lock lock = new Lock(numThreads);
 		QuickScanningSequenceScore[] lslims = new QuickScanningSequenceScore[numThreads];
 		for(int i=0;i<lslims.length;i++){
 			lslims[i] = (QuickScanningSequenceScore) lslim.clone();
 		}
 		
+		long time = System.currentTimeMillis();
 		
-		
-		
-		//Thread[] threads = new Thread[numThreads];
-		for(int i=0;i<numThreads;i++){
-			final int j = i;
-			new Thread(() -> {
-				System.err.println("thread: "+j);
-				for(int l=0;l<assign[j].length();l++){
-					int k = assign[j].get(l);
-					if((k)%(1000) == 0){
-						System.err.println(k);
-					}
-					scores[k] = new float[lists[k].length()];
-					try {
-						computeScores(lslims[j],lists[k],k,prefK,scores[k]);
-					} catch (WrongAlphabetException | WrongSequenceTypeException e) {
-						e.printStackTrace();
-						throw new RuntimeException(e);
-					}
-				}
-				synchronized(lock){
-					lock.decrement();
-					lock.notify();
-				}
-			}).start();
-		}
-		
-
-		while(!lock.finished()){
-			System.err.println("waiting");
-			synchronized(lock){
-				lock.wait();
-			}
-		}
-		/*System.out.println("test score: "+scores[0][10]);
-		for(int i=0;i<scores.length;i++){
-			if(scores[i] == null){
-				throw new RuntimeException("null");
-			}
-		}*/
-		
-		/*for(int i=0;i<lists.length;i++){
-			scores[i] = new float[lists[i].length()];
-			computeScores(lslim,lists[i],i, prefK, scores[i]);
-		}*/
-		
-		System.err.println("scores: "+(System.currentTimeMillis()-time)/1000);
-		
-		
-		
-		time = System.currentTimeMillis();
-		
-		read = new BufferedReader(new FileReader(genome));
-		lastHeader = new StringBuffer();
-		
+		BufferedReader read = packed == null ? new BufferedReader(new FileReader(genome)) : null;
+		StringBuffer lastHeader = new StringBuffer();
+		int contig = 0;
+		Pair<IntList,ArrayList<Sequence>> pair = null;
 		
 		//numThreads = Math.min(2, numThreads);
 		
@@ -321,7 +133,8 @@ public class QuickMotifProfileTool {
 		int finished = 0;
 		int totalSequenceIndex = -1;
 		int lastPrinted = -1;
-		while( (pair = LargeSequenceReader.readNextSequences(read, lastHeader, lslim.getLength())) != null ){
+		while( (pair = packed != null ? packed.getSequences(contig++, lslim.getLength(), null)
+				: LargeSequenceReader.readNextSequences(read, lastHeader, lslim.getLength())) != null ){
 
 			
 
@@ -332,91 +145,73 @@ public class QuickMotifProfileTool {
 				int itIdx = 0;
 				
 				while( it.hasNext() ) {
-					final Sequence seq2 = it.next();
-					
-					totalSequenceIndex++;
-					String id = seq2.getSequenceAnnotationByType("id", 0).getIdentifier().trim();
+					final Sequence seq = it.next();
+
+					String id = seq.getSequenceAnnotationByType("id", 0).getIdentifier().trim();
 					int off = starts.get(itIdx);
 					System.err.println(id);
-					
-					itIdx++;
-
-					
-					final int threadID = finished;
-					final int myIndex = totalSequenceIndex;
-					
-					Thread temp = new Thread( ()->{
-						Sequence seq = seq2;
-						
-						float[][] myScores = new float[2][seq.getLength()-lslim.getLength()+1];
-						
-						for(int d=0;d<2;d++){
-
-							int idx1 = 0;
-							for(int i=0;i<pow1.length-1;i++){
-								idx1 += pow1[i+1]*seq.discreteVal(i);
-							}
-							int idx2 = 0;
-							for(int i=0;i<pow2.length-1;i++){
-								idx2 += pow2[i+1]*seq.discreteVal(i+prefK);
-							}
-
-
-							for(int j=0;j<seq.getLength()-lslim.getLength()+1;j++){
-								idx1 = (idx1%pow1[0])*4 + seq.discreteVal(j+prefK-1);
-								idx2 = (idx2%pow2[0])*4 + seq.discreteVal(j+prefK+restK-1);
-
-								int sym = idx2/pow2[idxK-1];
 
-								int idx3 =  lists[idx1].binarySearch(idx2, acgt[idx1][sym], acgt[idx1][sym+1]);//getIndex(lists[idx1], idx2, maxValue);
+					itIdx++;
 
-								float score = scores[idx1][idx3];
-								
-								myScores[d][ d==0 ? j : seq.getLength()-lslim.getLength()-j ] = score;
-								
-							}
+					//the windows of both strands are scored in blocks of at most PROFILE_BLOCK windows, indexed by the position on the forward strand
+					int numWindows = seq.getLength()-lslim.getLength()+1;
+					for(int j=0;j<numWindows;j+=PROFILE_BLOCK){
 
+						totalSequenceIndex++;
+						final int threadID = finished;
+						final int myIndex = totalSequenceIndex;
+						final int blockStart = j;
+						final int blockEnd = Math.min(numWindows, j+PROFILE_BLOCK);
 
+						Thread temp = new Thread( ()->{
+							int[] codes = seq.getDiscreteValues(blockStart, blockEnd+lslim.getLength()-1);
+							double[][] windowScores = new double[2][blockEnd-blockStart];
 							try {
-								seq = seq.reverseComplement();
+								lslims[threadID].fillWindowScores(codes, 0, codes.length, windowScores[0], windowScores[1]);
 							} catch (OperationNotSupportedException e) {
-								// TODO Auto-generated catch block
 								e.printStackTrace();
 								throw new RuntimeException();
 							}
-						}
-						
-						ScoreRegion sr = new ScoreRegion(myScores, myIndex, id, off);
-						
-						synchronized(lock2){
-							add(scoreList,sr);
-							lock2.setFinished(threadID, true);
-							lock2.notify();
-						}
-					});
 
-					synchronized(lock2){
-						lock2.setFinished(finished, false);
-						temp.start();
-					}
-					
-					
-					while(( finished = lock2.getFinished()) < 0){
+							float[][] myScores = new float[2][windowScores[0].length];
+							for(int d=0;d<2;d++){
+								for(int k=0;k<myScores[d].length;k++){
+									myScores[d][k] = (float) windowScores[d][k];
+								}
+							}
+
+							ScoreRegion sr = new ScoreRegion(myScores, myIndex, id, off+blockStart);
+
+							synchronized(lock2){
+								add(scoreList,sr);
+								lock2.setFinished(threadID, true);
+								lock2.notify();
+							}
+						});
+
 						synchronized(lock2){
-							lock2.wait();
+							lock2.setFinished(finished, false);
+							temp.start();
 						}
-					}
-					
-					while(true){
-						int lp2 = lastPrinted;
-						lastPrinted = print(scoreList, lastPrinted, lock2,out);
-						synchronized(lock2){
-							if(scoreList.size() > numThreads && scoreList.getFirst().index != lastPrinted+1 ){
 
+
+						while(( finished = lock2.getFinished()) < 0){
+							synchronized(lock2){
 								lock2.wait();
+							}
+						}
+
+						while(true){
+							int lp2 = lastPrinted;
+							lastPrinted = print(scoreList, lastPrinted, lock2,out);
+							synchronized(lock2){
+								if(scoreList.size() > numThreads && scoreList.getFirst().index != lastPrinted+1 ){
 
-							}else{
-								break;
+									lock2.wait();
+
+								}else{
+									break;
+								}
 							}
 						}
 					}
@@ -433,7 +228,11 @@ public class QuickMotifProfileTool {
 		lastPrinted = print(scoreList, lastPrinted, lock2,out);
 		
 		
-		read.close();
+		if( read != null ) {
+			read.close();
+		} else {
+			packed.close();
+		}
 		out.flush();
 		out.close();
 		
@@ -548,96 +347,6 @@ public class QuickMotifProfileTool {
 		scoreList.add(i, sr);
 	}
 
-	private static IntList condense(IntList list) {
-		
-		int i=0, n=0;
-		while(i<list.length()){
-			while(i+1<list.length() && list.get(i)==list.get(i+1)){
-				i++;
-			}
-			n++;
-			i++;
-		}
-		
-		IntList li = new IntList(n+1);
-		i=0;
-		while(i<list.length()){
-			while(i+1<list.length() && list.get(i)==list.get(i+1)){
-				i++;
-			}
-			li.add(list.get(i));
-			i++;
-		}
-		return li;
-	}
+	private static final int PROFILE_BLOCK = 1<<20;
 
-
-
-
-	private void computeScores(QuickScanningSequenceScore lslim, IntList list, int prefix, int prefixLength, float[] scoreAr) throws WrongAlphabetException, WrongSequenceTypeException {
-		//System.out.println("prefix: "+prefix);
-		int[] seq = new int[lslim.getLength()];
-		
-		DiscreteAlphabet al = (DiscreteAlphabet) lslim.getAlphabetContainer().getAlphabetAt(0);
-		
-		String[] syms = new String[(int) al.length()];
-		for(int i=0;i<syms.length;i++){
-			syms[i] = al.getSymbolAt(i);
-		}
-		
-		double[] scores = new double[seq.length];
-		
-		fill(seq, prefix, prefixLength);
-		
-		int[] prevSeq = seq.clone();
-		Arrays.fill(prevSeq, prefixLength,prevSeq.length,-1);
-		
-		lslim.fillInfixScore(seq,0,prefixLength, scores);
-		
-		
-		int i=0;
-		while(i<list.length()){
-			
-			int curr = list.get(i);
-			
-			//update(seq,curr,prefixLength);
-			
-			for(int k=prefixLength;k<seq.length;k++){
-				seq[k] = curr/pow2[k-prefixLength];
-				curr %= pow2[k-prefixLength];
-			}
-			
-			//int offset = offset(prevSeq,seq,prefixLength);
-			int offset=prefixLength;
-			while(offset<seq.length && prevSeq[offset]==seq[offset]){
-				offset++;
-			}
-			offset -= prefixLength;
-			
-			lslim.fillInfixScore(seq,prefixLength+offset,seq.length-prefixLength-offset, scores);
-			
-			double fullScore = ToolBox.sum(scores);
-			
-			scoreAr[i] = (float) fullScore;
-			
-			System.arraycopy(seq, prefixLength+offset, prevSeq, prefixLength+offset, seq.length-prefixLength-offset);
-			
-			i++;
-		}
-		
-	}
-
-
-
-
-	private void fill(int[] seq, int prefix, int len) {
-		for(int i=0;i<len;i++){
-			seq[i] = prefix/pow1[i];
-			prefix %= pow1[i];
-		}
-	}
-
-
-
-	
 }
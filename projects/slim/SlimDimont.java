@@ -21,7 +21,6 @@ package projects.slim;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -32,6 +31,10 @@ import javax.naming.OperationNotSupportedException;
 
 import de.jstacs.Storable;
 import de.jstacs.algorithms.optimization.ConstantStartDistance;
+import de.jstacs.algorithms.optimization.DifferentiableFunction;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer.Worker;
+import de.jstacs.algorithms.optimization.MultiStartOptimizer.WorkerFactory;
 import de.jstacs.algorithms.optimization.NegativeDifferentiableFunction;
 import de.jstacs.algorithms.optimization.Optimizer;
 import de.jstacs.algorithms.optimization.StartDistanceForecaster;
@@ -63,8 +66,10 @@ import de.jstacs.data.sequences.annotation.ReferenceSequenceAnnotation;
 import de.jstacs.data.sequences.annotation.SequenceAnnotation;
 import de.jstacs.data.sequences.annotation.SequenceAnnotationParser;
 import de.jstacs.data.sequences.annotation.SplitSequenceAnnotationParser;
+import de.jstacs.io.ArrayHandler;
 import de.jstacs.io.FileManager;
 import de.jstacs.io.SparseStringExtractor;
+import de.jstacs.motifDiscovery.KMereStatistic;
 import de.jstacs.motifDiscovery.MotifDiscoverer.KindOfProfile;
 import de.jstacs.motifDiscovery.MutableMotifDiscoverer;
 import de.jstacs.motifDiscovery.MutableMotifDiscovererToolbox;
@@ -103,6 +108,16 @@ public class SlimDimont {
 	
 	private static final double ALPHA = 1E-3;
 	
+	/**
+	 * The minimal number of sequences per thread of the objective function used in the pre-optimization.
+	 */
+	private static final int MIN_SEQUENCES_PER_THREAD = 250;
+	
+	/**
+	 * The number of consecutive pre-optimization starts that are compared to decide about the abandonment of later starts.
+	 */
+	private static final int COHORT = 5;
+	
 	/**
 	 * @param args
 	 */
@@ -136,6 +151,7 @@ public class SlimDimont {
 		double ess = cParams.getValueFromTag( SlimDimontParameterSet.ESS, Double.class );
 		boolean delete = cParams.getValueFromTag( SlimDimontParameterSet.DELETE, Boolean.class );
 		boolean modify = cParams.getValueFromTag( SlimDimontParameterSet.MODIFY, Boolean.class );
+		boolean abandon = cParams.getValueFromTag( SlimDimontParameterSet.ABANDON, Boolean.class );
 		
 		int threads;
 		if( cParams.isSet(SlimDimontParameterSet.THREADS) ) {
@@ -162,7 +178,7 @@ public class SlimDimont {
 			System.out.println("diff: "+data.getNumberOfElements());
 		}*/
 		
-		Result[][] res = run( data, bgData, motifLength,restarts,fgOrder,bgOrder,position,value,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( System.out ),sd,modify);
+		Result[][] res = run( data, bgData, motifLength,restarts,fgOrder,bgOrder,position,value,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( System.out ),sd,modify,abandon);
 		
 		for(int i=0;i<res.length;i++){
 			StorableResult sr = (StorableResult) res[i][0];
@@ -190,6 +206,12 @@ public class SlimDimont {
 	public static Result[][] run(DataSet fgData, DataSet bgData, int motifLength, int restarts, int fgOrder, int bgOrder, String position,
 			String value, String weightingFactor, double ess, boolean delete, int threads, SafeOutputStream out, double sd,
 			boolean modify) throws Exception {
+		return run( fgData, bgData, motifLength, restarts, fgOrder, bgOrder, position, value, weightingFactor, ess, delete, threads, out, sd, modify, false );
+	}
+	
+	public static Result[][] run(DataSet fgData, DataSet bgData, int motifLength, int restarts, int fgOrder, int bgOrder, String position,
+			String value, String weightingFactor, double ess, boolean delete, int threads, SafeOutputStream out, double sd,
+			boolean modify, boolean abandon) throws Exception {
 	
 		double filterThreshold = 0.3;
 		double filterThresholdEnd = 0.3;
@@ -378,35 +400,20 @@ public class SlimDimont {
 				new TimeCondition(900)
 		);
 		ComparableElement<double[], Double>[] preOpt = new ComparableElement[restarts];
+		String[] protocol = new String[restarts];
+		//small data sets do not keep many threads busy, hence several starts are optimized concurrently
+		int innerThreads = Math.max( 1, Math.min( threads, smallData.getNumberOfElements() / MIN_SEQUENCES_PER_THREAD ) );
+		//optionally, starts that are clearly losing are abandoned after 10, 30, 90, ... iterations
+		MultiStartOptimizer multiStart = new MultiStartOptimizer( algo, stop2, eps, Math.max( 1, threads / innerThreads ), COHORT, abandon ? 10 : 0, 3 );
+		boolean[] abandoned = multiStart.optimize( restarts, new PreOptimizationFactory( innerThreads, score, beta, free, smallData, smallWeight, completeData, completeWeight, sortedPars, preOpt, protocol ) );
 		for( int r = 0; r < restarts; r++ ) {
-			data[0] = smallData;
-			weights = smallWeight;
-			objective.setDataAndWeights( data, weights );
-			objective.resetHeuristics();
-			
-			out.writeln("-----------------------------------------\npre-optimization " + r);
-			
-			start.reset();
-			
-			p = sortedPars[sortedPars.length-1-r].getElement();			
-			objective.setParams(p);
-			System.out.println(score[0]);
-			long time = System.currentTimeMillis();
-			Optimizer.optimize( algo, neg, p, stop2, eps, start, null );
-			
-			data[0] = completeData;
-			weights = completeWeight;
-			objective.setDataAndWeights( data, weights );
-			preOpt[r] = new ComparableElement<double[], Double>( p, objective.evaluateFunction(p) );
-			System.out.println("time: "+(System.currentTimeMillis()-time));
-			
-			//out.writeln("consensus: "+getConsensus( DNAAlphabetContainer.SINGLETON, (((MarkovModelDiffSM)((AbstractSingleMotifChIPper) score[0]).getFunction( 0 ) ).getPWM())));
-			out.writeln("model: "+((AbstractSingleMotifChIPper) score[0]).getFunction( 0 ));
-			out.writeln(  "score: "+preOpt[r].getWeight() );
-			//System.out.println(score[0]);
-			((AbstractSingleMotifChIPper)score[0]).resetPositions();
+			out.writeln("-----------------------------------------\npre-optimization " + r + (abandoned[r] ? " (abandoned)" : "") );
+			out.writeln( protocol[r] );
 		}
 		out.writeln("-----------------------------------------");
+		data[0] = completeData;
+		weights = completeWeight;
+		objective.setDataAndWeights( data, weights );
 		
 		//filter out redundant motifs
 		Arrays.sort( preOpt );
@@ -535,6 +542,92 @@ public class SlimDimont {
 	}
 	
 	
+	/**
+	 * The factory for the {@link PreOptimizationWorker}s.
+	 */
+	private static class PreOptimizationFactory implements WorkerFactory {
+		
+		private int threads;
+		private DifferentiableStatisticalModel[] score;
+		private double[] beta;
+		private boolean free;
+		private DataSet smallData, completeData;
+		private double[][] smallWeight, completeWeight;
+		private ComparableElement<double[], Double>[] sortedPars, preOpt;
+		private String[] protocol;
+		
+		private PreOptimizationFactory( int threads, DifferentiableStatisticalModel[] score, double[] beta, boolean free, DataSet smallData, double[][] smallWeight,
+				DataSet completeData, double[][] completeWeight, ComparableElement<double[], Double>[] sortedPars, ComparableElement<double[], Double>[] preOpt, String[] protocol ) {
+			this.threads = threads;
+			this.score = score;
+			this.beta = beta;
+			this.free = free;
+			this.smallData = smallData;
+			this.smallWeight = smallWeight;
+			this.completeData = completeData;
+			this.completeWeight = completeWeight;
+			this.sortedPars = sortedPars;
+			this.preOpt = preOpt;
+			this.protocol = protocol;
+		}
+		
+		public Worker createWorker() throws Exception {
+			return new PreOptimizationWorker( this );
+		}
+	}
+	
+	/**
+	 * A worker for the pre-optimization that uses its own clones of the models and its own objective function.
+	 */
+	private static class PreOptimizationWorker implements Worker {
+		
+		private PreOptimizationFactory factory;
+		private DifferentiableStatisticalModel[] score;
+		private HeuristicOneDataSetLogGenDisMixFunction objective;
+		private NegativeDifferentiableFunction neg;
+		private StartDistanceForecaster start;
+		private long time;
+		
+		private PreOptimizationWorker( PreOptimizationFactory factory ) throws Exception {
+			this.factory = factory;
+			score = ArrayHandler.clone( factory.score );
+			objective = new HeuristicOneDataSetLogGenDisMixFunction( factory.threads, score, factory.smallData, factory.smallWeight, new CompositeLogPrior(), factory.beta, true, factory.free );
+			objective.reset( score );
+			neg = new NegativeDifferentiableFunction( objective );
+			start = new ConstantStartDistance(1);
+		}
+
+		public double[] prepare( int r ) throws Exception {
+			objective.setDataAndWeights( new DataSet[]{factory.smallData}, factory.smallWeight );
+			objective.resetHeuristics();
+			double[] p = factory.sortedPars[factory.sortedPars.length-1-r].getElement();
+			objective.setParams(p);
+			time = System.currentTimeMillis();
+			return p;
+		}
+
+		public DifferentiableFunction getFunction() {
+			return neg;
+		}
+
+		public StartDistanceForecaster getStartDistance() {
+			return start;
+		}
+
+		public void finish( int r, double[] p, boolean abandoned ) throws Exception {
+			objective.setDataAndWeights( new DataSet[]{factory.completeData}, factory.completeWeight );
+			factory.preOpt[r] = new ComparableElement<double[], Double>( p, objective.evaluateFunction(p) );
+			factory.protocol[r] = "time: "+(System.currentTimeMillis()-time)
+					+ "\nmodel: "+((AbstractSingleMotifChIPper) score[0]).getFunction( 0 )
+					+ "\nscore: "+factory.preOpt[r].getWeight();
+			((AbstractSingleMotifChIPper)score[0]).resetPositions();
+		}
+
+		public void close() {
+			objective.stopThreads();
+		}
+	}
+	
 	public static ListResult getListResult( DataSet data, double[] weights, Pair<double[][][], int[][]> pair, int motifLength, int motifIndex, DifferentiableStatisticalModel model, LinkedList<Sequence> bs, DoubleList bsWeights, String valueKey ) throws Exception {
 		
 		SplitSequenceAnnotationParser pars = new SplitSequenceAnnotationParser( ":", ";" );
@@ -1097,45 +1190,8 @@ public class SlimDimont {
 		if( !con.isSimple() || !con.isDiscrete() ) {
 			throw new WrongAlphabetException();
 		}
-		Hashtable<String, double[]> res = new Hashtable<String, double[]>();
-		HashSet<String> used = new HashSet<String>();
-		
-		//run over all sequences
-		int m, l, n;
-		Sequence seq;
-		String[] s = new String[2];
-		for( n = 0; n < weights.length; n++ ) {
-			seq = data.getElementAt( n );
-			s[0] = seq.toString();
-			s[1] = seq.reverseComplement().toString();
-			m = seq.getLength()-k+1;
-			
-			
-			//run over all k-mers
-			used.clear();
-			for( l = 0; l < m; l++ ) {
-				String h0 = s[0].substring( l, l+k );
-				String h1 = s[1].substring( s[0].length()-k-l, s[0].length()-l );
-				h0 = h0.compareTo(h1) < 0 ? h0 : h1;
-				if( !used.contains( h0 ) ) {
-					used.add( h0 );
-				}
-				
-			}
-			
-			Iterator<String> it = used.iterator();
-			double[] h;
-			while( it.hasNext() ) {
-				s[0] = it.next();
-				if( res.containsKey( s[0] ) ) {
-					h = res.get( s[0] );
-					h[0] += weights[n];
-					h[1] += 1d-weights[n];
-				} else {
-					res.put( s[0], new double[]{weights[n],1d-weights[n]} );
-				}
-			}
-		}
+		//count each k-mer once per sequence
+		Hashtable<String, double[]> res = KMereStatistic.getWeightedKmereSequenceStatistic( k, data, weights );
 		
 		
 		double sumFg = ToolBox.sum( weights );
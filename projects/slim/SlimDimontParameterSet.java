@@ -46,9 +46,10 @@ public class SlimDimontParameterSet extends SimpleParameterSet {
 	public static final String DELETE = "delete";
 	public static final String THREADS = "threads";
 	public static final String MODIFY = "modify";
+	public static final String ABANDON = "abandon";
 
 	public static final String[] PREFIX = {
-        HOME, DATA, BACKGROUND, INFIX, POSITION_TAG, VALUE_TAG, SD, WEIGHTING_FACTOR, STARTS, LENGTH, MOTIF_ORDER, BG_ORDER, ESS, DELETE, MODIFY, THREADS
+        HOME, DATA, BACKGROUND, INFIX, POSITION_TAG, VALUE_TAG, SD, WEIGHTING_FACTOR, STARTS, LENGTH, MOTIF_ORDER, BG_ORDER, ESS, DELETE, MODIFY, ABANDON, THREADS
     };
 	
 	public SlimDimontParameterSet() throws Exception {
@@ -81,6 +82,8 @@ public class SlimDimontParameterSet extends SimpleParameterSet {
 		
 		parameters.add( new SimpleParameter( DataType.BOOLEAN, "Adjust for shifts", "Adjust for shifts of the motif.", true, true ) );
 		
+		parameters.add( new SimpleParameter( DataType.BOOLEAN, "Abandon starts", "A switch for abandoning pre-optimization starts that are clearly losing compared to previous starts.", true, false ) );
+		
 		parameters.add( new SimpleParameter( DataType.INT, "Compute threads", "The number of threads that are use to evaluate the objective function and its gradient.", false, new NumberValidator<Integer>(1,128) ) );
 				
 	}
@@ -84,12 +84,13 @@ public class SlimDimontWeb extends SlimDimont {
 		double ess = (Double)params.getParameterForName( "Equivalent sample size" ).getValue();
 		boolean delete = (Boolean)params.getParameterForName( "Delete BSs from profile" ).getValue();
 		boolean modify = (Boolean)params.getParameterForName( "Adjust for shifts" ).getValue();
+		boolean abandon = (Boolean)params.getParameterForName( "Abandon starts" ).getValue();
 		
 		Protocol prot = ga.getProtocol( false );
 		ByteArrayOutputStream baos = prot.getOutputStream();
 		
 		
-		Result[][] res = run( data,null,motifLength,restarts,fgOrder,bgOrder,position,value,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( baos ),sd,modify);
+		Result[][] res = run( data,null,motifLength,restarts,fgOrder,bgOrder,position,value,weightingFactor,ess,delete,threads, SafeOutputStream.getSafeOutputStream( baos ),sd,modify,abandon);
 
 		
 		
@@ -47,7 +47,7 @@ public class PileupTool implements JstacsTool {
 		
 		new Thread( ()->{
 			try {
-				Pileup.pileup(bam, ps, false, true, true);
+				Pileup.pileup(bam, ps, false, true, true, threads);
 				ps.close();
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -28,7 +28,7 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 
 	private DifferentiableSequenceScore[] scores;
 
-	private double[][][] yi;
+	private double[][] yi;
 	
 	private double[][] grads;
 	
@@ -45,7 +45,7 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 	
 	public MSDFunction(double con, boolean laplace, DifferentiableSequenceScore score, int threads, DataSet[] data, double[][] weights, int penaltyOff, String sortTag) throws IllegalArgumentException {
 		super(threads, data, weights, false, false);
-		this.scores = new DifferentiableSequenceScore[threads];
+		this.scores = new DifferentiableSequenceScore[getNumberOfParts()];
 		this.scores[0] = score;
 		precomputeIndexes(sortTag);
 		//numEvals = 0;
@@ -63,14 +63,10 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 	@Override
 	protected void evaluateGradientOfFunction(int index, int startClass, int startSeq, int endClass, int endSeq) {
 		
-		if(startSeq != 0 || endSeq != data[endClass].getNumberOfElements()){
-			throw new RuntimeException();
-		}
-		
 		Arrays.fill(grads[index], 0);
 		
 		for(int cl = startClass; cl<=endClass; cl++){
-			int start=0, end = data[cl].getNumberOfElements();
+			int start = cl==startClass ? startSeq : 0, end = cl==endClass ? endSeq : data[cl].getNumberOfElements();
 			
 			for(int i=start;i<end;i++){
 				indices[index].clear();
@@ -79,7 +75,7 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 				
 				double s = scores[index].getLogScoreAndPartialDerivation(data[cl].getElementAt(i), indices[index], partDers[index]);
 				
-				double v = 2*(s-yi[index][cl-startClass][i])*weights[cl][i];
+				double v = 2*(s-yi[cl][i])*weights[cl][i];
 				
 				for(int j=0;j<indices[index].length();j++){
 					grads[index][ indices[index].get(j) ] += v * partDers[index].get(j);
@@ -126,10 +122,6 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 	protected void evaluateFunction(int index, int startClass, int startSeq, int endClass, int endSeq)
 			throws EvaluationException {
 		
-		if(startSeq != 0 || endSeq != data[endClass].getNumberOfElements()){
-			throw new RuntimeException();
-		}
-		
 		double val = 0;
 		
 	/*	double meanA = 0.0;
@@ -137,7 +129,7 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 		double num = 0.0;*/
 		
 		for(int cl = startClass; cl<=endClass; cl++){
-			int start=0, end=data[cl].getNumberOfElements();
+			int start = cl==startClass ? startSeq : 0, end = cl==endClass ? endSeq : data[cl].getNumberOfElements();
 			
 			/*double meanScore = 0.0;
 			double meanSq = 0.0;
@@ -149,12 +141,12 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 				double s = scores[index].getLogScoreFor( data[cl].getElementAt(i) );
 				
 				/*meanScore += s*weights[cl][i];
-				meanY += yi[index][cl-startClass][i]*weights[cl][i];
+				meanY += yi[cl][i]*weights[cl][i];
 				meanSq += s*s*weights[cl][i];
-				meanSY += s*yi[index][cl-startClass][i]*weights[cl][i];
+				meanSY += s*yi[cl][i]*weights[cl][i];
 				n += weights[cl][i];*/
 				
-				double v = (s-yi[index][cl-startClass][i]);
+				double v = (s-yi[cl][i]);
 				val += v*v*weights[cl][i];
 				
 			}
@@ -238,50 +230,29 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 	}
 
 	public void precomputeIndexes(String sortTag) {
-		if(worker != null){
-			
-			vals = new double[worker.length];
-			indices = new IntList[worker.length];
-			partDers = new DoubleList[worker.length];
-			grads = new double[worker.length][getDimensionOfScope()];
-			yi = new double[worker.length][][];
-			
-			for(int i=0;i<worker.length;i++){
-				
-				
+		if(hasWorkers()){
+			int parts = getNumberOfParts();
+			vals = new double[parts];
+			indices = new IntList[parts];
+			partDers = new DoubleList[parts];
+			grads = new double[parts][getDimensionOfScope()];
+			
+			for(int i=0;i<parts;i++){
 				indices[i] = new IntList();
 				partDers[i] = new DoubleList();
+			}
+			
+			yi = new double[data.length][];
+			for(int j=0;j<data.length;j++){
+				yi[j] = new double[data[j].getNumberOfElements()];
 				
-				
-				int[] temp = worker[i].getIndices();
-				int startClass = temp[0];
-				int startSeq = temp[1];
-				int endClass = temp[2];
-				int endSeq = temp[3];
-
-				if(startSeq != 0 || endSeq != data[endClass].getNumberOfElements()){
-					throw new RuntimeException();
-				}
-				
-				yi[i] = new double[endClass-startClass+1][];
-				
-				for(int j=startClass;j<=endClass;j++){
-					yi[i][j-startClass] = new double[data[j].getNumberOfElements()];
-					
-					for(int k=0;k<data[j].getNumberOfElements();k++){
-						Sequence seq = data[j].getElementAt(k);
-						double y = Double.parseDouble(seq.getSequenceAnnotationByType(sortTag, 0).getIdentifier());
-						yi[i][j-startClass][k] = y;
-					}
+				for(int k=0;k<data[j].getNumberOfElements();k++){
+					Sequence seq = data[j].getElementAt(k);
+					double y = Double.parseDouble(seq.getSequenceAnnotationByType(sortTag, 0).getIdentifier());
+					yi[j][k] = y;
 				}
-				
-				
 			}
-			
 		}
-		
-		
-		
 	}
 
 	@Override
@@ -307,6 +278,11 @@ public class MSDFunction extends AbstractMultiThreadedOptimizableFunction {
 	
 	
 	protected void prepareThreads() {
+		if(worker == null){
+			//work-stealing mode: parts of the data independent of the classes
+			super.prepareThreads();
+			return;
+		}
 		double[] sizes = new double[data.length];
 
 		
@@ -280,6 +280,9 @@ public class AlignmentPValues {
 		double sum = 0.0;
 		double sumq = 0.0;
 		int l = rvd2.getLength()-rvd.getLength()+1;
+		//q only depends on base, which takes at most three different values (first, inner, and last offset)
+		double[] qs = new double[3];
+		boolean[] known = new boolean[3];
 		for(int i=0;i<l;i++){
 			double base = ((i>0 && l>1) ? extraGapOpening : 0) + (i<l-1 && l>1 ? extraGapOpening : 0) + (l-1)*extraGapExtension;
 			//System.out.println(rvd+"\n"+rvd2+" "+base+" "+sc);
@@ -287,9 +290,13 @@ public class AlignmentPValues {
 			p = log1m( p * Math.log( 10 ) );
 			sum += p;
 			
-			double q = this.getLog10PValue( rvd, sc, base );//TODO gaps
-			q = log1m(  q * Math.log( 10 ) );
-			sumq += q;
+			int c = i == 0 ? 0 : (i < l-1 ? 1 : 2);
+			if(!known[c]){
+				double q = this.getLog10PValue( rvd, sc, base );//TODO gaps
+				qs[c] = log1m(  q * Math.log( 10 ) );
+				known[c] = true;
+			}
+			sumq += qs[c];
 		}
 		
 		
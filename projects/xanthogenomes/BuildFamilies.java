@@ -12,7 +12,9 @@ import java.text.NumberFormat;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import de.jstacs.algorithms.alignment.Alignment;
 import de.jstacs.algorithms.alignment.Alignment.AlignmentType;
 import de.jstacs.algorithms.alignment.StringAlignment;
 import de.jstacs.algorithms.alignment.cost.AffineCosts;
@@ -153,73 +155,80 @@ public class BuildFamilies {
 	}
 	
 	
-	public static FamilyResult[] getFamilyResults(TALEFamily[] fams, double pval, TALEFamilyBuilder builder, int offset){
+	public static FamilyResult[] getFamilyResults(final TALEFamily[] fams, final double pval, TALEFamilyBuilder builder, final int offset){
 		
-		Costs costs = builder.getCosts();
+		final Costs costs = builder.getCosts();
 		
-		AlignmentPValues pv = null;
-		
-		if(costs instanceof AffineCosts && ((AffineCosts)costs).getInternalCosts() instanceof RVDCosts){
-			
-			pv = new AlignmentPValues( builder.getAllTALEs(), (RVDCosts)((AffineCosts)costs).getInternalCosts() );
-		}
+		final AlignmentPValues pv = builder.getAlignmentPValues();
 		
 		
 		
-		FamilyResult[] ress = new FamilyResult[fams.length-offset];
+		final FamilyResult[] ress = new FamilyResult[fams.length-offset];
+		final AtomicInteger next = new AtomicInteger( offset );
 		
-		for(int i=offset;i<fams.length;i++){
-			TALE[] members = fams[i].getFamilyMembers();
-			LinkedList<TALEFamily> relFams = new LinkedList<TALEFamilyBuilder.TALEFamily>();
-			LinkedList<TALE[]> relsTales = new LinkedList<TALE[]>();
-			LinkedList<StringAlignment[]> relsAls = new LinkedList<StringAlignment[]>();
-			LinkedList<int[]> relsMys = new LinkedList<int[]>();
-			LinkedList<double[]> relPs = new LinkedList<double[]>();
-			for(int j=0;j<fams.length;j++){
-				if(i != j){
+		TALEFamilyBuilder.runInParallel( new Runnable() {
+			
+			@Override
+			public void run() {
+				Alignment aligner = new Alignment( costs );
+				int i;
+				while( (i = next.getAndIncrement()) < fams.length ){
+					TALE[] members = fams[i].getFamilyMembers();
+					LinkedList<TALEFamily> relFams = new LinkedList<TALEFamilyBuilder.TALEFamily>();
+					LinkedList<TALE[]> relsTales = new LinkedList<TALE[]>();
+					LinkedList<StringAlignment[]> relsAls = new LinkedList<StringAlignment[]>();
+					LinkedList<int[]> relsMys = new LinkedList<int[]>();
+					LinkedList<double[]> relPs = new LinkedList<double[]>();
+					for(int j=0;j<fams.length;j++){
+						if(i != j){
 					
-					LinkedList<TALE> relTales = new LinkedList<TALE>();
-					LinkedList<StringAlignment> relAls = new LinkedList<StringAlignment>();
-					IntList relMy = new IntList();
-					DoubleList relP = new DoubleList();
-					TALE[] members2 = fams[j].getFamilyMembers();
-					for(int k=0;k<members.length;k++){
-						for(int l=0;l<members2.length;l++){
+							LinkedList<TALE> relTales = new LinkedList<TALE>();
+							LinkedList<StringAlignment> relAls = new LinkedList<StringAlignment>();
+							IntList relMy = new IntList();
+							DoubleList relP = new DoubleList();
+							TALE[] members2 = fams[j].getFamilyMembers();
+							for(int k=0;k<members.length;k++){
+								for(int l=0;l<members2.length;l++){
+							
+									StringAlignment al = TALEAligner.align( members[k], members2[l], aligner, at, extraGapOpening, extraGapExtension );
+									if(pv != null){
+										double p = pv.getLog10PValue( members[k], members2[l], al.getCost(), extraGapOpening, extraGapExtension );
+										if(p<Math.log10( pval )){
+											relTales.add( members2[l] );
+											relAls.add( al );
+											relMy.add( k );
+											relP.add( p );
+										}
+									}
 							
-							StringAlignment al = TALEAligner.align( members[k], members2[l], costs, at, extraGapOpening, extraGapExtension );
-							if(pv != null){
-								double p = pv.getLog10PValue( members[k], members2[l], al.getCost(), extraGapOpening, extraGapExtension );
-								if(p<Math.log10( pval )){
-									relTales.add( members2[l] );
-									relAls.add( al );
-									relMy.add( k );
-									relP.add( p );
 								}
 							}
-							
-						}
-					}
 					
-					if(relTales.size() > 0){
-						relFams.add( fams[j] );
-						relsTales.add( relTales.toArray( new TALE[0] ) );
-						relsAls.add( relAls.toArray( new StringAlignment[0] ) );
-						relsMys.add( relMy.toArray() );
-						relPs.add( relP.toArray() );
+							if(relTales.size() > 0){
+								relFams.add( fams[j] );
+								relsTales.add( relTales.toArray( new TALE[0] ) );
+								relsAls.add( relAls.toArray( new StringAlignment[0] ) );
+								relsMys.add( relMy.toArray() );
+								relPs.add( relP.toArray() );
+							}
+						}
+								
 					}
+			
+					ress[i-offset] = new FamilyResult( fams[i], relFams.toArray( new TALEFamily[0] ), relsTales.toArray( new TALE[0][0] ), relsAls.toArray( new StringAlignment[0][0] ), relPs.toArray( new double[0][0] ), relsMys.toArray( new int[0][0] ) );
 				}
-								
 			}
-			
-			ress[i-offset] = new FamilyResult( fams[i], relFams.toArray( new TALEFamily[0] ), relsTales.toArray( new TALE[0][0] ), relsAls.toArray( new StringAlignment[0][0] ), relPs.toArray( new double[0][0] ), relsMys.toArray( new int[0][0] ) );
-			
-		}
+		}, fams.length-offset, builder.getNumberOfThreads() );
 		
 		return ress;
 	}
 	
 	
 	public static Pair<TALEFamilyBuilder,FamilyResult[]> build(TALE[] ttales, double cut, double pval) throws NonParsableException, IOException{
+		return build( ttales, cut, pval, 1 );
+	}
+	
+	public static Pair<TALEFamilyBuilder,FamilyResult[]> build(TALE[] ttales, double cut, double pval, int threads) throws NonParsableException, IOException{
 		RVDCosts rvdCosts = new RVDCosts( 1.0, 0.2, 0.8, 0.0 );//TODO
 		Costs costs = new AffineCosts( 5.0, 5.0, rvdCosts );
 		
@@ -228,7 +237,7 @@ public class BuildFamilies {
 		//SpecificityCosts specCosts = new SpecificityCosts( 1.0, model );//TODO
 		//Costs costs = new AffineCosts( 5.0, specCosts );
 		
-		TALEFamilyBuilder builder = new TALEFamilyBuilder( ttales, costs, linkage, at, extraGapOpening, extraGapExtension, cut, pval );
+		TALEFamilyBuilder builder = new TALEFamilyBuilder( ttales, costs, linkage, at, extraGapOpening, extraGapExtension, cut, pval, threads );
 		
 		//AlignmentPValues pv = null;//new AlignmentPValues( ttales, rvdCosts );//TODO
 		
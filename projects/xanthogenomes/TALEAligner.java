@@ -13,12 +13,27 @@ public class TALEAligner {
 
 	
 	public static StringAlignment align(TALE tale1, TALE tale2, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension){
+		return align( tale1, tale2, new Alignment( costs ), at, extraGapOpening, extraGapExtension );
+	}
+	
+	/**
+	 * Aligns two TALEs using the given {@link Alignment} instance, which may be re-used for several pairs of TALEs
+	 * but must not be shared between threads.
+	 * 
+	 * @param tale1 the first TALE
+	 * @param tale2 the second TALE
+	 * @param al the alignment instance
+	 * @param at the alignment type
+	 * @param extraGapOpening the extra costs for opening a gap at the start or end of the shorter TALE (only for {@link AlignmentType#SEMI_GLOBAL})
+	 * @param extraGapExtension the extra costs for extending such a gap
+	 * 
+	 * @return the alignment
+	 */
+	public static StringAlignment align(TALE tale1, TALE tale2, Alignment al, AlignmentType at, double extraGapOpening, double extraGapExtension){
 		
 		TALESequence s1 = new TALESequence( tale1 );
 		TALESequence s2 = new TALESequence( tale2 );
 		
-		Alignment al = new Alignment( costs );
-		
 		String str1 = null;
 		
 		StringAlignment psa = null;
@@ -55,6 +70,20 @@ public class TALEAligner {
 		return psa;
 	}	
 	
+	/**
+	 * Returns the alignment of <code>tale2</code> and <code>tale1</code> given the alignment <code>sa</code> of <code>tale1</code> and <code>tale2</code>,
+	 * where <code>tale1</code> must have more repeats than <code>tale2</code>.
+	 * As {@link #align(TALE, TALE, Alignment, AlignmentType, double, double)} always aligns the shorter TALE to the longer one,
+	 * the result is identical to aligning <code>tale2</code> and <code>tale1</code>. 
+	 * 
+	 * @param sa the alignment of the longer and the shorter TALE
+	 * 
+	 * @return the alignment of the shorter and the longer TALE
+	 */
+	public static StringAlignment mirror(StringAlignment sa){
+		return new StringAlignment( sa.getCost(), sa.getAlignedString( 1 ), sa.getAlignedString( 0 ) );
+	}
+	
 	
 	public static String alignmentToString( StringAlignment sa, NumberFormat nf ) {
 		String s1 = sa.getAlignedString( 0 );
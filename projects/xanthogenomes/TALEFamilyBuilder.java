@@ -8,13 +8,20 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import projects.tals.TALgetterDiffSM;
 import projects.xanthogenomes.alignmentCosts.RVDCosts;
 import projects.xanthogenomes.tools.ClassAssignmentTool;
 import de.jstacs.Storable;
+import de.jstacs.algorithms.alignment.Alignment;
 import de.jstacs.algorithms.alignment.Alignment.AlignmentType;
 import de.jstacs.algorithms.alignment.StringAlignment;
 import de.jstacs.algorithms.alignment.cost.AffineCosts;
@@ -27,6 +34,9 @@ import de.jstacs.data.WrongAlphabetException;
 import de.jstacs.data.alphabets.DNAAlphabetContainer;
 import de.jstacs.data.alphabets.DiscreteAlphabet;
 import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
 import de.jstacs.io.NonParsableException;
 import de.jstacs.io.XMLParser;
 import de.jstacs.results.PlotGeneratorResult.PlotGenerator;
@@ -37,7 +47,7 @@ import de.jstacs.utils.ToolBox;
 import de.jstacs.utils.graphics.GraphicsAdaptor;
 
 
-public class TALEFamilyBuilder implements Storable {
+public class TALEFamilyBuilder implements Storable, BinaryStorable {
 
 	private static NumberFormat format = DecimalFormat.getInstance( Locale.US );
 	private static NumberFormat formatE = new DecimalFormat("0.##E0");
@@ -91,16 +101,27 @@ public class TALEFamilyBuilder implements Storable {
 		
 	}
 	
-	public static class TALEFamily implements PlotGenerator, Comparable<TALEFamily> {
+	public static class TALEFamily implements PlotGenerator, BinaryStorable, Comparable<TALEFamily> {
 		
 		
 		private String id;
 		private StringAlignment[][] alignments;
 		private ClusterTree<TALE> tree;
-		
+		//only set until the alignments have been computed
+		private TALEFamilyBuilder builder;
+		private TALEFamily previous;
 		
 		
 		private TALEFamily(String familyId, ClusterTree<TALE> tree, TALEFamilyBuilder builder){
+			this( familyId, tree, builder, null );
+		}
+		
+		/**
+		 * Creates a new family whose pairwise alignments are computed when they are needed for the first time.
+		 * Alignments of pairs of TALEs that are also members of <code>previous</code> are taken from <code>previous</code> 
+		 * if these have already been computed or loaded.
+		 */
+		private TALEFamily(String familyId, ClusterTree<TALE> tree, TALEFamilyBuilder builder, TALEFamily previous){
 			this.tree = tree;
 			this.id = familyId;
 		/*	this.costs = costs;
@@ -109,18 +130,61 @@ public class TALEFamilyBuilder implements Storable {
 			this.cut = cut;
 			this.extraGapOpening = extraGapOpening;
 			this.extraGapExtension = extraGapExtension;*/
-			
-			TALE[] members = tree.getClusterElements();
-			alignments = new StringAlignment[members.length][members.length];
-			for(int j=0;j<members.length;j++){
-				for(int k=0;k<members.length;k++){
-					if(j != k){
-						StringAlignment sa = TALEAligner.align( members[j], members[k], builder.costs, builder.at, builder.extraGapOpening, builder.extraGapExtension );
-						alignments[j][k] = sa;
+			this.builder = builder;
+			this.previous = previous;
+		}
+		
+		/**
+		 * Returns the pairwise alignments of the family members, which are computed on the first call.
+		 * The alignments are stored with the family by {@link #toXML()} and {@link #write(BinaryStorableWriter)},
+		 * so a family that has been loaded from either representation does not align its members again.
+		 */
+		private synchronized StringAlignment[][] getAlignments(){
+			if(alignments == null){
+				TALE[] members = tree.getClusterElements();
+				final StringAlignment[][] als = new StringAlignment[members.length][members.length];
+				StringAlignment[][] prevAls = previous == null ? null : previous.getComputedAlignments();
+				if(prevAls != null){
+					TALE[] old = previous.getFamilyMembers();
+					IdentityHashMap<TALE,Integer> index = new IdentityHashMap<TALE,Integer>();
+					for(int j=0;j<old.length;j++){
+						index.put( old[j], j );
+					}
+					for(int j=0;j<members.length;j++){
+						Integer oj = index.get( members[j] );
+						for(int k=0;oj != null && k<members.length;k++){
+							Integer ok = index.get( members[k] );
+							if(ok != null && j != k){
+								als[j][k] = prevAls[oj][ok];
+							}
+						}
 					}
 				}
+				alignPairs( members, builder.costs, builder.at, builder.extraGapOpening, builder.extraGapExtension, builder.threads, new AlignmentHandler() {
+					
+					@Override
+					public boolean isMissing( int j, int k ) {
+						return j != k && als[j][k] == null;
+					}
+					
+					@Override
+					public void set( int j, int k, StringAlignment sa ) {
+						als[j][k] = sa;
+					}
+				} );
+				alignments = als;
+				builder = null;
+				previous = null;
 			}
-			
+			return alignments;
+		}
+		
+		/**
+		 * Returns the pairwise alignments of the family members if these have already been computed or loaded,
+		 * and <code>null</code> otherwise.
+		 */
+		private synchronized StringAlignment[][] getComputedAlignments(){
+			return alignments;
 		}
 		
 		public TALEFamily(StringBuffer xml) throws NonParsableException{
@@ -137,6 +201,19 @@ public class TALEFamilyBuilder implements Storable {
 			
 		}
 		
+		@SuppressWarnings("unchecked")
+		public TALEFamily(BinaryStorableReader in) throws IOException, NonParsableException{
+			id = in.readObject( String.class );
+			alignments = in.readObject( StringAlignment[][].class );
+			tree = (ClusterTree<TALE>)in.readObject();
+		}
+		
+		public void write(BinaryStorableWriter out) throws IOException{
+			out.writeObject( id );
+			out.writeObject( getAlignments() );
+			out.writeObject( tree );
+		}
+		
 		
 		public int compareTo(TALEFamily tf2){
 			return id.compareTo( tf2.getFamilyId() );
@@ -144,7 +221,7 @@ public class TALEFamilyBuilder implements Storable {
 		
 		public StringBuffer toXML(){
 			StringBuffer xml = new StringBuffer();
-			XMLParser.appendObjectWithTags( xml, alignments, "alignments" );
+			XMLParser.appendObjectWithTags( xml, getAlignments(), "alignments" );
 /*			XMLParser.appendObjectWithTags( xml, at, "at" );
 			XMLParser.appendObjectWithTags( xml, costs, "costs" );
 			XMLParser.appendObjectWithTags( xml, cut, "cut" );
@@ -228,7 +305,7 @@ public class TALEFamilyBuilder implements Storable {
 					
 					for(int j=0;j<members.length;j++){
 						if(id2.equals( members[j].getId() )){
-							return alignments[i][j];
+							return getAlignments()[i][j];
 						}
 					}
 					
@@ -281,13 +358,7 @@ public class TALEFamilyBuilder implements Storable {
 				dist = getDist(builder);
 			}
 			if(pv == null){
-				if(builder.costs instanceof AffineCosts){
-					Costs c2 = ((AffineCosts)builder.costs).getInternalCosts();
-					if(c2 instanceof RVDCosts){
-						RVDCosts c3 = (RVDCosts) c2;
-						pv = new AlignmentPValues( builder.getAllTALEs(), c3 );
-					}
-				}
+				pv = builder.getAlignmentPValues();
 			}
 			TALE[] members = getFamilyMembers();
 			double[] ds = new double[members.length];
@@ -315,13 +386,7 @@ public class TALEFamilyBuilder implements Storable {
 		public double getFamilySignificance(AlignmentPValues pv, TALEFamilyBuilder builder){
 			
 			if(pv == null){
-				if(builder.costs instanceof AffineCosts){
-					Costs c2 = ((AffineCosts)builder.costs).getInternalCosts();
-					if(c2 instanceof RVDCosts){
-						RVDCosts c3 = (RVDCosts) c2;
-						pv = new AlignmentPValues( builder.getAllTALEs(), c3 );
-					}
-				}
+				pv = builder.getAlignmentPValues();
 			}
 			
 			if(pv == null){
@@ -331,6 +396,7 @@ public class TALEFamilyBuilder implements Storable {
 			double famsig = 0.0;
 			
 			TALE[] members = getFamilyMembers();
+			StringAlignment[][] alignments = getAlignments();
 			
 			for(int i=1;i<alignments.length;i++){
 				for(int j=0;j<i;j++){
@@ -368,13 +434,10 @@ public class TALEFamilyBuilder implements Storable {
 			sb.append("Class "+id+" for ("+builder.costs.getClass().getSimpleName()+", "+builder.cut+", "+builder.at+")\n");
 			sb.append( "distance: "+format.format( tree.getDistance())+"\n" );
 			
-			if(builder.costs instanceof AffineCosts){
-				Costs c2 = ((AffineCosts)builder.costs).getInternalCosts();
-				if(c2 instanceof RVDCosts){
-					RVDCosts c3 = (RVDCosts) c2;
-					double p = this.getFamilySignificance( new AlignmentPValues( builder.getAllTALEs(), c3 ), builder );
-					sb.append( "significance: p="+formatE.format( Math.pow( 10, p ) )+"\n" );
-				}
+			AlignmentPValues pv = builder.getAlignmentPValues();
+			if(pv != null){
+				double p = this.getFamilySignificance( pv, builder );
+				sb.append( "significance: p="+formatE.format( Math.pow( 10, p ) )+"\n" );
 			}
 			sb.append( "\n"+this.inducedMultipleAlignmentToString()+"\n" );
 			if(model != null){
@@ -389,6 +452,7 @@ public class TALEFamilyBuilder implements Storable {
 			sb.append(tree.toNewick()+"\n\n");
 			sb.append( "Alignment scores:\n" );
 			TALE[] members = tree.getClusterElements();
+			StringAlignment[][] alignments = getAlignments();
 			for(int i=1;i<members.length;i++){
 				for(int j=0;j<i;j++){
 					sb.append( members[i].getId()+" vs. "+members[j].getId()+": "+format.format( alignments[i][j].getCost() )+"\n" );
@@ -457,7 +521,7 @@ public class TALEFamilyBuilder implements Storable {
 				
 				TALEFamilyBuilder.renameTALEs(newTree, this.getFamilyId());
 				
-				TALEFamily fam = new TALEFamily( this.getFamilyId(), newTree, builder );
+				TALEFamily fam = new TALEFamily( this.getFamilyId(), newTree, builder, this );
 				
 				return fam;
 			}
@@ -488,7 +552,7 @@ public class TALEFamilyBuilder implements Storable {
 			//ClusterTree<TALE> newTree = cluster(newTales,linkage,costs,at, extraGapOpening, extraGapExtension).getSecondElement();
 			
 			newTree.leafOrder(dmat);
-			TALEFamily fam = new TALEFamily( this.getFamilyId(), newTree, builder );
+			TALEFamily fam = new TALEFamily( this.getFamilyId(), newTree, builder, this );
 			
 			return fam;
 			
@@ -870,12 +934,51 @@ public class TALEFamilyBuilder implements Storable {
 	private double cut;
 	private double pval;
 	private String[] reservedNames;
+	private AlignmentPValues pValues;
+	
+	private int threads = 1;
+	
+	/**
+	 * Sets the number of threads used by this builder for computing the pairwise alignments of TALEs.
+	 * The number of threads is not saved with the builder, so a builder computes with one thread unless this method is called.
+	 * 
+	 * @param threads the number of threads
+	 * 
+	 * @throws IllegalArgumentException if <code>threads &lt; 1</code>
+	 */
+	public void setNumberOfThreads(int threads) throws IllegalArgumentException {
+		if( threads < 1 ) {
+			throw new IllegalArgumentException( "The number of threads has to be positive." );
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * Returns the number of threads used by this builder for computing the pairwise alignments of TALEs.
+	 * 
+	 * @return the number of threads
+	 * 
+	 * @see #setNumberOfThreads(int)
+	 */
+	public int getNumberOfThreads(){
+		return threads;
+	}
 	
 	public TALEFamilyBuilder(TALE[] tales) throws IllegalArgumentException, IOException, WrongAlphabetException{
 		this(tales, new AffineCosts(5.0, new RVDCosts( 1.0, 0.2, 0.8, 0.0 ) ), Linkage.AVERAGE, AlignmentType.SEMI_GLOBAL, 1.0,0.1, 5.0, 0.01 );
 	}
 	
 	public TALEFamilyBuilder(TALE[] tales, Costs costs, Linkage linkage, AlignmentType at, double extraGapOpening, double extraGapExtension, double cut, double pval) {
+		this(tales, costs, linkage, at, extraGapOpening, extraGapExtension, cut, pval, 1);
+	}
+	
+	/**
+	 * Builds the TALE families of <code>tales</code>, where the pairwise alignments are computed using <code>threads</code> threads.
+	 * 
+	 * @see #setNumberOfThreads(int)
+	 */
+	public TALEFamilyBuilder(TALE[] tales, Costs costs, Linkage linkage, AlignmentType at, double extraGapOpening, double extraGapExtension, double cut, double pval, int threads) {
+		setNumberOfThreads( threads );
 		this.pval = pval;
 		this.at = at;
 		this.costs = costs;
@@ -884,7 +987,7 @@ public class TALEFamilyBuilder implements Storable {
 		this.extraGapOpening = extraGapOpening;
 		this.linkage = linkage;
 		
-		Pair<double[][],ClusterTree<TALE>> pair = cluster(tales,linkage,costs,at, extraGapOpening, extraGapExtension);
+		Pair<double[][],ClusterTree<TALE>> pair = cluster(tales,linkage,costs,at, extraGapOpening, extraGapExtension, threads);
 		
 		ClusterTree<TALE> tree = pair.getSecondElement();
 		
@@ -983,10 +1086,39 @@ public class TALEFamilyBuilder implements Storable {
 		pval = (Double)XMLParser.extractObjectForTags( xml, "pval" );
 	}
 	
+	public TALEFamilyBuilder(BinaryStorableReader in) throws IOException, NonParsableException {
+		at = in.readObject( AlignmentType.class );
+		costs = in.readObject( Costs.class );
+		cut = in.readDouble();
+		dmat = in.readObject( double[][].class );
+		extraGapOpening = in.readDouble();
+		extraGapExtension = in.readDouble();
+		families = in.readObject( TALEFamily[].class );
+		linkage = in.readObject( Linkage.class );
+		reservedNames = in.readObject( String[].class );
+		pval = in.readDouble();
+	}
+	
 	public AlignmentType getAlignmentType() {
 		return at;
 	}
 	
+	/**
+	 * Returns the p-values of alignment costs with respect to the RVD distribution of all TALEs of this builder,
+	 * which are computed once and re-used until the TALEs of this builder change.
+	 * 
+	 * @return the p-values or <code>null</code> if the costs are no {@link AffineCosts} based on {@link RVDCosts}
+	 */
+	public AlignmentPValues getAlignmentPValues() {
+		if(pValues == null && costs instanceof AffineCosts){
+			Costs c2 = ((AffineCosts)costs).getInternalCosts();
+			if(c2 instanceof RVDCosts){
+				pValues = new AlignmentPValues( getAllTALEs(), (RVDCosts) c2 );
+			}
+		}
+		return pValues;
+	}
+	
 	public double getExtraGapOpening() {
 		return extraGapOpening;
 	}
@@ -1017,6 +1149,19 @@ public class TALEFamilyBuilder implements Storable {
 		return xml;
 	}
 	
+	public void write(BinaryStorableWriter out) throws IOException {
+		out.writeObject( at );
+		out.writeObject( costs );
+		out.writeDouble( cut );
+		out.writeObject( dmat );
+		out.writeDouble( extraGapOpening );
+		out.writeDouble( extraGapExtension );
+		out.writeObject( families );
+		out.writeObject( linkage );
+		out.writeObject( reservedNames );
+		out.writeDouble( pval );
+	}
+	
 	private static StringBuffer storeDmat(double[][] dmat){
 		StringBuffer sb = new StringBuffer();
 		DecimalFormat df = new DecimalFormat("#.######");
@@ -1199,7 +1344,7 @@ public class TALEFamilyBuilder implements Storable {
 			tales[leaf.getOriginalIndex()] = leaf.getClusterElements()[0];
 		}
 		
-		double[][] dmat = computeDistMatrix( tales, costs, at, extraGapOpening, extraGapExtension );
+		double[][] dmat = computeDistMatrix( tales, costs, at, extraGapOpening, extraGapExtension, threads );
 		
 		Hclust<TALE> clust = new Hclust<TALE>( null, linkage );
 		
@@ -1249,16 +1394,103 @@ public class TALEFamilyBuilder implements Storable {
 	}*/
 	
 	
-	private static double[][] computeDistMatrix(TALE[] tales, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension){
-		double[][] dmat = new double[tales.length][tales.length];
+	private interface AlignmentHandler {
 		
-		for(int j=0;j<tales.length;j++){
-			for(int k=0;k<tales.length;k++){
-				double sc = TALEAligner.align( tales[j], tales[k], costs, at, extraGapOpening, extraGapExtension ).getCost();
-				dmat[j][k] = sc;
+		public boolean isMissing(int j, int k);
+		
+		public void set(int j, int k, StringAlignment sa);
+		
+	}
+	
+	/**
+	 * Computes the alignments of all ordered pairs of <code>tales</code> that are missing according to <code>handler</code>.
+	 * If two TALEs differ in their number of repeats, both orders yield the same alignment up to the order of the aligned strings, 
+	 * so only one of them is computed.
+	 * Rows are distributed dynamically among the threads, where each thread re-uses its own {@link Alignment} instance.
+	 */
+	private static void alignPairs(final TALE[] tales, final Costs costs, final AlignmentType at, final double extraGapOpening, final double extraGapExtension, int threads, final AlignmentHandler handler){
+		final AtomicInteger next = new AtomicInteger( tales.length );
+		Runnable worker = new Runnable() {
+			
+			@Override
+			public void run() {
+				Alignment al = new Alignment( costs );
+				int j;
+				while( (j = next.decrementAndGet()) >= 0 ){
+					for(int k=0;k<=j;k++){
+						boolean jk = handler.isMissing( j, k );
+						boolean kj = j != k && handler.isMissing( k, j );
+						if(!jk && !kj){
+							continue;
+						}
+						int lj = tales[j].getNumberOfRepeats(), lk = tales[k].getNumberOfRepeats();
+						if(lj == lk){
+							if(jk){
+								handler.set( j, k, TALEAligner.align( tales[j], tales[k], al, at, extraGapOpening, extraGapExtension ) );
+							}
+							if(kj){
+								handler.set( k, j, TALEAligner.align( tales[k], tales[j], al, at, extraGapOpening, extraGapExtension ) );
+							}
+						}else{
+							int a = lj > lk ? j : k, b = lj > lk ? k : j;
+							StringAlignment sa = TALEAligner.align( tales[a], tales[b], al, at, extraGapOpening, extraGapExtension );
+							if(a == j ? jk : kj){
+								handler.set( a, b, sa );
+							}
+							if(a == j ? kj : jk){
+								handler.set( b, a, TALEAligner.mirror( sa ) );
+							}
+						}
+					}
+				}
+			}
+		};
+		runInParallel( worker, tales.length, threads );
+	}
+	
+	/**
+	 * Runs <code>worker</code> in at most <code>tasks</code> of <code>threads</code> threads 
+	 * and waits until all copies have finished, where the copies of <code>worker</code> must distribute the tasks among themselves.
+	 */
+	static void runInParallel(Runnable worker, int tasks, int threads){
+		int n = Math.min( threads, tasks );
+		if(n <= 1){
+			worker.run();
+		}else{
+			ExecutorService pool = Executors.newFixedThreadPool( n );
+			try{
+				Future<?>[] futures = new Future<?>[n];
+				for(int i=0;i<n;i++){
+					futures[i] = pool.submit( worker );
+				}
+				for(int i=0;i<n;i++){
+					futures[i].get();
+				}
+			}catch(ExecutionException e){
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException( e.getCause() );
+			}catch(InterruptedException e){
+				throw new RuntimeException( e );
+			}finally{
+				pool.shutdownNow();
 			}
-			//System.out.println(tales[j].getId()+" "+Arrays.toString( dmat[j] ));
 		}
+	}
+	
+	private static double[][] computeDistMatrix(TALE[] tales, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension, int threads){
+		final double[][] dmat = new double[tales.length][tales.length];
+		
+		alignPairs( tales, costs, at, extraGapOpening, extraGapExtension, threads, new AlignmentHandler() {
+			
+			@Override
+			public boolean isMissing( int j, int k ) {
+				return true;
+			}
+			
+			@Override
+			public void set( int j, int k, StringAlignment sa ) {
+				dmat[j][k] = sa.getCost();
+			}
+		} );
 		return dmat;
 	}
 	
@@ -1278,22 +1510,24 @@ public class TALEFamilyBuilder implements Storable {
 	
 	
 	
-	private double[][] computeDistMatrix3(TALE[] tales, int firstNew, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension){
-		double[][] dmat = new double[tales.length][tales.length];
+	private double[][] computeDistMatrix3(TALE[] tales, final int firstNew, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension){
+		final double[][] dmat = new double[tales.length][tales.length];
 		
-		for(int j=0;j<tales.length;j++){
-			for(int k=0;k<tales.length;k++){
-				if(j<firstNew && k < firstNew) {
-					dmat[j][k] = this.dmat[j][k];
-					//dmat[k][j] = this.dmat[k][j];
-				}else {
-					double sc = TALEAligner.align( tales[j], tales[k], costs, at, extraGapOpening, extraGapExtension ).getCost();
-					dmat[j][k] = sc;
-					//dmat[k][j] = sc;
-				}
-			}
-			//System.out.println(tales[j].getId()+" "+Arrays.toString( dmat[j] ));
+		for(int j=0;j<firstNew;j++){
+			System.arraycopy( this.dmat[j], 0, dmat[j], 0, firstNew );
 		}
+		alignPairs( tales, costs, at, extraGapOpening, extraGapExtension, threads, new AlignmentHandler() {
+			
+			@Override
+			public boolean isMissing( int j, int k ) {
+				return j >= firstNew || k >= firstNew;
+			}
+			
+			@Override
+			public void set( int j, int k, StringAlignment sa ) {
+				dmat[j][k] = sa.getCost();
+			}
+		} );
 		return dmat;
 	}
 	
@@ -1301,10 +1535,10 @@ public class TALEFamilyBuilder implements Storable {
 	
 	
 	
-	private static Pair<double[][],ClusterTree<TALE>> cluster(TALE[] tales, Linkage linkage, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension){
+	private static Pair<double[][],ClusterTree<TALE>> cluster(TALE[] tales, Linkage linkage, Costs costs, AlignmentType at, double extraGapOpening, double extraGapExtension, int threads){
 		Hclust<TALE> hclust = new Hclust<TALE>( null, linkage );
 		
-		double[][] dmat = computeDistMatrix( tales, costs, at, extraGapOpening, extraGapExtension );
+		double[][] dmat = computeDistMatrix( tales, costs, at, extraGapOpening, extraGapExtension, threads );
 		
 		//System.out.println();
 		
@@ -1358,17 +1592,18 @@ public class TALEFamilyBuilder implements Storable {
 		
 		for(int i=0;i<families.length;i++){
 			if(className.equals(families[i].getFamilyId())){
-				double dist = families[i].getTree().getDistance();
-				ClusterTree<TALE>[] trees = Hclust.cutTree(dist-1E-6,families[i].getTree());
+				TALEFamily old = families[i];
+				double dist = old.getTree().getDistance();
+				ClusterTree<TALE>[] trees = Hclust.cutTree(dist-1E-6,old.getTree());
 				trees[0].leafOrder(dmat);
-				families[i] = new TALEFamily(families[i].getFamilyId(), trees[0], this);
+				families[i] = new TALEFamily(old.getFamilyId(), trees[0], this, old);
 				renameTALEs(trees[0],families[i].getFamilyId());
 				famList.add(families[i]);
 				for(int j=1;j<trees.length;j++){
 					trees[j].leafOrder(dmat);
 					String newName = free.removeFirst();
 					renameTALEs(trees[j],newName);
-					famList.add(new TALEFamily(newName, trees[j], this));
+					famList.add(new TALEFamily(newName, trees[j], this, old));
 				}
 			}else{
 				famList.add(families[i]);
@@ -1385,7 +1620,8 @@ public class TALEFamilyBuilder implements Storable {
 			}
 		}
 		
-		dmat = computeDistMatrix(allTALEs.toArray(new TALE[0]), costs, at, extraGapOpening, extraGapExtension);
+		dmat = computeDistMatrix(allTALEs.toArray(new TALE[0]), costs, at, extraGapOpening, extraGapExtension, threads);
+		pValues = null;
 		
 	}
 	
@@ -1455,7 +1691,7 @@ public class TALEFamilyBuilder implements Storable {
 		}
 		
 		
-		double[][] newDmat = computeDistMatrix( remain, costs, at, extraGapOpening, extraGapExtension );//TODO efficiency
+		double[][] newDmat = computeDistMatrix( remain, costs, at, extraGapOpening, extraGapExtension, threads );//TODO efficiency
 		
 		LinkedList<TALEFamily> famList = new LinkedList<TALEFamilyBuilder.TALEFamily>();
 		
@@ -1472,6 +1708,7 @@ public class TALEFamilyBuilder implements Storable {
 		
 		this.families = famList.toArray(new TALEFamily[0]);
 		this.dmat = newDmat;
+		this.pValues = null;
 		
 	}
 	
@@ -1613,6 +1850,7 @@ public class TALEFamilyBuilder implements Storable {
 		
 		this.dmat = newDmat;
 		this.families = allFams;
+		this.pValues = null;
 		
 
 	}
@@ -240,6 +240,7 @@ public class ClassAssignmentTool implements JstacsTool {
 		progress.setCurrent( 0.0 );
 		
 		TALEFamilyBuilder builder = new TALEFamilyBuilder(new StringBuffer( ((FileParameter)parameters.getParameterAt( 0 )).getFileContents().getContent()));
+		builder.setNumberOfThreads( threads );
 		TALE[] newttales = null;
 		try{
 			newttales = ClassBuilderTool.readProteinTALEs( ((FileParameter)parameters.getParameterAt( 1 )).getFileContents(), protocol );
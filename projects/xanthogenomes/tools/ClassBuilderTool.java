@@ -149,7 +149,6 @@ public class ClassBuilderTool implements JstacsTool {
 		
 		progress.setLast( 1.0 );
 		progress.setCurrent( 0.0 );
-		
 		FileRepresentation fr = ((FileParameter)parameters.getParameterAt( 0 )).getFileContents();
 		double cut = (Double)parameters.getParameterAt(1).getValue();
 		double pval = (Double)parameters.getParameterAt(2).getValue();
@@ -160,7 +159,7 @@ public class ClassBuilderTool implements JstacsTool {
 		
 		protocol.append( "Building classes.\n" );
 		
-		Pair<TALEFamilyBuilder,FamilyResult[]> res = BuildFamilies.build( ttales, cut, pval );
+		Pair<TALEFamilyBuilder,FamilyResult[]> res = BuildFamilies.build( ttales, cut, pval, threads );
 		
 		progress.setCurrent( 0.7 );
 		
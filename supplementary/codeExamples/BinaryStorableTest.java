@@ -0,0 +1,180 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.io.File;
+import java.util.Random;
+
+import projects.xanthogenomes.BuildFamilies;
+import projects.xanthogenomes.RVDAlphabetContainer;
+import projects.xanthogenomes.TALE;
+import projects.xanthogenomes.TALEFamilyBuilder;
+import de.jstacs.Storable;
+import de.jstacs.algorithms.alignment.Alignment;
+import de.jstacs.algorithms.alignment.Alignment.AlignmentType;
+import de.jstacs.algorithms.alignment.cost.SimpleCosts;
+import de.jstacs.algorithms.optimization.termination.SmallDifferenceOfFunctionEvaluationsCondition;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.LearningPrinciple;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.logPrior.CompositeLogPrior;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.sampling.SamplingGenDisMixClassifier;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.sampling.SamplingGenDisMixClassifierParameterSet;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.sampling.SamplingScoreBasedClassifier.SamplingScheme;
+import de.jstacs.data.DataSet;
+import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.data.sequences.Sequence;
+import de.jstacs.io.BinaryStorable;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
+import de.jstacs.io.FileManager;
+import de.jstacs.io.XMLParser;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.MarkovModelDiffSM;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.directedGraphicalModels.structureLearning.measures.InhomogeneousMarkov;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.homogeneous.HomogeneousMMDiffSM;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.mixture.MixtureDiffSM;
+import de.jstacs.sequenceScores.statisticalModels.trainable.TrainableStatisticalModel;
+import de.jstacs.sequenceScores.statisticalModels.trainable.TrainableStatisticalModelFactory;
+import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.AbstractHMM;
+import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.HMMFactory;
+import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.emissions.Emission;
+import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.states.emissions.discrete.DiscreteEmission;
+import de.jstacs.sequenceScores.statisticalModels.trainable.hmm.training.BaumWelchParameterSet;
+import de.jstacs.sequenceScores.statisticalModels.trainable.mixture.AbstractMixtureTrainSM.Parameterization;
+import de.jstacs.sequenceScores.statisticalModels.trainable.mixture.MixtureTrainSM;
+import de.jstacs.sequenceScores.statisticalModels.trainable.mixture.motif.ZOOPSTrainSM;
+import de.jstacs.sampling.VarianceRatioBurnInTest;
+import de.jstacs.sampling.VarianceRatioBurnInTestParameterSet;
+
+/**
+ * This class contains a {@link #main(String[])}-method that checks the {@link BinaryStorable}s of Jstacs against their XML representation.
+ * For each object, it saves the object with {@link BinaryStorableWriter}, loads it with {@link BinaryStorableReader}, and checks that
+ * the XML representation of the loaded object is identical to that of the original object and to that of the object loaded from its XML representation.
+ * It also converts the XML file to a binary file and back using {@link BinaryStorableWriter#convert(String, Class, String)}
+ * and {@link BinaryStorableReader#convert(String, String)}.
+ *
+ * @author Jan Grau, Jens Keilwagen
+ */
+public class BinaryStorableTest {
+
+	/**
+	 * @param args not used
+	 */
+	public static void main( String[] args ) throws Exception {
+		Random r = new Random( 42 );
+		DNAAlphabetContainer dna = DNAAlphabetContainer.SINGLETON;
+		DataSet fg = random( r, dna, 100, 10 ), bg = random( r, dna, 100, 10 ), seqs = random( r, dna, 20, 60 );
+
+		//HMM
+		Emission[] emissions = new Emission[]{ new DiscreteEmission( dna, 4.0 ), new DiscreteEmission( dna, new double[]{ 2.0, 1.0, 1.0, 2.0 } ) };
+		AbstractHMM hmm = HMMFactory.createErgodicHMM( new BaumWelchParameterSet( 2, new SmallDifferenceOfFunctionEvaluationsCondition( 1E-6 ), 1 ), 1, 4.0, 0.1, 100.0, emissions );
+		hmm.setOutputStream( null );
+		hmm.train( seqs );
+
+		//mixtures
+		TrainableStatisticalModel pwm = TrainableStatisticalModelFactory.createPWM( dna, 10, 4.0 );
+		MixtureTrainSM mixEm = new MixtureTrainSM( 10, new TrainableStatisticalModel[]{ pwm, pwm }, 2, new double[]{ 4.0, 4.0 }, 1, new SmallDifferenceOfFunctionEvaluationsCondition( 1E-6 ), Parameterization.LAMBDA );
+		mixEm.setOutputStream( null );
+		mixEm.train( fg );
+		MixtureTrainSM mixGibbs = new MixtureTrainSM( 10, new TrainableStatisticalModel[]{ pwm, pwm }, 3, new double[]{ 4.0, 4.0 }, 10, 60, new VarianceRatioBurnInTest( new VarianceRatioBurnInTestParameterSet( 3, 1.2 ) ) );
+		mixGibbs.setOutputStream( null );
+		mixGibbs.train( fg );
+		TrainableStatisticalModel hom = TrainableStatisticalModelFactory.createHomogeneousMarkovModel( dna, 4.0, (byte) 0 );
+		hom.train( seqs );
+		ZOOPSTrainSM zoops = new ZOOPSTrainSM( pwm, hom, true, 2, 0.7, null, 1, new SmallDifferenceOfFunctionEvaluationsCondition( 1E-6 ), Parameterization.LAMBDA );
+		zoops.setOutputStream( null );
+		zoops.train( seqs );
+		MixtureDiffSM mixDiff = new MixtureDiffSM( 2, true, new HomogeneousMMDiffSM( dna, 1, 4, 10 ), new HomogeneousMMDiffSM( dna, 0, 4, 10 ) );
+		mixDiff.initializeFunctionRandomly( false );
+
+		//sampling classifier, the burn-in ends after the minimal number of 250 samplings, which suffices for checking the storage
+		SamplingGenDisMixClassifierParameterSet ps = new SamplingGenDisMixClassifierParameterSet( dna, 10, 3, SamplingScheme.ALL_PARAMETERS, 10, 20, false, false, "test", 1 );
+		SamplingGenDisMixClassifier sampling = new SamplingGenDisMixClassifier( ps, new VarianceRatioBurnInTest( new VarianceRatioBurnInTestParameterSet( 3, Double.MAX_VALUE ) ), new double[]{ 1, 1 }, new CompositeLogPrior(), LearningPrinciple.MAP,
+				new MarkovModelDiffSM( dna, 10, 4, true, new InhomogeneousMarkov( 0 ) ), new MarkovModelDiffSM( dna, 10, 4, true, new InhomogeneousMarkov( 0 ) ) );
+		sampling.train( fg, bg );
+
+		//TALE families and alignments
+		TALE[] tales = new TALE[8];
+		String[] rvd = { "NI", "HD", "NG", "NN", "NS" };
+		for( int i = 0; i < tales.length; i++ ) {
+			StringBuffer sb = new StringBuffer();
+			for( int j = 0; j < 10 + r.nextInt( 5 ); j++ ) {
+				sb.append( (j > 0 ? "-" : "") + rvd[( i < 4 && r.nextDouble() < 0.8 ) ? j % rvd.length : r.nextInt( rvd.length )] );
+			}
+			tales[i] = new TALE( "TALE" + i, Sequence.create( RVDAlphabetContainer.SINGLETON, sb.toString(), "-" ), false, false );
+		}
+		TALEFamilyBuilder builder = BuildFamilies.build( tales, 5, 0.01 ).getFirstElement();
+		Storable alignment = new Alignment( new SimpleCosts( 0, 1, 1 ) ).getAlignment( AlignmentType.GLOBAL, fg.getElementAt( 0 ), fg.getElementAt( 1 ) );
+
+		File xmlFile = File.createTempFile( "storable", ".xml" );
+		File xmlFile2 = File.createTempFile( "storable", ".xml" );
+		File binFile = File.createTempFile( "storable", ".bin" );
+		xmlFile.deleteOnExit();
+		xmlFile2.deleteOnExit();
+		binFile.deleteOnExit();
+
+		for( Storable o : new Storable[]{ hmm, mixEm, mixGibbs, zoops, mixDiff, sampling, builder, builder.getFamilies()[0], alignment } ) {
+			String name = o.getClass().getSimpleName();
+			o.getClass().getConstructor( BinaryStorableReader.class );
+			String xml = getXML( o );
+
+			BinaryStorableWriter w = new BinaryStorableWriter( binFile.getAbsolutePath() );
+			w.write( o );
+			w.close();
+			BinaryStorableReader br = new BinaryStorableReader( binFile.getAbsolutePath() );
+			Storable fromBinary = (Storable) br.next();
+			br.close();
+			check( name + " (binary)", xml, fromBinary );
+
+			FileManager.writeFile( xmlFile, o.toXML() );
+			BinaryStorableWriter.convert( xmlFile.getAbsolutePath(), o.getClass(), binFile.getAbsolutePath() );
+			BinaryStorableReader.convert( binFile.getAbsolutePath(), xmlFile2.getAbsolutePath() );
+			check( name + " (converted)", xml, o.getClass().getConstructor( StringBuffer.class ).newInstance( FileManager.readFile( xmlFile2 ) ) );
+			System.out.println( name + "\t" + xmlFile.length() + "\t" + binFile.length() );
+		}
+		System.out.println( "identical objects" );
+	}
+
+	/**
+	 * Returns the XML representation of the object that is loaded from the XML representation of <code>s</code>.
+	 * Some classes change the declared type of arrays, e.g., of their emissions, when they are loaded from XML,
+	 * so the XML representations are compared after one round trip.
+	 */
+	private static String getXML( Storable s ) throws Exception {
+		StringBuffer sb = new StringBuffer();
+		XMLParser.appendObjectWithTags( sb, s, "object" );
+		return ((Storable) XMLParser.extractObjectForTags( sb, "object" )).toXML().toString();
+	}
+
+	private static void check( String name, String xml, Storable recovered ) throws Exception {
+		if( !xml.equals( getXML( recovered ) ) ) {
+			throw new RuntimeException( "The loaded object differs for " + name + "." );
+		}
+	}
+
+	private static DataSet random( Random r, DNAAlphabetContainer dna, int n, int length ) throws Exception {
+		Sequence[] seqs = new Sequence[n];
+		for( int i = 0; i < n; i++ ) {
+			StringBuffer sb = new StringBuffer();
+			for( int j = 0; j < length; j++ ) {
+				sb.append( dna.getSymbol( j, r.nextInt( 4 ) ) );
+			}
+			seqs[i] = Sequence.create( dna, sb.toString() );
+		}
+		return new DataSet( "random", seqs );
+	}
+}
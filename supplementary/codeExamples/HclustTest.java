@@ -0,0 +1,134 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Random;
+
+import de.jstacs.clustering.hierachical.ClusterTree;
+import de.jstacs.clustering.hierachical.Hclust;
+import de.jstacs.clustering.hierachical.Hclust.Linkage;
+
+/**
+ * This class contains a {@link #main(String[])}-method that checks the cluster trees of {@link Hclust} against
+ * the trees obtained by repeatedly merging the first closest pair of trees, i.e., the merge order, the distances,
+ * and the original indexes of the inner nodes, for each {@link Linkage}.
+ * Random distances are checked with a small tolerance on the distances of the merges,
+ * while integer distances, which lead to many ties, are checked exactly.
+ *
+ * @author Jan Grau
+ */
+public class HclustTest {
+
+	/**
+	 * @param args not used
+	 */
+	public static void main( String[] args ) {
+		Random r = new Random( 42 );
+		int failed = 0, checked = 0;
+		for( Linkage linkage : Linkage.values() ) {
+			Hclust<Integer> hclust = new Hclust<Integer>( null, linkage );
+			for( int n = 2; n <= 200; n += (n < 20 ? 1 : 30) ) {
+				for( int rep = 0; rep < 5; rep++ ) {
+					for( int ties = 0; ties < 2; ties++ ) {
+						double[][] distMat = new double[n][n];
+						for( int i = 0; i < n; i++ ) {
+							for( int j = 0; j < i; j++ ) {
+								distMat[i][j] = distMat[j][i] = ties == 0 ? r.nextDouble() : r.nextInt( 4 );
+							}
+						}
+						ClusterTree<Integer> expected = greedy( linkage, distMat, getLeaves( n ), 3 );
+						ClusterTree<Integer> actual = hclust.cluster( distMat, getLeaves( n ), 3 );
+						checked++;
+						if( !equals( expected, actual, ties == 0 ? 1E-12 : 0 ) ) {
+							failed++;
+							System.out.println( "different trees for " + linkage + ", n=" + n + ", ties=" + (ties == 1) + ":\n" + expected + "\n" + actual );
+						}
+					}
+				}
+			}
+		}
+		System.out.println( "checked " + checked + " trees, " + failed + " different" );
+	}
+
+	private static LinkedList<ClusterTree<Integer>> getLeaves( int n ) {
+		LinkedList<ClusterTree<Integer>> list = new LinkedList<ClusterTree<Integer>>();
+		for( int i = 0; i < n; i++ ) {
+			list.add( new ClusterTree<Integer>( i, i ) );
+		}
+		return list;
+	}
+
+	private static boolean equals( ClusterTree<Integer> expected, ClusterTree<Integer> actual, double eps ) {
+		if( expected.getOriginalIndex() != actual.getOriginalIndex()
+				|| Math.abs( expected.getDistance() - actual.getDistance() ) > eps * Math.max( 1, Math.abs( expected.getDistance() ) ) ) {
+			return false;
+		}
+		ClusterTree<Integer>[] subs1 = expected.getSubTrees(), subs2 = actual.getSubTrees();
+		if( subs1 == null || subs2 == null ) {
+			return subs1 == subs2 && expected.getClusterElements()[0].equals( actual.getClusterElements()[0] );
+		}
+		if( subs1.length != subs2.length ) {
+			return false;
+		}
+		for( int i = 0; i < subs1.length; i++ ) {
+			if( !equals( subs1[i], subs2[i], eps ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The previous implementation of {@link Hclust#cluster(double[][], LinkedList, int)}.
+	 */
+	private static ClusterTree<Integer> greedy( Linkage linkage, double[][] distMat, LinkedList<ClusterTree<Integer>> list, int indexOff ) {
+		int oi = -indexOff - 1;
+		while( list.size() > 1 ) {
+			Iterator<ClusterTree<Integer>> it = list.iterator();
+			int mini = -1, minj = -2; //mini>minj
+			double min = Double.POSITIVE_INFINITY;
+			int i = 0;
+			while( it.hasNext() ) {
+				ClusterTree<Integer> tree = it.next();
+				Iterator<ClusterTree<Integer>> it2 = list.iterator();
+				for( int j = 0; j < i; j++ ) {
+					ClusterTree<Integer> tree2 = it2.next();
+					double dist = Hclust.getDistance( linkage, distMat, tree, tree2 );
+					if( dist < min ) {
+						min = dist;
+						mini = i;
+						minj = j;
+					}
+				}
+				i++;
+			}
+
+			//the varargs array of the two merged trees is created by the compiler and does not escape the constructor
+			@SuppressWarnings( "unchecked" )
+			ClusterTree<Integer> nt = new ClusterTree<Integer>( min, oi, list.get( mini ), list.get( minj ) );
+			oi--;
+			list.remove( mini );
+			list.remove( minj );
+			list.add( nt );
+		}
+		return list.get( 0 );
+	}
+}
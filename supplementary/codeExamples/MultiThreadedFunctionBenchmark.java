@@ -0,0 +1,103 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import de.jstacs.classifiers.differentiableSequenceScoreBased.AbstractMultiThreadedOptimizableFunction;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.OptimizableFunction.KindOfParameter;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.LearningPrinciple;
+import de.jstacs.classifiers.differentiableSequenceScoreBased.gendismix.LogGenDisMixFunction;
+import de.jstacs.data.DataSet;
+import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.data.sequences.Sequence;
+import de.jstacs.sequenceScores.differentiable.DifferentiableSequenceScore;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.homogeneous.HomogeneousMMDiffSM;
+
+/**
+ * This class contains a {@link #main(String[])}-method that compares the time per iteration, i.e., one evaluation of the function and its gradient,
+ * of a {@link LogGenDisMixFunction} using static parts, static parts in the low-latency mode and the work-stealing mode of {@link AbstractMultiThreadedOptimizableFunction}
+ * for an increasing number of threads. The data contains sequences of very different length. For each mode, the time per iteration
+ * and the part of it that has been used for synchronization are reported.
+ *
+ * @author Jens Keilwagen
+ */
+public class MultiThreadedFunctionBenchmark {
+
+	/**
+	 * @param args optional: the maximal number of threads, the number of sequences per class, and the number of iterations
+	 */
+	public static void main( String[] args ) throws Exception {
+		int maxThreads = args.length > 0 ? Integer.parseInt( args[0] ) : AbstractMultiThreadedOptimizableFunction.getNumberOfAvailableProcessors();
+		int n = args.length > 1 ? Integer.parseInt( args[1] ) : 2000;
+		int it = args.length > 2 ? Integer.parseInt( args[2] ) : 20;
+
+		Random r = new Random( 42 );
+		DataSet[] data = { createData( r, n ), createData( r, n ) };
+		double[][] weights = { new double[n], new double[n] };
+		Arrays.fill( weights[0], 1 );
+		Arrays.fill( weights[1], 1 );
+
+		System.out.println( "threads\tstatic [ms]\tsync [ms]\tlow-latency [ms]\tsync [ms]\twork-stealing [ms]\tsync [ms]" );
+		for( int t = 1; t <= maxThreads; t++ ) {
+			System.out.println( t
+					+ "\t" + time( t, false, data, weights, it )
+					+ "\t" + time( t, true, data, weights, it )
+					+ "\t" + time( AbstractMultiThreadedOptimizableFunction.getWorkStealingThreads( t ), false, data, weights, it ) );
+		}
+	}
+
+	private static DataSet createData( Random r, int n ) throws Exception {
+		char[] nuc = { 'A', 'C', 'G', 'T' };
+		Sequence[] seqs = new Sequence[n];
+		for( int i = 0; i < n; i++ ) {
+			//log-normal distributed lengths, i.e., a few very long sequences
+			int len = 20 + (int) Math.exp( 5 + 1.5*r.nextGaussian() );
+			char[] s = new char[len];
+			for( int j = 0; j < len; j++ ) {
+				s[j] = nuc[r.nextInt( nuc.length )];
+			}
+			seqs[i] = Sequence.create( DNAAlphabetContainer.SINGLETON, new String( s ) );
+		}
+		return new DataSet( "random", seqs );
+	}
+
+	private static String time( int threads, boolean lowLatency, DataSet[] data, double[][] weights, int it ) throws Exception {
+		DifferentiableSequenceScore[] score = new DifferentiableSequenceScore[data.length];
+		for( int i = 0; i < score.length; i++ ) {
+			score[i] = new HomogeneousMMDiffSM( DNAAlphabetContainer.SINGLETON, 3, 0, 100 );
+			score[i].initializeFunctionRandomly( false );
+		}
+		LogGenDisMixFunction f = new LogGenDisMixFunction( threads, score, data, weights, null, LearningPrinciple.getBeta( LearningPrinciple.MCL ), true, false );
+		f.reset();
+		f.setLowLatency( lowLatency );
+		double[] params = f.getParameters( KindOfParameter.LAST );
+		f.evaluateGradientOfFunction( params );
+		f.resetTimes();
+		long start = System.nanoTime();
+		for( int i = 0; i < it; i++ ) {
+			f.evaluateFunction( params );
+			f.evaluateGradientOfFunction( params );
+		}
+		double ms = (System.nanoTime() - start) / 1E6 / it;
+		f.stopThreads();
+		return ms + "\t" + (f.getSynchronizationTime() / 1E6 / it);
+	}
+}
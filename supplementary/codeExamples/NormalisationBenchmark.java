@@ -0,0 +1,96 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.util.Random;
+
+import de.jstacs.utils.Normalisation;
+import de.jstacs.utils.Normalisation.Accuracy;
+
+/**
+ * This class contains a {@link #main(String[])}-method that compares the {@link Accuracy}s of {@link Normalisation}.
+ * For arrays of different length, it reports the time per call of {@link Normalisation#getLogSum(double...)} and
+ * {@link Normalisation#logSumNormalisation(double[], int, int, double[], int)}, and the maximal absolute error
+ * of the log-sums and the normalised values of {@link Accuracy#FAST} compared to {@link Accuracy#EXACT}.
+ * Finally, it reports the maximal relative error of {@link Normalisation#fastExp(double)}.
+ *
+ * @author Jens Keilwagen, Jan Grau
+ */
+public class NormalisationBenchmark {
+
+	/**
+	 * @param args optional: the number of arrays per length and the number of repetitions
+	 */
+	public static void main( String[] args ) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt( args[0] ) : 100000;
+		int rep = args.length > 1 ? Integer.parseInt( args[1] ) : 5;
+		Random r = new Random( 42 );
+
+		System.out.println( "length\tlog-sum exact [ns]\tlog-sum fast [ns]\tmax. error\tnormalisation exact [ns]\tnormalisation fast [ns]\tmax. error" );
+		for( int length : new int[]{ 2, 4, 16, 64, 256 } ) {
+			double[][] data = new double[n][length];
+			for( int i = 0; i < n; i++ ) {
+				for( int j = 0; j < length; j++ ) {
+					//log-values spanning several orders of magnitude, some impossible events
+					data[i][j] = r.nextInt( 20 ) == 0 ? Double.NEGATIVE_INFINITY : -50 * r.nextDouble() - 1000 * r.nextInt( 2 );
+				}
+			}
+			double[][] res = new double[2][n];
+			double[][][] norm = new double[2][n][length];
+			double[] time = new double[4];
+			for( int k = 0; k < rep; k++ ) {
+				for( int a = 0; a < 2; a++ ) {
+					Normalisation.setAccuracy( a == 0 ? Accuracy.EXACT : Accuracy.FAST );
+					long start = System.nanoTime();
+					for( int i = 0; i < n; i++ ) {
+						res[a][i] = Normalisation.getLogSum( data[i] );
+					}
+					long middle = System.nanoTime();
+					for( int i = 0; i < n; i++ ) {
+						Normalisation.logSumNormalisation( data[i], 0, length, norm[a][i], 0 );
+					}
+					long end = System.nanoTime();
+					if( k == rep - 1 ) {
+						time[a] = (middle - start) / (double) n;
+						time[2 + a] = (end - middle) / (double) n;
+					}
+				}
+			}
+			double errSum = 0, errNorm = 0;
+			for( int i = 0; i < n; i++ ) {
+				if( res[0][i] != res[1][i] ) {
+					errSum = Math.max( errSum, Math.abs( res[0][i] - res[1][i] ) );
+				}
+				for( int j = 0; j < length; j++ ) {
+					errNorm = Math.max( errNorm, Math.abs( norm[0][i][j] - norm[1][i][j] ) );
+				}
+			}
+			System.out.println( length + "\t" + time[0] + "\t" + time[1] + "\t" + errSum + "\t" + time[2] + "\t" + time[3] + "\t" + errNorm );
+		}
+		Normalisation.setAccuracy( Accuracy.EXACT );
+
+		double maxRel = 0;
+		for( int i = 0; i < 10 * n; i++ ) {
+			double x = -708 + 1417 * r.nextDouble();
+			double e = Math.exp( x );
+			maxRel = Math.max( maxRel, Math.abs( Normalisation.fastExp( x ) - e ) / e );
+		}
+		System.out.println( "max. relative error of fastExp: " + maxRel + " (" + maxRel / Math.ulp( 1d ) + " ulps)" );
+	}
+}
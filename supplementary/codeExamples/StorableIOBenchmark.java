@@ -0,0 +1,112 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import de.jstacs.Storable;
+import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.io.BinaryStorableReader;
+import de.jstacs.io.BinaryStorableWriter;
+import de.jstacs.io.FileManager;
+import de.jstacs.io.XMLParser;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.homogeneous.HomogeneousMMDiffSM;
+import de.jstacs.sequenceScores.statisticalModels.trainable.PFMWrapperTrainSM;
+
+/**
+ * This class contains a {@link #main(String[])}-method that compares saving and loading {@link Storable}s as XML files
+ * and with {@link BinaryStorableWriter} and {@link BinaryStorableReader}.
+ * For each object, it reports the file sizes, the time for saving and loading, and the throughput in MB of XML per second.
+ * It also checks that the object loaded from the binary file is identical to the original object.
+ * The objects are a {@link Storable} that is written using its XML representation, a {@link de.jstacs.io.BinaryStorable}, and an array.
+ *
+ * @author Jan Grau, Jens Keilwagen
+ */
+public class StorableIOBenchmark {
+
+	/**
+	 * @param args optional: the number of repetitions
+	 */
+	public static void main( String[] args ) throws Exception {
+		int rep = args.length > 0 ? Integer.parseInt( args[0] ) : 5;
+		Random r = new Random( 42 );
+
+		HomogeneousMMDiffSM hmm = new HomogeneousMMDiffSM( DNAAlphabetContainer.SINGLETON, 5, 4, 100 );
+		hmm.initializeFunctionRandomly( false );
+		double[][] pfm = new double[2000][4];
+		for( int i = 0; i < pfm.length; i++ ) {
+			for( int a = 0; a < 4; a++ ) {
+				pfm[i][a] = r.nextInt( 100 );
+			}
+		}
+		PFMWrapperTrainSM pwm = new PFMWrapperTrainSM( DNAAlphabetContainer.SINGLETON, null, pfm, 4 );
+		double[][] matrix = new double[300][300];
+		for( int i = 0; i < matrix.length; i++ ) {
+			for( int j = 0; j < matrix[i].length; j++ ) {
+				matrix[i][j] = r.nextGaussian();
+			}
+		}
+
+		File xmlFile = File.createTempFile( "storable", ".xml" );
+		File binFile = File.createTempFile( "storable", ".bin" );
+		xmlFile.deleteOnExit();
+		binFile.deleteOnExit();
+
+		System.out.println( "object\tXML [bytes]\tbinary [bytes]\tsave XML [ms]\tsave binary [ms]\tload XML [ms]\tload binary [ms]\tsave XML [MB/s]\tsave binary [MB/s]\tload XML [MB/s]\tload binary [MB/s]" );
+		for( Object o : new Object[]{ hmm, pwm, matrix } ) {
+			StringBuffer xml = new StringBuffer();
+			XMLParser.appendObjectWithTags( xml, o, "object" );
+			double mb = xml.length() / 1E6;
+			double[] time = new double[4];
+			for( int k = 0; k < rep; k++ ) {
+				long t0 = System.nanoTime();
+				StringBuffer sb = new StringBuffer();
+				XMLParser.appendObjectWithTags( sb, o, "object" );
+				FileManager.writeFile( xmlFile, sb );
+				long t1 = System.nanoTime();
+				BinaryStorableWriter w = new BinaryStorableWriter( binFile.getAbsolutePath() );
+				w.write( o );
+				w.close();
+				long t2 = System.nanoTime();
+				XMLParser.extractObjectForTags( FileManager.readFile( xmlFile ), "object" );
+				long t3 = System.nanoTime();
+				BinaryStorableReader br = new BinaryStorableReader( binFile.getAbsolutePath() );
+				br.next();
+				br.close();
+				long t4 = System.nanoTime();
+				time[0] = (t1-t0)/1E6;
+				time[1] = (t2-t1)/1E6;
+				time[2] = (t3-t2)/1E6;
+				time[3] = (t4-t3)/1E6;
+			}
+			BinaryStorableReader br = new BinaryStorableReader( binFile.getAbsolutePath() );
+			Object recovered = br.next();
+			br.close();
+			if( o instanceof Storable ? !((Storable) recovered).toXML().toString().equals( ((Storable) o).toXML().toString() ) : !Arrays.deepEquals( (Object[]) o, (Object[]) recovered ) ) {
+				throw new RuntimeException( "The object loaded from the binary file differs for " + o.getClass().getSimpleName() + "." );
+			}
+			System.out.println( o.getClass().getSimpleName() + "\t" + xmlFile.length() + "\t" + binFile.length()
+					+ "\t" + time[0] + "\t" + time[1] + "\t" + time[2] + "\t" + time[3]
+					+ "\t" + mb/time[0]*1E3 + "\t" + mb/time[1]*1E3 + "\t" + mb/time[2]*1E3 + "\t" + mb/time[3]*1E3 );
+		}
+		System.out.println( "identical objects" );
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of Jstacs.
+ *
+ * Jstacs is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Jstacs is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Jstacs. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information on Jstacs, visit http://www.jstacs.de
+ */
+
+package supplementary.codeExamples;
+
+import java.util.Random;
+
+import de.jstacs.data.alphabets.DNAAlphabetContainer;
+import de.jstacs.data.sequences.IntSequence;
+import de.jstacs.data.sequences.Sequence;
+import de.jstacs.data.sequences.annotation.StrandedLocatedSequenceAnnotationWithLength.Strand;
+import de.jstacs.sequenceScores.QuickScanningSequenceScore;
+import de.jstacs.sequenceScores.SequenceScore;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.localMixture.LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder;
+import de.jstacs.sequenceScores.statisticalModels.differentiable.localMixture.LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder.PriorType;
+import de.jstacs.sequenceScores.statisticalModels.trainable.PFMWrapperTrainSM;
+import de.jstacs.utils.ToolBox;
+
+/**
+ * This class contains a {@link #main(String[])}-method that compares the time for scoring all windows of a long sequence
+ * on both strands using {@link SequenceScore#getLogScoreFor(Sequence, int)} for each window,
+ * using {@link QuickScanningSequenceScore#fillInfixScore(int[], int, int, double[])} for each window,
+ * using {@link SequenceScore#getLogScoreProfile(Sequence, int, int, double[], Strand)},
+ * and using {@link QuickScanningSequenceScore#fillWindowScores(int[], int, int, double[], double[])}.
+ * This is done for a {@link PFMWrapperTrainSM} and for a {@link LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder},
+ * which is the model scanned by {@link projects.quickscan.QuickMotifProfileTool}.
+ * It also checks that {@link QuickScanningSequenceScore#fillWindowScores(int[], int, int, double[], double[])} yields the
+ * same scores as {@link QuickScanningSequenceScore#fillInfixScore(int[], int, int, double[])}, that
+ * {@link SequenceScore#getLogScoreProfile(Sequence, int, int, double[], Strand)} yields the same scores as
+ * {@link SequenceScore#getLogScoreFor(Sequence, int)}, and that all ways yield identical scores for the {@link PFMWrapperTrainSM}.
+ *
+ * @author Jan Grau
+ */
+public class WindowScanningBenchmark {
+
+	/**
+	 * @param args optional: the length of the sequence, the length of the motif, the number of repetitions, 
+	 * and the order and the distance of the {@link LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder}
+	 */
+	public static void main( String[] args ) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt( args[0] ) : 10000000;
+		int l = args.length > 1 ? Integer.parseInt( args[1] ) : 15;
+		int rep = args.length > 2 ? Integer.parseInt( args[2] ) : 5;
+		int order = args.length > 3 ? Integer.parseInt( args[3] ) : 2;
+		int distance = args.length > 4 ? Integer.parseInt( args[4] ) : 4;
+
+		Random r = new Random( 42 );
+		double[][] pfm = new double[l][4];
+		for( int i = 0; i < l; i++ ) {
+			for( int a = 0; a < 4; a++ ) {
+				pfm[i][a] = r.nextInt( 100 );
+			}
+		}
+		PFMWrapperTrainSM pwm = new PFMWrapperTrainSM( DNAAlphabetContainer.SINGLETON, null, pfm, 4 );
+		LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder lslim = new LimitedSparseLocalInhomogeneousMixtureDiffSM_higherOrder( DNAAlphabetContainer.SINGLETON, l, order, distance, 4, 0.9, PriorType.BDeu );
+		lslim.initializeFunctionRandomly( false );
+		int[] codes = new int[n];
+		for( int i = 0; i < n; i++ ) {
+			codes[i] = r.nextInt( 4 );
+		}
+		Sequence seq = new IntSequence( DNAAlphabetContainer.SINGLETON, codes );
+
+		benchmark( pwm, seq, codes, rep, true );
+		benchmark( lslim, seq, codes, rep, false );
+	}
+
+	private static void benchmark( QuickScanningSequenceScore model, Sequence seq, int[] codes, int rep, boolean all ) throws Exception {
+		int n = codes.length, l = model.getLength();
+		//per window, infix scores, profile, window scores
+		double[][][] scores = new double[4][2][n-l+1];
+		System.out.println( model.getInstanceName() );
+		System.out.println( "repetition\tper window [ms]\tinfix scores [ms]\tprofile [ms]\twindow scores [ms]" );
+		for( int k = 0; k < rep; k++ ) {
+			long[] time = new long[5];
+			time[0] = System.nanoTime();
+			scorePerWindow( model, seq, scores[0][0], scores[0][1] );
+			time[1] = System.nanoTime();
+			scorePerInfix( model, codes, scores[1][0], scores[1][1] );
+			time[2] = System.nanoTime();
+			model.getLogScoreProfile( seq, 0, n, scores[2][0], Strand.FORWARD );
+			model.getLogScoreProfile( seq, 0, n, scores[2][1], Strand.REVERSE );
+			time[3] = System.nanoTime();
+			model.fillWindowScores( codes, 0, n, scores[3][0], scores[3][1] );
+			time[4] = System.nanoTime();
+			System.out.print( k );
+			for( int t = 1; t < time.length; t++ ) {
+				System.out.print( "\t" + (time[t]-time[t-1])/1E6 );
+			}
+			System.out.println();
+		}
+		check( scores[2], scores[0] );
+		check( scores[3], scores[1] );
+		if( all ) {
+			check( scores[1], scores[0] );
+		}
+		System.out.println( "identical scores" );
+	}
+
+	private static void check( double[][] actual, double[][] expected ) {
+		for( int d = 0; d < 2; d++ ) {
+			for( int i = 0; i < expected[d].length; i++ ) {
+				if( expected[d][i] != actual[d][i] ) {
+					throw new RuntimeException( "Different scores at position " + i + " on strand " + d + ": " + expected[d][i] + " vs. " + actual[d][i] );
+				}
+			}
+		}
+	}
+
+	private static void scorePerInfix( QuickScanningSequenceScore model, int[] codes, double[] fwd, double[] rc ) {
+		int l = model.getLength(), n = codes.length;
+		int[] window = new int[l];
+		double[] scores = new double[l];
+		for( int p = 0; p + l <= n; p++ ) {
+			System.arraycopy( codes, p, window, 0, l );
+			model.fillInfixScore( window, 0, l, scores );
+			fwd[p] = ToolBox.sum( scores );
+			for( int i = 0; i < l; i++ ) {
+				window[i] = 3-codes[p+l-1-i];
+			}
+			model.fillInfixScore( window, 0, l, scores );
+			rc[p] = ToolBox.sum( scores );
+		}
+	}
+
+	private static void scorePerWindow( SequenceScore model, Sequence seq, double[] fwd, double[] rc ) throws Exception {
+		int l = model.getLength(), n = seq.getLength();
+		Sequence rev = seq.reverseComplement();
+		for( int p = 0; p + l <= n; p++ ) {
+			fwd[p] = model.getLogScoreFor( seq, p );
+			rc[p] = model.getLogScoreFor( rev, n-p-l );
+		}
+	}
+}